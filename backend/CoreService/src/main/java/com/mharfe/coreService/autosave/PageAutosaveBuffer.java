@@ -0,0 +1,249 @@
+package com.mharfe.coreService.autosave;
+
+import com.mharfe.coreService.event.PageChangedEvent;
+import com.mharfe.coreService.model.book.Page;
+import com.mharfe.coreService.repository.MongoIds;
+import com.mharfe.coreService.repository.Versioning;
+import com.mongodb.bulk.BulkWriteResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Write-behind buffer for editor autosaves. Each autosave replaces the pending edit
+ * of its page in memory; a background flush writes the latest text of every page
+ * that has been idle for {@code idle-flush-ms} or dirty for {@code max-staleness-ms},
+ * in unordered bulk writes. Page reads overlay pending edits.
+ * <p>
+ * The buffer is per instance, so anything reading Mongo directly (exports, search
+ * indexing, other nodes) lags by at most the staleness bound plus one flush interval.
+ */
+@Component
+public class PageAutosaveBuffer {
+    private static final Logger logger = LoggerFactory.getLogger(PageAutosaveBuffer.class);
+
+    private final Map<String, PendingPageEdit> pending = new ConcurrentHashMap<>();
+    // Pages whose buffered edit was dropped because the stored page changed underneath it
+    private final Set<String> conflicted = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final MongoTemplate mongoTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final long idleNanos;
+    private final long maxStalenessNanos;
+    private final int batchSize;
+    private final Counter edits;
+    private final Counter writes;
+    private final Counter conflicts;
+
+    public PageAutosaveBuffer(MongoTemplate mongoTemplate,
+                              ApplicationEventPublisher eventPublisher,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.autosave.idle-flush-ms:5000}") long idleFlushMs,
+                              @Value("${app.autosave.max-staleness-ms:30000}") long maxStalenessMs,
+                              @Value("${app.autosave.batch-size:500}") int batchSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.eventPublisher = eventPublisher;
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleFlushMs);
+        this.maxStalenessNanos = TimeUnit.MILLISECONDS.toNanos(maxStalenessMs);
+        this.batchSize = batchSize;
+        this.edits = meterRegistry.counter("autosave.edits");
+        this.writes = meterRegistry.counter("autosave.writes");
+        this.conflicts = meterRegistry.counter("autosave.conflicts");
+        meterRegistry.gauge("autosave.pending", pending, Map::size);
+    }
+
+    /**
+     * Buffers an edit. {@code stored} is only called when the page has no pending
+     * edit yet and must return the stored page after checking the caller may edit it.
+     */
+    public PendingPageEdit record(String pageId, UUID userId, Long expectedVersion, String textContent, int pageNumber,
+                                  Supplier<PendingPageEdit> stored) {
+        while (true) {
+            PendingPageEdit current = pending.get(pageId);
+            if (current != null && !current.ownerId().equals(userId)) {
+                throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You don't have permission to access this book");
+            }
+            PendingPageEdit base = current != null ? current : stored.get();
+            Versioning.check(base.version(), expectedVersion);
+
+            PendingPageEdit next = base.edit(textContent, pageNumber, System.nanoTime(), current == null);
+            boolean recorded = current != null
+                ? pending.replace(pageId, current, next)
+                : pending.putIfAbsent(pageId, next) == null;
+            if (recorded) {
+                edits.increment();
+                return next;
+            }
+        }
+    }
+
+    public PendingPageEdit get(String pageId) {
+        return pending.get(pageId);
+    }
+
+    /**
+     * True once for a page whose last buffered edit could not be written.
+     */
+    public boolean takeConflict(String pageId) {
+        return conflicted.remove(pageId);
+    }
+
+    public void discard(String pageId) {
+        pending.remove(pageId);
+        conflicted.remove(pageId);
+    }
+
+    public int size() {
+        return pending.size();
+    }
+
+    @Scheduled(fixedDelayString = "${app.autosave.flush-interval-ms:1000}")
+    public void flushDue() {
+        long now = System.nanoTime();
+        List<PendingPageEdit> due = pending.values().stream()
+            .filter(edit -> edit.isDue(now, idleNanos, maxStalenessNanos))
+            .toList();
+        if (!due.isEmpty()) {
+            flush(due);
+        }
+    }
+
+    /**
+     * Writes the pending edit of one page before a direct save of it, so the save starts
+     * from the stored version. Unlike the background flush, a failed write is thrown
+     * rather than left for a retry, and only the edit that was written leaves the
+     * buffer: an autosave recorded meanwhile stays pending on top of it.
+     */
+    public void writeBeforeSave(String pageId) {
+        flushLock.lock();
+        try {
+            // The direct save supersedes an edit that could not be written earlier
+            conflicted.remove(pageId);
+            PendingPageEdit edit = pending.get(pageId);
+            if (edit != null) {
+                writeBatch(List.of(edit));
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the pending edits of the given pages now, e.g. before they are moved.
+     */
+    public void flushPages(Collection<String> pageIds) {
+        List<PendingPageEdit> edits = pageIds.stream()
+            .map(pending::get)
+            .filter(Objects::nonNull)
+            .toList();
+        if (!edits.isEmpty()) {
+            flush(edits);
+        }
+    }
+
+    @PreDestroy
+    public void flushAll() {
+        flush(List.copyOf(pending.values()));
+        logger.info("Flushed autosave buffer on shutdown");
+    }
+
+    // Locked so the scheduled flush and an explicit one never write the same edit twice. A
+    // ReentrantLock rather than synchronized: the bulk write would pin a virtual thread's carrier
+    private void flush(List<PendingPageEdit> candidates) {
+        flushLock.lock();
+        try {
+            // Re-read under the lock: an edit may have been written or superseded since it was picked
+            List<PendingPageEdit> edits = candidates.stream()
+                .map(edit -> pending.get(edit.pageId()))
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+            for (int from = 0; from < edits.size(); from += batchSize) {
+                List<PendingPageEdit> batch = edits.subList(from, Math.min(from + batchSize, edits.size()));
+                try {
+                    writeBatch(batch);
+                } catch (DataAccessException e) {
+                    // Left pending; the next flush retries
+                    logger.error("Failed to flush {} autosaved pages", batch.size(), e);
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void writeBatch(List<PendingPageEdit> batch) {
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Page.class);
+        for (PendingPageEdit edit : batch) {
+            ops.updateOne(Query.query(Versioning.expect(Criteria.where("id").is(edit.pageId()), edit.baseVersion())),
+                edit.toUpdate());
+        }
+        BulkWriteResult result = ops.execute();
+        Set<String> written = result.getMatchedCount() == batch.size() ? null : findWritten(batch);
+
+        for (PendingPageEdit edit : batch) {
+            if (written == null || written.contains(edit.pageId())) {
+                // Keep edits that arrived during the write, now based on what was just stored
+                pending.computeIfPresent(edit.pageId(), (id, current) -> current.equals(edit) ? null : current.rebase(edit.version()));
+                writes.increment();
+                eventPublisher.publishEvent(PageChangedEvent.saved(edit.pageId(), edit.chapterId(), edit.bookId(),
+                    edit.ownerId(), edit.pageNumber(), edit.textContent()));
+            } else {
+                pending.remove(edit.pageId());
+                conflicted.add(edit.pageId());
+                conflicts.increment();
+                logger.warn("Dropped autosaved edit of page {}: stored page is no longer at version {}",
+                    edit.pageId(), edit.baseVersion());
+            }
+        }
+    }
+
+    /**
+     * Pages of the batch whose stored state is now the edit. The text is compared too,
+     * because a concurrent direct save can land on the same version number.
+     */
+    private Set<String> findWritten(List<PendingPageEdit> batch) {
+        Map<String, PendingPageEdit> edits = new HashMap<>();
+        batch.forEach(edit -> edits.put(edit.pageId(), edit));
+        Query query = Query.query(Criteria.where("_id").in(MongoIds.toObjectIds(edits.keySet())));
+        query.fields().include(Versioning.FIELD, "textContent");
+
+        Set<String> written = new HashSet<>();
+        for (Document page : mongoTemplate.find(query, Document.class, "pages")) {
+            PendingPageEdit edit = edits.get(page.get("_id").toString());
+            if (page.get(Versioning.FIELD) instanceof Number version && version.longValue() == edit.version()
+                    && Objects.equals(page.getString("textContent"), edit.textContent())) {
+                written.add(edit.pageId());
+            }
+        }
+        return written;
+    }
+}
@@ -0,0 +1,48 @@
+package com.mharfe.coreService.autosave;
+
+import com.mharfe.coreService.repository.Versioning;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.UUID;
+
+/**
+ * Latest unsaved text of a page. {@code baseVersion} is the version stored in Mongo,
+ * {@code version} the one the page will have once this edit is written; every
+ * autosave bumps it, so clients can keep sending the version they last saw.
+ */
+public record PendingPageEdit(String pageId, String chapterId, String bookId, UUID ownerId,
+                              String textContent, int pageNumber, long baseVersion, long version,
+                              long firstEditNanos, long lastEditNanos) {
+
+    /**
+     * Snapshot of a stored page, used as the starting point of its first buffered edit.
+     */
+    public static PendingPageEdit stored(String pageId, String chapterId, String bookId, UUID ownerId,
+                                         String textContent, int pageNumber, long version) {
+        return new PendingPageEdit(pageId, chapterId, bookId, ownerId, textContent, pageNumber, version, version, 0, 0);
+    }
+
+    PendingPageEdit edit(String textContent, int pageNumber, long now, boolean first) {
+        return new PendingPageEdit(pageId, chapterId, bookId, ownerId, textContent, pageNumber,
+            baseVersion, version + 1, first ? now : firstEditNanos, now);
+    }
+
+    PendingPageEdit rebase(long storedVersion) {
+        return new PendingPageEdit(pageId, chapterId, bookId, ownerId, textContent, pageNumber,
+            storedVersion, version, firstEditNanos, lastEditNanos);
+    }
+
+    boolean isDue(long now, long idleNanos, long maxStalenessNanos) {
+        return now - lastEditNanos >= idleNanos || now - firstEditNanos >= maxStalenessNanos;
+    }
+
+    Update toUpdate() {
+        // bookId/ownerId are rewritten so pages that predate them are backfilled
+        return new Update()
+            .set("textContent", textContent)
+            .set("pageNumber", pageNumber)
+            .set("bookId", bookId)
+            .set("ownerId", ownerId)
+            .set(Versioning.FIELD, version);
+    }
+}
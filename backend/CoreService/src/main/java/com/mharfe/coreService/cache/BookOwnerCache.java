@@ -0,0 +1,41 @@
+package com.mharfe.coreService.cache;
+
+import com.mharfe.coreService.event.BookChangedEvent;
+import com.mharfe.coreService.model.book.Book;
+import com.mharfe.coreService.repository.MongoIds;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.UUID;
+
+/**
+ * Owner of each book by id, read with an _id lookup that projects only userId.
+ * Books marked for deletion have no owner.
+ */
+@Component
+public class BookOwnerCache {
+
+    private final MongoTemplate mongoTemplate;
+
+    public BookOwnerCache(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Cacheable(cacheNames = CacheNames.BOOK_OWNERS, unless = "#result == null")
+    public UUID findOwnerId(String bookId) {
+        Query query = Query.query(Criteria.where("_id").is(MongoIds.toObjectId(bookId)).and("deletedAt").is(null));
+        query.fields().include("userId");
+        Book book = mongoTemplate.findOne(query, Book.class);
+        return book != null ? book.getUserId() : null;
+    }
+
+    @CacheEvict(cacheNames = CacheNames.BOOK_OWNERS, key = "#event.bookId()")
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+    }
+}
@@ -0,0 +1,13 @@
+package com.mharfe.coreService.cache;
+
+/**
+ * Names of the caches configured under {@code spring.cache.cache-names}.
+ */
+public final class CacheNames {
+
+    public static final String USER_DETAILS = "user-details";
+    public static final String BOOK_OWNERS = "book-owners";
+
+    private CacheNames() {
+    }
+}
@@ -0,0 +1,167 @@
+package com.mharfe.coreService.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.mharfe.coreService.dto.book.BookDTO;
+import com.mharfe.coreService.dto.book.ChapterBasicDTO;
+import com.mharfe.coreService.dto.book.ChapterDTO;
+import com.mharfe.coreService.dto.book.PageBasicDTO;
+import com.mharfe.coreService.event.BookChangedEvent;
+import com.mharfe.coreService.event.ChapterChangedEvent;
+import com.mharfe.coreService.event.PageChangedEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Mapped {@link BookDTO}s and {@link ChapterDTO}s by id, so re-opening a book or
+ * chapter does not resolve its references again. Both caches are bounded by an
+ * estimate of their size in bytes.
+ * <p>
+ * Entries are evicted by the change events every write publishes: a book by its own
+ * events and those of its chapters, a chapter by its own events and those of its
+ * pages, including pages that have since moved to another chapter. A miss loads
+ * inside the cache, so an eviction arriving while a read is building the entry
+ * waits for it and then removes it rather than leaving the older version cached.
+ * {@code expire-after-write} bounds how long a change made outside these services
+ * can go unnoticed. Chapter audio and summaries are attached without any event, so
+ * cached chapters leave them out and {@code ChapterService} reads them per request.
+ */
+@Component
+public class DtoCache {
+    // Rough per-object overhead and per-character cost used to weigh entries
+    private static final int OBJECT_BYTES = 64;
+    private static final int CHAR_BYTES = 2;
+
+    private final Cache<String, BookDTO> books;
+    private final Cache<String, ChapterDTO> chapters;
+    // Chapter of every page in a cached chapter, so a page leaving the chapter evicts it
+    private final Map<String, String> chapterOfPage = new ConcurrentHashMap<>();
+
+    public DtoCache(MeterRegistry meterRegistry,
+                    @Value("${app.dto-cache.max-bytes:67108864}") long maxBytes,
+                    @Value("${app.dto-cache.expire-after-write-ms:600000}") long expireAfterWriteMs) {
+        Duration expireAfterWrite = Duration.ofMillis(expireAfterWriteMs);
+        this.books = Caffeine.newBuilder()
+            .maximumWeight(maxBytes / 4)
+            .weigher((String id, BookDTO book) -> weigh(book))
+            .expireAfterWrite(expireAfterWrite)
+            .recordStats()
+            .build();
+        this.chapters = Caffeine.newBuilder()
+            .maximumWeight(maxBytes - maxBytes / 4)
+            .weigher((String id, ChapterDTO chapter) -> weigh(chapter))
+            .expireAfterWrite(expireAfterWrite)
+            // Run removal listeners on the removing thread, before a reload can map the pages again
+            .executor(Runnable::run)
+            .removalListener((String id, ChapterDTO chapter, RemovalCause cause) -> forgetPages(id, chapter))
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, books, "book-dtos");
+        CaffeineCacheMetrics.monitor(meterRegistry, chapters, "chapter-dtos");
+        Gauge.builder("dto.cache.bytes", books, cache -> weightedSize(cache))
+            .tag("cache", "book-dtos").baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("dto.cache.bytes", chapters, cache -> weightedSize(cache))
+            .tag("cache", "chapter-dtos").baseUnit("bytes").register(meterRegistry);
+    }
+
+    /**
+     * The cached book, or the one {@code loader} builds. Nothing is cached when the
+     * loader throws.
+     */
+    public BookDTO book(String id, Supplier<BookDTO> loader) {
+        return books.get(id, key -> loader.get());
+    }
+
+    public ChapterDTO chapter(String id, Supplier<ChapterDTO> loader) {
+        return chapters.get(id, key -> {
+            ChapterDTO chapter = loader.get();
+            if (chapter.getPages() != null) {
+                chapter.getPages().forEach(page -> chapterOfPage.put(page.getId(), id));
+            }
+            return chapter;
+        });
+    }
+
+    /**
+     * The cached book, without loading it on a miss; null when not cached.
+     */
+    public BookDTO cachedBook(String id) {
+        return books.getIfPresent(id);
+    }
+
+    public ChapterDTO cachedChapter(String id) {
+        return chapters.getIfPresent(id);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        books.invalidate(event.bookId());
+        if (event.type() == BookChangedEvent.ChangeType.DELETED) {
+            // Deleting a book hides its chapters without an event per chapter
+            chapters.asMap().values().removeIf(chapter -> event.bookId().equals(chapter.getBookId()));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onChapterChanged(ChapterChangedEvent event) {
+        chapters.invalidate(event.chapterId());
+        if (event.bookId() != null) {
+            books.invalidate(event.bookId());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPageChanged(PageChangedEvent event) {
+        String previousChapterId = chapterOfPage.get(event.pageId());
+        if (previousChapterId != null) {
+            chapters.invalidate(previousChapterId);
+        }
+        if (event.chapterId() != null) {
+            chapters.invalidate(event.chapterId());
+        }
+    }
+
+    private void forgetPages(String chapterId, ChapterDTO chapter) {
+        if (chapter != null && chapter.getPages() != null) {
+            chapter.getPages().forEach(page -> chapterOfPage.remove(page.getId(), chapterId));
+        }
+    }
+
+    private static long weightedSize(Cache<?, ?> cache) {
+        return cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L);
+    }
+
+    private static int weigh(BookDTO book) {
+        long bytes = OBJECT_BYTES + chars(book.getTitle()) + chars(book.getDescription());
+        if (book.getChapters() != null) {
+            for (ChapterBasicDTO chapter : book.getChapters()) {
+                bytes += OBJECT_BYTES + chars(chapter.getTitle()) + chars(chapter.getRank());
+            }
+        }
+        return (int) Math.min(Integer.MAX_VALUE, bytes);
+    }
+
+    private static int weigh(ChapterDTO chapter) {
+        long bytes = OBJECT_BYTES + chars(chapter.getTitle());
+        if (chapter.getPages() != null) {
+            for (PageBasicDTO page : chapter.getPages()) {
+                bytes += OBJECT_BYTES + chars(page.getTextContent());
+            }
+        }
+        return (int) Math.min(Integer.MAX_VALUE, bytes);
+    }
+
+    private static long chars(String value) {
+        return value != null ? (long) value.length() * CHAR_BYTES : 0;
+    }
+}
@@ -0,0 +1,122 @@
+package com.mharfe.coreService.cache;
+
+import com.mharfe.coreService.dto.book.BookDTO;
+import com.mharfe.coreService.dto.book.ChapterBasicDTO;
+import com.mharfe.coreService.dto.book.ChapterDTO;
+import com.mharfe.coreService.dto.book.PageBasicDTO;
+import com.mharfe.coreService.fields.FieldSet;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Strong entity tags for book, chapter and page responses, hashed from the fields the
+ * response carries instead of its serialized body. Page text is stood in for by the
+ * page version, which every change to the text increments, so large chapters hash
+ * a few fields per page.
+ */
+public final class ETags {
+    // 128 bits of SHA-256 are plenty to tell versions of one document apart
+    private static final int TAG_BYTES = 16;
+
+    private ETags() {}
+
+    public static String of(BookDTO book) {
+        Hasher hasher = new Hasher()
+            .add(book.getId()).add(book.getUserId()).add(book.getTitle()).add(book.getDescription())
+            .add(book.getCreatedAt()).add(book.getVersion());
+        if (book.getChapters() != null) {
+            for (ChapterBasicDTO chapter : book.getChapters()) {
+                hasher.add(chapter.getId()).add(chapter.getTitle()).add(chapter.getOrder())
+                    .add(chapter.getRank()).add(chapter.getVersion());
+            }
+        }
+        return hasher.tag();
+    }
+
+    public static String of(ChapterDTO chapter) {
+        Hasher hasher = new Hasher()
+            .add(chapter.getId()).add(chapter.getTitle()).add(chapter.getOrder()).add(chapter.getBookId())
+            .add(chapter.getVersion());
+        if (chapter.getPages() != null) {
+            for (PageBasicDTO page : chapter.getPages()) {
+                hasher.add(page.getId()).add(page.getPageNumber()).add(page.getRank()).add(page.getVersion());
+            }
+        }
+        if (chapter.getChapAudio() != null) {
+            hasher.add(chapter.getChapAudio().getId()).add(chapter.getChapAudio().getAudioFilePath())
+                .add(chapter.getChapAudio().getVoiceId());
+        }
+        if (chapter.getChapSummary() != null) {
+            // Summaries carry no version
+            hasher.add(chapter.getChapSummary().getId()).add(chapter.getChapSummary().getText());
+        }
+        return hasher.tag();
+    }
+
+    public static String of(PageBasicDTO page) {
+        return new Hasher().add(page.getId()).add(page.getPageNumber()).add(page.getRank()).add(page.getVersion()).tag();
+    }
+
+    /**
+     * Tag of a response limited to {@code fields}; sparse and full responses of the same
+     * version are different representations and must not share a strong tag.
+     */
+    public static String of(String etag, FieldSet fields) {
+        return fields.isAll() ? etag : new Hasher().add(etag).add(fields).tag();
+    }
+
+    /**
+     * Whether an {@code If-None-Match} header names {@code etag}. Weak tags compare by
+     * their value, as RFC 9110 asks for GET. A null {@code etag} never matches.
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        String quoted = quote(etag);
+        return Arrays.stream(ifNoneMatch.split(","))
+            .map(String::trim)
+            .map(candidate -> candidate.startsWith("W/") ? candidate.substring(2) : candidate)
+            .anyMatch(candidate -> candidate.equals("*") || candidate.equals(quoted));
+    }
+
+    public static <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+    }
+
+    private static String quote(String etag) {
+        return etag.startsWith("\"") ? etag : "\"" + etag + "\"";
+    }
+
+    private static final class Hasher {
+        private final MessageDigest digest;
+
+        Hasher() {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        Hasher add(Object value) {
+            // Length-prefixed, so ("ab", "c") and ("a", "bc") hash differently; -1 for null
+            byte[] bytes = value != null ? String.valueOf(value).getBytes(StandardCharsets.UTF_8) : new byte[0];
+            digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(value != null ? bytes.length : -1).array());
+            digest.update(bytes);
+            return this;
+        }
+
+        String tag() {
+            return "\"" + Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(Arrays.copyOf(digest.digest(), TAG_BYTES)) + "\"";
+        }
+    }
+}
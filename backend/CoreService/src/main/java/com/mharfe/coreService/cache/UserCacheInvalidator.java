@@ -0,0 +1,41 @@
+package com.mharfe.coreService.cache;
+
+import com.mharfe.coreService.event.UserChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Evicts cached users once the transaction that changed them has committed.
+ * Only the immutable {@code UserDetails} are cached; {@code User} entities are not,
+ * since a cached entity is detached and shared by every caller.
+ */
+@Component
+public class UserCacheInvalidator {
+    private static final Logger logger = LoggerFactory.getLogger(UserCacheInvalidator.class);
+
+    private final CacheManager cacheManager;
+
+    public UserCacheInvalidator(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        evict(CacheNames.USER_DETAILS, event.username());
+        if (event.previousUsername() != null) {
+            evict(CacheNames.USER_DETAILS, event.previousUsername());
+        }
+        logger.debug("Evicted cached user: {}", event.userId());
+    }
+
+    private void evict(String cacheName, Object key) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null && key != null) {
+            cache.evict(key);
+        }
+    }
+}
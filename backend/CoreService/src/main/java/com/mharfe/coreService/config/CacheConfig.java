@@ -0,0 +1,13 @@
+package com.mharfe.coreService.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Caches are Caffeine-backed and configured in application.yml (size, TTL, stats).
+ * Hit/miss/eviction counts are published by Actuator as the {@code cache.*} metrics.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+}
@@ -0,0 +1,40 @@
+package com.mharfe.coreService.config;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.mharfe.coreService.dto.book.BookDTO;
+import com.mharfe.coreService.dto.book.ChapAudioDTO;
+import com.mharfe.coreService.dto.book.ChapSummaryDTO;
+import com.mharfe.coreService.dto.book.ChapterBasicDTO;
+import com.mharfe.coreService.dto.book.ChapterDTO;
+import com.mharfe.coreService.dto.book.PageBasicDTO;
+import com.mharfe.coreService.fields.FieldSet;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Puts the DTOs that support {@code ?fields=} under the {@link FieldSet} filter. The
+ * filter is only supplied for sparse responses; everywhere else the default writes
+ * every property.
+ */
+@Configuration
+public class JacksonConfig {
+
+    @JsonFilter(FieldSet.FILTER_ID)
+    private interface FieldSetFiltered {
+    }
+
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer fieldSetFilter() {
+        return builder -> builder
+            .mixIn(BookDTO.class, FieldSetFiltered.class)
+            .mixIn(ChapterBasicDTO.class, FieldSetFiltered.class)
+            .mixIn(ChapterDTO.class, FieldSetFiltered.class)
+            .mixIn(PageBasicDTO.class, FieldSetFiltered.class)
+            .mixIn(ChapAudioDTO.class, FieldSetFiltered.class)
+            .mixIn(ChapSummaryDTO.class, FieldSetFiltered.class)
+            .filters(new SimpleFilterProvider().setDefaultFilter(SimpleBeanPropertyFilter.serializeAll()));
+    }
+}
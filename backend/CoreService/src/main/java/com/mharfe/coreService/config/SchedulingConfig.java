@@ -0,0 +1,12 @@
+package com.mharfe.coreService.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables {@code @Scheduled} background jobs such as the autosave flush.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
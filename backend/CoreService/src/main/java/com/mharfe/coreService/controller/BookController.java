@@ -1,8 +1,13 @@
 package com.mharfe.coreService.controller;
 
+import com.mharfe.coreService.cache.ETags;
 import com.mharfe.coreService.dto.book.*;
+import com.mharfe.coreService.fields.FieldSet;
+import com.mharfe.coreService.pagination.CursorPage;
 import com.mharfe.coreService.service.BookService;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -26,10 +31,27 @@ public class BookController {
     }
     
     @GetMapping("/{id}")
-    public ResponseEntity<BookDTO> getBook(
+    public ResponseEntity<MappingJacksonValue> getBook(
             @PathVariable String id,
+            @RequestHeader("User-Id") UUID userId,
+            @RequestParam(required = false) String fields,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        FieldSet fieldSet = FieldSet.parse(fields, FieldSet.BOOK);
+        // Answered from the cached book when the client already has it
+        String etag = ifNoneMatch != null && fieldSet.isAll() ? bookService.getBookTag(id, userId) : null;
+        if (ETags.matches(ifNoneMatch, etag)) {
+            return ETags.notModified(etag);
+        }
+        BookDTO book = bookService.getBook(id, userId, fieldSet);
+        return ResponseEntity.ok().eTag(ETags.of(ETags.of(book), fieldSet)).body(fieldSet.body(book));
+    }
+    
+    @GetMapping("/{id}/outline")
+    public ResponseEntity<BookOutlineDTO> getBookOutline(
+            @PathVariable String id,
+            @RequestParam(defaultValue = "false") boolean includeText,
             @RequestHeader("User-Id") UUID userId) {
-        return ResponseEntity.ok(bookService.getBook(id, userId));
+        return ResponseEntity.ok(bookService.getBookOutline(id, userId, includeText));
     }
     
     @GetMapping("/user")
@@ -38,6 +60,14 @@ public class BookController {
         return ResponseEntity.ok(bookService.getBooksByUser(userId));
     }
     
+    @GetMapping(value = "/user", params = "size")
+    public ResponseEntity<CursorPage<BookBasicDTO>> getBooksByUser(
+            @RequestHeader("User-Id") UUID userId,
+            @RequestParam Integer size,
+            @RequestParam(required = false) String cursor) {
+        return ResponseEntity.ok(bookService.getBooksByUser(userId, cursor, size));
+    }
+    
     @PutMapping("/{id}")
     public ResponseEntity<BookBasicDTO> updateBook(
             @PathVariable String id,
@@ -53,7 +83,12 @@ public class BookController {
     
     @GetMapping("/search")
     public ResponseEntity<List<BookBasicDTO>> searchBooks(
-            @RequestParam String title) {
+            @RequestParam String title,
+            @RequestHeader(value = "User-Id", required = false) UUID userId) {
+        // With a User-Id the indexed, owner-scoped search is used instead of a regex scan
+        if (userId != null) {
+            return ResponseEntity.ok(bookService.searchBooks(title, userId));
+        }
         return ResponseEntity.ok(bookService.searchBooks(title));
     }
 } 
\ No newline at end of file
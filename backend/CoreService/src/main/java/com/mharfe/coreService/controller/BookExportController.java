@@ -0,0 +1,39 @@
+package com.mharfe.coreService.controller;
+
+import com.mharfe.coreService.export.BookExportFormat;
+import com.mharfe.coreService.service.BookExportService;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/books/{bookId}/export")
+public class BookExportController {
+    
+    private final BookExportService bookExportService;
+    
+    public BookExportController(BookExportService bookExportService) {
+        this.bookExportService = bookExportService;
+    }
+    
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> exportBook(
+            @PathVariable String bookId,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestHeader("User-Id") UUID userId) {
+        BookExportFormat exportFormat = BookExportFormat.of(format);
+        StreamingResponseBody body = bookExportService.exportBook(bookId, exportFormat, userId);
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+            .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(bookId + "." + exportFormat.getExtension())
+                .build()
+                .toString())
+            .body(body);
+    }
+}
@@ -0,0 +1,60 @@
+package com.mharfe.coreService.controller;
+
+import com.mharfe.coreService.dto.book.BookImportDTO;
+import com.mharfe.coreService.dto.book.BookImportResultDTO;
+import com.mharfe.coreService.manuscript.ManuscriptImportProgress;
+import com.mharfe.coreService.service.BookImportService;
+import com.mharfe.coreService.service.ManuscriptImportService;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.InputStream;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/books/{bookId}/import")
+public class BookImportController {
+    
+    private final BookImportService bookImportService;
+    private final ManuscriptImportService manuscriptImportService;
+    
+    public BookImportController(BookImportService bookImportService,
+                                ManuscriptImportService manuscriptImportService) {
+        this.bookImportService = bookImportService;
+        this.manuscriptImportService = manuscriptImportService;
+    }
+    
+    @PostMapping
+    public ResponseEntity<BookImportResultDTO> importChapters(
+            @PathVariable String bookId,
+            @RequestBody BookImportDTO dto,
+            @RequestHeader("User-Id") UUID userId) {
+        return ResponseEntity.status(201).body(bookImportService.importChapters(bookId, dto, userId));
+    }
+    
+    /**
+     * Streams a plain-text or Markdown manuscript straight from the request body.
+     * Pass an importId to poll progress from another request while the upload runs.
+     */
+    @PostMapping(value = "/manuscript", consumes = {MediaType.TEXT_PLAIN_VALUE, MediaType.TEXT_MARKDOWN_VALUE,
+            MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<ManuscriptImportProgress> importManuscript(
+            @PathVariable String bookId,
+            InputStream body,
+            @RequestHeader(value = "Content-Length", required = false) Long contentLength,
+            @RequestParam(required = false) String importId,
+            @RequestParam(required = false) Integer pageSize,
+            @RequestHeader("User-Id") UUID userId) {
+        return ResponseEntity.status(201).body(manuscriptImportService.importManuscript(
+            bookId, body, contentLength != null ? contentLength : -1, importId, pageSize, userId));
+    }
+    
+    @GetMapping("/manuscript/{importId}")
+    public ResponseEntity<ManuscriptImportProgress> getManuscriptImport(
+            @PathVariable String bookId,
+            @PathVariable String importId,
+            @RequestHeader("User-Id") UUID userId) {
+        return ResponseEntity.ok(manuscriptImportService.getProgress(bookId, importId, userId));
+    }
+}
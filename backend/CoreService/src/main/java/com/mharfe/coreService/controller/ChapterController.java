@@ -1,11 +1,17 @@
 package com.mharfe.coreService.controller;
 
+import com.mharfe.coreService.cache.ETags;
 import com.mharfe.coreService.dto.book.*;
+import com.mharfe.coreService.fields.FieldSet;
+import com.mharfe.coreService.pagination.CursorPage;
 import com.mharfe.coreService.service.ChapterService;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/chapters")
@@ -24,8 +30,18 @@ public class ChapterController {
     }
     
     @GetMapping("/{id}")
-    public ResponseEntity<ChapterDTO> getChapter(@PathVariable String id) {
-        return ResponseEntity.ok(chapterService.getChapter(id));
+    public ResponseEntity<MappingJacksonValue> getChapter(
+            @PathVariable String id,
+            @RequestParam(required = false) String fields,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        FieldSet fieldSet = FieldSet.parse(fields, FieldSet.CHAPTER);
+        // Answered from the cached chapter when the client already has it
+        String etag = ifNoneMatch != null && fieldSet.isAll() ? chapterService.getChapterTag(id) : null;
+        if (ETags.matches(ifNoneMatch, etag)) {
+            return ETags.notModified(etag);
+        }
+        ChapterDTO chapter = chapterService.getChapter(id, fieldSet);
+        return ResponseEntity.ok().eTag(ETags.of(ETags.of(chapter), fieldSet)).body(fieldSet.body(chapter));
     }
     
     @GetMapping("/book/{bookId}")
@@ -34,6 +50,14 @@ public class ChapterController {
         return ResponseEntity.ok(chapterService.getChaptersByBook(bookId));
     }
     
+    @GetMapping(value = "/book/{bookId}", params = "size")
+    public ResponseEntity<CursorPage<ChapterBasicDTO>> getChaptersByBook(
+            @PathVariable String bookId,
+            @RequestParam Integer size,
+            @RequestParam(required = false) String cursor) {
+        return ResponseEntity.ok(chapterService.getChaptersByBook(bookId, cursor, size));
+    }
+    
     @PutMapping("/{id}")
     public ResponseEntity<ChapterBasicDTO> updateChapter(
             @PathVariable String id,
@@ -41,6 +65,14 @@ public class ChapterController {
         return ResponseEntity.ok(chapterService.updateChapter(id, dto));
     }
     
+    @PutMapping("/book/{bookId}/order")
+    public ResponseEntity<List<ChapterBasicDTO>> reorderChapters(
+            @PathVariable String bookId,
+            @RequestBody ChapterReorderDTO dto,
+            @RequestHeader("User-Id") UUID userId) {
+        return ResponseEntity.ok(chapterService.reorderChapters(bookId, dto, userId));
+    }
+    
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteChapter(@PathVariable String id) {
         chapterService.deleteChapter(id);
@@ -49,7 +81,12 @@ public class ChapterController {
     
     @GetMapping("/search")
     public ResponseEntity<List<ChapterBasicDTO>> searchChapters(
-            @RequestParam String title) {
+            @RequestParam String title,
+            @RequestHeader(value = "User-Id", required = false) UUID userId) {
+        // With a User-Id the indexed, owner-scoped search is used instead of a regex scan
+        if (userId != null) {
+            return ResponseEntity.ok(chapterService.searchChapters(title, userId));
+        }
         return ResponseEntity.ok(chapterService.searchChapters(title));
     }
 } 
\ No newline at end of file
@@ -2,6 +2,7 @@ package com.mharfe.coreService.controller;
 
 import com.mharfe.coreService.dto.book.ImagePromptCreateDTO;
 import com.mharfe.coreService.dto.book.ImagePromptDTO;
+import com.mharfe.coreService.pagination.CursorPage;
 import com.mharfe.coreService.service.ImagePromptService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -35,6 +36,14 @@ public class ImagePromptController {
         return ResponseEntity.ok(imagePromptService.getImagePromptsByPage(pageId));
     }
     
+    @GetMapping(value = "/page/{pageId}", params = "size")
+    public ResponseEntity<CursorPage<ImagePromptDTO>> getImagePromptsByPage(
+            @PathVariable String pageId,
+            @RequestParam Integer size,
+            @RequestParam(required = false) String cursor) {
+        return ResponseEntity.ok(imagePromptService.getImagePromptsByPage(pageId, cursor, size));
+    }
+    
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteImagePrompt(@PathVariable String id) {
         imagePromptService.deleteImagePrompt(id);
@@ -1,8 +1,13 @@
 package com.mharfe.coreService.controller;
 
+import com.mharfe.coreService.cache.ETags;
 import com.mharfe.coreService.dto.book.*;
+import com.mharfe.coreService.fields.FieldSet;
+import com.mharfe.coreService.pagination.CursorPage;
 import com.mharfe.coreService.service.PageService;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -26,10 +31,19 @@ public class PageController {
     }
     
     @GetMapping("/{id}")
-    public ResponseEntity<PageBasicDTO> getPage(
+    public ResponseEntity<MappingJacksonValue> getPage(
             @PathVariable String id,
-            @RequestHeader("User-Id") UUID userId) {
-        return ResponseEntity.ok(pageService.getPage(id, userId));
+            @RequestHeader("User-Id") UUID userId,
+            @RequestParam(required = false) String fields,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        FieldSet fieldSet = FieldSet.parse(fields, FieldSet.PAGE);
+        // Checked by _id without reading the page text
+        String etag = ifNoneMatch != null ? ETags.of(pageService.getPageTag(id, userId), fieldSet) : null;
+        if (ETags.matches(ifNoneMatch, etag)) {
+            return ETags.notModified(etag);
+        }
+        PageBasicDTO page = pageService.getPage(id, userId, fieldSet);
+        return ResponseEntity.ok().eTag(ETags.of(ETags.of(page), fieldSet)).body(fieldSet.body(page));
     }
     
     @GetMapping("/chapter/{chapterId}")
@@ -39,6 +53,15 @@ public class PageController {
         return ResponseEntity.ok(pageService.getPagesByChapter(chapterId, userId));
     }
     
+    @GetMapping(value = "/chapter/{chapterId}", params = "size")
+    public ResponseEntity<CursorPage<PageBasicDTO>> getPagesByChapter(
+            @PathVariable String chapterId,
+            @RequestHeader("User-Id") UUID userId,
+            @RequestParam Integer size,
+            @RequestParam(required = false) String cursor) {
+        return ResponseEntity.ok(pageService.getPagesByChapter(chapterId, userId, cursor, size));
+    }
+    
     @PutMapping("/{id}")
     public ResponseEntity<PageBasicDTO> updatePage(
             @PathVariable String id,
@@ -47,6 +70,30 @@ public class PageController {
         return ResponseEntity.ok(pageService.updatePage(id, dto, userId));
     }
     
+    @PutMapping(value = "/{id}", params = "autosave=true")
+    public ResponseEntity<PageBasicDTO> autosavePage(
+            @PathVariable String id,
+            @RequestBody PageUpdateDTO dto,
+            @RequestHeader("User-Id") UUID userId) {
+        // 202: buffered, written to Mongo within app.autosave.max-staleness-ms
+        return ResponseEntity.accepted().body(pageService.autosavePage(id, dto, userId));
+    }
+    
+    @PatchMapping("/{id}")
+    public ResponseEntity<PagePatchResultDTO> patchPage(
+            @PathVariable String id,
+            @RequestBody PagePatchDTO dto,
+            @RequestHeader("User-Id") UUID userId) {
+        return ResponseEntity.ok(pageService.patchPage(id, dto, userId));
+    }
+    
+    @PostMapping("/move")
+    public ResponseEntity<List<PageBasicDTO>> movePages(
+            @RequestBody PageMoveDTO dto,
+            @RequestHeader("User-Id") UUID userId) {
+        return ResponseEntity.ok(pageService.movePages(dto, userId));
+    }
+    
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deletePage(
             @PathVariable String id,
@@ -3,6 +3,7 @@ package com.mharfe.coreService.controller;
 
 
 import com.mharfe.coreService.model.user.PaymentTransaction;
+import com.mharfe.coreService.pagination.CursorPage;
 import com.mharfe.coreService.service.PaymentTransactionService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -43,6 +44,14 @@ public class PaymentTransactionController {
         return ResponseEntity.ok(paymentTransactionService.getTransactionsByUserId(userId));
     }
 
+    @GetMapping(value = "/user/{userId}", params = "size")
+    public ResponseEntity<CursorPage<PaymentTransaction>> getTransactionsByUserId(
+            @PathVariable UUID userId,
+            @RequestParam Integer size,
+            @RequestParam(required = false) String cursor) {
+        return ResponseEntity.ok(paymentTransactionService.getTransactionsByUserId(userId, cursor, size));
+    }
+
     @PatchMapping("/{id}/status")
     public ResponseEntity<PaymentTransaction> updateTransactionStatus(
             @PathVariable UUID id,
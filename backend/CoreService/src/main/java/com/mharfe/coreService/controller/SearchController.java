@@ -0,0 +1,56 @@
+package com.mharfe.coreService.controller;
+
+import com.mharfe.coreService.dto.search.LibrarySearchHitDTO;
+import com.mharfe.coreService.dto.search.ManuscriptMatchDTO;
+import com.mharfe.coreService.service.LibrarySearchService;
+import com.mharfe.coreService.service.ManuscriptSearchService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/search")
+public class SearchController {
+    
+    private final LibrarySearchService librarySearchService;
+    private final ManuscriptSearchService manuscriptSearchService;
+    
+    public SearchController(LibrarySearchService librarySearchService,
+                            ManuscriptSearchService manuscriptSearchService) {
+        this.librarySearchService = librarySearchService;
+        this.manuscriptSearchService = manuscriptSearchService;
+    }
+    
+    @GetMapping
+    public ResponseEntity<List<LibrarySearchHitDTO>> search(
+            @RequestParam String q,
+            @RequestParam(required = false) Integer limit,
+            @RequestHeader("User-Id") UUID userId) {
+        return ResponseEntity.ok(librarySearchService.search(userId, q, limit));
+    }
+    
+    @GetMapping("/suggest")
+    public ResponseEntity<List<String>> suggest(
+            @RequestParam String prefix,
+            @RequestParam(required = false) Integer limit,
+            @RequestHeader("User-Id") UUID userId) {
+        return ResponseEntity.ok(librarySearchService.suggest(userId, prefix, limit));
+    }
+    
+    /**
+     * Finds a phrase in the text of one book. {@code slop} allows that many other
+     * words between neighbouring terms; {@code ordered=false} also accepts any order.
+     */
+    @GetMapping("/books/{bookId}")
+    public ResponseEntity<List<ManuscriptMatchDTO>> searchManuscript(
+            @PathVariable String bookId,
+            @RequestParam String q,
+            @RequestParam(defaultValue = "0") int slop,
+            @RequestParam(defaultValue = "true") boolean ordered,
+            @RequestParam(required = false) Integer limit,
+            @RequestHeader("User-Id") UUID userId) {
+        return ResponseEntity.ok(manuscriptSearchService.search(bookId, userId, q, slop, ordered, limit));
+    }
+}
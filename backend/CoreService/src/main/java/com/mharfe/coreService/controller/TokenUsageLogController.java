@@ -2,6 +2,7 @@ package com.mharfe.coreService.controller;
 
 
 import com.mharfe.coreService.model.user.TokenUsageLog;
+import com.mharfe.coreService.pagination.CursorPage;
 import com.mharfe.coreService.service.TokenUsageLogService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -46,6 +47,14 @@ public class TokenUsageLogController {
         return ResponseEntity.ok(tokenUsageLogService.getLogsByUserId(userId));
     }
 
+    @GetMapping(value = "/user/{userId}", params = "size")
+    public ResponseEntity<CursorPage<TokenUsageLog>> getLogsByUserId(
+            @PathVariable UUID userId,
+            @RequestParam Integer size,
+            @RequestParam(required = false) String cursor) {
+        return ResponseEntity.ok(tokenUsageLogService.getLogsByUserId(userId, cursor, size));
+    }
+
     @GetMapping("/user/{userId}/operation/{operationType}")
     public ResponseEntity<List<TokenUsageLog>> getLogsByUserIdAndOperationType(
             @PathVariable UUID userId,
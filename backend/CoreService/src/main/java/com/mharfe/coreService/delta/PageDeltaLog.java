@@ -0,0 +1,74 @@
+package com.mharfe.coreService.delta;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Recent delta history of pages, used to rebase a patch written against an older
+ * version. Only consecutive versions written as deltas on this instance are known;
+ * a full-text save breaks the chain, and a patch that cannot be rebased is rejected.
+ */
+@Component
+public class PageDeltaLog {
+
+    private record Entry(long version, List<TextOp> ops) {
+    }
+
+    private final Cache<String, Deque<Entry>> histories;
+    private final int maxVersionsPerPage;
+
+    public PageDeltaLog(@Value("${app.pages.delta.max-pages:10000}") long maxPages,
+                        @Value("${app.pages.delta.max-versions:50}") int maxVersionsPerPage) {
+        this.histories = Caffeine.newBuilder().maximumSize(maxPages).build();
+        this.maxVersionsPerPage = maxVersionsPerPage;
+    }
+
+    /**
+     * Records the ops that turned {@code version - 1} into {@code version}.
+     */
+    public void record(String pageId, long version, List<TextOp> ops) {
+        Deque<Entry> history = histories.get(pageId, id -> new ArrayDeque<>());
+        synchronized (history) {
+            if (!history.isEmpty() && history.peekLast().version() != version - 1) {
+                history.clear();
+            }
+            history.addLast(new Entry(version, List.copyOf(ops)));
+            while (history.size() > maxVersionsPerPage) {
+                history.removeFirst();
+            }
+        }
+    }
+
+    /**
+     * Ops that turned {@code fromVersion} into {@code toVersion}, or null when part of
+     * that range is unknown.
+     */
+    public List<TextOp> since(String pageId, long fromVersion, long toVersion) {
+        Deque<Entry> history = histories.getIfPresent(pageId);
+        if (history == null) {
+            return null;
+        }
+        synchronized (history) {
+            List<TextOp> ops = new ArrayList<>();
+            long expected = fromVersion + 1;
+            for (Entry entry : history) {
+                if (entry.version() < expected) continue;
+                if (entry.version() != expected) return null;
+                ops.addAll(entry.ops());
+                if (expected++ == toVersion) return ops;
+            }
+            return null;
+        }
+    }
+
+    public void discard(String pageId) {
+        histories.invalidate(pageId);
+    }
+}
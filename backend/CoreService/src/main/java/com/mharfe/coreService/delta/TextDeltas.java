@@ -0,0 +1,173 @@
+package com.mharfe.coreService.delta;
+
+import com.mharfe.coreService.repository.Versioning;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.aggregation.AggregationExpression;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Applying, rebasing and persisting sequences of {@link TextOp}s. A sequence is
+ * applied op by op, each offset referring to the text left by the previous op.
+ */
+public final class TextDeltas {
+
+    private TextDeltas() {
+    }
+
+    public static String apply(String text, List<TextOp> ops) {
+        StringBuilder result = new StringBuilder(text != null ? text : "");
+        for (TextOp op : ops) {
+            int start = result.offsetByCodePoints(0, op.offset());
+            switch (op) {
+                case TextOp.Insert insert -> result.insert(start, insert.text());
+                case TextOp.Delete delete -> result.delete(start, result.offsetByCodePoints(start, delete.length()));
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Smallest text length (in code points) the ops can be applied to without
+     * reaching past the end.
+     */
+    public static int minLength(List<TextOp> ops) {
+        int required = 0;
+        int growth = 0;
+        for (TextOp op : ops) {
+            int reach = switch (op) {
+                case TextOp.Insert insert -> insert.offset();
+                case TextOp.Delete delete -> delete.offset() + delete.length();
+            };
+            required = Math.max(required, reach - growth);
+            growth += switch (op) {
+                case TextOp.Insert insert -> insert.length();
+                case TextOp.Delete delete -> -delete.length();
+            };
+        }
+        return required;
+    }
+
+    /**
+     * Rewrites {@code ops}, written against some version of a text, so they apply
+     * after {@code applied}, which were written against the same version and have
+     * already been stored. Where both insert at the same offset the stored text
+     * comes first.
+     */
+    public static List<TextOp> rebase(List<TextOp> ops, List<TextOp> applied) {
+        return transform(ops, applied)[0];
+    }
+
+    // Returns {ops', applied'}: ops moved past applied, and applied moved past ops
+    static List<TextOp>[] transform(List<TextOp> ops, List<TextOp> applied) {
+        if (ops.isEmpty() || applied.isEmpty()) {
+            return pair(ops, applied);
+        }
+        if (ops.size() > 1) {
+            List<TextOp>[] head = transform(ops.subList(0, 1), applied);
+            List<TextOp>[] tail = transform(ops.subList(1, ops.size()), head[1]);
+            return pair(concat(head[0], tail[0]), tail[1]);
+        }
+        if (applied.size() > 1) {
+            List<TextOp>[] head = transform(ops, applied.subList(0, 1));
+            List<TextOp>[] tail = transform(head[0], applied.subList(1, applied.size()));
+            return pair(tail[0], concat(head[1], tail[1]));
+        }
+        TextOp op = ops.get(0);
+        TextOp other = applied.get(0);
+        return pair(transform(op, other, true), transform(other, op, false));
+    }
+
+    /**
+     * {@code op} moved past {@code other}. On an insert/insert tie, {@code afterOnTie}
+     * decides whether op ends up after other's text.
+     */
+    private static List<TextOp> transform(TextOp op, TextOp other, boolean afterOnTie) {
+        return switch (op) {
+            case TextOp.Insert insert -> switch (other) {
+                case TextOp.Insert o -> {
+                    boolean after = afterOnTie ? insert.offset() >= o.offset() : insert.offset() > o.offset();
+                    yield List.of(after ? new TextOp.Insert(insert.offset() + o.length(), insert.text()) : insert);
+                }
+                case TextOp.Delete o -> List.of(new TextOp.Insert(mapThroughDelete(insert.offset(), o), insert.text()));
+            };
+            case TextOp.Delete delete -> switch (other) {
+                case TextOp.Insert o -> {
+                    int end = delete.offset() + delete.length();
+                    if (o.offset() <= delete.offset()) {
+                        yield List.of(new TextOp.Delete(delete.offset() + o.length(), delete.length()));
+                    } else if (o.offset() >= end) {
+                        yield List.of(delete);
+                    }
+                    // Text was inserted inside the range: delete around it, not through it
+                    int before = o.offset() - delete.offset();
+                    yield List.of(new TextOp.Delete(delete.offset(), before),
+                        new TextOp.Delete(delete.offset() + o.length(), delete.length() - before));
+                }
+                case TextOp.Delete o -> {
+                    int start = mapThroughDelete(delete.offset(), o);
+                    int length = mapThroughDelete(delete.offset() + delete.length(), o) - start;
+                    yield length > 0 ? List.of(new TextOp.Delete(start, length)) : List.of();
+                }
+            };
+        };
+    }
+
+    private static int mapThroughDelete(int position, TextOp.Delete delete) {
+        if (position <= delete.offset()) return position;
+        if (position >= delete.offset() + delete.length()) return position - delete.length();
+        return delete.offset();
+    }
+
+    /**
+     * Pipeline update that applies the ops inside MongoDB and bumps the version, so
+     * only the ops travel to the server, not the page text.
+     */
+    public static AggregationUpdate toUpdate(List<TextOp> ops) {
+        AggregationUpdate update = AggregationUpdate.update()
+            .set("textContent").toValue(expression(new Document("$ifNull", List.of("$textContent", ""))));
+        for (TextOp op : ops) {
+            List<Object> parts = new ArrayList<>();
+            parts.add(substring(0, op.offset()));
+            switch (op) {
+                case TextOp.Insert insert -> {
+                    parts.add(new Document("$literal", insert.text()));
+                    parts.add(substring(op.offset(), Integer.MAX_VALUE));
+                }
+                case TextOp.Delete delete -> parts.add(substring(op.offset() + delete.length(), Integer.MAX_VALUE));
+            }
+            update.set("textContent").toValue(expression(new Document("$concat", parts)));
+        }
+        return update.set(Versioning.FIELD).toValue(expression(
+            new Document("$add", List.of(new Document("$ifNull", List.of("$" + Versioning.FIELD, 0L)), 1L))));
+    }
+
+    /**
+     * Filter expression that holds while the stored text is long enough for the ops.
+     */
+    public static Document minLengthExpression(List<TextOp> ops) {
+        return new Document("$gte", List.of(
+            new Document("$strLenCP", new Document("$ifNull", List.of("$textContent", ""))), minLength(ops)));
+    }
+
+    private static Document substring(int start, int length) {
+        return new Document("$substrCP", List.of("$textContent", start, length));
+    }
+
+    private static AggregationExpression expression(Document document) {
+        return context -> document;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<TextOp>[] pair(List<TextOp> first, List<TextOp> second) {
+        return new List[] { first, second };
+    }
+
+    private static List<TextOp> concat(List<TextOp> first, List<TextOp> second) {
+        List<TextOp> result = new ArrayList<>(first);
+        result.addAll(second);
+        return result;
+    }
+}
@@ -0,0 +1,19 @@
+package com.mharfe.coreService.delta;
+
+/**
+ * One primitive edit of a page's text. Offsets and lengths count Unicode code
+ * points, the unit MongoDB's {@code $substrCP} works in.
+ */
+public sealed interface TextOp permits TextOp.Insert, TextOp.Delete {
+
+    int offset();
+
+    record Insert(int offset, String text) implements TextOp {
+        public int length() {
+            return text.codePointCount(0, text.length());
+        }
+    }
+
+    record Delete(int offset, int length) implements TextOp {
+    }
+}
@@ -7,4 +7,5 @@ public class BookBasicDTO {
     private String id;
     private String title;
     private String description;
+    private long version;
 } 
\ No newline at end of file
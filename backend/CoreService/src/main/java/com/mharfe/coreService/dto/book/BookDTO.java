@@ -12,6 +12,7 @@ public class BookDTO {
     private String title;
     private String description;
     private LocalDateTime createdAt;
+    private long version;
     private List<ChapterBasicDTO> chapters;
 }
 
@@ -0,0 +1,9 @@
+package com.mharfe.coreService.dto.book;
+
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class BookImportDTO {
+    private List<ChapterImportDTO> chapters;
+}
@@ -0,0 +1,12 @@
+package com.mharfe.coreService.dto.book;
+
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class BookImportResultDTO {
+    private String bookId;
+    private int chaptersCreated;
+    private int pagesCreated;
+    private List<ChapterBasicDTO> chapters;
+}
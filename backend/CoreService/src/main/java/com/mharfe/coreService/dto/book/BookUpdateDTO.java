@@ -6,4 +6,6 @@ import lombok.Data;
 public class BookUpdateDTO {
     private String title;
     private String description;
+    // Version the client last read; when set, the update is rejected with 409 if the document has changed since
+    private Long version;
 } 
\ No newline at end of file
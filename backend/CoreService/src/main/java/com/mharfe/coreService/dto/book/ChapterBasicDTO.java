@@ -7,4 +7,6 @@ public class ChapterBasicDTO {
     private String id;
     private String title;
     private int order;
+    private String rank;
+    private long version;
 } 
\ No newline at end of file
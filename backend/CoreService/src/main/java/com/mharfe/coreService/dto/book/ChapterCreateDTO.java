@@ -7,4 +7,7 @@ public class ChapterCreateDTO {
     private String title;
     private int order;
     private String bookId;
+    // Optional neighbour to insert after or before; appended at the end when neither is set
+    private String afterChapterId;
+    private String beforeChapterId;
 } 
\ No newline at end of file
@@ -9,6 +9,7 @@ public class ChapterDTO {
     private String title;
     private int order;
     private String bookId;
+    private long version;
     private List<PageBasicDTO> pages;
     private ChapAudioDTO chapAudio;
     private ChapSummaryDTO chapSummary;
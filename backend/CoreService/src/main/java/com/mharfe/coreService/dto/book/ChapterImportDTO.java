@@ -0,0 +1,12 @@
+package com.mharfe.coreService.dto.book;
+
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class ChapterImportDTO {
+    private String id;  // set to append pages to an existing chapter of the book
+    private String title;
+    private int order;
+    private List<PageImportDTO> pages;
+}
@@ -0,0 +1,14 @@
+package com.mharfe.coreService.dto.book;
+
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class ChapterOutlineDTO {
+    private String id;
+    private String title;
+    private int order;
+    private List<PageBasicDTO> pages;  // textContent only when requested
+    private ChapAudioDTO chapAudio;
+    private ChapSummaryDTO chapSummary;
+}
@@ -0,0 +1,11 @@
+package com.mharfe.coreService.dto.book;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ChapterReorderDTO {
+    // Every chapter of the book, in the new order
+    private List<String> chapterIds;
+}
@@ -6,4 +6,6 @@ import lombok.Data;
 public class ChapterUpdateDTO {
     private String title;
     private Integer order;
+    // Version the client last read; when set, the update is rejected with 409 if the document has changed since
+    private Long version;
 } 
\ No newline at end of file
@@ -7,4 +7,6 @@ public class PageBasicDTO {
     private String id;
     private String textContent;
     private int pageNumber;
+    private String rank;
+    private long version;
 } 
\ No newline at end of file
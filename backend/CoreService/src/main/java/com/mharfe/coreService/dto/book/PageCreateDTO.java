@@ -7,4 +7,7 @@ public class PageCreateDTO {
     private String textContent;
     private int pageNumber;
     private String chapterId;
+    // Optional neighbour to insert after or before; appended at the end when neither is set
+    private String afterPageId;
+    private String beforePageId;
 } 
\ No newline at end of file
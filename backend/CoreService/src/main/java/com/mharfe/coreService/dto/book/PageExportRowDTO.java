@@ -0,0 +1,16 @@
+package com.mharfe.coreService.dto.book;
+
+import lombok.Data;
+
+/**
+ * One page of a book export, flattened together with its chapter. Empty chapters
+ * produce a single row without page fields.
+ */
+@Data
+public class PageExportRowDTO {
+    private String chapterId;
+    private String chapterTitle;
+    private int chapterOrder;
+    private Integer pageNumber;
+    private String textContent;
+}
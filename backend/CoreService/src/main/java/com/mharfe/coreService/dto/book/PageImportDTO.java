@@ -0,0 +1,9 @@
+package com.mharfe.coreService.dto.book;
+
+import lombok.Data;
+
+@Data
+public class PageImportDTO {
+    private String textContent;
+    private int pageNumber;
+}
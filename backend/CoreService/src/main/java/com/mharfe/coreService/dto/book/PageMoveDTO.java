@@ -0,0 +1,15 @@
+package com.mharfe.coreService.dto.book;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class PageMoveDTO {
+    // Pages to move, in the order they should have in the target chapter
+    private List<String> pageIds;
+    private String targetChapterId;
+    // Optional page of the target chapter to place the run after or before; appended when neither is set
+    private String afterPageId;
+    private String beforePageId;
+}
@@ -0,0 +1,12 @@
+package com.mharfe.coreService.dto.book;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class PagePatchDTO {
+    // Version the deltas were written against
+    private long version;
+    private List<TextDeltaDTO> deltas;
+}
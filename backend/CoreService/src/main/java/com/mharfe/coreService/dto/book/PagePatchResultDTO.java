@@ -0,0 +1,13 @@
+package com.mharfe.coreService.dto.book;
+
+import lombok.Data;
+
+@Data
+public class PagePatchResultDTO {
+    private String id;
+    private long version;
+    // True when the deltas were rebased over concurrent edits; textContent is then
+    // the merged text, which the client should adopt. Null otherwise.
+    private boolean rebased;
+    private String textContent;
+}
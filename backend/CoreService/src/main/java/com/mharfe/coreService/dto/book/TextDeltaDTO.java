@@ -0,0 +1,14 @@
+package com.mharfe.coreService.dto.book;
+
+import lombok.Data;
+
+/**
+ * At {@code offset}, delete {@code delete} characters, then insert {@code insert}.
+ * Offsets count Unicode code points.
+ */
+@Data
+public class TextDeltaDTO {
+    private int offset;
+    private int delete;
+    private String insert;
+}
@@ -0,0 +1,9 @@
+package com.mharfe.coreService.dto.search;
+
+import lombok.Data;
+
+@Data
+public class HighlightDTO {
+    private int start;  // inclusive character offset in the page text
+    private int end;    // exclusive
+}
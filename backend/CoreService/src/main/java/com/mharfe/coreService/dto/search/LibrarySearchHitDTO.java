@@ -0,0 +1,13 @@
+package com.mharfe.coreService.dto.search;
+
+import lombok.Data;
+
+@Data
+public class LibrarySearchHitDTO {
+    private String type;  // BOOK or CHAPTER
+    private String id;
+    private String bookId;
+    private String title;
+    private String description;
+    private double score;
+}
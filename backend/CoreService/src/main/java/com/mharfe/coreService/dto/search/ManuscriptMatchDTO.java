@@ -0,0 +1,12 @@
+package com.mharfe.coreService.dto.search;
+
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class ManuscriptMatchDTO {
+    private String pageId;
+    private String chapterId;
+    private int pageNumber;
+    private List<HighlightDTO> highlights;
+}
@@ -0,0 +1,22 @@
+package com.mharfe.coreService.event;
+
+import java.util.UUID;
+
+/**
+ * Published by the service layer after a book is created, updated or deleted.
+ * Carries the fields listeners need so they do not have to read the book back,
+ * except when relayed from another instance, which sends a saved book without its
+ * title and description.
+ */
+public record BookChangedEvent(String bookId, UUID userId, String title, String description, ChangeType type) {
+
+    public enum ChangeType { SAVED, DELETED }
+
+    public static BookChangedEvent saved(String bookId, UUID userId, String title, String description) {
+        return new BookChangedEvent(bookId, userId, title, description, ChangeType.SAVED);
+    }
+
+    public static BookChangedEvent deleted(String bookId, UUID userId) {
+        return new BookChangedEvent(bookId, userId, null, null, ChangeType.DELETED);
+    }
+}
@@ -0,0 +1,22 @@
+package com.mharfe.coreService.event;
+
+import java.util.UUID;
+
+/**
+ * Published by the service layer after a chapter is created, updated or deleted.
+ * {@code userId} is the owner of the chapter's book. Relayed from another instance,
+ * a saved chapter arrives without its title and order.
+ */
+public record ChapterChangedEvent(String chapterId, String bookId, UUID userId, String title, int order,
+                                  ChangeType type) {
+
+    public enum ChangeType { SAVED, DELETED }
+
+    public static ChapterChangedEvent saved(String chapterId, String bookId, UUID userId, String title, int order) {
+        return new ChapterChangedEvent(chapterId, bookId, userId, title, order, ChangeType.SAVED);
+    }
+
+    public static ChapterChangedEvent deleted(String chapterId, String bookId, UUID userId) {
+        return new ChapterChangedEvent(chapterId, bookId, userId, null, 0, ChangeType.DELETED);
+    }
+}
@@ -0,0 +1,22 @@
+package com.mharfe.coreService.event;
+
+import java.util.UUID;
+
+/**
+ * Published by the service layer after a page is created, updated or deleted.
+ * {@code textContent} is the saved text and is null for deletions.
+ */
+public record PageChangedEvent(String pageId, String chapterId, String bookId, UUID userId, int pageNumber,
+                               String textContent, ChangeType type) {
+
+    public enum ChangeType { SAVED, DELETED }
+
+    public static PageChangedEvent saved(String pageId, String chapterId, String bookId, UUID userId,
+                                         int pageNumber, String textContent) {
+        return new PageChangedEvent(pageId, chapterId, bookId, userId, pageNumber, textContent, ChangeType.SAVED);
+    }
+
+    public static PageChangedEvent deleted(String pageId, String chapterId, String bookId, UUID userId) {
+        return new PageChangedEvent(pageId, chapterId, bookId, userId, 0, null, ChangeType.DELETED);
+    }
+}
@@ -0,0 +1,28 @@
+package com.mharfe.coreService.event;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Published by the service layer whenever a row of the users table changes.
+ * {@code previousUsername} is set when the username itself changed. {@code changedAt}
+ * is taken where the change was made, so it stays the same when the event is
+ * relayed to other instances.
+ */
+public record UserChangedEvent(UUID userId, String username, String previousUsername, ChangeType type,
+                               Instant changedAt) {
+
+    public enum ChangeType { UPDATED, DELETED }
+
+    public static UserChangedEvent updated(UUID userId, String username, String previousUsername) {
+        return new UserChangedEvent(userId, username, previousUsername, ChangeType.UPDATED, Instant.now());
+    }
+
+    public static UserChangedEvent deleted(UUID userId, String username) {
+        return new UserChangedEvent(userId, username, null, ChangeType.DELETED, Instant.now());
+    }
+
+    public boolean isRename() {
+        return previousUsername != null && !previousUsername.equals(username);
+    }
+}
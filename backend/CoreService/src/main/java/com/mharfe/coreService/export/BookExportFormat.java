@@ -0,0 +1,37 @@
+package com.mharfe.coreService.export;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Locale;
+
+public enum BookExportFormat {
+    NDJSON("application/x-ndjson", "ndjson"),
+    MARKDOWN("text/markdown;charset=UTF-8", "md"),
+    EPUB("application/epub+zip", "epub");
+
+    private final String contentType;
+    private final String extension;
+
+    BookExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static BookExportFormat of(String value) {
+        for (BookExportFormat format : values()) {
+            if (format.name().equalsIgnoreCase(value) || format.extension.equals(value.toLowerCase(Locale.ROOT))) {
+                return format;
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported export format: " + value);
+    }
+}
@@ -0,0 +1,21 @@
+package com.mharfe.coreService.export;
+
+import java.io.IOException;
+
+/**
+ * Receives a book in reading order and writes it to the response as it arrives.
+ * Implementations keep no more than the current chapter's metadata in memory.
+ */
+public interface BookExportWriter {
+
+    void begin(String bookId, String title, String description) throws IOException;
+
+    void chapter(String chapterId, String title, int order) throws IOException;
+
+    void page(String chapterId, int pageNumber, String textContent) throws IOException;
+
+    /**
+     * Writes any trailer and flushes, without closing the underlying stream.
+     */
+    void finish() throws IOException;
+}
@@ -0,0 +1,175 @@
+package com.mharfe.coreService.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * EPUB 3 written straight into a zip stream: one XHTML document per chapter,
+ * written while its pages arrive, then the package document and navigation,
+ * which only need the chapter titles.
+ */
+public class EpubBookExportWriter implements BookExportWriter {
+
+    private static final byte[] MIMETYPE = "application/epub+zip".getBytes(StandardCharsets.US_ASCII);
+
+    private final ZipOutputStream zip;
+    private final Writer writer;
+    private final List<String> chapterTitles = new ArrayList<>();
+    private String bookId;
+    private String title;
+    private boolean chapterOpen;
+
+    public EpubBookExportWriter(OutputStream out) {
+        this.zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+        this.writer = new OutputStreamWriter(zip, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void begin(String bookId, String title, String description) throws IOException {
+        this.bookId = bookId;
+        this.title = title;
+
+        // The mimetype entry must come first and be stored uncompressed
+        ZipEntry mimetype = new ZipEntry("mimetype");
+        mimetype.setMethod(ZipEntry.STORED);
+        mimetype.setSize(MIMETYPE.length);
+        CRC32 crc = new CRC32();
+        crc.update(MIMETYPE);
+        mimetype.setCrc(crc.getValue());
+        zip.putNextEntry(mimetype);
+        zip.write(MIMETYPE);
+        zip.closeEntry();
+
+        entry("META-INF/container.xml", """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <container version="1.0" xmlns="urn:oasis:names:tc:opendocument:xmlns:container">
+              <rootfiles>
+                <rootfile full-path="OEBPS/content.opf" media-type="application/oebps-package+xml"/>
+              </rootfiles>
+            </container>
+            """);
+    }
+
+    @Override
+    public void chapter(String chapterId, String title, int order) throws IOException {
+        closeChapter();
+        chapterTitles.add(title);
+        zip.putNextEntry(new ZipEntry("OEBPS/" + chapterFile(chapterTitles.size())));
+        writer.write("""
+            <?xml version="1.0" encoding="UTF-8"?>
+            <!DOCTYPE html>
+            <html xmlns="http://www.w3.org/1999/xhtml" xmlns:epub="http://www.idpf.org/2007/ops">
+            <head><title>%1$s</title></head>
+            <body>
+            <section epub:type="chapter">
+            <h1>%1$s</h1>
+            """.formatted(escape(title)));
+        chapterOpen = true;
+    }
+
+    @Override
+    public void page(String chapterId, int pageNumber, String textContent) throws IOException {
+        if (textContent == null || textContent.isBlank()) {
+            return;
+        }
+        for (String paragraph : textContent.strip().split("\\n\\s*\\n")) {
+            writer.write("<p>");
+            writer.write(escape(paragraph.strip()).replace("\n", "<br/>"));
+            writer.write("</p>\n");
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        closeChapter();
+
+        StringBuilder manifest = new StringBuilder();
+        StringBuilder spine = new StringBuilder();
+        StringBuilder toc = new StringBuilder();
+        for (int i = 1; i <= chapterTitles.size(); i++) {
+            manifest.append("    <item id=\"chapter-").append(i).append("\" href=\"").append(chapterFile(i))
+                .append("\" media-type=\"application/xhtml+xml\"/>\n");
+            spine.append("    <itemref idref=\"chapter-").append(i).append("\"/>\n");
+            toc.append("      <li><a href=\"").append(chapterFile(i)).append("\">")
+                .append(escape(chapterTitles.get(i - 1))).append("</a></li>\n");
+        }
+
+        entry("OEBPS/content.opf", """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <package xmlns="http://www.idpf.org/2007/opf" version="3.0" unique-identifier="book-id">
+              <metadata xmlns:dc="http://purl.org/dc/elements/1.1/">
+                <dc:identifier id="book-id">urn:uuid:%s</dc:identifier>
+                <dc:title>%s</dc:title>
+                <dc:language>en</dc:language>
+                <meta property="dcterms:modified">%s</meta>
+              </metadata>
+              <manifest>
+                <item id="nav" href="nav.xhtml" media-type="application/xhtml+xml" properties="nav"/>
+            %s  </manifest>
+              <spine>
+            %s  </spine>
+            </package>
+            """.formatted(UUID.nameUUIDFromBytes(bookId.getBytes(StandardCharsets.UTF_8)), escape(title),
+                Instant.now().truncatedTo(ChronoUnit.SECONDS), manifest, spine));
+
+        entry("OEBPS/nav.xhtml", """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <!DOCTYPE html>
+            <html xmlns="http://www.w3.org/1999/xhtml" xmlns:epub="http://www.idpf.org/2007/ops">
+            <head><title>%1$s</title></head>
+            <body>
+              <nav epub:type="toc">
+                <h1>%1$s</h1>
+                <ol>
+            %2$s    </ol>
+              </nav>
+            </body>
+            </html>
+            """.formatted(escape(title), toc));
+
+        zip.finish();
+        zip.flush();
+    }
+
+    private void closeChapter() throws IOException {
+        if (!chapterOpen) {
+            return;
+        }
+        writer.write("</section>\n</body>\n</html>\n");
+        writer.flush();
+        zip.closeEntry();
+        chapterOpen = false;
+    }
+
+    private void entry(String name, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        writer.write(content);
+        writer.flush();
+        zip.closeEntry();
+    }
+
+    private static String chapterFile(int index) {
+        return "chapter-" + index + ".xhtml";
+    }
+
+    static String escape(String text) {
+        if (text == null) {
+            return "";
+        }
+        return text.replace("&", "&amp;")
+            .replace("<", "&lt;")
+            .replace(">", "&gt;")
+            .replace("\"", "&quot;");
+    }
+}
@@ -0,0 +1,51 @@
+package com.mharfe.coreService.export;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The book title as a level-1 heading, chapters as level-2 headings and pages as
+ * blank-line separated blocks.
+ */
+public class MarkdownBookExportWriter implements BookExportWriter {
+
+    private final BufferedWriter out;
+
+    public MarkdownBookExportWriter(OutputStream out) {
+        this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void begin(String bookId, String title, String description) throws IOException {
+        out.write("# " + singleLine(title) + "\n\n");
+        if (description != null && !description.isBlank()) {
+            out.write("_" + singleLine(description) + "_\n\n");
+        }
+    }
+
+    @Override
+    public void chapter(String chapterId, String title, int order) throws IOException {
+        out.write("## " + singleLine(title) + "\n\n");
+    }
+
+    @Override
+    public void page(String chapterId, int pageNumber, String textContent) throws IOException {
+        if (textContent == null || textContent.isBlank()) {
+            return;
+        }
+        out.write(textContent.strip());
+        out.write("\n\n");
+    }
+
+    @Override
+    public void finish() throws IOException {
+        out.flush();
+    }
+
+    private static String singleLine(String text) {
+        return text == null ? "" : text.replaceAll("\\s+", " ").strip();
+    }
+}
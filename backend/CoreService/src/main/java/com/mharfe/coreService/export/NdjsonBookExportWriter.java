@@ -0,0 +1,65 @@
+package com.mharfe.coreService.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One JSON object per line, tagged with a "type" of book, chapter or page.
+ */
+public class NdjsonBookExportWriter implements BookExportWriter {
+
+    private final BufferedWriter out;
+    private final ObjectMapper objectMapper;
+
+    public NdjsonBookExportWriter(OutputStream out, ObjectMapper objectMapper) {
+        this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void begin(String bookId, String title, String description) throws IOException {
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("type", "book");
+        line.put("id", bookId);
+        line.put("title", title);
+        line.put("description", description);
+        write(line);
+    }
+
+    @Override
+    public void chapter(String chapterId, String title, int order) throws IOException {
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("type", "chapter");
+        line.put("id", chapterId);
+        line.put("title", title);
+        line.put("order", order);
+        write(line);
+    }
+
+    @Override
+    public void page(String chapterId, int pageNumber, String textContent) throws IOException {
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("type", "page");
+        line.put("chapterId", chapterId);
+        line.put("pageNumber", pageNumber);
+        line.put("textContent", textContent);
+        write(line);
+    }
+
+    @Override
+    public void finish() throws IOException {
+        out.flush();
+    }
+
+    private void write(Map<String, Object> line) throws IOException {
+        out.write(objectMapper.writeValueAsString(line));
+        out.write('\n');
+    }
+}
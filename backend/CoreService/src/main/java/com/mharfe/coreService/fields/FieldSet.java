@@ -0,0 +1,102 @@
+package com.mharfe.coreService.fields;
+
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Fields a client asked for with {@code ?fields=}, e.g. {@code title,pages.id,pages.version}.
+ * Nested fields are dotted paths; naming an object or list ({@code pages}) selects all
+ * of its fields, and ids are always returned. Without the parameter every field is.
+ * <p>
+ * Services consult {@link #includes} to leave unrequested data out of their Mongo
+ * reads, and {@link #body} filters what is serialized.
+ */
+public final class FieldSet {
+
+    /** Jackson filter id the response DTOs are registered under; see JacksonConfig. */
+    public static final String FILTER_ID = "fieldSet";
+
+    public static final FieldSet ALL = new FieldSet(null);
+
+    public static final Set<String> BOOK = Set.of(
+        "id", "userId", "title", "description", "createdAt", "version",
+        "chapters", "chapters.id", "chapters.title", "chapters.order", "chapters.rank", "chapters.version");
+
+    public static final Set<String> CHAPTER = Set.of(
+        "id", "title", "order", "bookId", "version",
+        "pages", "pages.id", "pages.textContent", "pages.pageNumber", "pages.rank", "pages.version",
+        "chapAudio", "chapAudio.id", "chapAudio.audioFilePath", "chapAudio.voiceId",
+        "chapSummary", "chapSummary.id", "chapSummary.text");
+
+    public static final Set<String> PAGE = Set.of("id", "textContent", "pageNumber", "rank", "version");
+
+    // Null when every field is selected
+    private final Set<String> paths;
+
+    private FieldSet(Set<String> paths) {
+        this.paths = paths;
+    }
+
+    /**
+     * Parses the {@code fields} parameter against the paths the endpoint returns.
+     * Unknown paths are rejected with 400 rather than silently dropped.
+     */
+    public static FieldSet parse(String fields, Set<String> known) {
+        if (fields == null || fields.isBlank()) {
+            return ALL;
+        }
+        Set<String> paths = Arrays.stream(fields.split(","))
+            .map(String::trim)
+            .filter(path -> !path.isEmpty())
+            .collect(Collectors.toCollection(TreeSet::new));
+        for (String path : paths) {
+            if (!known.contains(path)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown field: " + path);
+            }
+        }
+        return new FieldSet(paths);
+    }
+
+    public boolean isAll() {
+        return paths == null;
+    }
+
+    /**
+     * Whether {@code path} is returned: it is listed, lies inside a listed object, or
+     * contains a listed field.
+     */
+    public boolean includes(String path) {
+        if (paths == null || path.equals("id") || path.endsWith(".id")) {
+            return true;
+        }
+        for (String selected : paths) {
+            if (selected.equals(path) || path.startsWith(selected + ".") || selected.startsWith(path + ".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The response body, serialized with only the selected fields.
+     */
+    public MappingJacksonValue body(Object value) {
+        MappingJacksonValue body = new MappingJacksonValue(value);
+        if (paths != null) {
+            body.setFilters(new SimpleFilterProvider().addFilter(FILTER_ID, new FieldSetFilter(this)));
+        }
+        return body;
+    }
+
+    @Override
+    public String toString() {
+        return paths == null ? "*" : String.join(",", paths);
+    }
+}
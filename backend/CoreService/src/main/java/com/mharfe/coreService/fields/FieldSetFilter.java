@@ -0,0 +1,41 @@
+package com.mharfe.coreService.fields;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+
+/**
+ * Writes a property only when its dotted path from the response root is part of the
+ * {@link FieldSet}. The path is read off the generator's output context, so one filter
+ * serves every nesting level and list element.
+ */
+class FieldSetFilter extends SimpleBeanPropertyFilter {
+    private final FieldSet fields;
+
+    FieldSetFilter(FieldSet fields) {
+        this.fields = fields;
+    }
+
+    @Override
+    public void serializeAsField(Object pojo, JsonGenerator gen, SerializerProvider provider, PropertyWriter writer)
+            throws Exception {
+        if (fields.includes(path(gen.getOutputContext(), writer.getName()))) {
+            writer.serializeAsField(pojo, gen, provider);
+        } else if (!gen.canOmitFields()) {
+            writer.serializeAsOmittedField(pojo, gen, provider);
+        }
+    }
+
+    private static String path(JsonStreamContext context, String name) {
+        StringBuilder path = new StringBuilder(name);
+        // The object being written is context itself; the names leading to it sit on its ancestors
+        for (JsonStreamContext parent = context.getParent(); parent != null; parent = parent.getParent()) {
+            if (parent.inObject() && parent.getCurrentName() != null) {
+                path.insert(0, parent.getCurrentName() + ".");
+            }
+        }
+        return path.toString();
+    }
+}
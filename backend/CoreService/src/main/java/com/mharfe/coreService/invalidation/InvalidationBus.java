@@ -0,0 +1,187 @@
+package com.mharfe.coreService.invalidation;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mharfe.coreService.event.BookChangedEvent;
+import com.mharfe.coreService.event.ChapterChangedEvent;
+import com.mharfe.coreService.event.PageChangedEvent;
+import com.mharfe.coreService.event.UserChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the in-memory state of every CoreService instance (caches, search indexes,
+ * token revocations) in step with writes made on the others. Each committed change
+ * event is sent through the configured {@link InvalidationTransport}, and events
+ * from other instances are published again locally, so the same listeners evict or
+ * patch exactly as they do for local writes.
+ * <p>
+ * Only ids, owner and change type are sent: titles, descriptions and page text are
+ * unbounded, and {@code pg_notify} refuses payloads over 8000 bytes. Listeners that
+ * index those fields re-read them when an event arrives without them.
+ * <p>
+ * Page events come in bursts (imports, moves, autosave flushes), and every relayed one
+ * makes the receiver drop the book's search index. They are therefore collected per
+ * book and sent every {@code page-batch-ms}, the latest event of each page only, a
+ * bounded number to a message.
+ * <p>
+ * Without a transport ({@code app.invalidation.transport: none}) nothing is sent.
+ */
+@Component
+public class InvalidationBus {
+    private static final Logger logger = LoggerFactory.getLogger(InvalidationBus.class);
+
+    private static final Map<String, Class<?>> EVENT_TYPES = Map.of(
+        "book", BookChangedEvent.class,
+        "chapter", ChapterChangedEvent.class,
+        // Sent one by one by instances from before page events were batched
+        "page", PageChangedEvent.class,
+        "pages", PageChangedEvent[].class,
+        "user", UserChangedEvent.class);
+    // Keeps a message well under the 8000 bytes pg_notify accepts
+    private static final int PAGES_PER_MESSAGE = 25;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+    private final InvalidationTransport transport;
+    // Set while an event from another instance is published here, so it is not sent back out
+    private final ThreadLocal<Boolean> replaying = ThreadLocal.withInitial(() -> false);
+    // Page events not sent yet by book id, each page's latest last
+    private final Map<String, Map<String, PageChangedEvent>> pendingPages = new ConcurrentHashMap<>();
+    private boolean subscribed;
+
+    public InvalidationBus(ObjectMapper objectMapper,
+                           ApplicationEventPublisher eventPublisher,
+                           MeterRegistry meterRegistry,
+                           ObjectProvider<InvalidationTransport> transport) {
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.meterRegistry = meterRegistry;
+        this.transport = transport.getIfAvailable();
+    }
+
+    @EventListener(ContextRefreshedEvent.class)
+    public synchronized void onContextRefreshed() {
+        if (transport != null && !subscribed) {
+            subscribed = true;
+            transport.subscribe(this::receive);
+            logger.info("Relaying cache invalidations through {} as node {}", transport.getClass().getSimpleName(), nodeId);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        send("book", new BookChangedEvent(event.bookId(), event.userId(), null, null, event.type()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onChapterChanged(ChapterChangedEvent event) {
+        send("chapter", new ChapterChangedEvent(event.chapterId(), event.bookId(), event.userId(), null, 0, event.type()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPageChanged(PageChangedEvent event) {
+        if (transport == null || replaying.get()) {
+            return;
+        }
+        PageChangedEvent relayed = new PageChangedEvent(event.pageId(), event.chapterId(), event.bookId(), event.userId(),
+            event.pageNumber(), null, event.type());
+        pendingPages.compute(Objects.toString(event.bookId(), ""), (bookId, pages) -> {
+            Map<String, PageChangedEvent> updated = pages != null ? pages : new LinkedHashMap<>();
+            updated.remove(event.pageId());
+            updated.put(event.pageId(), relayed);
+            return updated;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.invalidation.page-batch-ms:200}")
+    @PreDestroy
+    public void sendPendingPages() {
+        for (String bookId : List.copyOf(pendingPages.keySet())) {
+            Map<String, PageChangedEvent> pages = pendingPages.remove(bookId);
+            if (pages == null) {
+                continue;
+            }
+            List<PageChangedEvent> events = List.copyOf(pages.values());
+            for (int from = 0; from < events.size(); from += PAGES_PER_MESSAGE) {
+                send("pages", events.subList(from, Math.min(from + PAGES_PER_MESSAGE, events.size())));
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        send("user", event);
+    }
+
+    private void send(String type, Object event) {
+        if (transport == null || replaying.get()) {
+            return;
+        }
+        try {
+            InvalidationMessage message = new InvalidationMessage(nodeId, System.currentTimeMillis(), type,
+                objectMapper.valueToTree(event));
+            transport.send(objectMapper.writeValueAsString(message));
+            meterRegistry.counter("invalidation.sent", "type", type).increment();
+        } catch (JsonProcessingException | RuntimeException e) {
+            // The write itself has gone through; other instances only catch up once their entries expire
+            logger.error("Could not send {} invalidation", type, e);
+        }
+    }
+
+    void receive(String payload) {
+        try {
+            InvalidationMessage message = objectMapper.readValue(payload, InvalidationMessage.class);
+            if (nodeId.equals(message.origin())) {
+                return;
+            }
+            Class<?> type = EVENT_TYPES.get(message.type());
+            if (type == null) {
+                logger.warn("Ignoring invalidation of unknown type {}", message.type());
+                return;
+            }
+            // Tolerate fields added by a newer instance during a rolling deploy
+            Object event = objectMapper.readerFor(type)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .readValue(message.event());
+            replaying.set(true);
+            try {
+                if (event instanceof Object[] events) {
+                    for (Object each : events) {
+                        eventPublisher.publishEvent(each);
+                    }
+                } else {
+                    eventPublisher.publishEvent(event);
+                }
+            } finally {
+                replaying.remove();
+            }
+            meterRegistry.counter("invalidation.received", "type", message.type()).increment();
+            meterRegistry.timer("invalidation.lag")
+                .record(Math.max(0, System.currentTimeMillis() - message.sentAt()), TimeUnit.MILLISECONDS);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Could not apply invalidation {}", payload, e);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.mharfe.coreService.invalidation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * A change event as sent to the other instances: the event itself, its type and
+ * the instance it came from.
+ */
+record InvalidationMessage(String origin, long sentAt, String type, JsonNode event) {
+}
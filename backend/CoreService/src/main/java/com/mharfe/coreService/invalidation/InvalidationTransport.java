@@ -0,0 +1,17 @@
+package com.mharfe.coreService.invalidation;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries invalidation messages between CoreService instances. Every subscribed
+ * instance receives every message sent after it subscribed, its own included.
+ */
+public interface InvalidationTransport {
+
+    void send(String message);
+
+    /**
+     * Starts delivering messages to {@code receiver} on a background thread.
+     */
+    void subscribe(Consumer<String> receiver);
+}
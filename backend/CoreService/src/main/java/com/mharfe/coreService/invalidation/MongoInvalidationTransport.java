@@ -0,0 +1,149 @@
+package com.mharfe.coreService.invalidation;
+
+import com.mongodb.CursorType;
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Sorts;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Sends invalidations through a capped collection that every instance follows with
+ * a tailable cursor. The collection is created on first use and only ever holds the
+ * most recent {@code capped-bytes} of messages.
+ */
+@Component
+@ConditionalOnProperty(name = "app.invalidation.transport", havingValue = "mongo")
+public class MongoInvalidationTransport implements InvalidationTransport, DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(MongoInvalidationTransport.class);
+    private static final long RETRY_MS = 500;
+
+    private final MongoTemplate mongoTemplate;
+    private final String collectionName;
+    private final long cappedBytes;
+    private volatile boolean running;
+    private Thread listener;
+
+    public MongoInvalidationTransport(MongoTemplate mongoTemplate,
+                                      @Value("${app.invalidation.mongo.collection:cache_invalidations}") String collectionName,
+                                      @Value("${app.invalidation.mongo.capped-bytes:16777216}") long cappedBytes) {
+        this.mongoTemplate = mongoTemplate;
+        this.collectionName = collectionName;
+        this.cappedBytes = cappedBytes;
+    }
+
+    @Override
+    public void send(String message) {
+        collection().insertOne(new Document("message", message));
+    }
+
+    @Override
+    public synchronized void subscribe(Consumer<String> receiver) {
+        ensureCollection();
+        running = true;
+        listener = Thread.ofPlatform().daemon().name("invalidation-listener").start(() -> listen(receiver));
+    }
+
+    @Override
+    public synchronized void destroy() throws InterruptedException {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+            listener.join(TimeUnit.SECONDS.toMillis(2));
+        }
+    }
+
+    private void listen(Consumer<String> receiver) {
+        // Messages already in the collection were sent before this instance started
+        Object lastSeen = latestId();
+        while (running) {
+            try {
+                lastSeen = follow(receiver, lastSeen);
+            } catch (MongoException e) {
+                if (running) {
+                    logger.warn("Lost the invalidation cursor, reopening: {}", e.getMessage());
+                }
+            }
+            try {
+                Thread.sleep(RETRY_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Delivers everything after {@code lastSeen} until the cursor dies; returns the
+     * last message delivered.
+     */
+    private Object follow(Consumer<String> receiver, Object lastSeen) {
+        boolean caughtUp = lastSeen == null;
+        if (!caughtUp && collection().countDocuments(Filters.eq("_id", lastSeen)) == 0) {
+            // Pushed out of the collection while the cursor was down
+            logger.warn("Invalidations may have been missed; the collection wrapped while reconnecting");
+            caughtUp = true;
+        }
+        // Capped collections are read in insertion order, which is the same on every instance,
+        // unlike the client-generated _ids
+        try (MongoCursor<Document> cursor = collection().find()
+                .cursorType(CursorType.TailableAwait)
+                .maxAwaitTime(1, TimeUnit.SECONDS)
+                .iterator()) {
+            while (running) {
+                Document document = cursor.tryNext();
+                if (document == null) {
+                    if (cursor.getServerCursor() == null) {
+                        return lastSeen;
+                    }
+                    continue;
+                }
+                if (!caughtUp) {
+                    caughtUp = document.get("_id").equals(lastSeen);
+                    continue;
+                }
+                lastSeen = document.get("_id");
+                String message = document.getString("message");
+                if (message != null) {
+                    receiver.accept(message);
+                }
+            }
+        }
+        return lastSeen;
+    }
+
+    private Object latestId() {
+        Document latest = collection().find().sort(Sorts.descending("$natural")).limit(1).first();
+        return latest != null ? latest.get("_id") : null;
+    }
+
+    private void ensureCollection() {
+        if (mongoTemplate.collectionExists(collectionName)) {
+            return;
+        }
+        try {
+            mongoTemplate.createCollection(collectionName, CollectionOptions.empty().capped().size(cappedBytes));
+            // A tailable cursor on an empty collection closes at once
+            collection().insertOne(new Document("createdAt", new Date()));
+        } catch (RuntimeException e) {
+            // Created by another instance in the meantime
+            logger.debug("Invalidation collection not created: {}", e.getMessage());
+        }
+    }
+
+    private MongoCollection<Document> collection() {
+        return mongoTemplate.getCollection(collectionName);
+    }
+}
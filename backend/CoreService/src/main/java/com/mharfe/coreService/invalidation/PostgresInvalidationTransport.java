@@ -0,0 +1,114 @@
+package com.mharfe.coreService.invalidation;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Sends invalidations with Postgres {@code NOTIFY}. Each instance keeps one connection
+ * listening on the channel, opened outside the pool: a pooled connection would hold a
+ * pool slot for good, and a LISTEN left on it would follow it back into the pool.
+ * Notifications sent while that connection is being re-established are lost; Postgres
+ * does not keep them.
+ */
+@Component
+@ConditionalOnProperty(name = "app.invalidation.transport", havingValue = "postgres")
+public class PostgresInvalidationTransport implements InvalidationTransport, DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(PostgresInvalidationTransport.class);
+    private static final int POLL_MS = 500;
+
+    private final DataSourceProperties dataSourceProperties;
+    private final JdbcTemplate jdbcTemplate;
+    private final String channel;
+    private volatile boolean running;
+    private Thread listener;
+
+    public PostgresInvalidationTransport(DataSource dataSource,
+                                         DataSourceProperties dataSourceProperties,
+                                         @Value("${app.invalidation.postgres.channel:cache_invalidation}") String channel) {
+        // LISTEN takes an identifier, not a bind parameter
+        if (!channel.matches("[a-z_][a-z0-9_]*")) {
+            throw new IllegalArgumentException("Invalid invalidation channel name: " + channel);
+        }
+        this.dataSourceProperties = dataSourceProperties;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.channel = channel;
+    }
+
+    @Override
+    public void send(String message) {
+        jdbcTemplate.query("SELECT pg_notify(?, ?)", rs -> null, channel, message);
+    }
+
+    @Override
+    public synchronized void subscribe(Consumer<String> receiver) {
+        running = true;
+        listener = Thread.ofPlatform().daemon().name("invalidation-listener").start(() -> listen(receiver));
+    }
+
+    @Override
+    public synchronized void destroy() throws InterruptedException {
+        running = false;
+        if (listener != null) {
+            listener.join(TimeUnit.SECONDS.toMillis(2));
+        }
+    }
+
+    private void listen(Consumer<String> receiver) {
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                try {
+                    PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                    while (running) {
+                        PGNotification[] notifications = pgConnection.getNotifications(POLL_MS);
+                        if (notifications == null) {
+                            continue;
+                        }
+                        for (PGNotification notification : notifications) {
+                            receiver.accept(notification.getParameter());
+                        }
+                    }
+                } finally {
+                    unlisten(connection);
+                }
+            } catch (SQLException e) {
+                if (running) {
+                    logger.warn("Lost the invalidation listener connection, reconnecting: {}", e.getMessage());
+                }
+            }
+            try {
+                Thread.sleep(POLL_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void unlisten(Connection connection) {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("UNLISTEN " + channel);
+        } catch (SQLException e) {
+            // The connection is closed next, which ends the LISTEN on the server as well
+            logger.debug("Could not UNLISTEN {}: {}", channel, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.mharfe.coreService.maintenance;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * A book or chapter whose deletion has been requested and whose descendants are
+ * still being removed. Kept in Mongo so any instance can pick the work up again
+ * after a restart.
+ */
+@Data
+@Document(collection = "cascade_deletes")
+public class CascadeDeleteJob {
+
+    public enum RootType { BOOK, CHAPTER }
+
+    @Id
+    private String id;
+    private RootType rootType;
+    private String rootId;
+    private LocalDateTime requestedAt;
+
+    // The instance working on the job holds it until then; expired leases are taken over
+    private LocalDateTime leaseUntil;
+
+    public CascadeDeleteJob() {
+    }
+
+    public CascadeDeleteJob(RootType rootType, String rootId) {
+        this.rootType = rootType;
+        this.rootId = rootId;
+        this.requestedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,225 @@
+package com.mharfe.coreService.maintenance;
+
+import com.mharfe.coreService.model.book.AudioBook;
+import com.mharfe.coreService.repository.MongoIds;
+import com.mongodb.DBRef;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Removes everything under a deleted book or chapter in the background. Deleting
+ * only marks the root ({@code deletedAt}) and queues a {@link CascadeDeleteJob};
+ * the sweep then removes pages with their image prompts, chapter and book audio and
+ * summaries, and finally the root, in bounded {@code deleteMany} batches.
+ * <p>
+ * After each batch the sweep pauses at least as long as the batch took, so it never
+ * keeps Mongo busy more than half the time, and each run stops after
+ * {@code max-run-ms}. Children go before their parents, so an interrupted job leaves
+ * no orphans and simply resumes from what is left.
+ */
+@Component
+public class CascadeDeleter {
+    private static final Logger logger = LoggerFactory.getLogger(CascadeDeleter.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final MeterRegistry meterRegistry;
+    // Roots queued for deletion anywhere, refreshed from the job collection on every sweep
+    private final Set<String> pendingRoots = ConcurrentHashMap.newKeySet();
+    private final int batchSize;
+    private final long minPauseMs;
+    private final long maxRunNanos;
+    private final long leaseMs;
+
+    public CascadeDeleter(MongoTemplate mongoTemplate,
+                          MeterRegistry meterRegistry,
+                          @Value("${app.cascade-delete.batch-size:500}") int batchSize,
+                          @Value("${app.cascade-delete.min-pause-ms:50}") long minPauseMs,
+                          @Value("${app.cascade-delete.max-run-ms:10000}") long maxRunMs) {
+        this.mongoTemplate = mongoTemplate;
+        this.meterRegistry = meterRegistry;
+        this.batchSize = batchSize;
+        this.minPauseMs = minPauseMs;
+        this.maxRunNanos = TimeUnit.MILLISECONDS.toNanos(maxRunMs);
+        // Long enough to outlast a run, including the batch in flight when it ends
+        this.leaseMs = maxRunMs + TimeUnit.MINUTES.toMillis(1);
+        meterRegistry.gauge("cascade.pending", pendingRoots, Set::size);
+    }
+
+    /**
+     * Queues the removal of a root that has already been marked deleted.
+     */
+    public void request(CascadeDeleteJob.RootType rootType, String rootId) {
+        mongoTemplate.insert(new CascadeDeleteJob(rootType, rootId));
+        pendingRoots.add(rootId);
+    }
+
+    /**
+     * True while the book or chapter is waiting to be removed, so pages still found
+     * under it must not be served. Other instances see a new deletion from their
+     * next sweep on.
+     */
+    public boolean isPending(String rootId) {
+        return rootId != null && pendingRoots.contains(rootId);
+    }
+
+    @Scheduled(fixedDelayString = "${app.cascade-delete.interval-ms:5000}")
+    public void sweep() {
+        refreshPending();
+        long deadline = System.nanoTime() + maxRunNanos;
+        CascadeDeleteJob job;
+        while (System.nanoTime() < deadline && (job = claim()) != null) {
+            try {
+                if (run(job, deadline)) {
+                    mongoTemplate.remove(job);
+                    pendingRoots.remove(job.getRootId());
+                    logger.info("Finished deleting {} {}", job.getRootType(), job.getRootId());
+                } else {
+                    release(job);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                release(job);
+                return;
+            } catch (DataAccessException e) {
+                // Left queued; the next sweep retries from what is left
+                logger.error("Failed to delete {} {}", job.getRootType(), job.getRootId(), e);
+                release(job);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Deletes what is left under the root; false when the run's time is up first.
+     */
+    private boolean run(CascadeDeleteJob job, long deadline) throws InterruptedException {
+        Object rootId = MongoIds.toObjectId(job.getRootId());
+        boolean book = job.getRootType() == CascadeDeleteJob.RootType.BOOK;
+
+        Query chapterQuery = Query.query(book ? Criteria.where("book.$id").is(rootId) : Criteria.where("_id").is(rootId));
+        chapterQuery.fields().include("chapAudio", "chapSummary");
+        List<Document> chapters = mongoTemplate.find(chapterQuery, Document.class, "chapters");
+        List<Object> chapterIds = chapters.stream().map(chapter -> chapter.get("_id")).toList();
+
+        Query pageQuery = Query.query(Criteria.where("chapter.$id").in(chapterIds)).limit(batchSize);
+        pageQuery.fields().include("_id");
+        while (!chapterIds.isEmpty()) {
+            if (System.nanoTime() >= deadline) {
+                return false;
+            }
+            List<Object> pageIds = mongoTemplate.find(pageQuery, Document.class, "pages").stream()
+                .map(page -> page.get("_id"))
+                .toList();
+            if (pageIds.isEmpty()) {
+                break;
+            }
+            throttled(() -> {
+                // Whole-DBRef match, so the page_ref index serves it
+                remove(Criteria.where("page").in(pageIds.stream().map(id -> new DBRef("pages", id)).toList()), "image_prompts");
+                remove(Criteria.where("_id").in(pageIds), "pages");
+            });
+        }
+
+        List<String> chapterIdStrings = chapterIds.stream().map(Object::toString).toList();
+        throttled(() -> {
+            // Linked both ways: the chapter refers to them and they may refer back
+            remove(new Criteria().orOperator(
+                Criteria.where("_id").in(refIds(chapters, "chapAudio")),
+                Criteria.where("chapter.$id").in(chapterIds),
+                Criteria.where("chapterId").in(chapterIdStrings)), "chap_audios");
+            remove(new Criteria().orOperator(
+                Criteria.where("_id").in(refIds(chapters, "chapSummary")),
+                Criteria.where("chapter.$id").in(chapterIds)), "chap_summaries");
+        });
+
+        if (book) {
+            Query bookQuery = Query.query(Criteria.where("_id").is(rootId));
+            bookQuery.fields().include("audioBook", "bookSummary");
+            List<Document> books = mongoTemplate.find(bookQuery, Document.class, "books");
+            throttled(() -> {
+                remove(new Criteria().orOperator(
+                    Criteria.where("_id").in(refIds(books, "bookSummary")),
+                    Criteria.where("book.$id").is(rootId),
+                    Criteria.where("bookId").is(job.getRootId())), "book_summaries");
+                remove(new Criteria().orOperator(
+                    Criteria.where("_id").in(refIds(books, "audioBook")),
+                    Criteria.where("book.$id").is(rootId),
+                    Criteria.where("bookId").is(job.getRootId())), mongoTemplate.getCollectionName(AudioBook.class));
+                remove(Criteria.where("book.$id").is(rootId), "chapters");
+                remove(Criteria.where("_id").is(rootId), "books");
+            });
+        } else {
+            remove(Criteria.where("_id").is(rootId), "chapters");
+        }
+        return true;
+    }
+
+    private void throttled(Runnable batch) throws InterruptedException {
+        long start = System.nanoTime();
+        batch.run();
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Thread.sleep(Math.max(minPauseMs, elapsedMs));
+    }
+
+    private void remove(Criteria criteria, String collection) {
+        long removed = mongoTemplate.remove(Query.query(criteria), collection).getDeletedCount();
+        meterRegistry.counter("cascade.deleted", "collection", collection).increment(removed);
+    }
+
+    private static List<Object> refIds(List<Document> documents, String field) {
+        List<Object> ids = new ArrayList<>();
+        for (Document document : documents) {
+            if (document.get(field) instanceof DBRef ref) {
+                ids.add(ref.getId());
+            }
+        }
+        return ids;
+    }
+
+    private CascadeDeleteJob claim() {
+        LocalDateTime now = LocalDateTime.now();
+        Query query = Query.query(new Criteria().orOperator(
+                Criteria.where("leaseUntil").is(null),
+                Criteria.where("leaseUntil").lt(now)))
+            .with(Sort.by("requestedAt"));
+        return mongoTemplate.findAndModify(query, new Update().set("leaseUntil", now.plusNanos(leaseMs * 1_000_000)),
+            FindAndModifyOptions.options().returnNew(true), CascadeDeleteJob.class);
+    }
+
+    private void release(CascadeDeleteJob job) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(job.getId())),
+            new Update().unset("leaseUntil"), CascadeDeleteJob.class);
+    }
+
+    private void refreshPending() {
+        // Only drop roots that were already known before the read, so a root queued
+        // on this instance while the read runs is not lost
+        Set<String> known = Set.copyOf(pendingRoots);
+        Query query = new Query();
+        query.fields().include("rootId");
+        Set<String> queued = new HashSet<>();
+        mongoTemplate.find(query, CascadeDeleteJob.class).forEach(job -> queued.add(job.getRootId()));
+        pendingRoots.addAll(queued);
+        known.stream().filter(rootId -> !queued.contains(rootId)).forEach(pendingRoots::remove);
+    }
+}
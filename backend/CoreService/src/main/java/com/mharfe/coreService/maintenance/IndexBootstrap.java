@@ -0,0 +1,81 @@
+package com.mharfe.coreService.maintenance;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mapping.context.MappingContext;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the indexes declared with {@code @Indexed} and {@code @CompoundIndex} on
+ * the {@code @Document} classes. Spring's automatic index creation is off by default,
+ * so without this the annotations are never applied.
+ * <p>
+ * Creating an index that already exists is a no-op, so this runs on every startup
+ * before the other startup jobs. An index that cannot be created (e.g. one with the
+ * same name but different keys already exists) is logged and skipped rather than
+ * stopping the application.
+ */
+@Component
+public class IndexBootstrap {
+    private static final Logger logger = LoggerFactory.getLogger(IndexBootstrap.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final boolean runOnStartup;
+
+    public IndexBootstrap(MongoTemplate mongoTemplate,
+                          @Value("${app.mongo.create-indexes-on-startup:true}") boolean runOnStartup) {
+        this.mongoTemplate = mongoTemplate;
+        this.runOnStartup = runOnStartup;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onApplicationReady() {
+        if (runOnStartup) {
+            createIndexes();
+        }
+    }
+
+    /**
+     * Returns the number of indexes that could not be created.
+     */
+    public int createIndexes() {
+        MappingContext<? extends MongoPersistentEntity<?>, MongoPersistentProperty> mappingContext =
+            mongoTemplate.getConverter().getMappingContext();
+        IndexResolver resolver = IndexResolver.create(mappingContext);
+
+        int created = 0;
+        int failed = 0;
+        for (MongoPersistentEntity<?> entity : mappingContext.getPersistentEntities()) {
+            if (!entity.isAnnotationPresent(Document.class)) {
+                continue;
+            }
+            IndexOperations indexOps = mongoTemplate.indexOps(entity.getCollection());
+            for (IndexDefinition index : resolver.resolveIndexFor(entity.getTypeInformation())) {
+                try {
+                    indexOps.createIndex(index);
+                    created++;
+                } catch (DataAccessException e) {
+                    failed++;
+                    logger.error("Could not create index {} on {}: {}",
+                        index.getIndexKeys().toJson(), entity.getCollection(), e.getMessage());
+                }
+            }
+        }
+        logger.info("Ensured {} indexes, {} failed", created, failed);
+        return failed;
+    }
+}
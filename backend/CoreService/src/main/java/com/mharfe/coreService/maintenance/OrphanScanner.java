@@ -0,0 +1,279 @@
+package com.mharfe.coreService.maintenance;
+
+import com.mharfe.coreService.repository.MongoIds;
+import com.mongodb.DBRef;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finds documents whose parent no longer exists (pages without their chapter,
+ * chapters without their book, image prompts without their page, chapter audio and
+ * summaries no chapter points at) and reports, quarantines or deletes them.
+ * <p>
+ * Each collection is walked in {@code _id} order in batches, with the position kept
+ * in a {@link ScanCheckpoint} so the scan resumes where it stopped. Like
+ * {@link CascadeDeleter}, it pauses at least as long as each batch took and yields
+ * after {@code max-run-ms}. Documents younger than {@code min-age-ms} are skipped,
+ * because imports write pages before their chapters. Documents without any parent
+ * reference are left alone: whether they ever had a parent is unknown.
+ */
+@Component
+public class OrphanScanner {
+    private static final Logger logger = LoggerFactory.getLogger(OrphanScanner.class);
+
+    static final String CHECKPOINT_ID = "orphan-scan";
+    static final String QUARANTINE_COLLECTION = "orphans";
+
+    public enum Mode { REPORT, QUARANTINE, DELETE }
+
+    /**
+     * A child collection and how its documents point at their parent: a DBRef field,
+     * optionally a plain id field, and optionally a DBRef on the parent pointing back.
+     */
+    record Link(String collection, String parentCollection, String parentRef, String parentIdField, String backRef) {
+    }
+
+    // Parents first, so children of orphans removed in a pass are found in the same pass
+    static final List<Link> LINKS = List.of(
+        new Link("chapters", "books", "book", "bookId", null),
+        new Link("pages", "chapters", "chapter", null, null),
+        new Link("image_prompts", "pages", "page", null, null),
+        new Link("chap_audios", "chapters", "chapter", "chapterId", "chapAudio"),
+        new Link("chap_summaries", "chapters", "chapter", null, "chapSummary"));
+
+    private final MongoTemplate mongoTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Mode mode;
+    private final int batchSize;
+    private final long minPauseMs;
+    private final long maxRunNanos;
+    private final long leaseMs;
+    private final Duration minAge;
+    private final Duration passInterval;
+
+    public OrphanScanner(MongoTemplate mongoTemplate,
+                         MeterRegistry meterRegistry,
+                         @Value("${app.orphans.mode:report}") String mode,
+                         @Value("${app.orphans.batch-size:500}") int batchSize,
+                         @Value("${app.orphans.min-pause-ms:50}") long minPauseMs,
+                         @Value("${app.orphans.max-run-ms:5000}") long maxRunMs,
+                         @Value("${app.orphans.min-age-ms:3600000}") long minAgeMs,
+                         @Value("${app.orphans.pass-interval-ms:3600000}") long passIntervalMs) {
+        this.mongoTemplate = mongoTemplate;
+        this.meterRegistry = meterRegistry;
+        this.mode = Mode.valueOf(mode.toUpperCase(Locale.ROOT));
+        this.batchSize = batchSize;
+        this.minPauseMs = minPauseMs;
+        this.maxRunNanos = TimeUnit.MILLISECONDS.toNanos(maxRunMs);
+        this.leaseMs = maxRunMs + TimeUnit.MINUTES.toMillis(1);
+        this.minAge = Duration.ofMillis(minAgeMs);
+        this.passInterval = Duration.ofMillis(passIntervalMs);
+    }
+
+    @Scheduled(fixedDelayString = "${app.orphans.interval-ms:10000}", initialDelayString = "${app.orphans.interval-ms:10000}")
+    public void scan() {
+        ScanCheckpoint checkpoint = claim();
+        if (checkpoint == null) {
+            return;
+        }
+        try {
+            run(checkpoint);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (DataAccessException e) {
+            // The checkpoint only moves past batches that were handled, so the next run retries this one
+            logger.error("Orphan scan failed in {}", checkpoint.getCollection(), e);
+        } finally {
+            checkpoint.setLeaseUntil(null);
+            mongoTemplate.save(checkpoint);
+        }
+    }
+
+    private void run(ScanCheckpoint checkpoint) throws InterruptedException {
+        LocalDateTime now = LocalDateTime.now();
+        if (checkpoint.getCollection() == null) {
+            if (checkpoint.getPassFinishedAt() != null && checkpoint.getPassFinishedAt().plus(passInterval).isAfter(now)) {
+                return;
+            }
+            checkpoint.setCollection(LINKS.get(0).collection());
+            checkpoint.setLastId(null);
+            checkpoint.setPassStartedAt(now);
+        }
+
+        // ObjectIds start with their creation time, so this skips everything newer than min-age
+        ObjectId newest = new ObjectId(Date.from(now.minus(minAge).atZone(ZoneId.systemDefault()).toInstant()));
+        long deadline = System.nanoTime() + maxRunNanos;
+        while (System.nanoTime() < deadline) {
+            Link link = link(checkpoint.getCollection());
+            long start = System.nanoTime();
+            List<Document> batch = nextBatch(link, checkpoint.getLastId(), newest);
+            if (batch.isEmpty()) {
+                int next = LINKS.indexOf(link) + 1;
+                if (next == LINKS.size()) {
+                    checkpoint.setCollection(null);
+                    checkpoint.setLastId(null);
+                    checkpoint.setPassFinishedAt(LocalDateTime.now());
+                    logger.info("Orphan scan pass finished");
+                    return;
+                }
+                checkpoint.setCollection(LINKS.get(next).collection());
+                checkpoint.setLastId(null);
+                continue;
+            }
+
+            List<Document> orphans = findOrphans(link, batch);
+            if (!orphans.isEmpty()) {
+                handle(link, orphans);
+            }
+            meterRegistry.counter("orphans.scanned", "collection", link.collection()).increment(batch.size());
+            checkpoint.setLastId(batch.get(batch.size() - 1).get("_id"));
+            mongoTemplate.save(checkpoint);
+
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            Thread.sleep(Math.max(minPauseMs, elapsedMs));
+        }
+    }
+
+    private List<Document> nextBatch(Link link, Object lastId, ObjectId newest) {
+        Criteria range = Criteria.where("_id").lt(newest);
+        if (lastId != null) {
+            range.gt(lastId);
+        }
+        Query query = Query.query(range).with(Sort.by("_id")).limit(batchSize);
+        query.fields().include(link.parentRef());
+        if (link.parentIdField() != null) {
+            query.fields().include(link.parentIdField());
+        }
+        return mongoTemplate.find(query, Document.class, link.collection());
+    }
+
+    /**
+     * Documents of the batch that reference a parent, none of whose references resolve.
+     */
+    List<Document> findOrphans(Link link, List<Document> batch) {
+        Set<Object> parentIds = new HashSet<>();
+        for (Document child : batch) {
+            parentIds.addAll(parentIds(link, child));
+        }
+        Set<Object> existing = new HashSet<>();
+        if (!parentIds.isEmpty()) {
+            Query parents = Query.query(Criteria.where("_id").in(parentIds));
+            parents.fields().include("_id");
+            mongoTemplate.find(parents, Document.class, link.parentCollection()).forEach(parent -> existing.add(parent.get("_id")));
+        }
+
+        List<Document> orphans = new ArrayList<>();
+        int unlinked = 0;
+        for (Document child : batch) {
+            List<Object> ids = parentIds(link, child);
+            if (ids.isEmpty()) {
+                // No reference to check, e.g. written by hand or by an older version; not ours to remove
+                unlinked++;
+            } else if (ids.stream().noneMatch(existing::contains)) {
+                orphans.add(child);
+            }
+        }
+        if (unlinked > 0) {
+            meterRegistry.counter("orphans.unlinked", "collection", link.collection()).increment(unlinked);
+        }
+        if (link.backRef() != null && !orphans.isEmpty()) {
+            // Still in use when a parent points at it
+            Query referencing = Query.query(Criteria.where(link.backRef() + ".$id").in(orphans.stream().map(o -> o.get("_id")).toList()));
+            referencing.fields().include(link.backRef());
+            Set<Object> referenced = new HashSet<>();
+            mongoTemplate.find(referencing, Document.class, link.parentCollection()).forEach(parent -> {
+                if (parent.get(link.backRef()) instanceof DBRef ref) {
+                    referenced.add(ref.getId());
+                }
+            });
+            orphans.removeIf(orphan -> referenced.contains(orphan.get("_id")));
+        }
+        return orphans;
+    }
+
+    private static List<Object> parentIds(Link link, Document child) {
+        List<Object> ids = new ArrayList<>(2);
+        if (child.get(link.parentRef()) instanceof DBRef ref) {
+            ids.add(ref.getId());
+        }
+        if (link.parentIdField() != null && child.get(link.parentIdField()) instanceof String id) {
+            ids.add(MongoIds.toObjectId(id));
+        }
+        return ids;
+    }
+
+    private void handle(Link link, List<Document> orphans) {
+        meterRegistry.counter("orphans.found", "collection", link.collection()).increment(orphans.size());
+        List<Object> ids = orphans.stream().map(orphan -> orphan.get("_id")).toList();
+        if (mode == Mode.REPORT) {
+            logger.warn("Found {} orphaned documents in {}: {}", ids.size(), link.collection(), ids);
+            return;
+        }
+
+        if (mode == Mode.QUARANTINE) {
+            // Keyed by collection and id, so copying again after an interrupted run is harmless
+            Query query = Query.query(Criteria.where("_id").in(ids));
+            List<Document> full = mongoTemplate.find(query, Document.class, link.collection());
+            BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, QUARANTINE_COLLECTION);
+            LocalDateTime foundAt = LocalDateTime.now();
+            for (Document orphan : full) {
+                Object key = new Document("collection", link.collection()).append("id", orphan.get("_id"));
+                ops.upsert(Query.query(Criteria.where("_id").is(key)),
+                    new Update().set("document", orphan).set("foundAt", foundAt));
+            }
+            if (!full.isEmpty()) {
+                ops.execute();
+            }
+        }
+        long removed = mongoTemplate.remove(Query.query(Criteria.where("_id").in(ids)), link.collection()).getDeletedCount();
+        meterRegistry.counter("orphans.removed", "collection", link.collection()).increment(removed);
+        logger.info("Removed {} orphaned documents from {}", removed, link.collection());
+    }
+
+    private static Link link(String collection) {
+        return LINKS.stream()
+            .filter(link -> link.collection().equals(collection))
+            .findFirst()
+            .orElse(LINKS.get(0));
+    }
+
+    private ScanCheckpoint claim() {
+        LocalDateTime now = LocalDateTime.now();
+        Query query = Query.query(Criteria.where("_id").is(CHECKPOINT_ID).orOperator(
+            Criteria.where("leaseUntil").is(null),
+            Criteria.where("leaseUntil").lt(now)));
+        try {
+            return mongoTemplate.findAndModify(query, new Update().set("leaseUntil", now.plusNanos(leaseMs * 1_000_000)),
+                FindAndModifyOptions.options().returnNew(true).upsert(true), ScanCheckpoint.class);
+        } catch (DuplicateKeyException e) {
+            // Held by another instance
+            return null;
+        }
+    }
+}
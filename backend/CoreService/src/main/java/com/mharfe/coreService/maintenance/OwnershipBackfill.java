@@ -0,0 +1,80 @@
+package com.mharfe.coreService.maintenance;
+
+import com.mharfe.coreService.model.book.Book;
+import com.mharfe.coreService.model.book.Chapter;
+import com.mharfe.coreService.model.book.Page;
+import com.mharfe.coreService.repository.MongoIds;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Copies bookId and ownerId onto chapters and pages written before those fields
+ * existed. Only documents still missing ownerId are touched, so it is cheap to run
+ * on every startup and safe to interrupt.
+ */
+@Component
+public class OwnershipBackfill {
+    private static final Logger logger = LoggerFactory.getLogger(OwnershipBackfill.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final boolean runOnStartup;
+
+    public OwnershipBackfill(MongoTemplate mongoTemplate,
+                             @Value("${app.ownership.backfill-on-startup:true}") boolean runOnStartup) {
+        this.mongoTemplate = mongoTemplate;
+        this.runOnStartup = runOnStartup;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (runOnStartup) {
+            backfill();
+        }
+    }
+
+    public void backfill() {
+        Query missingOwner = Query.query(Criteria.where("ownerId").exists(false));
+        if (!mongoTemplate.exists(missingOwner, Chapter.class) && !mongoTemplate.exists(missingOwner, Page.class)) {
+            return;
+        }
+
+        long chapters = 0;
+        long pages = 0;
+        Query bookQuery = new Query();
+        bookQuery.fields().include("userId");
+        try (Stream<Book> books = mongoTemplate.stream(bookQuery, Book.class)) {
+            for (Book book : (Iterable<Book>) books::iterator) {
+                Update owner = new Update().set("bookId", book.getId()).set("ownerId", book.getUserId());
+                Object bookRef = MongoIds.toObjectId(book.getId());
+
+                chapters += mongoTemplate.updateMulti(
+                    Query.query(Criteria.where("book.$id").is(bookRef).and("ownerId").exists(false)),
+                    owner, Chapter.class).getModifiedCount();
+
+                List<Object> chapterIds = new ArrayList<>();
+                Query chapterQuery = Query.query(Criteria.where("book.$id").is(bookRef));
+                chapterQuery.fields().include("_id");
+                mongoTemplate.find(chapterQuery, Document.class, "chapters").forEach(c -> chapterIds.add(c.get("_id")));
+                if (!chapterIds.isEmpty()) {
+                    pages += mongoTemplate.updateMulti(
+                        Query.query(Criteria.where("chapter.$id").in(chapterIds).and("ownerId").exists(false)),
+                        owner, Page.class).getModifiedCount();
+                }
+            }
+        }
+        logger.info("Backfilled ownership on {} chapters and {} pages", chapters, pages);
+    }
+}
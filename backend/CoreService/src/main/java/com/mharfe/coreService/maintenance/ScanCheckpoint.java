@@ -0,0 +1,33 @@
+package com.mharfe.coreService.maintenance;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Where a background scan over several collections stopped, so it resumes there
+ * after a restart or on another instance.
+ */
+@Data
+@Document(collection = "scan_checkpoints")
+public class ScanCheckpoint {
+    @Id
+    private String id;
+    // Collection being walked and the last _id done in it; null lastId means from the start
+    private String collection;
+    private Object lastId;
+    private LocalDateTime passStartedAt;
+    private LocalDateTime passFinishedAt;
+
+    // The instance running the scan holds it until then; expired leases are taken over
+    private LocalDateTime leaseUntil;
+
+    public ScanCheckpoint() {
+    }
+
+    public ScanCheckpoint(String id) {
+        this.id = id;
+    }
+}
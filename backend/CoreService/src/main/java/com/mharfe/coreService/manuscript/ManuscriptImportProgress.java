@@ -0,0 +1,113 @@
+package com.mharfe.coreService.manuscript;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Live state of one manuscript import. Written by the importing thread and read
+ * by progress polls, hence the volatile fields.
+ */
+public class ManuscriptImportProgress {
+
+    public enum Status { RUNNING, COMPLETED, FAILED }
+
+    private final String importId;
+    private final String bookId;
+    @JsonIgnore
+    private final UUID userId;
+    private final long totalBytes;
+    private final Instant startedAt = Instant.now();
+
+    private volatile Status status = Status.RUNNING;
+    private volatile long bytesRead;
+    private volatile int chaptersCreated;
+    private volatile int pagesCreated;
+    private volatile String error;
+    private volatile Instant finishedAt;
+
+    public ManuscriptImportProgress(String importId, String bookId, UUID userId, long totalBytes) {
+        this.importId = importId;
+        this.bookId = bookId;
+        this.userId = userId;
+        this.totalBytes = totalBytes;
+    }
+
+    void bytesRead(long bytesRead) {
+        this.bytesRead = bytesRead;
+    }
+
+    public void chaptersCreated(int chaptersCreated) {
+        this.chaptersCreated = chaptersCreated;
+    }
+
+    public void pagesCreated(int pagesCreated) {
+        this.pagesCreated = pagesCreated;
+    }
+
+    public void complete() {
+        this.finishedAt = Instant.now();
+        this.status = Status.COMPLETED;
+    }
+
+    public void fail(String error) {
+        this.error = error;
+        this.finishedAt = Instant.now();
+        this.status = Status.FAILED;
+    }
+
+    /**
+     * Percentage of the upload consumed, or -1 when the size was not announced.
+     */
+    public int getPercent() {
+        if (totalBytes <= 0) {
+            return status == Status.RUNNING ? -1 : 100;
+        }
+        return (int) Math.min(100, bytesRead * 100 / totalBytes);
+    }
+
+    public String getImportId() {
+        return importId;
+    }
+
+    public String getBookId() {
+        return bookId;
+    }
+
+    public UUID getUserId() {
+        return userId;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public int getChaptersCreated() {
+        return chaptersCreated;
+    }
+
+    public int getPagesCreated() {
+        return pagesCreated;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+}
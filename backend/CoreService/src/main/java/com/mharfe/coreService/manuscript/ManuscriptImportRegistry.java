@@ -0,0 +1,71 @@
+package com.mharfe.coreService.manuscript;
+
+import org.springframework.stereotype.Component;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Imports in flight plus recently finished ones, so clients can poll progress
+ * while the upload is still streaming. Finished entries are kept for an hour.
+ */
+@Component
+public class ManuscriptImportRegistry {
+
+    private static final Duration RETENTION = Duration.ofHours(1);
+
+    private final Map<String, ManuscriptImportProgress> imports = new ConcurrentHashMap<>();
+
+    public ManuscriptImportProgress start(String importId, String bookId, UUID userId, long totalBytes) {
+        purgeFinished();
+        ManuscriptImportProgress progress = new ManuscriptImportProgress(importId, bookId, userId, totalBytes);
+        if (imports.putIfAbsent(importId, progress) != null) {
+            throw new IllegalStateException("Import already exists: " + importId);
+        }
+        return progress;
+    }
+
+    public Optional<ManuscriptImportProgress> get(String importId) {
+        return Optional.ofNullable(imports.get(importId));
+    }
+
+    /**
+     * Wraps the upload so every read advances the import's byte count.
+     */
+    public InputStream track(InputStream in, ManuscriptImportProgress progress) {
+        return new FilterInputStream(in) {
+            private long count;
+
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b != -1) {
+                    progress.bytesRead(++count);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n > 0) {
+                    count += n;
+                    progress.bytesRead(count);
+                }
+                return n;
+            }
+        };
+    }
+
+    private void purgeFinished() {
+        Instant cutoff = Instant.now().minus(RETENTION);
+        imports.values().removeIf(p -> p.getFinishedAt() != null && p.getFinishedAt().isBefore(cutoff));
+    }
+}
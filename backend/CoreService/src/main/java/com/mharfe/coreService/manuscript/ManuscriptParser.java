@@ -0,0 +1,203 @@
+package com.mharfe.coreService.manuscript;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits a plain-text or Markdown manuscript into chapters and pages in one pass.
+ * <p>
+ * Only the current line, paragraph and page are buffered, each bounded by the
+ * page size, so memory use does not grow with the size of the manuscript.
+ * Chapters start at Markdown headings ({@code #}, {@code ##}) or at lines like
+ * "Chapter 12" / "CHAPTER XII: The Storm". Pages are cut at paragraph boundaries,
+ * then at sentence boundaries, and only as a last resort at whitespace.
+ */
+public class ManuscriptParser {
+
+    public interface Listener {
+        void onChapter(String title);
+
+        void onPage(String text);
+    }
+
+    static final String DEFAULT_CHAPTER_TITLE = "Chapter 1";
+    public static final int MIN_PAGE_SIZE = 100;
+
+    private static final Pattern MARKDOWN_HEADING = Pattern.compile("^#{1,2}\\s+(.+?)\\s*#*\\s*$");
+    private static final Pattern CHAPTER_HEADING = Pattern.compile(
+        "^(chapter\\s+(\\d+|[ivxlcdm]+|[a-z]+(-[a-z]+)?)|prologue|epilogue)(\\s*[:.\\-\u2013\u2014]\\s*.*)?$",
+        Pattern.CASE_INSENSITIVE);
+    private static final int MAX_HEADING_LENGTH = 120;
+
+    private final int pageSize;
+    private final Listener listener;
+
+    private final StringBuilder line = new StringBuilder();
+    private final StringBuilder paragraph = new StringBuilder();
+    private final StringBuilder page = new StringBuilder();
+    private boolean chapterOpen;
+    private boolean midLine;
+
+    public ManuscriptParser(int pageSize, Listener listener) {
+        if (pageSize < MIN_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be at least " + MIN_PAGE_SIZE + " characters");
+        }
+        this.pageSize = pageSize;
+        this.listener = listener;
+    }
+
+    public void parse(Reader reader) throws IOException {
+        char[] buffer = new char[8192];
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            for (int i = 0; i < read; i++) {
+                char c = buffer[i];
+                if (c == '\n') {
+                    endLine(true);
+                } else if (c != '\r') {
+                    line.append(c);
+                    if (line.length() >= pageSize) {
+                        // A line this long is never a heading; hand it over as text
+                        endLine(false);
+                    }
+                }
+            }
+        }
+        endLine(true);
+        endParagraph();
+        flushPage();
+    }
+
+    private void endLine(boolean complete) {
+        String text = line.toString();
+        line.setLength(0);
+
+        boolean continuation = midLine;
+        midLine = !complete;
+        if (complete && !continuation) {
+            String heading = headingOf(text.strip());
+            if (heading != null) {
+                endParagraph();
+                flushPage();
+                chapterOpen = true;
+                listener.onChapter(heading);
+                return;
+            }
+            if (text.isBlank()) {
+                endParagraph();
+                return;
+            }
+        }
+
+        if (!paragraph.isEmpty() && !continuation) {
+            paragraph.append('\n');
+        }
+        paragraph.append(complete ? text.stripTrailing() : text);
+        if (paragraph.length() >= pageSize) {
+            // Paragraphs longer than a page are split as they arrive to keep the buffer bounded
+            splitOversized(false);
+        }
+    }
+
+    private void endParagraph() {
+        if (paragraph.isEmpty()) {
+            return;
+        }
+        if (paragraph.length() > pageSize) {
+            splitOversized(true);
+            return;
+        }
+        int separator = page.isEmpty() ? 0 : 2;
+        if (page.length() + separator + paragraph.length() > pageSize) {
+            flushPage();
+        }
+        if (!page.isEmpty()) {
+            page.append("\n\n");
+        }
+        page.append(paragraph);
+        paragraph.setLength(0);
+    }
+
+    /**
+     * Moves text out of an oversized paragraph one full page at a time. Unless
+     * {@code all} is set, the tail that does not fill a page stays in the paragraph.
+     */
+    private void splitOversized(boolean all) {
+        flushPage();
+        while (paragraph.length() > pageSize || (all && !paragraph.isEmpty())) {
+            if (paragraph.length() <= pageSize) {
+                page.append(paragraph);
+                paragraph.setLength(0);
+                break;
+            }
+            int cut = breakPoint(paragraph, pageSize);
+            page.append(paragraph, 0, cut);
+            paragraph.delete(0, cut);
+            stripLeadingWhitespace(paragraph);
+            flushPage();
+        }
+    }
+
+    private void flushPage() {
+        String text = page.toString().strip();
+        page.setLength(0);
+        if (text.isEmpty()) {
+            return;
+        }
+        if (!chapterOpen) {
+            chapterOpen = true;
+            listener.onChapter(DEFAULT_CHAPTER_TITLE);
+        }
+        listener.onPage(text);
+    }
+
+    static String headingOf(String text) {
+        if (text.isEmpty() || text.length() > MAX_HEADING_LENGTH) {
+            return null;
+        }
+        Matcher markdown = MARKDOWN_HEADING.matcher(text);
+        if (markdown.matches()) {
+            return markdown.group(1);
+        }
+        return CHAPTER_HEADING.matcher(text).matches() ? text : null;
+    }
+
+    /**
+     * Last sentence end within {@code limit} characters (but past half a page),
+     * else the last whitespace, else a hard cut at the limit.
+     */
+    static int breakPoint(CharSequence text, int limit) {
+        int whitespace = -1;
+        for (int i = limit - 1; i > 0; i--) {
+            if (!Character.isWhitespace(text.charAt(i))) {
+                continue;
+            }
+            if (i >= limit / 2 && endsSentence(text, i)) {
+                return i;
+            }
+            if (whitespace < 0) {
+                whitespace = i;
+            }
+        }
+        return whitespace > 0 ? whitespace : limit;
+    }
+
+    private static boolean endsSentence(CharSequence text, int end) {
+        int i = end - 1;
+        while (i > 0 && (text.charAt(i) == '"' || text.charAt(i) == '\u201D' || text.charAt(i) == '\'')) {
+            i--;
+        }
+        char c = text.charAt(i);
+        return c == '.' || c == '!' || c == '?';
+    }
+
+    private static void stripLeadingWhitespace(StringBuilder text) {
+        int start = 0;
+        while (start < text.length() && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        text.delete(0, start);
+    }
+}
@@ -6,6 +6,7 @@ import com.mharfe.coreService.dto.book.BookUpdateDTO;
 import com.mharfe.coreService.dto.book.ChapterBasicDTO;
 import com.mharfe.coreService.dto.book.BookBasicDTO;
 import com.mharfe.coreService.model.book.Book;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Component;
 
 import java.util.stream.Collectors;
@@ -24,6 +25,7 @@ public class BookMapper {
         dto.setTitle(book.getTitle());
         dto.setDescription(book.getDescription());
         dto.setCreatedAt(book.getCreatedAt());
+        dto.setVersion(book.getVersion());
         
         if (book.getChapters() != null) {
             dto.setChapters(book.getChapters().stream()
@@ -32,6 +34,8 @@ public class BookMapper {
                     chapterDTO.setId(chapter.getId());
                     chapterDTO.setTitle(chapter.getTitle());
                     chapterDTO.setOrder(chapter.getOrder());
+                    chapterDTO.setRank(chapter.getRank());
+                    chapterDTO.setVersion(chapter.getVersion());
                     return chapterDTO;
                 })
                 .collect(Collectors.toList()));
@@ -47,6 +51,7 @@ public class BookMapper {
         dto.setId(book.getId());
         dto.setTitle(book.getTitle());
         dto.setDescription(book.getDescription());
+        dto.setVersion(book.getVersion());
         
         return dto;
     }
@@ -57,14 +62,14 @@ public class BookMapper {
         return new Book(userId, dto.getTitle(), dto.getDescription());
     }
     
-    public void updateEntity(Book book, BookUpdateDTO dto) {
-        if (book == null || dto == null) return;
-        
+    public Update toUpdate(BookUpdateDTO dto) {
+        Update update = new Update();
         if (dto.getTitle() != null) {
-            book.setTitle(dto.getTitle());
+            update.set("title", dto.getTitle());
         }
         if (dto.getDescription() != null) {
-            book.setDescription(dto.getDescription());
+            update.set("description", dto.getDescription());
         }
+        return update;
     }
 } 
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.mharfe.coreService.mapper;
 
+import com.mharfe.coreService.autosave.PendingPageEdit;
 import com.mharfe.coreService.dto.book.ChapterDTO;
 import com.mharfe.coreService.dto.book.ChapterCreateDTO;
 import com.mharfe.coreService.dto.book.ChapterUpdateDTO;
@@ -7,22 +8,40 @@ import com.mharfe.coreService.dto.book.PageBasicDTO;
 import com.mharfe.coreService.dto.book.ChapAudioDTO;
 import com.mharfe.coreService.dto.book.ChapSummaryDTO;
 import com.mharfe.coreService.dto.book.ChapterBasicDTO;
+import com.mharfe.coreService.model.book.Book;
 import com.mharfe.coreService.model.book.Chapter;
+import com.mharfe.coreService.repository.MongoIds;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Component
 public class ChapterMapper {
     
     public ChapterDTO toDTO(Chapter chapter) {
+        ChapterDTO dto = toCachedDTO(chapter);
+        if (dto != null) {
+            setAttachments(dto, chapter);
+        }
+        return dto;
+    }
+    
+    /**
+     * The chapter without its audio and summary, as kept in the DTO cache: other
+     * services attach those without a change event to evict the entry.
+     */
+    public ChapterDTO toCachedDTO(Chapter chapter) {
         if (chapter == null) return null;
         
         ChapterDTO dto = new ChapterDTO();
         dto.setId(chapter.getId());
         dto.setTitle(chapter.getTitle());
         dto.setOrder(chapter.getOrder());
-        dto.setBookId(chapter.getBook().getId());
+        dto.setVersion(chapter.getVersion());
+        dto.setBookId(chapter.getBookId() != null ? chapter.getBookId() : MongoIds.refId(chapter.getBook(), Book::getId));
         
         if (chapter.getPages() != null) {
             dto.setPages(chapter.getPages().stream()
@@ -31,11 +50,31 @@ public class ChapterMapper {
                     pageDTO.setId(page.getId());
                     pageDTO.setTextContent(page.getTextContent());
                     pageDTO.setPageNumber(page.getPageNumber());
+                    pageDTO.setRank(page.getRank());
+                    pageDTO.setVersion(page.getVersion());
                     return pageDTO;
                 })
                 .collect(Collectors.toList()));
         }
         
+        return dto;
+    }
+    
+    /**
+     * {@code dto} with the audio and summary of {@code chapter}, as a copy when there
+     * are any, since {@code dto} may be shared through the DTO cache.
+     */
+    public ChapterDTO withAttachments(ChapterDTO dto, Chapter chapter) {
+        if (chapter.getChapAudio() == null && chapter.getChapSummary() == null) {
+            return dto;
+        }
+        ChapterDTO copy = copyOf(dto);
+        copy.setPages(dto.getPages());
+        setAttachments(copy, chapter);
+        return copy;
+    }
+    
+    private void setAttachments(ChapterDTO dto, Chapter chapter) {
         if (chapter.getChapAudio() != null) {
             ChapAudioDTO audioDTO = new ChapAudioDTO();
             audioDTO.setId(chapter.getChapAudio().getId());
@@ -50,8 +89,47 @@ public class ChapterMapper {
             summaryDTO.setText(chapter.getChapSummary().getText());
             dto.setChapSummary(summaryDTO);
         }
-        
-        return dto;
+    }
+    
+    /**
+     * Shows the unsaved autosaves of the chapter's pages in place of their stored text.
+     * {@code dto} may be shared through the DTO cache, so a chapter with pending edits
+     * is returned as a copy and {@code dto} itself is left as stored.
+     */
+    public ChapterDTO overlay(ChapterDTO dto, Function<String, PendingPageEdit> pendingEdits) {
+        if (dto.getPages() == null || dto.getPages().stream().allMatch(page -> pendingEdits.apply(page.getId()) == null)) {
+            return dto;
+        }
+        ChapterDTO copy = copyOf(dto);
+        List<PageBasicDTO> pages = dto.getPages().stream()
+            .map(page -> {
+                PendingPageEdit edit = pendingEdits.apply(page.getId());
+                if (edit == null) {
+                    return page;
+                }
+                PageBasicDTO pageDTO = new PageBasicDTO();
+                pageDTO.setId(page.getId());
+                pageDTO.setTextContent(edit.textContent());
+                pageDTO.setPageNumber(edit.pageNumber());
+                pageDTO.setRank(page.getRank());
+                pageDTO.setVersion(edit.version());
+                return pageDTO;
+            })
+            .collect(Collectors.toList());
+        copy.setPages(pages);
+        return copy;
+    }
+    
+    private static ChapterDTO copyOf(ChapterDTO dto) {
+        ChapterDTO copy = new ChapterDTO();
+        copy.setId(dto.getId());
+        copy.setTitle(dto.getTitle());
+        copy.setOrder(dto.getOrder());
+        copy.setBookId(dto.getBookId());
+        copy.setVersion(dto.getVersion());
+        copy.setChapAudio(dto.getChapAudio());
+        copy.setChapSummary(dto.getChapSummary());
+        return copy;
     }
     
     public ChapterBasicDTO toResponseDTO(Chapter chapter) {
@@ -61,6 +139,8 @@ public class ChapterMapper {
         dto.setId(chapter.getId());
         dto.setTitle(chapter.getTitle());
         dto.setOrder(chapter.getOrder());
+        dto.setRank(chapter.getRank());
+        dto.setVersion(chapter.getVersion());
         
         return dto;
     }
@@ -72,14 +152,14 @@ public class ChapterMapper {
         return chapter;
     }
     
-    public void updateEntity(Chapter chapter, ChapterUpdateDTO dto) {
-        if (chapter == null || dto == null) return;
-        
+    public Update toUpdate(ChapterUpdateDTO dto) {
+        Update update = new Update();
         if (dto.getTitle() != null) {
-            chapter.setTitle(dto.getTitle());
+            update.set("title", dto.getTitle());
         }
         if (dto.getOrder() != null) {
-            chapter.setOrder(dto.getOrder());
+            update.set("order", dto.getOrder());
         }
+        return update;
     }
 } 
\ No newline at end of file
@@ -1,10 +1,20 @@
 package com.mharfe.coreService.mapper;
 
+import com.mharfe.coreService.autosave.PendingPageEdit;
 import com.mharfe.coreService.dto.book.PageBasicDTO;
+import com.mharfe.coreService.delta.TextOp;
 import com.mharfe.coreService.dto.book.PageCreateDTO;
+import com.mharfe.coreService.dto.book.PagePatchResultDTO;
 import com.mharfe.coreService.dto.book.PageUpdateDTO;
+import com.mharfe.coreService.dto.book.TextDeltaDTO;
 import com.mharfe.coreService.model.book.Page;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
 
 @Component
 public class PageMapper {
@@ -16,6 +26,27 @@ public class PageMapper {
         dto.setId(page.getId());
         dto.setTextContent(page.getTextContent());
         dto.setPageNumber(page.getPageNumber());
+        dto.setRank(page.getRank());
+        dto.setVersion(page.getVersion());
+        return dto;
+    }
+    
+    public PageBasicDTO toResponseDTO(PendingPageEdit edit) {
+        PageBasicDTO dto = new PageBasicDTO();
+        dto.setId(edit.pageId());
+        dto.setTextContent(edit.textContent());
+        dto.setPageNumber(edit.pageNumber());
+        dto.setVersion(edit.version());
+        return dto;
+    }
+    
+    /**
+     * Shows an unsaved autosave in place of the stored text.
+     */
+    public PageBasicDTO overlay(PageBasicDTO dto, PendingPageEdit edit) {
+        dto.setTextContent(edit.textContent());
+        dto.setPageNumber(edit.pageNumber());
+        dto.setVersion(edit.version());
         return dto;
     }
     
@@ -28,10 +59,39 @@ public class PageMapper {
         return page;
     }
     
-    public void updateEntity(Page page, PageUpdateDTO dto) {
-        if (page == null || dto == null) return;
-        
-        page.setTextContent(dto.getTextContent());
-        page.setPageNumber(dto.getPageNumber());
+    public PagePatchResultDTO toPatchResultDTO(Page page, boolean rebased) {
+        PagePatchResultDTO dto = new PagePatchResultDTO();
+        dto.setId(page.getId());
+        dto.setVersion(page.getVersion());
+        dto.setRebased(rebased);
+        if (rebased) {
+            dto.setTextContent(page.getTextContent());
+        }
+        return dto;
+    }
+    
+    public List<TextOp> toOps(List<TextDeltaDTO> deltas) {
+        if (deltas == null || deltas.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No deltas to apply");
+        }
+        List<TextOp> ops = new ArrayList<>();
+        for (TextDeltaDTO delta : deltas) {
+            if (delta.getOffset() < 0 || delta.getDelete() < 0) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Delta offset and delete count must not be negative");
+            }
+            if (delta.getDelete() > 0) {
+                ops.add(new TextOp.Delete(delta.getOffset(), delta.getDelete()));
+            }
+            if (delta.getInsert() != null && !delta.getInsert().isEmpty()) {
+                ops.add(new TextOp.Insert(delta.getOffset(), delta.getInsert()));
+            }
+        }
+        return ops;
+    }
+    
+    public Update toUpdate(PageUpdateDTO dto) {
+        return new Update()
+            .set("textContent", dto.getTextContent())
+            .set("pageNumber", dto.getPageNumber());
     }
 } 
\ No newline at end of file
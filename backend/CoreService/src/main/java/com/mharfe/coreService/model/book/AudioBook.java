@@ -2,6 +2,8 @@ package com.mharfe.coreService.model.book;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.DBRef;
 
@@ -9,11 +11,13 @@ import java.util.Date;
 
 @Data
 @Document
+@CompoundIndex(name = "book", def = "{'book.$id': 1}")
 public class AudioBook {
     @Id
     private String _id;
     private String audioFilePath;
     private Date generatedAt;
+    @Indexed
     private String bookId;
 
     @DBRef
@@ -2,6 +2,8 @@ package com.mharfe.coreService.model.book;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.DBRef;
 
@@ -13,21 +15,32 @@ import java.util.ArrayList;
 
 @Data
 @Document(collection = "books")
+@CompoundIndex(name = "user_id", def = "{'userId': 1, '_id': 1}")
 public class Book {
     @Id
     private String id;
     private UUID userId;
+    // Title search is an unanchored regex; scanning the index beats scanning the documents
+    @Indexed
     private String title;
     private String description;
     private LocalDateTime createdAt;
 
-    @DBRef
+    // Incremented by every in-place update; see Versioning
+    private long version;
+
+    // Set when deletion is requested; the book is hidden from then on and removed
+    // together with its chapters and pages by CascadeDeleter
+    private LocalDateTime deletedAt;
+
+    // Lazy so that loading a book does not pull in its whole chapter/page tree
+    @DBRef(lazy = true)
     private AudioBook audioBook;
     
-    @DBRef
+    @DBRef(lazy = true)
     private BookSummary bookSummary;
     
-    @DBRef
+    @DBRef(lazy = true)
     private List<Chapter> chapters;
 
     public Book() {
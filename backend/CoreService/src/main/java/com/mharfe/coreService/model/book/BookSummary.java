@@ -2,17 +2,21 @@ package com.mharfe.coreService.model.book;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.DBRef;
 import java.time.LocalDateTime;
 
 @Data
 @Document(collection = "book_summaries")
+@CompoundIndex(name = "book", def = "{'book.$id': 1}")
 public class BookSummary {
     @Id
     private String id;
     private String text;
     private LocalDateTime generatedAt;
+    @Indexed
     private String bookId;
 
     @DBRef
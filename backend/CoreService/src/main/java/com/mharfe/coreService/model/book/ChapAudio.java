@@ -2,16 +2,20 @@ package com.mharfe.coreService.model.book;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.DBRef;
 
 @Data
 @Document(collection = "chap_audios")
+@CompoundIndex(name = "chapter", def = "{'chapter.$id': 1}")
 public class ChapAudio {
     @Id
     private String id;
     private String audioFilePath;
     private String voiceId;
+    @Indexed
     private String chapterId;
 
     @DBRef
@@ -2,12 +2,14 @@ package com.mharfe.coreService.model.book;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.DBRef;
 import java.time.LocalDateTime;
 
 @Data
 @Document(collection = "chap_summaries")
+@CompoundIndex(name = "chapter", def = "{'chapter.$id': 1}")
 public class ChapSummary {
     @Id
     private String id;
@@ -2,30 +2,56 @@ package com.mharfe.coreService.model.book;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.DBRef;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 
 @Data
 @Document(collection = "chapters")
+@CompoundIndex(name = "book_rank", def = "{'book.$id': 1, 'rank': 1, 'order': 1}")
+// ChapterRepository's derived queries go through the denormalized bookId
+@CompoundIndex(name = "book_id_rank", def = "{'bookId': 1, 'rank': 1, 'order': 1, '_id': 1}")
+// Looked up from the audio/summary side by the cascade delete and orphan scan
+@CompoundIndex(name = "chap_audio", def = "{'chapAudio.$id': 1}", sparse = true)
+@CompoundIndex(name = "chap_summary", def = "{'chapSummary.$id': 1}", sparse = true)
 public class Chapter {
     @Id
     private String id;
+    @Indexed
     private String title;
     private int order;
 
-    @DBRef
+    // Position among the book's chapters; see RankAllocator. order is kept as a label
+    // and orders chapters written before ranks existed
+    private String rank;
+
+    // Incremented by every in-place update; see Versioning
+    private long version;
+
+    // Set when the chapter or its book is deleted; see CascadeDeleter
+    private LocalDateTime deletedAt;
+
+    // Copied from the book so ownership checks need no DBRef fetch; null on chapters
+    // written before these fields existed until the startup backfill has run
+    private String bookId;
+    private UUID ownerId;
+
+    @DBRef(lazy = true)
     private Book book;
 
-    @DBRef
+    @DBRef(lazy = true)
     private List<Page> pages;
 
-    @DBRef
+    @DBRef(lazy = true)
     private ChapAudio chapAudio;
 
-    @DBRef
+    @DBRef(lazy = true)
     private ChapSummary chapSummary;
 
     public Chapter() {
@@ -36,7 +62,16 @@ public class Chapter {
         this();
         this.title = title;
         this.order = order;
+        moveTo(book);
+    }
+
+    /**
+     * Attaches the chapter to a book, keeping the denormalized bookId and ownerId in sync.
+     */
+    public void moveTo(Book book) {
         this.book = book;
+        this.bookId = book != null ? book.getId() : null;
+        this.ownerId = book != null ? book.getUserId() : null;
     }
 
     public String getId() {
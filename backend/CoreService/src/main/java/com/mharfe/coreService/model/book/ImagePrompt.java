@@ -2,11 +2,14 @@ package com.mharfe.coreService.model.book;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.DBRef;
 
 @Data
 @Document(collection = "image_prompts")
+// Matches the whole DBRef, as ImagePromptRepository's derived queries do
+@CompoundIndex(name = "page_ref", def = "{'page': 1, '_id': 1}")
 public class ImagePrompt {
     @Id
     private String id;
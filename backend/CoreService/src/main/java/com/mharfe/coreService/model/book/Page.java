@@ -2,23 +2,40 @@ package com.mharfe.coreService.model.book;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.DBRef;
 
 import java.util.List;
+import java.util.UUID;
 
 @Data
 @Document(collection = "pages")
+@CompoundIndex(name = "chapter_rank", def = "{'chapter.$id': 1, 'rank': 1, 'pageNumber': 1}")
+// PageRepository's derived queries match the whole DBRef rather than its $id
+@CompoundIndex(name = "chapter_ref_rank", def = "{'chapter': 1, 'rank': 1, 'pageNumber': 1, '_id': 1}")
 public class Page {
     @Id
     private String id;
     private String textContent;
     private int pageNumber;
 
-    @DBRef
+    // Position among the chapter's pages; see RankAllocator. pageNumber is kept as a
+    // label and orders pages written before ranks existed
+    private String rank;
+
+    // Incremented by every in-place update; see Versioning
+    private long version;
+
+    // Copied from the chapter so ownership checks need no DBRef fetch; null on pages
+    // written before these fields existed until the startup backfill has run
+    private String bookId;
+    private UUID ownerId;
+
+    @DBRef(lazy = true)
     private Chapter chapter;
 
-    @DBRef
+    @DBRef(lazy = true)
     private List<ImagePrompt> imagePrompts;
 
     public Page() {}
@@ -26,7 +43,16 @@ public class Page {
     public Page(String textContent, int pageNumber, Chapter chapter) {
         this.textContent = textContent;
         this.pageNumber = pageNumber;
+        moveTo(chapter);
+    }
+
+    /**
+     * Attaches the page to a chapter, keeping the denormalized bookId and ownerId in sync.
+     */
+    public void moveTo(Chapter chapter) {
         this.chapter = chapter;
+        this.bookId = chapter != null ? chapter.getBookId() : null;
+        this.ownerId = chapter != null ? chapter.getOwnerId() : null;
     }
 
     public String getId() {
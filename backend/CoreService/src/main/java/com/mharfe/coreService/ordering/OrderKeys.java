@@ -0,0 +1,136 @@
+package com.mharfe.coreService.ordering;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * Fractional order keys: base-62 strings read as digits after a radix point, so a
+ * key between any two others always exists. Digits are in ASCII order, which makes
+ * plain string comparison (and a MongoDB index) order them correctly. Keys never
+ * end in '0', so that every key has a successor of the same length.
+ */
+public final class OrderKeys {
+
+    static final String DIGITS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+    private static final int BASE = DIGITS.length();
+    // Random digits appended to a new key, so two concurrent inserts at the same spot get distinct keys
+    private static final int JITTER_DIGITS = 2;
+
+    private OrderKeys() {
+    }
+
+    /**
+     * Shortest key strictly between the two; null means the start or end of the list.
+     */
+    public static String between(String lower, String upper) {
+        String a = lower != null ? lower : "";
+        if (upper != null && a.compareTo(upper) >= 0) {
+            throw new IllegalArgumentException("Order keys out of order: " + lower + " >= " + upper);
+        }
+        return midpoint(a, upper);
+    }
+
+    /**
+     * Key between the two, with random trailing digits where they fit.
+     */
+    public static String between(String lower, String upper, RandomGenerator random) {
+        String key = between(lower, upper);
+        StringBuilder jittered = new StringBuilder(key);
+        for (int i = 0; i < JITTER_DIGITS; i++) {
+            jittered.append(DIGITS.charAt(1 + random.nextInt(BASE - 1)));
+        }
+        return upper == null || jittered.toString().compareTo(upper) < 0 ? jittered.toString() : key;
+    }
+
+    /**
+     * {@code count} ascending keys between the two, placed by repeated bisection so
+     * key length grows with the log of {@code count} rather than with {@code count}.
+     */
+    public static List<String> between(String lower, String upper, int count) {
+        List<String> keys = new ArrayList<>(count);
+        fill(lower, upper, count, keys);
+        return keys;
+    }
+
+    private static void fill(String lower, String upper, int count, List<String> keys) {
+        if (count <= 0) {
+            return;
+        }
+        String middle = between(lower, upper);
+        int below = (count - 1) / 2;
+        fill(lower, middle, below, keys);
+        keys.add(middle);
+        fill(middle, upper, count - 1 - below, keys);
+    }
+
+    /**
+     * Short key after {@code lower}, for appending. Bumps the first digit that can be
+     * bumped, so a run of appends grows the key by one digit every few dozen keys.
+     */
+    public static String after(String lower) {
+        if (lower == null || lower.isEmpty()) {
+            return midpoint("", null);
+        }
+        for (int i = 0; i < lower.length(); i++) {
+            int digit = DIGITS.indexOf(lower.charAt(i));
+            if (digit < BASE - 1) {
+                return lower.substring(0, i) + DIGITS.charAt(digit + 1);
+            }
+        }
+        return lower + midpoint("", null);
+    }
+
+    /**
+     * {@code count} evenly spaced keys of equal length, with room for about
+     * {@value #BASE} inserts between neighbours before a key gets longer.
+     */
+    public static List<String> spread(int count) {
+        int width = 1;
+        long space = BASE;
+        while (space < (long) (count + 1) * BASE) {
+            width++;
+            space *= BASE;
+        }
+        List<String> keys = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            keys.add(encode(space / (count + 1) * i, width));
+        }
+        return keys;
+    }
+
+    private static String encode(long value, int width) {
+        char[] digits = new char[width];
+        for (int i = width - 1; i >= 0; i--) {
+            digits[i] = DIGITS.charAt((int) (value % BASE));
+            value /= BASE;
+        }
+        int length = width;
+        while (length > 1 && digits[length - 1] == '0') {
+            length--;
+        }
+        return new String(digits, 0, length);
+    }
+
+    private static String midpoint(String a, String b) {
+        if (b != null) {
+            // Strip the common prefix, reading a as padded with zeros
+            int n = 0;
+            while (n < b.length() && (n < a.length() ? a.charAt(n) : '0') == b.charAt(n)) {
+                n++;
+            }
+            if (n > 0) {
+                return b.substring(0, n) + midpoint(n < a.length() ? a.substring(n) : "", b.substring(n));
+            }
+        }
+        int digitA = a.isEmpty() ? 0 : DIGITS.indexOf(a.charAt(0));
+        int digitB = b != null ? DIGITS.indexOf(b.charAt(0)) : BASE;
+        if (digitB - digitA > 1) {
+            return String.valueOf(DIGITS.charAt((digitA + digitB + 1) / 2));
+        }
+        if (b != null && b.length() > 1) {
+            return b.substring(0, 1);
+        }
+        return DIGITS.charAt(digitA) + midpoint(a.isEmpty() ? "" : a.substring(1), null);
+    }
+}
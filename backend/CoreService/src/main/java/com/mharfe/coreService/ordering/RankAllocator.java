@@ -0,0 +1,385 @@
+package com.mharfe.coreService.ordering;
+
+import com.mharfe.coreService.autosave.PageAutosaveBuffer;
+import com.mharfe.coreService.event.ChapterChangedEvent;
+import com.mharfe.coreService.event.PageChangedEvent;
+import com.mharfe.coreService.model.book.Chapter;
+import com.mharfe.coreService.model.book.Page;
+import com.mharfe.coreService.repository.MongoIds;
+import com.mharfe.coreService.repository.Versioning;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.random.RandomGenerator;
+
+/**
+ * Hands out {@code rank} keys for new chapters and pages, so inserting between two
+ * neighbours is a single write. Siblings are ordered by (rank, legacy number, _id).
+ * <p>
+ * Chapters or pages written before ranks existed are ranked from their legacy
+ * number the first time a sibling is added. Parents whose keys grow past
+ * {@code max-key-length} are re-spread in the background.
+ * <p>
+ * A rank is only valid among the keys it was computed from, so handing out ranks and
+ * re-spreading are kept apart per parent through a {@link RankLock}: ranks are refused
+ * while the children are re-spread, and a background re-spread waits until no rank has
+ * been handed out for {@code rebalance-quiet-ms}, longer than a caller takes to store
+ * the rank it was given. Re-ranked children get a new version and are published as
+ * changed, like any other write.
+ */
+@Component
+public class RankAllocator {
+    private static final Logger logger = LoggerFactory.getLogger(RankAllocator.class);
+
+    public static final String FIELD = "rank";
+
+    /**
+     * A kind of ordered child: its collection, parent reference and pre-rank order field.
+     */
+    public enum Siblings {
+        CHAPTERS("chapters", "book.$id", "order"),
+        PAGES("pages", "chapter.$id", "pageNumber");
+
+        private final String collection;
+        private final String parentField;
+        private final String legacyOrderField;
+
+        Siblings(String collection, String parentField, String legacyOrderField) {
+            this.collection = collection;
+            this.parentField = parentField;
+            this.legacyOrderField = legacyOrderField;
+        }
+
+        public Sort sort() {
+            return Sort.by(FIELD, legacyOrderField, "_id");
+        }
+    }
+
+    private record Parent(Siblings siblings, String id) {
+        String lockId() {
+            return siblings.collection + ":" + id;
+        }
+    }
+
+    private record Bounds(String lower, String upper) {
+    }
+
+    private static final Duration RESPREAD_LEASE = Duration.ofMinutes(1);
+
+    private final Map<Parent, Boolean> pendingRebalance = new ConcurrentHashMap<>();
+    private final MongoTemplate mongoTemplate;
+    private final PageAutosaveBuffer autosaveBuffer;
+    private final ApplicationEventPublisher eventPublisher;
+    private final RandomGenerator random = RandomGenerator.getDefault();
+    private final int maxKeyLength;
+    private final Duration quietPeriod;
+
+    public RankAllocator(MongoTemplate mongoTemplate,
+                         PageAutosaveBuffer autosaveBuffer,
+                         ApplicationEventPublisher eventPublisher,
+                         @Value("${app.ordering.max-key-length:24}") int maxKeyLength,
+                         @Value("${app.ordering.rebalance-quiet-ms:5000}") long quietMs) {
+        this.mongoTemplate = mongoTemplate;
+        this.autosaveBuffer = autosaveBuffer;
+        this.eventPublisher = eventPublisher;
+        this.maxKeyLength = maxKeyLength;
+        this.quietPeriod = Duration.ofMillis(quietMs);
+    }
+
+    /**
+     * Rank for a new child placed right after {@code afterId} or right before
+     * {@code beforeId}; at the end when neither is given.
+     */
+    public String rankFor(Siblings siblings, String parentId, String afterId, String beforeId) {
+        allocating(siblings, parentId);
+        ensureRanked(siblings, parentId);
+        Bounds bounds = bounds(siblings, parentId, afterId, beforeId, List.of());
+        return checked(siblings, parentId, OrderKeys.between(bounds.lower(), bounds.upper(), random));
+    }
+
+    /**
+     * Ranks for {@code count} children placed as a run after {@code afterId} or before
+     * {@code beforeId}. Children in {@code movingIds} are about to be re-ranked, so they
+     * are not neighbours and cannot be the anchor.
+     */
+    public List<String> rankRange(Siblings siblings, String parentId, String afterId, String beforeId,
+                                  int count, Collection<String> movingIds) {
+        if ((afterId != null && movingIds.contains(afterId)) || (beforeId != null && movingIds.contains(beforeId))) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot place items next to themselves");
+        }
+        allocating(siblings, parentId);
+        ensureRanked(siblings, parentId);
+        Bounds bounds = bounds(siblings, parentId, afterId, beforeId, movingIds);
+        List<String> keys = OrderKeys.between(bounds.lower(), bounds.upper(), count);
+        if (!keys.isEmpty()) {
+            checked(siblings, parentId, keys.get(keys.size() - 1));
+        }
+        return keys;
+    }
+
+    private Bounds bounds(Siblings siblings, String parentId, String afterId, String beforeId, Collection<String> excludedIds) {
+        if (afterId != null) {
+            String lower = rankOf(siblings, parentId, afterId);
+            return new Bounds(lower, neighbour(siblings, parentId, lower, true, excludedIds));
+        }
+        if (beforeId != null) {
+            String upper = rankOf(siblings, parentId, beforeId);
+            return new Bounds(neighbour(siblings, parentId, upper, false, excludedIds), upper);
+        }
+        return new Bounds(neighbour(siblings, parentId, null, false, excludedIds), null);
+    }
+
+    /**
+     * Ranks for {@code count} children appended in order; pass 0 when the count is
+     * not known up front.
+     */
+    public Iterator<String> append(Siblings siblings, String parentId, int count) {
+        allocating(siblings, parentId);
+        ensureRanked(siblings, parentId);
+        return appendAfter(siblings, parentId, neighbour(siblings, parentId, null, false, List.of()), count);
+    }
+
+    /**
+     * Like {@link #append} for a parent that is being created and has no children yet.
+     */
+    public Iterator<String> appendToNew(Siblings siblings, String parentId, int count) {
+        allocating(siblings, parentId);
+        return appendAfter(siblings, parentId, null, count);
+    }
+
+    /**
+     * Evenly spread ranks for all {@code count} children of the parent, rewritten by the
+     * caller in a new order.
+     */
+    public List<String> spread(Siblings siblings, String parentId, int count) {
+        allocating(siblings, parentId);
+        return OrderKeys.spread(count);
+    }
+
+    private Iterator<String> appendAfter(Siblings siblings, String parentId, String last, int count) {
+        if (last == null && count > 0) {
+            return OrderKeys.spread(count).iterator();
+        }
+        return new Iterator<>() {
+            private String previous = last;
+            // A long import keeps the parent from being re-spread under it
+            private long allocatedAt = System.nanoTime();
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public String next() {
+                if (System.nanoTime() - allocatedAt > quietPeriod.toNanos() / 2) {
+                    allocating(siblings, parentId);
+                    allocatedAt = System.nanoTime();
+                }
+                previous = checked(siblings, parentId, OrderKeys.after(previous));
+                return previous;
+            }
+        };
+    }
+
+    /**
+     * Asks for the children of the parent to be re-spread, e.g. after a move that
+     * produced long keys.
+     */
+    public void requestRebalance(Siblings siblings, String parentId) {
+        pendingRebalance.put(new Parent(siblings, parentId), Boolean.TRUE);
+    }
+
+    @Scheduled(fixedDelayString = "${app.ordering.rebalance-interval-ms:10000}")
+    public void rebalancePending() {
+        for (Parent parent : List.copyOf(pendingRebalance.keySet())) {
+            pendingRebalance.remove(parent);
+            if (!claimRespread(parent)) {
+                // Ranks were handed out lately, or another instance is re-spreading; retried next round
+                pendingRebalance.put(parent, Boolean.TRUE);
+                continue;
+            }
+            try {
+                int count = respread(parent.siblings(), parent.id(), parent.siblings().sort());
+                logger.info("Rebalanced order keys of {} {} under {}", count, parent.siblings().collection, parent.id());
+            } finally {
+                mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(parent.lockId())),
+                    new Update().unset("respreadUntil"), RankLock.class);
+            }
+        }
+    }
+
+    /**
+     * Records that a rank under the parent is being handed out; refused while its
+     * children are re-spread.
+     */
+    private void allocating(Siblings siblings, String parentId) {
+        LocalDateTime now = LocalDateTime.now();
+        Query query = Query.query(Criteria.where("_id").is(new Parent(siblings, parentId).lockId())
+            .orOperator(Criteria.where("respreadUntil").is(null), Criteria.where("respreadUntil").lt(now)));
+        try {
+            // Upserting a held lock collides with the existing document
+            mongoTemplate.upsert(query, new Update().set("allocatedAt", now), RankLock.class);
+        } catch (DuplicateKeyException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                "The order of these " + siblings.collection + " is being rebalanced, try again");
+        }
+    }
+
+    /**
+     * Takes the parent for a re-spread, if no rank was handed out under it within the
+     * quiet period and nobody else holds it.
+     */
+    private boolean claimRespread(Parent parent) {
+        LocalDateTime now = LocalDateTime.now();
+        Query query = Query.query(Criteria.where("_id").is(parent.lockId()).andOperator(
+            new Criteria().orOperator(Criteria.where("respreadUntil").is(null), Criteria.where("respreadUntil").lt(now)),
+            new Criteria().orOperator(Criteria.where("allocatedAt").is(null),
+                Criteria.where("allocatedAt").lt(now.minus(quietPeriod)))));
+        try {
+            mongoTemplate.upsert(query, new Update().set("respreadUntil", now.plus(RESPREAD_LEASE)), RankLock.class);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    private String checked(Siblings siblings, String parentId, String key) {
+        if (key.length() > maxKeyLength) {
+            requestRebalance(siblings, parentId);
+        }
+        return key;
+    }
+
+    /**
+     * Ranks the children of a parent written before ranks existed, in their legacy
+     * order, so listings sorted by rank show them in place.
+     */
+    public void ensureRanked(Siblings siblings, String parentId) {
+        Query unranked = Query.query(parentCriteria(siblings, parentId).and(FIELD).exists(false));
+        if (mongoTemplate.exists(unranked, siblings.collection)) {
+            allocating(siblings, parentId);
+            respread(siblings, parentId, Sort.by(siblings.legacyOrderField, "_id"));
+        }
+    }
+
+    /**
+     * Gives the children evenly spread ranks in {@code sort} order. Each write expects
+     * the rank that was read, so a child re-ranked meanwhile keeps its new rank.
+     */
+    private int respread(Siblings siblings, String parentId, Sort sort) {
+        Query query = Query.query(parentCriteria(siblings, parentId)).with(sort);
+        query.fields().include("_id", FIELD);
+        List<Document> children = mongoTemplate.find(query, Document.class, siblings.collection);
+        if (children.isEmpty()) {
+            return 0;
+        }
+
+        List<String> keys = OrderKeys.spread(children.size());
+        Map<Object, String> ranks = new HashMap<>();
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, siblings.collection);
+        for (int i = 0; i < children.size(); i++) {
+            Document child = children.get(i);
+            if (keys.get(i).equals(child.getString(FIELD))) {
+                continue;
+            }
+            ops.updateOne(Query.query(Criteria.where("_id").is(child.get("_id")).and(FIELD).is(child.getString(FIELD))),
+                Versioning.bump(new Update().set(FIELD, keys.get(i))));
+            ranks.put(child.get("_id"), keys.get(i));
+        }
+        if (ranks.isEmpty()) {
+            return 0;
+        }
+        if (siblings == Siblings.PAGES) {
+            // Autosaves expect the current version, which the write below increments
+            autosaveBuffer.flushPages(ranks.keySet().stream().map(Object::toString).toList());
+        }
+        ops.execute();
+        return publishRanked(siblings, parentId, ranks);
+    }
+
+    /**
+     * Publishes the children that now have the rank they were given.
+     */
+    private int publishRanked(Siblings siblings, String parentId, Map<Object, String> ranks) {
+        Query query = Query.query(Criteria.where("_id").in(ranks.keySet()));
+        int count = 0;
+        if (siblings == Siblings.CHAPTERS) {
+            query.fields().include(FIELD, "title", "order", "ownerId");
+            for (Chapter chapter : mongoTemplate.find(query, Chapter.class)) {
+                if (ranks.get(MongoIds.toObjectId(chapter.getId())).equals(chapter.getRank())) {
+                    eventPublisher.publishEvent(ChapterChangedEvent.saved(chapter.getId(), parentId, chapter.getOwnerId(),
+                        chapter.getTitle(), chapter.getOrder()));
+                    count++;
+                }
+            }
+        } else {
+            query.fields().include(FIELD, "pageNumber", "textContent", "bookId", "ownerId");
+            for (Page page : mongoTemplate.find(query, Page.class)) {
+                if (ranks.get(MongoIds.toObjectId(page.getId())).equals(page.getRank())) {
+                    eventPublisher.publishEvent(PageChangedEvent.saved(page.getId(), parentId, page.getBookId(),
+                        page.getOwnerId(), page.getPageNumber(), page.getTextContent()));
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private String rankOf(Siblings siblings, String parentId, String id) {
+        Query query = Query.query(parentCriteria(siblings, parentId).and("_id").is(MongoIds.toObjectId(id)));
+        query.fields().include(FIELD);
+        Document sibling = mongoTemplate.findOne(query, Document.class, siblings.collection);
+        if (sibling == null || sibling.getString(FIELD) == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Neighbour " + id + " is not in the same parent");
+        }
+        return sibling.getString(FIELD);
+    }
+
+    /**
+     * Rank of the closest sibling above (or below) {@code rank}; the last (or first)
+     * when rank is null.
+     */
+    private String neighbour(Siblings siblings, String parentId, String rank, boolean above,
+                             Collection<String> excludedIds) {
+        Criteria criteria = parentCriteria(siblings, parentId);
+        if (!excludedIds.isEmpty()) {
+            criteria.and("_id").nin(MongoIds.toObjectIds(excludedIds));
+        }
+        criteria = criteria.and(FIELD);
+        criteria = rank == null ? criteria.exists(true) : above ? criteria.gt(rank) : criteria.lt(rank);
+        boolean ascending = rank != null && above;
+        Query query = Query.query(criteria)
+            .with(Sort.by(ascending ? Sort.Direction.ASC : Sort.Direction.DESC, FIELD))
+            .limit(1);
+        query.fields().include(FIELD);
+        Document sibling = mongoTemplate.findOne(query, Document.class, siblings.collection);
+        return sibling != null ? sibling.getString(FIELD) : null;
+    }
+
+    private static Criteria parentCriteria(Siblings siblings, String parentId) {
+        return Criteria.where(siblings.parentField).is(MongoIds.toObjectId(parentId));
+    }
+}
@@ -0,0 +1,27 @@
+package com.mharfe.coreService.ordering;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Coordinates the ranks of one parent's children across instances: new ranks are not
+ * handed out while the children are re-spread, and a re-spread only starts once no
+ * rank has been handed out for a while. See {@link RankAllocator}.
+ */
+@Data
+@Document(collection = "rank_locks")
+public class RankLock {
+
+    // <children collection>:<parent id>
+    @Id
+    private String id;
+
+    // When a rank under the parent was last handed out
+    private LocalDateTime allocatedAt;
+
+    // The instance re-spreading the children holds the parent until then; expired leases are taken over
+    private LocalDateTime respreadUntil;
+}
@@ -0,0 +1,116 @@
+package com.mharfe.coreService.pagination;
+
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Base64;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Turns Spring Data keyset positions into opaque continuation tokens and back.
+ * <p>
+ * A token holds the sort-key values of the last row of a slice, each tagged with
+ * its type so the next query binds them exactly as the database returned them
+ * (ObjectId vs String, Timestamp nanos, UUID).
+ */
+public final class CursorCodec {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 200;
+
+    private CursorCodec() {
+    }
+
+    public static Limit limit(Integer size) {
+        int pageSize = size == null || size <= 0 ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+        return Limit.of(pageSize);
+    }
+
+    public static ScrollPosition decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+        try {
+            String payload = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            Map<String, Object> keys = new LinkedHashMap<>();
+            for (String entry : payload.split("&")) {
+                int eq = entry.indexOf('=');
+                String key = URLDecoder.decode(entry.substring(0, eq), StandardCharsets.UTF_8);
+                String value = URLDecoder.decode(entry.substring(eq + 1), StandardCharsets.UTF_8);
+                keys.put(key, decodeValue(value));
+            }
+            return ScrollPosition.forward(keys);
+        } catch (RuntimeException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+    }
+
+    public static String encode(ScrollPosition position) {
+        if (!(position instanceof KeysetScrollPosition keyset) || keyset.isInitial()) {
+            return null;
+        }
+        StringBuilder payload = new StringBuilder();
+        for (Map.Entry<String, ?> entry : keyset.getKeys().entrySet()) {
+            if (!payload.isEmpty()) {
+                payload.append('&');
+            }
+            payload.append(URLEncoder.encode(entry.getKey(), StandardCharsets.UTF_8))
+                    .append('=')
+                    .append(URLEncoder.encode(encodeValue(entry.getValue()), StandardCharsets.UTF_8));
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(payload.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static <E, T> CursorPage<T> toPage(Window<E> window, Function<E, T> mapper) {
+        List<T> items = window.getContent().stream().map(mapper).toList();
+        String nextCursor = window.hasNext() && !window.isEmpty()
+                ? encode(window.positionAt(window.size() - 1))
+                : null;
+        return new CursorPage<>(items, nextCursor, nextCursor != null);
+    }
+
+    private static String encodeValue(Object value) {
+        if (value instanceof Integer i) return "i:" + i;
+        if (value instanceof Long l) return "l:" + l;
+        if (value instanceof ObjectId o) return "o:" + o.toHexString();
+        if (value instanceof UUID u) return "u:" + u;
+        if (value instanceof Timestamp t) return "t:" + t.getTime() + ":" + t.getNanos();
+        if (value instanceof Date d) return "d:" + d.getTime();
+        if (value instanceof String s) return "s:" + s;
+        throw new IllegalArgumentException("Unsupported cursor key type: " + value.getClass().getName());
+    }
+
+    private static Object decodeValue(String value) {
+        String data = value.substring(2);
+        return switch (value.charAt(0)) {
+            case 'i' -> Integer.valueOf(data);
+            case 'l' -> Long.valueOf(data);
+            case 'o' -> new ObjectId(data);
+            case 'u' -> UUID.fromString(data);
+            case 't' -> {
+                String[] parts = data.split(":");
+                Timestamp timestamp = new Timestamp(Long.parseLong(parts[0]));
+                timestamp.setNanos(Integer.parseInt(parts[1]));
+                yield timestamp;
+            }
+            case 'd' -> new Date(Long.parseLong(data));
+            case 's' -> data;
+            default -> throw new IllegalArgumentException("Unknown cursor key type: " + value.charAt(0));
+        };
+    }
+}
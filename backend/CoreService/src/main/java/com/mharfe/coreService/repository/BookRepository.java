@@ -1,14 +1,33 @@
 package com.mharfe.coreService.repository;
 
 import com.mharfe.coreService.model.book.Book;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
-public interface BookRepository extends MongoRepository<Book, String> {
+public interface BookRepository extends MongoRepository<Book, String>, BookRepositoryCustom {
     List<Book> findByUserId(UUID userId);
     List<Book> findByTitleContainingIgnoreCase(String title);
+
+    // Books marked for deletion are hidden from every read below
+    Optional<Book> findByIdAndDeletedAtIsNull(String id);
+    boolean existsByIdAndDeletedAtIsNull(String id);
+
+    // Listing projections: only the BookBasicDTO fields are read, so no DBRef is resolved
+    @Query(fields = "{ 'title': 1, 'description': 1, 'version': 1 }")
+    List<Book> findBasicByUserIdAndDeletedAtIsNull(UUID userId);
+
+    @Query(fields = "{ 'title': 1, 'description': 1, 'version': 1 }")
+    List<Book> findBasicByTitleContainingIgnoreCaseAndDeletedAtIsNull(String title);
+
+    @Query(fields = "{ 'title': 1, 'description': 1, 'version': 1 }")
+    Window<Book> findBasicByUserIdAndDeletedAtIsNullOrderByIdAsc(UUID userId, ScrollPosition position, Limit limit);
 }
@@ -0,0 +1,22 @@
+package com.mharfe.coreService.repository;
+
+import com.mharfe.coreService.dto.book.BookOutlineDTO;
+import com.mharfe.coreService.dto.book.PageExportRowDTO;
+
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public interface BookRepositoryCustom {
+
+    /**
+     * Loads the book with its chapters, pages, chapter audio and chapter summary
+     * in a single aggregation. Page text is left out unless {@code includeText} is set.
+     */
+    Optional<BookOutlineDTO> findOutlineById(String id, boolean includeText);
+
+    /**
+     * Every page of the book in reading order (chapter order, then page number),
+     * read lazily from a single cursor. The stream must be closed to release the cursor.
+     */
+    Stream<PageExportRowDTO> streamExportRows(String bookId);
+}
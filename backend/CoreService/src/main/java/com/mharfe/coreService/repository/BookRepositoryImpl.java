@@ -0,0 +1,111 @@
+package com.mharfe.coreService.repository;
+
+import com.mharfe.coreService.dto.book.BookOutlineDTO;
+import com.mharfe.coreService.dto.book.PageExportRowDTO;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Aggregation-based reads for {@link BookRepository}. Spring Data picks this class up
+ * as the implementation of {@link BookRepositoryCustom} through the "Impl" suffix.
+ */
+public class BookRepositoryImpl implements BookRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    public BookRepositoryImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Optional<BookOutlineDTO> findOutlineById(String id, boolean includeText) {
+        Aggregation aggregation = outlineAggregation(id, includeText);
+        Document outline = mongoTemplate.aggregate(aggregation, "books", Document.class).getUniqueMappedResult();
+        if (outline == null) {
+            return Optional.empty();
+        }
+        return Optional.of(mongoTemplate.getConverter().read(BookOutlineDTO.class, outline));
+    }
+
+    static Aggregation outlineAggregation(String id, boolean includeText) {
+        // Chapters are joined on their own book ref rather than Book.chapters,
+        // so chapters created without updating the book's ref list are included too.
+        Document pageFields = new Document("pageNumber", 1);
+        if (includeText) {
+            pageFields.append("textContent", 1);
+        }
+        List<Document> pagePipeline = List.of(
+                new Document("$sort", new Document("rank", 1).append("pageNumber", 1).append("_id", 1)),
+                new Document("$project", pageFields));
+
+        List<Document> chapterPipeline = List.of(
+                new Document("$match", new Document("deletedAt", null)),
+                new Document("$sort", new Document("rank", 1).append("order", 1).append("_id", 1)),
+                lookup("pages", "_id", "chapter.$id", "pages", pagePipeline),
+                lookup("chap_audios", "chapAudio.$id", "_id", "chapAudio",
+                        List.of(new Document("$project", new Document("audioFilePath", 1).append("voiceId", 1)))),
+                lookup("chap_summaries", "chapSummary.$id", "_id", "chapSummary",
+                        List.of(new Document("$project", new Document("text", 1)))),
+                new Document("$project", new Document("title", 1)
+                        .append("order", 1)
+                        .append("pages", 1)
+                        .append("chapAudio", new Document("$first", "$chapAudio"))
+                        .append("chapSummary", new Document("$first", "$chapSummary"))));
+
+        return Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("_id").is(MongoIds.toObjectId(id)).and("deletedAt").is(null)),
+                raw(lookup("chapters", "_id", "book.$id", "chapters", chapterPipeline)),
+                raw(new Document("$project", new Document("userId", 1)
+                        .append("title", 1)
+                        .append("description", 1)
+                        .append("createdAt", 1)
+                        .append("chapters", 1))));
+    }
+
+    @Override
+    public Stream<PageExportRowDTO> streamExportRows(String bookId) {
+        return mongoTemplate.aggregateStream(exportAggregation(bookId), "chapters", Document.class)
+                .map(row -> mongoTemplate.getConverter().read(PageExportRowDTO.class, row));
+    }
+
+    static Aggregation exportAggregation(String bookId) {
+        // $lookup followed by $unwind is coalesced by the server, so a chapter's pages
+        // are never materialized as one array and the result stays a flat cursor.
+        List<Document> pagePipeline = List.of(
+                new Document("$sort", new Document("rank", 1).append("pageNumber", 1).append("_id", 1)),
+                new Document("$project", new Document("pageNumber", 1).append("textContent", 1)));
+
+        return Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("book.$id").is(MongoIds.toObjectId(bookId)).and("deletedAt").is(null)),
+                raw(new Document("$sort", new Document("rank", 1).append("order", 1).append("_id", 1))),
+                raw(lookup("pages", "_id", "chapter.$id", "page", pagePipeline)),
+                raw(new Document("$unwind", new Document("path", "$page").append("preserveNullAndEmptyArrays", true))),
+                raw(new Document("$project", new Document("_id", 0)
+                        .append("chapterId", new Document("$toString", "$_id"))
+                        .append("chapterTitle", "$title")
+                        .append("chapterOrder", "$order")
+                        .append("pageNumber", "$page.pageNumber")
+                        .append("textContent", "$page.textContent"))))
+                .withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+    }
+
+    private static Document lookup(String from, String localField, String foreignField, String as, List<Document> pipeline) {
+        return new Document("$lookup", new Document("from", from)
+                .append("localField", localField)
+                .append("foreignField", foreignField)
+                .append("pipeline", pipeline)
+                .append("as", as));
+    }
+
+    private static AggregationOperation raw(Document stage) {
+        return context -> stage;
+    }
+}
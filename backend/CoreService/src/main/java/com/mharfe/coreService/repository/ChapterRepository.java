@@ -1,13 +1,21 @@
 package com.mharfe.coreService.repository;
 
 import com.mharfe.coreService.model.book.Chapter;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ChapterRepository extends MongoRepository<Chapter, String> {
-    List<Chapter> findByBookIdOrderByOrderAsc(String bookId);
-    List<Chapter> findByTitleContainingIgnoreCase(String title);
+    // Chapters marked for deletion are hidden from every read below
+    Optional<Chapter> findByIdAndDeletedAtIsNull(String id);
+    // Served in order by the book_id_rank index; _id keeps equal keys in a stable order for the keyset
+    List<Chapter> findByBookIdAndDeletedAtIsNullOrderByRankAscOrderAscIdAsc(String bookId);
+    Window<Chapter> findByBookIdAndDeletedAtIsNullOrderByRankAscOrderAscIdAsc(String bookId, ScrollPosition position, Limit limit);
+    List<Chapter> findByTitleContainingIgnoreCaseAndDeletedAtIsNull(String title);
 } 
\ No newline at end of file
@@ -1,6 +1,9 @@
 package com.mharfe.coreService.repository;
 
 import com.mharfe.coreService.model.book.ImagePrompt;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
@@ -9,4 +12,5 @@ import java.util.List;
 @Repository
 public interface ImagePromptRepository extends MongoRepository<ImagePrompt, String> {
     List<ImagePrompt> findByPageId(String pageId);
+    Window<ImagePrompt> findByPageIdOrderByIdAsc(String pageId, ScrollPosition position, Limit limit);
 } 
\ No newline at end of file
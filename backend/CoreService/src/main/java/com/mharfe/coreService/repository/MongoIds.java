@@ -0,0 +1,77 @@
+package com.mharfe.coreService.repository;
+
+import com.mongodb.DBRef;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.convert.LazyLoadingProxy;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Converts String ids to the form Mongo stores them in. Needed for queries that
+ * bypass entity mapping (raw aggregation stages, DBRef "$id" paths, collection-name queries).
+ */
+public final class MongoIds {
+
+    private MongoIds() {
+    }
+
+    public static Object toObjectId(String id) {
+        return ObjectId.isValid(id) ? new ObjectId(id) : id;
+    }
+
+    public static List<Object> toObjectIds(Collection<String> ids) {
+        return ids.stream().map(MongoIds::toObjectId).toList();
+    }
+
+    /**
+     * Id of a referenced entity. For a lazy DBRef the id is read from the reference
+     * itself, because calling the id getter on the proxy would load the document.
+     */
+    public static <T> String refId(T entity, Function<T, String> idGetter) {
+        if (entity == null) {
+            return null;
+        }
+        if (entity instanceof LazyLoadingProxy proxy) {
+            DBRef ref = proxy.toDBRef();
+            return ref != null ? ref.getId().toString() : null;
+        }
+        return idGetter.apply(entity);
+    }
+
+    /**
+     * Ids of the references stored in a list field of a raw document, in list order.
+     * A lazy {@code @DBRef} list read through the entity is a single proxy that loads
+     * every referenced document in full as soon as it is touched, so reading the ids
+     * from it is not possible without that load.
+     */
+    public static List<String> refIds(Document document, String field) {
+        List<?> refs = document.getList(field, Object.class, Collections.emptyList());
+        return refs.stream()
+            .map(ref -> ref instanceof DBRef dbRef ? dbRef.getId().toString() : null)
+            .filter(Objects::nonNull)
+            .toList();
+    }
+
+    /**
+     * Puts documents read with an {@code $in} query back into the order of {@code ids};
+     * ids with no document are skipped.
+     */
+    public static <T> List<T> inOrder(List<String> ids, List<T> found, Function<T, String> idGetter) {
+        Map<String, T> byId = found.stream().collect(Collectors.toMap(idGetter, Function.identity()));
+        return ids.stream().map(byId::get).filter(Objects::nonNull).toList();
+    }
+
+    /**
+     * DBRefs for a {@code $push}, which does not convert entities to references by itself.
+     */
+    public static Object[] dbRefs(String collection, Collection<String> ids) {
+        return ids.stream().map(id -> new DBRef(collection, toObjectId(id))).toArray();
+    }
+}
@@ -1,6 +1,9 @@
 package com.mharfe.coreService.repository;
 
 import com.mharfe.coreService.model.book.Page;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
@@ -8,5 +11,7 @@ import java.util.List;
 
 @Repository
 public interface PageRepository extends MongoRepository<Page, String> {
-    List<Page> findByChapterIdOrderByPageNumberAsc(String chapterId);
+    // Served in order by the chapter_ref_rank index; _id keeps equal keys in a stable order for the keyset
+    List<Page> findByChapterIdOrderByRankAscPageNumberAscIdAsc(String chapterId);
+    Window<Page> findByChapterIdOrderByRankAscPageNumberAscIdAsc(String chapterId, ScrollPosition position, Limit limit);
 } 
\ No newline at end of file
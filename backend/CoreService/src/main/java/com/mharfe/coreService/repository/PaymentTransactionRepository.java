@@ -2,10 +2,15 @@ package com.mharfe.coreService.repository;
 
 
 import com.mharfe.coreService.model.user.PaymentTransaction;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
 import java.util.UUID;
 import java.util.List;
 
 public interface PaymentTransactionRepository extends JpaRepository<PaymentTransaction, UUID> {
     List<PaymentTransaction> findByUserId(UUID userId);
+    // id keeps transactions with the same date in a stable order for the keyset
+    Window<PaymentTransaction> findByUserIdOrderByDateDescIdDesc(UUID userId, ScrollPosition position, Limit limit);
 } 
\ No newline at end of file
@@ -2,6 +2,9 @@ package com.mharfe.coreService.repository;
 
 
 import com.mharfe.coreService.model.user.TokenUsageLog;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
 import java.util.UUID;
 import java.util.List;
@@ -9,4 +12,6 @@ import java.util.List;
 public interface TokenUsageLogRepository extends JpaRepository<TokenUsageLog, UUID> {
     List<TokenUsageLog> findByUserId(UUID userId);
     List<TokenUsageLog> findByUserIdAndOperationType(UUID userId, String operationType);
+    // id keeps logs with the same timestamp in a stable order for the keyset
+    Window<TokenUsageLog> findByUserIdOrderByTimestampDescIdDesc(UUID userId, ScrollPosition position, Limit limit);
 } 
\ No newline at end of file
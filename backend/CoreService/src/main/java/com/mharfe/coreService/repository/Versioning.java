@@ -0,0 +1,48 @@
+package com.mharfe.coreService.repository;
+
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Optimistic concurrency for in-place updates of books, chapters and pages. Every
+ * update increments {@code version}; a client that sends the version it last read
+ * only overwrites the document if nobody else has written it since.
+ */
+public final class Versioning {
+
+    public static final String FIELD = "version";
+
+    private Versioning() {
+    }
+
+    /**
+     * Adds the version condition to the filter. Documents written before versioning
+     * have no version field and match an expected version of 0.
+     */
+    public static Criteria expect(Criteria criteria, Long expectedVersion) {
+        if (expectedVersion == null) {
+            return criteria;
+        }
+        if (expectedVersion == 0) {
+            return criteria.orOperator(Criteria.where(FIELD).is(0L), Criteria.where(FIELD).exists(false));
+        }
+        return criteria.and(FIELD).is(expectedVersion);
+    }
+
+    public static Update bump(Update update) {
+        return update.inc(FIELD, 1L);
+    }
+
+    public static void check(long currentVersion, Long expectedVersion) {
+        if (expectedVersion != null && currentVersion != expectedVersion) {
+            throw conflict(currentVersion);
+        }
+    }
+
+    public static ResponseStatusException conflict(long currentVersion) {
+        return new ResponseStatusException(HttpStatus.CONFLICT,
+            "The document was changed by someone else (current version " + currentVersion + ")");
+    }
+}
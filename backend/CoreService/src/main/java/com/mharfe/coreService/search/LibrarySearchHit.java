@@ -0,0 +1,7 @@
+package com.mharfe.coreService.search;
+
+public record LibrarySearchHit(Type type, String id, String bookId, String title, String description,
+                               int order, double score) {
+
+    public enum Type { BOOK, CHAPTER }
+}
@@ -0,0 +1,70 @@
+package com.mharfe.coreService.search;
+
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory full-text index of book titles, descriptions and chapter titles,
+ * partitioned by owner so every query only ever sees the caller's library.
+ * Kept current by {@link LibrarySearchIndexer}.
+ */
+@Component
+public class LibrarySearchIndex {
+
+    private volatile Map<UUID, UserLibraryIndex> libraries = new ConcurrentHashMap<>();
+
+    public void indexBook(UUID userId, String bookId, String title, String description) {
+        library(userId).putBook(bookId, title, description);
+    }
+
+    public void indexChapter(UUID userId, String chapterId, String bookId, String title, int order) {
+        library(userId).putChapter(chapterId, bookId, title, order);
+    }
+
+    /**
+     * Removes the book together with all of its chapters.
+     */
+    public void removeBook(UUID userId, String bookId) {
+        UserLibraryIndex library = libraries.get(userId);
+        if (library != null) {
+            library.removeBook(bookId);
+        }
+    }
+
+    public void removeChapter(UUID userId, String chapterId) {
+        UserLibraryIndex library = libraries.get(userId);
+        if (library != null) {
+            library.removeChapter(chapterId);
+        }
+    }
+
+    public List<LibrarySearchHit> search(UUID userId, String query, int limit) {
+        UserLibraryIndex library = libraries.get(userId);
+        return library != null ? library.search(query, limit) : List.of();
+    }
+
+    public List<String> suggest(UUID userId, String prefix, int limit) {
+        UserLibraryIndex library = libraries.get(userId);
+        return library != null ? library.suggest(prefix, limit) : List.of();
+    }
+
+    public int size() {
+        return libraries.values().stream().mapToInt(UserLibraryIndex::size).sum();
+    }
+
+    /**
+     * Takes over the content of {@code rebuilt} in a single step, so searches see
+     * either the old index or the complete new one, never a partly built one.
+     */
+    public void replaceWith(LibrarySearchIndex rebuilt) {
+        libraries = rebuilt.libraries;
+    }
+
+    private UserLibraryIndex library(UUID userId) {
+        return libraries.computeIfAbsent(userId, id -> new UserLibraryIndex());
+    }
+}
@@ -0,0 +1,164 @@
+package com.mharfe.coreService.search;
+
+import com.mharfe.coreService.event.BookChangedEvent;
+import com.mharfe.coreService.event.ChapterChangedEvent;
+import com.mharfe.coreService.model.book.Book;
+import com.mharfe.coreService.model.book.Chapter;
+import com.mongodb.DBRef;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Builds the library index from Mongo at startup and applies book and chapter
+ * changes to it as the services publish them.
+ */
+@Component
+public class LibrarySearchIndexer {
+    private static final Logger logger = LoggerFactory.getLogger(LibrarySearchIndexer.class);
+
+    private final LibrarySearchIndex index;
+    private final MongoTemplate mongoTemplate;
+    private final boolean rebuildOnStartup;
+    // The index being rebuilt, which also receives the changes made while it is read
+    private volatile LibrarySearchIndex rebuilding;
+
+    public LibrarySearchIndexer(LibrarySearchIndex index,
+                                MongoTemplate mongoTemplate,
+                                @Value("${app.search.rebuild-on-startup:true}") boolean rebuildOnStartup) {
+        this.index = index;
+        this.mongoTemplate = mongoTemplate;
+        this.rebuildOnStartup = rebuildOnStartup;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (rebuildOnStartup) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Reads only the indexed fields. Chapters are read as raw documents so their
+     * book reference is not resolved; the owner comes from the books read first.
+     * The new index is built aside and swapped in when complete, so searches keep
+     * being answered from the current one meanwhile.
+     */
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        LibrarySearchIndex fresh = new LibrarySearchIndex();
+        rebuilding = fresh;
+        try {
+            read(fresh);
+            index.replaceWith(fresh);
+        } finally {
+            rebuilding = null;
+        }
+
+        logger.info("Indexed {} books and chapters for library search in {} ms",
+            index.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void read(LibrarySearchIndex index) {
+        Map<String, UUID> ownerByBook = new HashMap<>();
+        Query bookQuery = Query.query(Criteria.where("deletedAt").is(null));
+        bookQuery.fields().include("userId", "title", "description");
+        try (Stream<Book> books = mongoTemplate.stream(bookQuery, Book.class)) {
+            books.forEach(book -> {
+                ownerByBook.put(book.getId(), book.getUserId());
+                index.indexBook(book.getUserId(), book.getId(), book.getTitle(), book.getDescription());
+            });
+        }
+
+        Query chapterQuery = Query.query(Criteria.where("deletedAt").is(null));
+        chapterQuery.fields().include("title", "order", "book");
+        try (Stream<Document> chapters = mongoTemplate.stream(chapterQuery, Document.class, "chapters")) {
+            chapters.forEach(chapter -> {
+                if (!(chapter.get("book") instanceof DBRef bookRef)) {
+                    return;
+                }
+                String bookId = bookRef.getId().toString();
+                UUID userId = ownerByBook.get(bookId);
+                if (userId != null) {
+                    index.indexChapter(userId, chapter.get("_id").toString(), bookId,
+                        chapter.getString("title"), chapter.getInteger("order", 0));
+                }
+            });
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        if (event.userId() == null) return;
+        if (event.type() == BookChangedEvent.ChangeType.DELETED) {
+            apply(target -> target.removeBook(event.userId(), event.bookId()));
+        } else if (event.title() == null) {
+            // Relayed from another instance without its fields
+            reindexBook(event.userId(), event.bookId());
+        } else {
+            apply(target -> target.indexBook(event.userId(), event.bookId(), event.title(), event.description()));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onChapterChanged(ChapterChangedEvent event) {
+        if (event.userId() == null) return;
+        if (event.type() == ChapterChangedEvent.ChangeType.DELETED) {
+            apply(target -> target.removeChapter(event.userId(), event.chapterId()));
+        } else if (event.title() == null) {
+            // Relayed from another instance without its fields
+            reindexChapter(event.userId(), event.chapterId(), event.bookId());
+        } else {
+            apply(target -> target.indexChapter(event.userId(), event.chapterId(), event.bookId(), event.title(), event.order()));
+        }
+    }
+
+    private void reindexBook(UUID userId, String bookId) {
+        Query query = Query.query(Criteria.where("id").is(bookId).and("deletedAt").is(null));
+        query.fields().include("title", "description");
+        Book book = mongoTemplate.findOne(query, Book.class);
+        if (book != null) {
+            apply(target -> target.indexBook(userId, bookId, book.getTitle(), book.getDescription()));
+        } else {
+            apply(target -> target.removeBook(userId, bookId));
+        }
+    }
+
+    private void reindexChapter(UUID userId, String chapterId, String bookId) {
+        Query query = Query.query(Criteria.where("id").is(chapterId).and("deletedAt").is(null));
+        query.fields().include("title", "order");
+        Chapter chapter = mongoTemplate.findOne(query, Chapter.class);
+        if (chapter != null) {
+            apply(target -> target.indexChapter(userId, chapterId, bookId, chapter.getTitle(), chapter.getOrder()));
+        } else {
+            apply(target -> target.removeChapter(userId, chapterId));
+        }
+    }
+
+    /**
+     * Applies a change to the live index and, during a rebuild, to the new one too,
+     * so it is not lost when the new index is swapped in.
+     */
+    private void apply(Consumer<LibrarySearchIndex> change) {
+        // Read first: once it is null again, the new index has already been swapped in
+        LibrarySearchIndex next = rebuilding;
+        change.accept(index);
+        if (next != null) {
+            change.accept(next);
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.mharfe.coreService.search;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Positional inverted index over the pages of one book. For every page it keeps the
+ * token positions of each term plus the character range of every token, so phrase
+ * and proximity matches can be checked on positions and reported as text offsets.
+ */
+public class ManuscriptIndex {
+
+    private static final class IndexedPage {
+        final String pageId;
+        final String chapterId;
+        final int pageNumber;
+        final Map<String, int[]> positions;
+        final int[] starts;
+        final int[] ends;
+
+        IndexedPage(String pageId, String chapterId, int pageNumber, String text) {
+            this.pageId = pageId;
+            this.chapterId = chapterId;
+            this.pageNumber = pageNumber;
+
+            Map<String, List<Integer>> termPositions = new HashMap<>();
+            List<int[]> ranges = new ArrayList<>();
+            SearchTokenizer.forEachToken(text, (term, start, end) -> {
+                termPositions.computeIfAbsent(term, t -> new ArrayList<>()).add(ranges.size());
+                ranges.add(new int[]{start, end});
+            });
+
+            this.positions = new HashMap<>(termPositions.size() * 2);
+            termPositions.forEach((term, list) ->
+                positions.put(term, list.stream().mapToInt(Integer::intValue).toArray()));
+            this.starts = new int[ranges.size()];
+            this.ends = new int[ranges.size()];
+            for (int i = 0; i < ranges.size(); i++) {
+                starts[i] = ranges.get(i)[0];
+                ends[i] = ranges.get(i)[1];
+            }
+        }
+
+        int tokenCount() {
+            return starts.length;
+        }
+    }
+
+    private final Map<String, IndexedPage> pages = new HashMap<>();
+    private final Map<String, Set<String>> pagesByTerm = new HashMap<>();
+    private final Map<String, Integer> chapterOrder = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private int tokenCount;
+
+    public void setChapterOrder(String chapterId, int order) {
+        lock.writeLock().lock();
+        try {
+            chapterOrder.put(chapterId, order);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void putPage(String pageId, String chapterId, int pageNumber, String text) {
+        // Tokenize outside the lock; only the swap into the maps needs exclusive access
+        IndexedPage page = new IndexedPage(pageId, chapterId, pageNumber, text);
+        lock.writeLock().lock();
+        try {
+            removeLocked(pageId);
+            pages.put(pageId, page);
+            tokenCount += page.tokenCount();
+            for (String term : page.positions.keySet()) {
+                pagesByTerm.computeIfAbsent(term, t -> new HashSet<>()).add(pageId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removePage(String pageId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(pageId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int tokenCount() {
+        lock.readLock().lock();
+        try {
+            return tokenCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Pages where the query terms occur in order with at most {@code slop} other words
+     * between neighbouring terms; {@code slop} 0 is an exact phrase. With
+     * {@code ordered} false the terms may appear in any order within the same window.
+     * Results are in reading order.
+     */
+    public List<ManuscriptMatch> search(String query, int slop, boolean ordered, int limit) {
+        List<String> terms = SearchTokenizer.tokenize(query);
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            List<String> candidates = candidatePages(terms);
+            List<ManuscriptMatch> matches = new ArrayList<>();
+            for (String pageId : candidates) {
+                IndexedPage page = pages.get(pageId);
+                int[][] lists = new int[terms.size()][];
+                for (int i = 0; i < terms.size(); i++) {
+                    lists[i] = page.positions.get(terms.get(i));
+                }
+                List<int[]> spans = ordered ? orderedSpans(lists, slop) : unorderedSpans(lists, terms.size() - 1 + slop);
+                if (!spans.isEmpty()) {
+                    List<ManuscriptMatch.Highlight> highlights = new ArrayList<>(spans.size());
+                    for (int[] span : spans) {
+                        highlights.add(new ManuscriptMatch.Highlight(page.starts[span[0]], page.ends[span[1]]));
+                    }
+                    matches.add(new ManuscriptMatch(page.pageId, page.chapterId, page.pageNumber, highlights));
+                }
+            }
+            matches.sort(Comparator.<ManuscriptMatch>comparingInt(m -> chapterOrder.getOrDefault(m.chapterId(), Integer.MAX_VALUE))
+                .thenComparing(ManuscriptMatch::chapterId)
+                .thenComparingInt(ManuscriptMatch::pageNumber));
+            return matches.size() > limit ? matches.subList(0, limit) : matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<String> candidatePages(List<String> terms) {
+        List<Set<String>> sets = new ArrayList<>();
+        for (String term : new HashSet<>(terms)) {
+            Set<String> set = pagesByTerm.get(term);
+            if (set == null) {
+                return List.of();
+            }
+            sets.add(set);
+        }
+        sets.sort(Comparator.comparingInt(Set::size));
+        List<String> candidates = new ArrayList<>();
+        outer:
+        for (String pageId : sets.get(0)) {
+            for (int i = 1; i < sets.size(); i++) {
+                if (!sets.get(i).contains(pageId)) {
+                    continue outer;
+                }
+            }
+            candidates.add(pageId);
+        }
+        return candidates;
+    }
+
+    /**
+     * Walks occurrences of the first term and greedily takes the nearest following
+     * occurrence of each next term within {@code slop + 1} positions.
+     */
+    static List<int[]> orderedSpans(int[][] lists, int slop) {
+        List<int[]> spans = new ArrayList<>();
+        int lastEnd = -1;
+        for (int first : lists[0]) {
+            if (first <= lastEnd) {
+                continue;
+            }
+            int previous = first;
+            boolean matched = true;
+            for (int i = 1; i < lists.length; i++) {
+                int next = firstAfter(lists[i], previous);
+                if (next < 0 || next - previous - 1 > slop) {
+                    matched = false;
+                    break;
+                }
+                previous = next;
+            }
+            if (matched) {
+                spans.add(new int[]{first, previous});
+                lastEnd = previous;
+            }
+        }
+        return spans;
+    }
+
+    /**
+     * Non-overlapping windows of at most {@code maxWidth + 1} tokens that contain
+     * every term, found by advancing the pointer of the leftmost term.
+     */
+    static List<int[]> unorderedSpans(int[][] lists, int maxWidth) {
+        List<int[]> spans = new ArrayList<>();
+        int[] cursor = new int[lists.length];
+        while (true) {
+            int minList = -1;
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            for (int i = 0; i < lists.length; i++) {
+                if (cursor[i] >= lists[i].length) {
+                    return spans;
+                }
+                int position = lists[i][cursor[i]];
+                if (position < min) {
+                    min = position;
+                    minList = i;
+                }
+                max = Math.max(max, position);
+            }
+            if (max - min <= maxWidth && distinctPositions(lists, cursor)) {
+                spans.add(new int[]{min, max});
+                for (int i = 0; i < lists.length; i++) {
+                    while (cursor[i] < lists[i].length && lists[i][cursor[i]] <= max) {
+                        cursor[i]++;
+                    }
+                }
+            } else {
+                cursor[minList]++;
+            }
+        }
+    }
+
+    // A repeated query term ("very very") must match two different occurrences
+    private static boolean distinctPositions(int[][] lists, int[] cursor) {
+        for (int i = 0; i < lists.length; i++) {
+            for (int j = i + 1; j < lists.length; j++) {
+                if (lists[i][cursor[i]] == lists[j][cursor[j]]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static int firstAfter(int[] positions, int position) {
+        int index = Arrays.binarySearch(positions, position + 1);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return index < positions.length ? positions[index] : -1;
+    }
+
+    private void removeLocked(String pageId) {
+        IndexedPage old = pages.remove(pageId);
+        if (old == null) {
+            return;
+        }
+        tokenCount -= old.tokenCount();
+        for (String term : old.positions.keySet()) {
+            Set<String> set = pagesByTerm.get(term);
+            if (set != null) {
+                set.remove(pageId);
+                if (set.isEmpty()) {
+                    pagesByTerm.remove(term);
+                }
+            }
+        }
+    }
+}
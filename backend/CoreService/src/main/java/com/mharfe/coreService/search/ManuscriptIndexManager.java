@@ -0,0 +1,130 @@
+package com.mharfe.coreService.search;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mharfe.coreService.event.BookChangedEvent;
+import com.mharfe.coreService.event.ChapterChangedEvent;
+import com.mharfe.coreService.event.PageChangedEvent;
+import com.mharfe.coreService.repository.MongoIds;
+import com.mongodb.DBRef;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Holds the positional indexes of recently searched books. An index is built from
+ * Mongo on the first search of its book, evicted least-recently-used once the total
+ * number of indexed tokens passes the configured budget, and patched in place as
+ * pages are saved.
+ */
+@Component
+public class ManuscriptIndexManager {
+    private static final Logger logger = LoggerFactory.getLogger(ManuscriptIndexManager.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final Cache<String, ManuscriptIndex> indexes;
+
+    public ManuscriptIndexManager(MongoTemplate mongoTemplate,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${app.search.manuscript-index.max-tokens:5000000}") long maxTokens) {
+        this.mongoTemplate = mongoTemplate;
+        this.indexes = Caffeine.newBuilder()
+            .maximumWeight(maxTokens)
+            .weigher((String bookId, ManuscriptIndex index) -> Math.max(1, index.tokenCount()))
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, indexes, "manuscript-index");
+    }
+
+    public ManuscriptIndex get(String bookId) {
+        return indexes.get(bookId, this::build);
+    }
+
+    ManuscriptIndex build(String bookId) {
+        long start = System.nanoTime();
+        ManuscriptIndex index = new ManuscriptIndex();
+
+        Query chapterQuery = Query.query(Criteria.where("book.$id").is(MongoIds.toObjectId(bookId)).and("deletedAt").is(null));
+        chapterQuery.fields().include("order");
+        List<Object> chapterIds = new ArrayList<>();
+        try (Stream<Document> chapters = mongoTemplate.stream(chapterQuery, Document.class, "chapters")) {
+            chapters.forEach(chapter -> {
+                chapterIds.add(chapter.get("_id"));
+                index.setChapterOrder(chapter.get("_id").toString(), chapter.getInteger("order", 0));
+            });
+        }
+
+        if (!chapterIds.isEmpty()) {
+            Query pageQuery = Query.query(Criteria.where("chapter.$id").in(chapterIds));
+            pageQuery.fields().include("textContent", "pageNumber", "chapter");
+            try (Stream<Document> pages = mongoTemplate.stream(pageQuery, Document.class, "pages")) {
+                pages.forEach(page -> {
+                    if (page.get("chapter") instanceof DBRef chapterRef) {
+                        index.putPage(page.get("_id").toString(), chapterRef.getId().toString(),
+                            page.getInteger("pageNumber", 0), page.getString("textContent"));
+                    }
+                });
+            }
+        }
+
+        logger.debug("Built manuscript index for book {} ({} tokens) in {} ms",
+            bookId, index.tokenCount(), (System.nanoTime() - start) / 1_000_000);
+        return index;
+    }
+
+    /**
+     * Only indexes already in memory are patched; the others pick the change up
+     * when they are next built.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPageChanged(PageChangedEvent event) {
+        if (event.bookId() == null) return;
+        if (event.type() == PageChangedEvent.ChangeType.SAVED && event.textContent() == null) {
+            // Relayed from another instance without its text; rebuilt on the next search
+            indexes.invalidate(event.bookId());
+            return;
+        }
+        // Re-inserting through compute lets the cache re-weigh the index
+        indexes.asMap().computeIfPresent(event.bookId(), (bookId, index) -> {
+            if (event.type() == PageChangedEvent.ChangeType.DELETED) {
+                index.removePage(event.pageId());
+            } else {
+                index.putPage(event.pageId(), event.chapterId(), event.pageNumber(), event.textContent());
+            }
+            return index;
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onChapterChanged(ChapterChangedEvent event) {
+        if (event.bookId() == null) return;
+        if (event.type() == ChapterChangedEvent.ChangeType.DELETED || event.title() == null) {
+            // A relayed save carries no order; rebuilt on the next search
+            indexes.invalidate(event.bookId());
+        } else {
+            ManuscriptIndex index = indexes.getIfPresent(event.bookId());
+            if (index != null) {
+                index.setChapterOrder(event.chapterId(), event.order());
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        if (event.type() == BookChangedEvent.ChangeType.DELETED) {
+            indexes.invalidate(event.bookId());
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.mharfe.coreService.search;
+
+import java.util.List;
+
+/**
+ * A page containing the searched phrase, with the [start, end) character range of
+ * every occurrence in its text.
+ */
+public record ManuscriptMatch(String pageId, String chapterId, int pageNumber, List<Highlight> highlights) {
+
+    public record Highlight(int start, int end) {
+    }
+}
@@ -0,0 +1,79 @@
+package com.mharfe.coreService.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Lower-cases, strips accents and splits on anything that is not a letter or digit,
+ * so "Élan" and "elan" index and match the same way.
+ */
+public final class SearchTokenizer {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    /**
+     * Receives each token with its [start, end) character range in the original text.
+     */
+    public interface TokenVisitor {
+        void token(String term, int start, int end);
+    }
+
+    private SearchTokenizer() {
+    }
+
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARATORS.split(normalize(text))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Same tokens as {@link #tokenize}, but with offsets into the unnormalized text
+     * so matches can be highlighted in what the writer actually typed.
+     */
+    public static void forEachToken(String text, TokenVisitor visitor) {
+        if (text == null) {
+            return;
+        }
+        int i = 0;
+        int length = text.length();
+        while (i < length) {
+            while (i < length && !isTokenChar(text.codePointAt(i))) {
+                i += Character.charCount(text.codePointAt(i));
+            }
+            int start = i;
+            while (i < length && isTokenChar(text.codePointAt(i))) {
+                i += Character.charCount(text.codePointAt(i));
+            }
+            if (i > start) {
+                String term = normalize(text.substring(start, i));
+                if (!term.isEmpty()) {
+                    visitor.token(term, start, i);
+                }
+            }
+        }
+    }
+
+    // Combining marks stay inside a token so accented letters in NFD text are not split
+    private static boolean isTokenChar(int codePoint) {
+        return Character.isLetterOrDigit(codePoint) || Character.getType(codePoint) == Character.NON_SPACING_MARK
+            || Character.getType(codePoint) == Character.COMBINING_SPACING_MARK
+            || Character.getType(codePoint) == Character.ENCLOSING_MARK;
+    }
+}
@@ -0,0 +1,268 @@
+package com.mharfe.coreService.search;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index over one user's books and chapters. Terms are kept sorted so a
+ * prefix is a range scan, which is what makes search-as-you-type cheap.
+ */
+class UserLibraryIndex {
+
+    static final float BOOK_TITLE_WEIGHT = 3f;
+    static final float CHAPTER_TITLE_WEIGHT = 2f;
+    static final float DESCRIPTION_WEIGHT = 1f;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+
+    private record Doc(LibrarySearchHit.Type type, String id, String bookId, String title, String description,
+                       int order, String normalizedTitle, Map<String, Float> termWeights) {
+    }
+
+    private final Map<String, Doc> documents = new HashMap<>();
+    private final Map<String, Set<String>> chapterKeysByBook = new HashMap<>();
+    private final NavigableMap<String, Map<String, Float>> postings = new TreeMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    void putBook(String bookId, String title, String description) {
+        Map<String, Float> weights = new HashMap<>();
+        addTerms(weights, title, BOOK_TITLE_WEIGHT);
+        addTerms(weights, description, DESCRIPTION_WEIGHT);
+        put(new Doc(LibrarySearchHit.Type.BOOK, bookId, bookId, title, description, 0, normalizedTitle(title), weights));
+    }
+
+    void putChapter(String chapterId, String bookId, String title, int order) {
+        Map<String, Float> weights = new HashMap<>();
+        addTerms(weights, title, CHAPTER_TITLE_WEIGHT);
+        put(new Doc(LibrarySearchHit.Type.CHAPTER, chapterId, bookId, title, null, order, normalizedTitle(title), weights));
+    }
+
+    void removeBook(String bookId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(bookKey(bookId));
+            Set<String> chapterKeys = chapterKeysByBook.remove(bookId);
+            if (chapterKeys != null) {
+                chapterKeys.forEach(this::removeLocked);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void removeChapter(String chapterId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(chapterKey(chapterId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Documents containing every query term, the last term also matching as a prefix.
+     * Each term contributes field weight x idf; prefix completions count less the more
+     * characters they add, and a title starting with the whole query gets a boost.
+     */
+    List<LibrarySearchHit> search(String query, int limit) {
+        List<String> terms = SearchTokenizer.tokenize(query);
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            List<List<Expansion>> expanded = new ArrayList<>();
+            for (int i = 0; i < terms.size(); i++) {
+                List<Expansion> expansions = expand(terms.get(i), i == terms.size() - 1);
+                if (expansions.isEmpty()) {
+                    return List.of();
+                }
+                expanded.add(expansions);
+            }
+            // The rarest term produces the candidates; the others are only probed for them
+            expanded.sort(Comparator.comparingInt(UserLibraryIndex::postingCount));
+
+            Map<String, Double> scores = new HashMap<>();
+            for (Expansion expansion : expanded.get(0)) {
+                for (Map.Entry<String, Float> posting : expansion.docs().entrySet()) {
+                    scores.merge(posting.getKey(), expansion.score(posting.getValue()), Math::max);
+                }
+            }
+            for (List<Expansion> expansions : expanded.subList(1, expanded.size())) {
+                Iterator<Map.Entry<String, Double>> candidates = scores.entrySet().iterator();
+                while (candidates.hasNext()) {
+                    Map.Entry<String, Double> candidate = candidates.next();
+                    double best = 0;
+                    for (Expansion expansion : expansions) {
+                        Float weight = expansion.docs().get(candidate.getKey());
+                        if (weight != null) {
+                            best = Math.max(best, expansion.score(weight));
+                        }
+                    }
+                    if (best == 0) {
+                        candidates.remove();
+                    } else {
+                        candidate.setValue(candidate.getValue() + best);
+                    }
+                }
+            }
+
+            String normalizedQuery = String.join(" ", terms);
+            PriorityQueue<LibrarySearchHit> top = new PriorityQueue<>(Comparator.comparingDouble(LibrarySearchHit::score));
+            for (Map.Entry<String, Double> entry : scores.entrySet()) {
+                Doc doc = documents.get(entry.getKey());
+                double score = entry.getValue();
+                if (doc.normalizedTitle().startsWith(normalizedQuery)) {
+                    score *= 1.5;
+                }
+                top.add(new LibrarySearchHit(doc.type(), doc.id(), doc.bookId(), doc.title(), doc.description(),
+                    doc.order(), score));
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+            List<LibrarySearchHit> hits = new ArrayList<>(top);
+            hits.sort(Comparator.comparingDouble(LibrarySearchHit::score).reversed()
+                .thenComparing(LibrarySearchHit::title, Comparator.nullsLast(Comparator.naturalOrder())));
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Indexed terms starting with {@code prefix}, most frequent first.
+     */
+    List<String> suggest(String prefix, int limit) {
+        String normalized = SearchTokenizer.normalize(prefix).strip();
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            return prefixRange(normalized).entrySet().stream()
+                .limit(MAX_PREFIX_EXPANSIONS)
+                .sorted(Comparator.<Map.Entry<String, Map<String, Float>>>comparingInt(e -> e.getValue().size()).reversed()
+                    .thenComparing(Map.Entry::getKey))
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * An indexed term a query term matched, with idf and the prefix-completion penalty
+     * folded into one multiplier. A document matching several completions keeps its best.
+     */
+    private record Expansion(Map<String, Float> docs, double multiplier) {
+        double score(float weight) {
+            return weight * multiplier;
+        }
+    }
+
+    private List<Expansion> expand(String term, boolean prefix) {
+        if (!prefix) {
+            Map<String, Float> docs = postings.get(term);
+            return docs == null ? List.of() : List.of(new Expansion(docs, idf(docs)));
+        }
+        List<Expansion> expansions = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Float>> entry : prefixRange(term).entrySet()) {
+            double completion = 0.5 + 0.5 * term.length() / entry.getKey().length();
+            expansions.add(new Expansion(entry.getValue(), idf(entry.getValue()) * completion));
+            if (expansions.size() >= MAX_PREFIX_EXPANSIONS) {
+                break;
+            }
+        }
+        return expansions;
+    }
+
+    private double idf(Map<String, Float> docs) {
+        return Math.log(1 + (double) documents.size() / docs.size());
+    }
+
+    private static int postingCount(List<Expansion> expansions) {
+        int count = 0;
+        for (Expansion expansion : expansions) {
+            count += expansion.docs().size();
+        }
+        return count;
+    }
+
+    private SortedMap<String, Map<String, Float>> prefixRange(String prefix) {
+        return postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    private void put(Doc doc) {
+        String key = key(doc);
+        lock.writeLock().lock();
+        try {
+            removeLocked(key);
+            documents.put(key, doc);
+            doc.termWeights().forEach((term, weight) ->
+                postings.computeIfAbsent(term, t -> new HashMap<>()).put(key, weight));
+            if (doc.type() == LibrarySearchHit.Type.CHAPTER) {
+                chapterKeysByBook.computeIfAbsent(doc.bookId(), b -> new HashSet<>()).add(key);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeLocked(String key) {
+        Doc old = documents.remove(key);
+        if (old == null) {
+            return;
+        }
+        for (String term : old.termWeights().keySet()) {
+            Map<String, Float> docs = postings.get(term);
+            if (docs != null) {
+                docs.remove(key);
+                if (docs.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+        if (old.type() == LibrarySearchHit.Type.CHAPTER) {
+            Set<String> chapterKeys = chapterKeysByBook.get(old.bookId());
+            if (chapterKeys != null) {
+                chapterKeys.remove(key);
+                if (chapterKeys.isEmpty()) {
+                    chapterKeysByBook.remove(old.bookId());
+                }
+            }
+        }
+    }
+
+    private static void addTerms(Map<String, Float> weights, String text, float weight) {
+        for (String token : SearchTokenizer.tokenize(text)) {
+            weights.merge(token, weight, Float::sum);
+        }
+    }
+
+    private static String normalizedTitle(String title) {
+        return String.join(" ", SearchTokenizer.tokenize(title));
+    }
+
+    private static String key(Doc doc) {
+        return doc.type() == LibrarySearchHit.Type.BOOK ? bookKey(doc.id()) : chapterKey(doc.id());
+    }
+
+    private static String bookKey(String bookId) {
+        return "b:" + bookId;
+    }
+
+    private static String chapterKey(String chapterId) {
+        return "c:" + chapterId;
+    }
+}
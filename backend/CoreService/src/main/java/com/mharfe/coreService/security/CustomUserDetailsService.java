@@ -1,8 +1,10 @@
 package com.mharfe.coreService.security;
 
+import com.mharfe.coreService.cache.CacheNames;
 import com.mharfe.coreService.model.user.User;
 import com.mharfe.coreService.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -21,6 +23,7 @@ public class CustomUserDetailsService implements UserDetailsService {
     private UserRepository userRepository;
 
     @Override
+    @Cacheable(CacheNames.USER_DETAILS)
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         logger.info("Attempting to load user with username: {}", username);
         
@@ -32,7 +35,8 @@ public class CustomUserDetailsService implements UserDetailsService {
 
         logger.info("Found user: {}, password length: {}", user.getUsername(), user.getPassword().length());
         
-        return new org.springframework.security.core.userdetails.User(
+        return new UserPrincipal(
+                user.getId(),
                 user.getUsername(),
                 user.getPassword(),
                 Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER"))
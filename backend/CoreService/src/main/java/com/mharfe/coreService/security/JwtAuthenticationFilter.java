@@ -5,6 +5,7 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -17,6 +18,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.Optional;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
@@ -28,6 +30,16 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private UserDetailsService userDetailsService;
 
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    /**
+     * "stateless" builds the principal from the token claims; "database" loads
+     * the user on every request, as before.
+     */
+    @Value("${app.security.auth-mode:database}")
+    private String authMode;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
@@ -37,11 +49,15 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
             if (StringUtils.hasText(jwt)) {
                 logger.debug("Validating JWT token");
-                if (tokenProvider.validateToken(jwt)) {
-                    String username = tokenProvider.getUsernameFromJWT(jwt);
+                Optional<JwtClaims> claims = tokenProvider.parseToken(jwt);
+                if (claims.isPresent() && tokenRevocationService.isRevoked(claims.get())) {
+                    logger.error("Revoked JWT token for user: {}", claims.get().username());
+                } else if (claims.isPresent()) {
+                    String username = claims.get().username();
                     logger.debug("Token validated for user: {}", username);
+                    request.setAttribute(JwtClaims.REQUEST_ATTRIBUTE, claims.get());
                     
-                    UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                    UserDetails userDetails = resolveUser(claims.get());
                     logger.debug("User details loaded for: {}", username);
                     
                     UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
@@ -63,6 +79,13 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    private UserDetails resolveUser(JwtClaims claims) {
+        if ("stateless".equalsIgnoreCase(authMode) && claims.isSelfContained()) {
+            return UserPrincipal.fromClaims(claims);
+        }
+        return userDetailsService.loadUserByUsername(claims.username());
+    }
+
     private String getJwtFromRequest(HttpServletRequest request) {
         String bearerToken = request.getHeader("Authorization");
         logger.debug("Authorization header: {}", bearerToken != null ? "present" : "missing");
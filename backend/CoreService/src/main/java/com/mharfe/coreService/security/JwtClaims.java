@@ -0,0 +1,45 @@
+package com.mharfe.coreService.security;
+
+import io.jsonwebtoken.Claims;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Claims of a JWT whose signature and expiry have already been verified.
+ * The filter parses the token once and stores this object on the request
+ * under {@link #REQUEST_ATTRIBUTE}, so controllers can read it with
+ * {@code @RequestAttribute(JwtClaims.REQUEST_ATTRIBUTE)} instead of parsing again.
+ */
+public record JwtClaims(String username, UUID userId, List<String> roles, Date issuedAt, Date expiration) {
+
+    public static final String REQUEST_ATTRIBUTE = "com.mharfe.coreService.security.JwtClaims";
+
+    /**
+     * Claim holding the issue time in milliseconds; the standard {@code iat} only has
+     * whole seconds.
+     */
+    static final String ISSUED_AT_MS = "iatMs";
+
+    static JwtClaims from(Claims claims) {
+        String userId = claims.get("userId", String.class);
+        List<?> roles = claims.get("roles", List.class);
+        Long issuedAtMs = claims.get(ISSUED_AT_MS, Long.class);
+        return new JwtClaims(
+                claims.getSubject(),
+                userId != null ? UUID.fromString(userId) : null,
+                roles != null ? roles.stream().map(String::valueOf).toList() : null,
+                issuedAtMs != null ? new Date(issuedAtMs) : claims.getIssuedAt(),
+                claims.getExpiration()
+        );
+    }
+
+    /**
+     * Tokens issued before roles were added to the payload cannot be turned
+     * into a principal on their own and still need a user lookup.
+     */
+    public boolean isSelfContained() {
+        return username != null && userId != null && roles != null;
+    }
+}
@@ -4,16 +4,20 @@ import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import com.mharfe.coreService.model.user.User;
 import com.mharfe.coreService.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import jakarta.annotation.PostConstruct;
 import java.security.Key;
 import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
 
 @Component
 public class JwtTokenProvider {
@@ -28,38 +32,69 @@ public class JwtTokenProvider {
     @Autowired
     private UserService userService;
 
-    private Key getSigningKey() {
-        byte[] keyBytes = jwtSecret.getBytes();
-        return Keys.hmacShaKeyFor(keyBytes);
+    // Built once: the key and parser are immutable and thread-safe
+    private Key signingKey;
+    private JwtParser jwtParser;
+
+    @PostConstruct
+    void init() {
+        this.signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
     }
 
     public String generateToken(Authentication authentication) {
         UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-        User user = userService.findByUsername(userDetails.getUsername());
+        // The principal loaded during authentication already knows the id; avoid a second lookup
+        UUID userId = userDetails instanceof UserPrincipal principal
+                ? principal.getId()
+                : userService.findByUsername(userDetails.getUsername()).getId();
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtExpirationInMs);
+        List<String> roles = userDetails.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .toList();
 
         String token = Jwts.builder()
                 .setSubject(userDetails.getUsername())
-                .claim("userId", user.getId().toString())
-                .setIssuedAt(new Date())
+                .claim("userId", userId.toString())
+                .claim("roles", roles)
+                .claim(JwtClaims.ISSUED_AT_MS, now.getTime())
+                .setIssuedAt(now)
                 .setExpiration(expiryDate)
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
         
-        logger.debug("Generated JWT token for user: {} with ID: {}", userDetails.getUsername(), user.getId());
+        logger.debug("Generated JWT token for user: {} with ID: {}", userDetails.getUsername(), userId);
         return token;
     }
 
-    public String getUsernameFromJWT(String token) {
+    /**
+     * Verifies the token and returns its claims, or empty if the token is invalid.
+     * This is the single parse done per request; the other accessors delegate to it.
+     */
+    public Optional<JwtClaims> parseToken(String authToken) {
         try {
-            Claims claims = Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
+            Claims claims = jwtParser.parseClaimsJws(authToken).getBody();
+            return Optional.of(JwtClaims.from(claims));
+        } catch (SignatureException e) {
+            logger.error("Invalid JWT signature: {}", e.getMessage());
+        } catch (MalformedJwtException e) {
+            logger.error("Invalid JWT token: {}", e.getMessage());
+        } catch (ExpiredJwtException e) {
+            logger.error("Expired JWT token: {}", e.getMessage());
+        } catch (UnsupportedJwtException e) {
+            logger.error("Unsupported JWT token: {}", e.getMessage());
+        } catch (IllegalArgumentException e) {
+            logger.error("JWT claims string is empty: {}", e.getMessage());
+        }
+        return Optional.empty();
+    }
 
-            String username = claims.getSubject();
+    public String getUsernameFromJWT(String token) {
+        try {
+            String username = jwtParser.parseClaimsJws(token).getBody().getSubject();
             logger.debug("Extracted username from JWT: {}", username);
             return username;
         } catch (Exception e) {
@@ -70,13 +105,7 @@ public class JwtTokenProvider {
 
     public String getUserIdFromJWT(String token) {
         try {
-            Claims claims = Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
-
-            String userId = claims.get("userId", String.class);
+            String userId = jwtParser.parseClaimsJws(token).getBody().get("userId", String.class);
             logger.debug("Extracted user ID from JWT: {}", userId);
             return userId;
         } catch (Exception e) {
@@ -86,29 +115,6 @@ public class JwtTokenProvider {
     }
 
     public boolean validateToken(String authToken) {
-        try {
-            logger.debug("Validating JWT token");
-            Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(authToken);
-            logger.debug("JWT token is valid");
-            return true;
-        } catch (SignatureException e) {
-            logger.error("Invalid JWT signature: {}", e.getMessage());
-            return false;
-        } catch (MalformedJwtException e) {
-            logger.error("Invalid JWT token: {}", e.getMessage());
-            return false;
-        } catch (ExpiredJwtException e) {
-            logger.error("Expired JWT token: {}", e.getMessage());
-            return false;
-        } catch (UnsupportedJwtException e) {
-            logger.error("Unsupported JWT token: {}", e.getMessage());
-            return false;
-        } catch (IllegalArgumentException e) {
-            logger.error("JWT claims string is empty: {}", e.getMessage());
-            return false;
-        }
+        return parseToken(authToken).isPresent();
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,76 @@
+package com.mharfe.coreService.security;
+
+import com.mharfe.coreService.event.UserChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory set of users whose outstanding tokens must no longer be accepted
+ * (deleted users, renamed users). Stateless authentication never touches the
+ * users table, so this is what stops a token from outliving its account.
+ * <p>
+ * An entry only needs to live as long as the longest token it could reject,
+ * so entries older than the JWT lifetime are dropped.
+ */
+@Service
+public class TokenRevocationService {
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    private final Map<UUID, Instant> revokedUsers = new ConcurrentHashMap<>();
+    private final long jwtExpirationInMs;
+
+    public TokenRevocationService(@Value("${app.jwt.expiration}") long jwtExpirationInMs) {
+        this.jwtExpirationInMs = jwtExpirationInMs;
+    }
+
+    /**
+     * Rejects every token of the user issued up to {@code revokedAt}.
+     */
+    public void revokeUser(UUID userId, Instant revokedAt) {
+        if (userId == null) return;
+        purgeExpired();
+        // Events can arrive out of order from other instances; the latest change wins
+        revokedUsers.merge(userId, revokedAt, (current, next) -> next.isAfter(current) ? next : current);
+        logger.debug("Revoked outstanding tokens for user: {}", userId);
+    }
+
+    /**
+     * Tokens carry the username, so both deletion and renaming invalidate them.
+     * Revoked as of the change itself, not its arrival here, so tokens issued after
+     * the rename by another instance stay valid.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        if (event.type() == UserChangedEvent.ChangeType.DELETED || event.isRename()) {
+            revokeUser(event.userId(), event.changedAt() != null ? event.changedAt() : Instant.now());
+        }
+    }
+
+    /**
+     * Compared at millisecond precision. Tokens without {@code iatMs} only have the
+     * second of issue, which rounds down and so errs towards rejecting.
+     */
+    public boolean isRevoked(JwtClaims claims) {
+        if (claims.userId() == null) return false;
+        Instant revokedAt = revokedUsers.get(claims.userId());
+        if (revokedAt == null) return false;
+        return claims.issuedAt() == null || !claims.issuedAt().toInstant().isAfter(revokedAt);
+    }
+
+    public int size() {
+        return revokedUsers.size();
+    }
+
+    private void purgeExpired() {
+        Instant cutoff = Instant.now().minusMillis(jwtExpirationInMs);
+        revokedUsers.values().removeIf(revokedAt -> revokedAt.isBefore(cutoff));
+    }
+}
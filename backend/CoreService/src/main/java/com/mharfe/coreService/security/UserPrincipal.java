@@ -0,0 +1,54 @@
+package com.mharfe.coreService.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Authenticated user as seen by the security layer. In stateless mode it is
+ * built straight from the JWT claims, so it carries no password.
+ */
+public class UserPrincipal implements UserDetails {
+
+    private final UUID id;
+    private final String username;
+    private final String password;
+    private final List<GrantedAuthority> authorities;
+
+    public UserPrincipal(UUID id, String username, String password, Collection<? extends GrantedAuthority> authorities) {
+        this.id = id;
+        this.username = username;
+        this.password = password;
+        this.authorities = List.copyOf(authorities);
+    }
+
+    public static UserPrincipal fromClaims(JwtClaims claims) {
+        List<GrantedAuthority> authorities = claims.roles().stream()
+                .<GrantedAuthority>map(SimpleGrantedAuthority::new)
+                .toList();
+        return new UserPrincipal(claims.userId(), claims.username(), null, authorities);
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    @Override
+    public String getUsername() {
+        return username;
+    }
+
+    @Override
+    public String getPassword() {
+        return password;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+}
@@ -0,0 +1,76 @@
+package com.mharfe.coreService.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mharfe.coreService.dto.book.PageExportRowDTO;
+import com.mharfe.coreService.export.*;
+import com.mharfe.coreService.model.book.Book;
+import com.mharfe.coreService.repository.BookRepository;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Whole-book export. Rows come from a single Mongo cursor in reading order and go
+ * straight to the response, so memory use does not depend on the size of the book.
+ */
+@Service
+public class BookExportService {
+
+    private final BookRepository bookRepository;
+    private final ObjectMapper objectMapper;
+
+    public BookExportService(BookRepository bookRepository, ObjectMapper objectMapper) {
+        this.bookRepository = bookRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Checks access up front, while an error can still become a proper status code,
+     * and returns the body that streams the book once the response is committed.
+     */
+    public StreamingResponseBody exportBook(String bookId, BookExportFormat format, UUID userId) {
+        Book book = bookRepository.findByIdAndDeletedAtIsNull(bookId)
+            .orElseThrow(() -> new RuntimeException("Book not found"));
+        if (!book.getUserId().equals(userId)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You don't have permission to access this book");
+        }
+        return out -> writeBook(book, newWriter(format, out));
+    }
+
+    void writeBook(Book book, BookExportWriter writer) throws IOException {
+        writer.begin(book.getId(), book.getTitle(), book.getDescription());
+        try (Stream<PageExportRowDTO> rows = bookRepository.streamExportRows(book.getId())) {
+            String currentChapter = null;
+            Iterator<PageExportRowDTO> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                PageExportRowDTO row = iterator.next();
+                if (!row.getChapterId().equals(currentChapter)) {
+                    currentChapter = row.getChapterId();
+                    writer.chapter(row.getChapterId(), row.getChapterTitle(), row.getChapterOrder());
+                }
+                if (row.getPageNumber() != null) {
+                    writer.page(row.getChapterId(), row.getPageNumber(), row.getTextContent());
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.finish();
+    }
+
+    private BookExportWriter newWriter(BookExportFormat format, OutputStream out) {
+        return switch (format) {
+            case NDJSON -> new NdjsonBookExportWriter(out, objectMapper);
+            case MARKDOWN -> new MarkdownBookExportWriter(out);
+            case EPUB -> new EpubBookExportWriter(out);
+        };
+    }
+}
@@ -0,0 +1,175 @@
+package com.mharfe.coreService.service;
+
+import com.mharfe.coreService.dto.book.*;
+import com.mharfe.coreService.event.ChapterChangedEvent;
+import com.mharfe.coreService.event.PageChangedEvent;
+import com.mharfe.coreService.mapper.ChapterMapper;
+import com.mharfe.coreService.model.book.Book;
+import com.mharfe.coreService.model.book.Chapter;
+import com.mharfe.coreService.model.book.Page;
+import com.mharfe.coreService.ordering.RankAllocator;
+import com.mharfe.coreService.repository.BookRepository;
+import com.mharfe.coreService.repository.MongoIds;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk ingestion of chapters and pages into a book. Ownership is checked once for
+ * the whole request, ids are assigned up front so chapters and pages can reference
+ * each other, and documents are written with unordered bulk inserts in batches.
+ */
+@Service
+public class BookImportService {
+
+    private final BookRepository bookRepository;
+    private final MongoTemplate mongoTemplate;
+    private final ChapterMapper chapterMapper;
+    private final RankAllocator rankAllocator;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+
+    public BookImportService(BookRepository bookRepository,
+                             MongoTemplate mongoTemplate,
+                             ChapterMapper chapterMapper,
+                             RankAllocator rankAllocator,
+                             ApplicationEventPublisher eventPublisher,
+                             @Value("${app.import.batch-size:500}") int batchSize) {
+        this.bookRepository = bookRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.chapterMapper = chapterMapper;
+        this.rankAllocator = rankAllocator;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
+    }
+
+    public BookImportResultDTO importChapters(String bookId, BookImportDTO dto, UUID userId) {
+        Book book = bookRepository.findByIdAndDeletedAtIsNull(bookId)
+            .orElseThrow(() -> new RuntimeException("Book not found"));
+        if (!book.getUserId().equals(userId)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You don't have permission to access this book");
+        }
+
+        List<ChapterImportDTO> chapterDTOs = dto.getChapters() != null ? dto.getChapters() : List.of();
+        verifyExistingChapters(bookId, chapterDTOs);
+
+        List<Chapter> newChapters = new ArrayList<>();
+        List<Page> pages = new ArrayList<>();
+        BulkOperations existingChapterUpdates = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Chapter.class);
+        boolean hasExistingChapterUpdates = false;
+
+        for (ChapterImportDTO chapterDTO : chapterDTOs) {
+            Chapter chapter;
+            if (chapterDTO.getId() != null) {
+                // Reference only, so pages can point at the chapter and inherit its owner
+                chapter = new Chapter();
+                chapter.setId(chapterDTO.getId());
+                chapter.moveTo(book);
+            } else {
+                chapter = new Chapter(chapterDTO.getTitle(), chapterDTO.getOrder(), book);
+                chapter.setId(new ObjectId().toHexString());
+                newChapters.add(chapter);
+            }
+
+            List<Page> chapterPages = new ArrayList<>();
+            for (PageImportDTO pageDTO : chapterDTO.getPages() != null ? chapterDTO.getPages() : List.<PageImportDTO>of()) {
+                Page page = new Page(pageDTO.getTextContent(), pageDTO.getPageNumber(), chapter);
+                page.setId(new ObjectId().toHexString());
+                chapterPages.add(page);
+            }
+            // Sorted in place, so the chapter's page refs come out in the same order as the ranks
+            chapterPages.sort(Comparator.comparingInt(Page::getPageNumber));
+            Iterator<String> pageRanks = chapterDTO.getId() != null
+                ? rankAllocator.append(RankAllocator.Siblings.PAGES, chapter.getId(), chapterPages.size())
+                : rankAllocator.appendToNew(RankAllocator.Siblings.PAGES, chapter.getId(), chapterPages.size());
+            chapterPages.forEach(page -> page.setRank(pageRanks.next()));
+            pages.addAll(chapterPages);
+
+            if (chapterDTO.getId() != null) {
+                if (!chapterPages.isEmpty()) {
+                    existingChapterUpdates.updateOne(
+                        Query.query(Criteria.where("_id").is(chapter.getId())),
+                        new Update().push("pages").each(MongoIds.dbRefs("pages", chapterPages.stream().map(Page::getId).toList())));
+                    hasExistingChapterUpdates = true;
+                }
+            } else {
+                chapter.setPages(chapterPages);
+            }
+        }
+
+        // Likewise for the book's chapter refs
+        newChapters.sort(Comparator.comparingInt(Chapter::getOrder));
+        Iterator<String> chapterRanks = rankAllocator.append(RankAllocator.Siblings.CHAPTERS, bookId, newChapters.size());
+        newChapters.forEach(chapter -> chapter.setRank(chapterRanks.next()));
+
+        insertInBatches(pages, Page.class);
+        insertInBatches(newChapters, Chapter.class);
+        if (hasExistingChapterUpdates) {
+            existingChapterUpdates.execute();
+        }
+        if (!newChapters.isEmpty()) {
+            mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(bookId)),
+                new Update().push("chapters").each(MongoIds.dbRefs("chapters", newChapters.stream().map(Chapter::getId).toList())),
+                Book.class);
+        }
+        for (Chapter chapter : newChapters) {
+            eventPublisher.publishEvent(ChapterChangedEvent.saved(
+                chapter.getId(), bookId, userId, chapter.getTitle(), chapter.getOrder()));
+        }
+        for (Page page : pages) {
+            eventPublisher.publishEvent(PageChangedEvent.saved(page.getId(), page.getChapter().getId(),
+                bookId, userId, page.getPageNumber(), page.getTextContent()));
+        }
+
+        BookImportResultDTO result = new BookImportResultDTO();
+        result.setBookId(bookId);
+        result.setChaptersCreated(newChapters.size());
+        result.setPagesCreated(pages.size());
+        result.setChapters(newChapters.stream().map(chapterMapper::toResponseDTO).collect(Collectors.toList()));
+        return result;
+    }
+
+    private void verifyExistingChapters(String bookId, List<ChapterImportDTO> chapterDTOs) {
+        Set<String> existingIds = new HashSet<>();
+        for (ChapterImportDTO chapterDTO : chapterDTOs) {
+            if (chapterDTO.getId() != null) {
+                existingIds.add(chapterDTO.getId());
+            }
+        }
+        if (existingIds.isEmpty()) {
+            return;
+        }
+        Query query = Query.query(Criteria.where("_id").in(MongoIds.toObjectIds(existingIds))
+            .and("book.$id").is(MongoIds.toObjectId(bookId)));
+        if (mongoTemplate.count(query, "chapters") != existingIds.size()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Chapters must belong to the target book");
+        }
+    }
+
+    private <T> void insertInBatches(List<T> documents, Class<T> type) {
+        for (int start = 0; start < documents.size(); start += batchSize) {
+            List<T> batch = documents.subList(start, Math.min(start + batchSize, documents.size()));
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, type)
+                .insert(batch)
+                .execute();
+        }
+    }
+}
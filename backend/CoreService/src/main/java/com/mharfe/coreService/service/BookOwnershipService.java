@@ -0,0 +1,73 @@
+package com.mharfe.coreService.service;
+
+import com.mharfe.coreService.cache.BookOwnerCache;
+import com.mharfe.coreService.model.book.Book;
+import com.mharfe.coreService.model.book.Chapter;
+import com.mharfe.coreService.model.book.Page;
+import com.mharfe.coreService.repository.MongoIds;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.UUID;
+
+/**
+ * Ownership checks for books, chapters and pages. Normally a comparison against the
+ * denormalized ownerId; documents written before that field existed fall back to
+ * the owner of their book, which is cached by book id.
+ */
+@Service
+public class BookOwnershipService {
+    
+    private final BookOwnerCache bookOwnerCache;
+    
+    public BookOwnershipService(BookOwnerCache bookOwnerCache) {
+        this.bookOwnerCache = bookOwnerCache;
+    }
+    
+    public void verifyOwnership(Page page, UUID userId) {
+        UUID ownerId = page.getOwnerId() != null ? page.getOwnerId() : ownerOf(page.getChapter());
+        verify(ownerId, userId);
+    }
+    
+    public void verifyOwnership(Chapter chapter, UUID userId) {
+        verify(ownerOf(chapter), userId);
+    }
+    
+    public void verifyBookOwnership(String bookId, UUID userId) {
+        verify(bookOwnerCache.findOwnerId(bookId), userId);
+    }
+    
+    public String bookIdOf(Page page) {
+        return page.getBookId() != null ? page.getBookId() : bookIdOf(page.getChapter());
+    }
+    
+    public String bookIdOf(Chapter chapter) {
+        if (chapter == null) return null;
+        return chapter.getBookId() != null ? chapter.getBookId() : MongoIds.refId(chapter.getBook(), Book::getId);
+    }
+    
+    public UUID ownerOf(Chapter chapter) {
+        if (chapter == null) return null;
+        if (chapter.getOwnerId() != null) return chapter.getOwnerId();
+        String bookId = bookIdOf(chapter);
+        return bookId != null ? bookOwnerCache.findOwnerId(bookId) : null;
+    }
+    
+    /**
+     * Fills in bookId and ownerId on a page written before they existed, so the
+     * next save stores them.
+     */
+    public void backfill(Page page) {
+        if (page.getOwnerId() == null) {
+            page.setBookId(bookIdOf(page));
+            page.setOwnerId(ownerOf(page.getChapter()));
+        }
+    }
+    
+    private static void verify(UUID ownerId, UUID userId) {
+        if (ownerId == null || !ownerId.equals(userId)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You don't have permission to access this book");
+        }
+    }
+}
@@ -1,12 +1,31 @@
 package com.mharfe.coreService.service;
 
+import com.mharfe.coreService.cache.DtoCache;
+import com.mharfe.coreService.cache.ETags;
 import com.mharfe.coreService.dto.book.*;
+import com.mharfe.coreService.event.BookChangedEvent;
+import com.mharfe.coreService.fields.FieldSet;
+import com.mharfe.coreService.maintenance.CascadeDeleteJob;
+import com.mharfe.coreService.maintenance.CascadeDeleter;
 import com.mharfe.coreService.mapper.BookMapper;
 import com.mharfe.coreService.model.book.Book;
+import com.mharfe.coreService.model.book.Chapter;
+import com.mharfe.coreService.pagination.CursorCodec;
+import com.mharfe.coreService.pagination.CursorPage;
 import com.mharfe.coreService.repository.BookRepository;
+import com.mharfe.coreService.repository.MongoIds;
+import com.mharfe.coreService.repository.Versioning;
+import org.bson.Document;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -16,55 +35,158 @@ import java.util.stream.Collectors;
 public class BookService {
     
     private final BookRepository bookRepository;
+    private final MongoTemplate mongoTemplate;
     private final BookMapper bookMapper;
+    private final LibrarySearchService librarySearchService;
+    private final CascadeDeleter cascadeDeleter;
+    private final DtoCache dtoCache;
+    private final ApplicationEventPublisher eventPublisher;
     
-    public BookService(BookRepository bookRepository, BookMapper bookMapper) {
+    public BookService(BookRepository bookRepository,
+                      MongoTemplate mongoTemplate,
+                      BookMapper bookMapper,
+                      LibrarySearchService librarySearchService,
+                      CascadeDeleter cascadeDeleter,
+                      DtoCache dtoCache,
+                      ApplicationEventPublisher eventPublisher) {
         this.bookRepository = bookRepository;
+        this.mongoTemplate = mongoTemplate;
         this.bookMapper = bookMapper;
+        this.librarySearchService = librarySearchService;
+        this.cascadeDeleter = cascadeDeleter;
+        this.dtoCache = dtoCache;
+        this.eventPublisher = eventPublisher;
     }
     
     public BookBasicDTO createBook(BookCreateDTO dto, UUID userId) {
         Book book = bookMapper.toEntity(dto, userId);
         Book savedBook = bookRepository.save(book);
+        publishSaved(savedBook);
         return bookMapper.toResponseDTO(savedBook);
     }
     
     public BookDTO getBook(String id, UUID userId) {
-        Book book = bookRepository.findById(id)
-            .orElseThrow(() -> new RuntimeException("Book not found"));
+        BookDTO book = dtoCache.book(id, () -> bookMapper.toDTO(bookRepository.findByIdAndDeletedAtIsNull(id)
+            .orElseThrow(() -> new RuntimeException("Book not found"))));
             
         if (!book.getUserId().equals(userId)) {
             throw new RuntimeException("You don't have permission to access this book");
         }
         
+        return book;
+    }
+    
+    /**
+     * The book with only the selected fields read. Chapters are read in one query,
+     * without their page lists, and only when selected. Sparse reads bypass the DTO cache.
+     */
+    public BookDTO getBook(String id, UUID userId, FieldSet fields) {
+        if (fields.isAll()) {
+            return getBook(id, userId);
+        }
+        Query query = Query.query(Criteria.where("_id").is(MongoIds.toObjectId(id)).and("deletedAt").is(null));
+        query.fields().exclude("audioBook", "bookSummary");
+        if (!fields.includes("chapters")) {
+            query.fields().exclude("chapters");
+        }
+        // Raw, so the chapter ids come from the references instead of the lazy list
+        Document document = mongoTemplate.findOne(query, Document.class, mongoTemplate.getCollectionName(Book.class));
+        if (document == null) {
+            throw new RuntimeException("Book not found");
+        }
+        List<String> chapterIds = MongoIds.refIds(document, "chapters");
+        document.remove("chapters");
+        Book book = mongoTemplate.getConverter().read(Book.class, document);
+        if (!book.getUserId().equals(userId)) {
+            throw new RuntimeException("You don't have permission to access this book");
+        }
+        if (fields.includes("chapters")) {
+            Query chapterQuery = Query.query(Criteria.where("id").in(chapterIds));
+            chapterQuery.fields().include("title", "order", "rank", "version");
+            book.setChapters(MongoIds.inOrder(chapterIds, mongoTemplate.find(chapterQuery, Chapter.class), Chapter::getId));
+        }
         return bookMapper.toDTO(book);
     }
     
+    /**
+     * ETag of the book if it is cached and the user owns it, else null; the caller
+     * then loads it with {@link #getBook}, which reports what is wrong.
+     */
+    public String getBookTag(String id, UUID userId) {
+        BookDTO book = dtoCache.cachedBook(id);
+        return book != null && book.getUserId().equals(userId) ? ETags.of(book) : null;
+    }
+    
+    public BookOutlineDTO getBookOutline(String id, UUID userId, boolean includeText) {
+        BookOutlineDTO outline = bookRepository.findOutlineById(id, includeText)
+            .orElseThrow(() -> new RuntimeException("Book not found"));
+            
+        if (!outline.getUserId().equals(userId)) {
+            throw new RuntimeException("You don't have permission to access this book");
+        }
+        
+        return outline;
+    }
+    
     public List<BookBasicDTO> getBooksByUser(UUID userId) {
-        return bookRepository.findByUserId(userId).stream()
+        return bookRepository.findBasicByUserIdAndDeletedAtIsNull(userId).stream()
             .map(bookMapper::toResponseDTO)
             .collect(Collectors.toList());
     }
     
+    public CursorPage<BookBasicDTO> getBooksByUser(UUID userId, String cursor, Integer size) {
+        return CursorCodec.toPage(
+            bookRepository.findBasicByUserIdAndDeletedAtIsNullOrderByIdAsc(userId, CursorCodec.decode(cursor), CursorCodec.limit(size)),
+            bookMapper::toResponseDTO);
+    }
+    
     public BookBasicDTO updateBook(String id, BookUpdateDTO dto) {
-        Book book = bookRepository.findById(id)
-            .orElseThrow(() -> new RuntimeException("Book not found"));
+        Query query = Query.query(Versioning.expect(Criteria.where("id").is(id).and("deletedAt").is(null), dto.getVersion()));
+        query.fields().exclude("chapters");
         
-        bookMapper.updateEntity(book, dto);
-        Book updatedBook = bookRepository.save(book);
+        Book updatedBook = mongoTemplate.findAndModify(query, Versioning.bump(bookMapper.toUpdate(dto)),
+            FindAndModifyOptions.options().returnNew(true), Book.class);
+        if (updatedBook == null) {
+            Book book = bookRepository.findByIdAndDeletedAtIsNull(id)
+                .orElseThrow(() -> new RuntimeException("Book not found"));
+            throw Versioning.conflict(book.getVersion());
+        }
+        publishSaved(updatedBook);
         return bookMapper.toResponseDTO(updatedBook);
     }
     
+    /**
+     * Hides the book and its chapters at once and leaves removing them, their pages
+     * and media to {@link CascadeDeleter}, so the request does not wait on a large book.
+     */
     public void deleteBook(String id) {
-        if (!bookRepository.existsById(id)) {
+        LocalDateTime now = LocalDateTime.now();
+        Query query = Query.query(Criteria.where("id").is(id).and("deletedAt").is(null));
+        query.fields().include("userId");
+        Book book = mongoTemplate.findAndModify(query, new Update().set("deletedAt", now), Book.class);
+        if (book == null) {
             throw new RuntimeException("Book not found");
         }
-        bookRepository.deleteById(id);
+        
+        mongoTemplate.updateMulti(
+            Query.query(Criteria.where("book.$id").is(MongoIds.toObjectId(id)).and("deletedAt").is(null)),
+            new Update().set("deletedAt", now), Chapter.class);
+        cascadeDeleter.request(CascadeDeleteJob.RootType.BOOK, id);
+        eventPublisher.publishEvent(BookChangedEvent.deleted(id, book.getUserId()));
     }
     
     public List<BookBasicDTO> searchBooks(String title) {
-        return bookRepository.findByTitleContainingIgnoreCase(title).stream()
+        return bookRepository.findBasicByTitleContainingIgnoreCaseAndDeletedAtIsNull(title).stream()
             .map(bookMapper::toResponseDTO)
             .collect(Collectors.toList());
     }
+    
+    public List<BookBasicDTO> searchBooks(String title, UUID userId) {
+        return librarySearchService.searchBooks(userId, title);
+    }
+    
+    private void publishSaved(Book book) {
+        eventPublisher.publishEvent(
+            BookChangedEvent.saved(book.getId(), book.getUserId(), book.getTitle(), book.getDescription()));
+    }
 } 
\ No newline at end of file
@@ -1,15 +1,45 @@
 package com.mharfe.coreService.service;
 
+import com.mharfe.coreService.autosave.PageAutosaveBuffer;
+import com.mharfe.coreService.cache.DtoCache;
+import com.mharfe.coreService.cache.ETags;
 import com.mharfe.coreService.dto.book.*;
+import com.mharfe.coreService.event.ChapterChangedEvent;
+import com.mharfe.coreService.fields.FieldSet;
+import com.mharfe.coreService.maintenance.CascadeDeleteJob;
+import com.mharfe.coreService.maintenance.CascadeDeleter;
 import com.mharfe.coreService.mapper.ChapterMapper;
 import com.mharfe.coreService.model.book.Book;
 import com.mharfe.coreService.model.book.Chapter;
+import com.mharfe.coreService.model.book.Page;
+import com.mharfe.coreService.ordering.RankAllocator;
+import com.mharfe.coreService.pagination.CursorCodec;
+import com.mharfe.coreService.pagination.CursorPage;
 import com.mharfe.coreService.repository.BookRepository;
 import com.mharfe.coreService.repository.ChapterRepository;
+import com.mharfe.coreService.repository.MongoIds;
+import com.mharfe.coreService.repository.Versioning;
+import com.mongodb.DBRef;
+import org.bson.Document;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -18,58 +48,230 @@ public class ChapterService {
     
     private final ChapterRepository chapterRepository;
     private final BookRepository bookRepository;
+    private final MongoTemplate mongoTemplate;
     private final ChapterMapper chapterMapper;
+    private final LibrarySearchService librarySearchService;
+    private final BookOwnershipService bookOwnershipService;
+    private final RankAllocator rankAllocator;
+    private final CascadeDeleter cascadeDeleter;
+    private final DtoCache dtoCache;
+    private final PageAutosaveBuffer autosaveBuffer;
+    private final ApplicationEventPublisher eventPublisher;
     
     public ChapterService(ChapterRepository chapterRepository,
                          BookRepository bookRepository,
-                         ChapterMapper chapterMapper) {
+                         MongoTemplate mongoTemplate,
+                         ChapterMapper chapterMapper,
+                         LibrarySearchService librarySearchService,
+                         BookOwnershipService bookOwnershipService,
+                         RankAllocator rankAllocator,
+                         CascadeDeleter cascadeDeleter,
+                         DtoCache dtoCache,
+                         PageAutosaveBuffer autosaveBuffer,
+                         ApplicationEventPublisher eventPublisher) {
         this.chapterRepository = chapterRepository;
         this.bookRepository = bookRepository;
+        this.mongoTemplate = mongoTemplate;
         this.chapterMapper = chapterMapper;
+        this.librarySearchService = librarySearchService;
+        this.bookOwnershipService = bookOwnershipService;
+        this.rankAllocator = rankAllocator;
+        this.cascadeDeleter = cascadeDeleter;
+        this.dtoCache = dtoCache;
+        this.autosaveBuffer = autosaveBuffer;
+        this.eventPublisher = eventPublisher;
     }
     
     public ChapterBasicDTO createChapter(ChapterCreateDTO dto) {
-        Book book = bookRepository.findById(dto.getBookId())
+        Book book = bookRepository.findByIdAndDeletedAtIsNull(dto.getBookId())
             .orElseThrow(() -> new RuntimeException("Book not found"));
             
         Chapter chapter = chapterMapper.toEntity(dto);
-        chapter.setBook(book);
+        chapter.moveTo(book);
+        chapter.setRank(rankAllocator.rankFor(
+            RankAllocator.Siblings.CHAPTERS, book.getId(), dto.getAfterChapterId(), dto.getBeforeChapterId()));
         
         Chapter savedChapter = chapterRepository.save(chapter);
+        publishSaved(savedChapter);
         return chapterMapper.toResponseDTO(savedChapter);
     }
     
+    /**
+     * The chapter as stored, cached, with unsaved autosaves shown on its pages as page
+     * reads show them.
+     */
     public ChapterDTO getChapter(String id) {
-        Chapter chapter = chapterRepository.findById(id)
-            .orElseThrow(() -> new RuntimeException("Chapter not found"));
-        return chapterMapper.toDTO(chapter);
+        ChapterDTO chapter = dtoCache.chapter(id, () -> chapterMapper.toCachedDTO(chapterRepository.findByIdAndDeletedAtIsNull(id)
+            .orElseThrow(() -> new RuntimeException("Chapter not found"))));
+        return chapterMapper.overlay(withAttachments(chapter), autosaveBuffer::get);
+    }
+    
+    /**
+     * The cached chapter with its audio and summary read now; they are left out of the
+     * cache because they are attached without a change event.
+     */
+    private ChapterDTO withAttachments(ChapterDTO chapter) {
+        Query query = Query.query(Criteria.where("_id").is(MongoIds.toObjectId(chapter.getId())));
+        query.fields().include("chapAudio", "chapSummary");
+        Chapter attachments = mongoTemplate.findOne(query, Chapter.class);
+        return attachments != null ? chapterMapper.withAttachments(chapter, attachments) : chapter;
+    }
+    
+    /**
+     * The chapter with only the selected fields read. Pages are read in one query,
+     * without their text unless {@code pages.textContent} is selected, and the audio
+     * and summary only when selected. Sparse reads bypass the DTO cache.
+     * <p>
+     * The chapter is read as a raw document so the page ids come straight from its
+     * references; the entity's lazy page list would load every page in full first.
+     */
+    public ChapterDTO getChapter(String id, FieldSet fields) {
+        if (fields.isAll()) {
+            return getChapter(id);
+        }
+        Query query = Query.query(Criteria.where("_id").is(MongoIds.toObjectId(id)).and("deletedAt").is(null));
+        for (String field : List.of("pages", "chapAudio", "chapSummary")) {
+            if (!fields.includes(field)) {
+                query.fields().exclude(field);
+            }
+        }
+        Document document = mongoTemplate.findOne(query, Document.class, mongoTemplate.getCollectionName(Chapter.class));
+        if (document == null) {
+            throw new RuntimeException("Chapter not found");
+        }
+        List<String> pageIds = MongoIds.refIds(document, "pages");
+        document.remove("pages");
+        Chapter chapter = mongoTemplate.getConverter().read(Chapter.class, document);
+        if (fields.includes("pages")) {
+            Query pageQuery = Query.query(Criteria.where("id").in(pageIds));
+            pageQuery.fields().exclude("imagePrompts");
+            if (!fields.includes("pages.textContent")) {
+                pageQuery.fields().exclude("textContent");
+            }
+            chapter.setPages(MongoIds.inOrder(pageIds, mongoTemplate.find(pageQuery, Page.class), Page::getId));
+        }
+        return chapterMapper.overlay(chapterMapper.toDTO(chapter), autosaveBuffer::get);
+    }
+    
+    /**
+     * ETag of the chapter if it is cached, else null.
+     */
+    public String getChapterTag(String id) {
+        ChapterDTO chapter = dtoCache.cachedChapter(id);
+        return chapter != null ? ETags.of(chapterMapper.overlay(withAttachments(chapter), autosaveBuffer::get)) : null;
     }
     
     public List<ChapterBasicDTO> getChaptersByBook(String bookId) {
-        return chapterRepository.findByBookIdOrderByOrderAsc(bookId).stream()
+        rankAllocator.ensureRanked(RankAllocator.Siblings.CHAPTERS, bookId);
+        return chapterRepository.findByBookIdAndDeletedAtIsNullOrderByRankAscOrderAscIdAsc(bookId).stream()
             .map(chapterMapper::toResponseDTO)
             .collect(Collectors.toList());
     }
     
+    public CursorPage<ChapterBasicDTO> getChaptersByBook(String bookId, String cursor, Integer size) {
+        // A chapter without a rank would sort first and could not be encoded in the cursor
+        rankAllocator.ensureRanked(RankAllocator.Siblings.CHAPTERS, bookId);
+        return CursorCodec.toPage(
+            chapterRepository.findByBookIdAndDeletedAtIsNullOrderByRankAscOrderAscIdAsc(bookId, CursorCodec.decode(cursor), CursorCodec.limit(size)),
+            chapterMapper::toResponseDTO);
+    }
+    
     public ChapterBasicDTO updateChapter(String id, ChapterUpdateDTO dto) {
-        Chapter chapter = chapterRepository.findById(id)
-            .orElseThrow(() -> new RuntimeException("Chapter not found"));
+        Query query = Query.query(Versioning.expect(Criteria.where("id").is(id).and("deletedAt").is(null), dto.getVersion()));
+        query.fields().exclude("pages");
         
-        chapterMapper.updateEntity(chapter, dto);
-        Chapter updatedChapter = chapterRepository.save(chapter);
+        Chapter updatedChapter = mongoTemplate.findAndModify(query, Versioning.bump(chapterMapper.toUpdate(dto)),
+            FindAndModifyOptions.options().returnNew(true), Chapter.class);
+        if (updatedChapter == null) {
+            Chapter chapter = chapterRepository.findByIdAndDeletedAtIsNull(id)
+                .orElseThrow(() -> new RuntimeException("Chapter not found"));
+            throw Versioning.conflict(chapter.getVersion());
+        }
+        publishSaved(updatedChapter);
         return chapterMapper.toResponseDTO(updatedChapter);
     }
     
+    /**
+     * Rewrites the order of every chapter of the book in one ordered bulk write and
+     * keeps the book's chapter refs in the same order. The list must name exactly the
+     * book's current chapters; a stale list (a chapter added or removed since) is a 409.
+     */
+    public List<ChapterBasicDTO> reorderChapters(String bookId, ChapterReorderDTO dto, UUID userId) {
+        List<String> chapterIds = dto.getChapterIds() != null ? dto.getChapterIds() : List.of();
+        if (!bookRepository.existsByIdAndDeletedAtIsNull(bookId)) {
+            throw new RuntimeException("Book not found");
+        }
+        bookOwnershipService.verifyBookOwnership(bookId, userId);
+        
+        Query query = Query.query(Criteria.where("book.$id").is(MongoIds.toObjectId(bookId)).and("deletedAt").is(null));
+        query.fields().exclude("pages");
+        Map<String, Chapter> chapters = mongoTemplate.find(query, Chapter.class).stream()
+            .collect(Collectors.toMap(Chapter::getId, Function.identity()));
+        if (chapterIds.size() != chapters.size() || !chapters.keySet().equals(new HashSet<>(chapterIds))) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Chapter list does not match the book's chapters");
+        }
+        
+        List<String> ranks = rankAllocator.spread(RankAllocator.Siblings.CHAPTERS, bookId, chapterIds.size());
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, Chapter.class);
+        List<Chapter> changed = new ArrayList<>();
+        for (int i = 0; i < chapterIds.size(); i++) {
+            Chapter chapter = chapters.get(chapterIds.get(i));
+            if (ranks.get(i).equals(chapter.getRank()) && chapter.getOrder() == i + 1) {
+                continue;
+            }
+            ops.updateOne(Query.query(Criteria.where("_id").is(chapter.getId())),
+                Versioning.bump(new Update().set(RankAllocator.FIELD, ranks.get(i)).set("order", i + 1)));
+            chapter.setRank(ranks.get(i));
+            chapter.setOrder(i + 1);
+            chapter.setVersion(chapter.getVersion() + 1);
+            changed.add(chapter);
+        }
+        if (!changed.isEmpty()) {
+            ops.execute();
+        }
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(bookId)),
+            new Update().set("chapters", List.of(MongoIds.dbRefs("chapters", chapterIds))), Book.class);
+        
+        changed.forEach(this::publishSaved);
+        return chapterIds.stream()
+            .map(chapters::get)
+            .map(chapterMapper::toResponseDTO)
+            .collect(Collectors.toList());
+    }
+    
+    /**
+     * Hides the chapter at once and leaves removing its pages to {@link CascadeDeleter}.
+     */
     public void deleteChapter(String id) {
-        if (!chapterRepository.existsById(id)) {
+        Query query = Query.query(Criteria.where("id").is(id).and("deletedAt").is(null));
+        query.fields().exclude("pages");
+        Chapter chapter = mongoTemplate.findAndModify(query, new Update().set("deletedAt", LocalDateTime.now()), Chapter.class);
+        if (chapter == null) {
             throw new RuntimeException("Chapter not found");
         }
-        chapterRepository.deleteById(id);
+        
+        String bookId = bookOwnershipService.bookIdOf(chapter);
+        if (bookId != null) {
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(bookId)),
+                new Update().pull("chapters", new DBRef("chapters", MongoIds.toObjectId(id))), Book.class);
+        }
+        cascadeDeleter.request(CascadeDeleteJob.RootType.CHAPTER, id);
+        eventPublisher.publishEvent(ChapterChangedEvent.deleted(
+            id, bookOwnershipService.bookIdOf(chapter), bookOwnershipService.ownerOf(chapter)));
     }
     
     public List<ChapterBasicDTO> searchChapters(String title) {
-        return chapterRepository.findByTitleContainingIgnoreCase(title).stream()
+        return chapterRepository.findByTitleContainingIgnoreCaseAndDeletedAtIsNull(title).stream()
             .map(chapterMapper::toResponseDTO)
             .collect(Collectors.toList());
     }
+    
+    public List<ChapterBasicDTO> searchChapters(String title, UUID userId) {
+        return librarySearchService.searchChapters(userId, title);
+    }
+    
+    private void publishSaved(Chapter chapter) {
+        eventPublisher.publishEvent(ChapterChangedEvent.saved(chapter.getId(), bookOwnershipService.bookIdOf(chapter),
+            bookOwnershipService.ownerOf(chapter), chapter.getTitle(), chapter.getOrder()));
+    }
 } 
\ No newline at end of file
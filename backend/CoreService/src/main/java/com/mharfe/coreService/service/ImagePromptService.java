@@ -5,6 +5,8 @@ import com.mharfe.coreService.dto.book.ImagePromptDTO;
 import com.mharfe.coreService.mapper.ImagePromptMapper;
 import com.mharfe.coreService.model.book.ImagePrompt;
 import com.mharfe.coreService.model.book.Page;
+import com.mharfe.coreService.pagination.CursorCodec;
+import com.mharfe.coreService.pagination.CursorPage;
 import com.mharfe.coreService.repository.ImagePromptRepository;
 import com.mharfe.coreService.repository.PageRepository;
 import org.springframework.stereotype.Service;
@@ -52,6 +54,12 @@ public class ImagePromptService {
             .collect(Collectors.toList());
     }
     
+    public CursorPage<ImagePromptDTO> getImagePromptsByPage(String pageId, String cursor, Integer size) {
+        return CursorCodec.toPage(
+            imagePromptRepository.findByPageIdOrderByIdAsc(pageId, CursorCodec.decode(cursor), CursorCodec.limit(size)),
+            imagePromptMapper::toResponseDTO);
+    }
+    
     public void deleteImagePrompt(String id) {
         if (!imagePromptRepository.existsById(id)) {
             throw new RuntimeException("Image prompt not found");
@@ -0,0 +1,77 @@
+package com.mharfe.coreService.service;
+
+import com.mharfe.coreService.dto.book.BookBasicDTO;
+import com.mharfe.coreService.dto.book.ChapterBasicDTO;
+import com.mharfe.coreService.dto.search.LibrarySearchHitDTO;
+import com.mharfe.coreService.search.LibrarySearchHit;
+import com.mharfe.coreService.search.LibrarySearchIndex;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+@Service
+public class LibrarySearchService {
+    
+    private static final int DEFAULT_LIMIT = 20;
+    private static final int MAX_LIMIT = 100;
+    
+    private final LibrarySearchIndex searchIndex;
+    
+    public LibrarySearchService(LibrarySearchIndex searchIndex) {
+        this.searchIndex = searchIndex;
+    }
+    
+    public List<LibrarySearchHitDTO> search(UUID userId, String query, Integer limit) {
+        return searchIndex.search(userId, query, limit(limit)).stream()
+            .map(this::toDTO)
+            .collect(Collectors.toList());
+    }
+    
+    public List<String> suggest(UUID userId, String prefix, Integer limit) {
+        return searchIndex.suggest(userId, prefix, limit(limit));
+    }
+    
+    public List<BookBasicDTO> searchBooks(UUID userId, String query) {
+        return searchIndex.search(userId, query, MAX_LIMIT).stream()
+            .filter(hit -> hit.type() == LibrarySearchHit.Type.BOOK)
+            .map(hit -> {
+                BookBasicDTO dto = new BookBasicDTO();
+                dto.setId(hit.id());
+                dto.setTitle(hit.title());
+                dto.setDescription(hit.description());
+                return dto;
+            })
+            .collect(Collectors.toList());
+    }
+    
+    public List<ChapterBasicDTO> searchChapters(UUID userId, String query) {
+        return searchIndex.search(userId, query, MAX_LIMIT).stream()
+            .filter(hit -> hit.type() == LibrarySearchHit.Type.CHAPTER)
+            .map(hit -> {
+                ChapterBasicDTO dto = new ChapterBasicDTO();
+                dto.setId(hit.id());
+                dto.setTitle(hit.title());
+                dto.setOrder(hit.order());
+                return dto;
+            })
+            .collect(Collectors.toList());
+    }
+    
+    private LibrarySearchHitDTO toDTO(LibrarySearchHit hit) {
+        LibrarySearchHitDTO dto = new LibrarySearchHitDTO();
+        dto.setType(hit.type().name());
+        dto.setId(hit.id());
+        dto.setBookId(hit.bookId());
+        dto.setTitle(hit.title());
+        dto.setDescription(hit.description());
+        dto.setScore(hit.score());
+        return dto;
+    }
+    
+    private static int limit(Integer limit) {
+        if (limit == null || limit <= 0) return DEFAULT_LIMIT;
+        return Math.min(limit, MAX_LIMIT);
+    }
+}
@@ -0,0 +1,254 @@
+package com.mharfe.coreService.service;
+
+import com.mharfe.coreService.event.ChapterChangedEvent;
+import com.mharfe.coreService.event.PageChangedEvent;
+import com.mharfe.coreService.manuscript.ManuscriptImportProgress;
+import com.mharfe.coreService.manuscript.ManuscriptImportRegistry;
+import com.mharfe.coreService.manuscript.ManuscriptParser;
+import com.mharfe.coreService.model.book.Book;
+import com.mharfe.coreService.model.book.Chapter;
+import com.mharfe.coreService.model.book.Page;
+import com.mharfe.coreService.ordering.RankAllocator;
+import com.mharfe.coreService.repository.BookRepository;
+import com.mharfe.coreService.repository.MongoIds;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Imports a whole manuscript from a text stream. Chapters and pages are written
+ * in batches while the text is still being parsed, so neither the manuscript nor
+ * its pages are ever held in memory as a whole.
+ */
+@Service
+public class ManuscriptImportService {
+    private static final Logger logger = LoggerFactory.getLogger(ManuscriptImportService.class);
+
+    private final BookRepository bookRepository;
+    private final MongoTemplate mongoTemplate;
+    private final ManuscriptImportRegistry importRegistry;
+    private final RankAllocator rankAllocator;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+
+    public ManuscriptImportService(BookRepository bookRepository,
+                                   MongoTemplate mongoTemplate,
+                                   ManuscriptImportRegistry importRegistry,
+                                   RankAllocator rankAllocator,
+                                   ApplicationEventPublisher eventPublisher,
+                                   @Value("${app.import.batch-size:500}") int batchSize,
+                                   @Value("${app.import.page-size:2000}") int defaultPageSize,
+                                   @Value("${app.import.max-page-size:20000}") int maxPageSize) {
+        this.bookRepository = bookRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.importRegistry = importRegistry;
+        this.rankAllocator = rankAllocator;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+    }
+
+    public ManuscriptImportProgress importManuscript(String bookId, InputStream body, long contentLength,
+                                                     String importId, Integer pageSize, UUID userId) {
+        Book book = bookRepository.findByIdAndDeletedAtIsNull(bookId)
+            .orElseThrow(() -> new RuntimeException("Book not found"));
+        if (!book.getUserId().equals(userId)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You don't have permission to access this book");
+        }
+        int size = pageSize != null ? pageSize : defaultPageSize;
+        if (size < ManuscriptParser.MIN_PAGE_SIZE || size > maxPageSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "Page size must be between " + ManuscriptParser.MIN_PAGE_SIZE + " and " + maxPageSize + " characters");
+        }
+
+        ManuscriptImportProgress progress;
+        try {
+            progress = importRegistry.start(importId != null ? importId : UUID.randomUUID().toString(),
+                bookId, userId, contentLength);
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        }
+
+        long existingChapters = mongoTemplate.count(
+            Query.query(Criteria.where("book.$id").is(MongoIds.toObjectId(bookId)).and("deletedAt").is(null)), "chapters");
+        ChapterWriter writer = new ChapterWriter(book, (int) existingChapters + 1,
+            rankAllocator.append(RankAllocator.Siblings.CHAPTERS, bookId, 0), progress);
+        try (Reader reader = new BufferedReader(new InputStreamReader(
+                importRegistry.track(body, progress), StandardCharsets.UTF_8))) {
+            new ManuscriptParser(size, writer).parse(reader);
+            writer.finish();
+            progress.complete();
+        } catch (IOException | RuntimeException e) {
+            // What was parsed so far stays in the book; the progress shows how far the import got
+            writer.abort(e);
+            progress.fail(e.getMessage());
+            logger.warn("Manuscript import {} failed after {} pages", progress.getImportId(), progress.getPagesCreated(), e);
+            if (e instanceof IllegalArgumentException) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+            }
+            throw new RuntimeException("Manuscript import failed: " + e.getMessage(), e);
+        }
+        return progress;
+    }
+
+    public ManuscriptImportProgress getProgress(String bookId, String importId, UUID userId) {
+        ManuscriptImportProgress progress = importRegistry.get(importId)
+            .filter(p -> p.getBookId().equals(bookId))
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Import not found"));
+        if (!progress.getUserId().equals(userId)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You don't have permission to access this import");
+        }
+        return progress;
+    }
+
+    /**
+     * Receives parser output and buffers at most one batch of pages and one of chapters.
+     * A chapter is written after its pages, once its page refs are known, and is added
+     * to the book in the same flush.
+     */
+    private class ChapterWriter implements ManuscriptParser.Listener {
+        private final Book book;
+        private final ManuscriptImportProgress progress;
+        private final List<Page> pendingPages = new ArrayList<>();
+        private final List<Chapter> pendingChapters = new ArrayList<>();
+        private final Iterator<String> chapterRanks;
+        private Chapter chapter;
+        private List<Page> chapterPageRefs;
+        private Iterator<String> pageRanks;
+        private int nextOrder;
+        private int chaptersCreated;
+        private int pagesCreated;
+
+        ChapterWriter(Book book, int firstOrder, Iterator<String> chapterRanks, ManuscriptImportProgress progress) {
+            this.book = book;
+            this.nextOrder = firstOrder;
+            this.chapterRanks = chapterRanks;
+            this.progress = progress;
+        }
+
+        @Override
+        public void onChapter(String title) {
+            closeChapter();
+            chapter = new Chapter(title, nextOrder++, book);
+            chapter.setId(new ObjectId().toHexString());
+            chapter.setRank(chapterRanks.next());
+            chapterPageRefs = new ArrayList<>();
+            pageRanks = rankAllocator.appendToNew(RankAllocator.Siblings.PAGES, chapter.getId(), 0);
+        }
+
+        @Override
+        public void onPage(String text) {
+            Page page = new Page(text, chapterPageRefs.size() + 1, chapter);
+            page.setId(new ObjectId().toHexString());
+            page.setRank(pageRanks.next());
+            pendingPages.add(page);
+
+            Page ref = new Page();
+            ref.setId(page.getId());
+            chapterPageRefs.add(ref);
+
+            if (pendingPages.size() >= batchSize) {
+                flushPages();
+            }
+        }
+
+        void finish() {
+            closeChapter();
+            flushPages();
+            flushChapters();
+        }
+
+        /**
+         * Writes what was parsed before {@code failure}, so the pages already written get
+         * their chapter. If that fails too, the chapters that could not be fully written
+         * are removed with their pages instead.
+         */
+        void abort(Exception failure) {
+            try {
+                finish();
+            } catch (RuntimeException e) {
+                failure.addSuppressed(e);
+                List<String> unwritten = new ArrayList<>(pendingChapters.stream().map(Chapter::getId).toList());
+                if (chapter != null) {
+                    unwritten.add(chapter.getId());
+                }
+                try {
+                    // Part of a failed batch insert may have landed
+                    mongoTemplate.remove(Query.query(Criteria.where("_id").in(MongoIds.toObjectIds(unwritten))), Chapter.class);
+                    mongoTemplate.remove(Query.query(Criteria.where("chapter.$id").in(MongoIds.toObjectIds(unwritten))),
+                        Page.class);
+                } catch (RuntimeException removeFailure) {
+                    failure.addSuppressed(removeFailure);
+                }
+            }
+        }
+
+        private void closeChapter() {
+            if (chapter == null) {
+                return;
+            }
+            chapter.setPages(chapterPageRefs);
+            pendingChapters.add(chapter);
+            chapter = null;
+            if (pendingChapters.size() >= batchSize) {
+                flushChapters();
+            }
+        }
+
+        private void flushPages() {
+            if (pendingPages.isEmpty()) {
+                return;
+            }
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Page.class).insert(pendingPages).execute();
+            for (Page written : pendingPages) {
+                eventPublisher.publishEvent(PageChangedEvent.saved(written.getId(), written.getChapter().getId(),
+                    book.getId(), book.getUserId(), written.getPageNumber(), written.getTextContent()));
+            }
+            pagesCreated += pendingPages.size();
+            pendingPages.clear();
+            progress.pagesCreated(pagesCreated);
+        }
+
+        private void flushChapters() {
+            if (pendingChapters.isEmpty()) {
+                return;
+            }
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Chapter.class).insert(pendingChapters).execute();
+            mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(book.getId())),
+                new Update().push("chapters").each(MongoIds.dbRefs("chapters", pendingChapters.stream().map(Chapter::getId).toList())),
+                Book.class);
+            for (Chapter written : pendingChapters) {
+                eventPublisher.publishEvent(ChapterChangedEvent.saved(
+                    written.getId(), book.getId(), book.getUserId(), written.getTitle(), written.getOrder()));
+            }
+            chaptersCreated += pendingChapters.size();
+            pendingChapters.clear();
+            progress.chaptersCreated(chaptersCreated);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.mharfe.coreService.service;
+
+import com.mharfe.coreService.dto.search.HighlightDTO;
+import com.mharfe.coreService.dto.search.ManuscriptMatchDTO;
+import com.mharfe.coreService.model.book.Book;
+import com.mharfe.coreService.repository.BookRepository;
+import com.mharfe.coreService.search.ManuscriptIndexManager;
+import com.mharfe.coreService.search.ManuscriptMatch;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+@Service
+public class ManuscriptSearchService {
+    
+    private static final int DEFAULT_LIMIT = 100;
+    private static final int MAX_LIMIT = 1000;
+    private static final int MAX_SLOP = 50;
+    
+    private final BookRepository bookRepository;
+    private final ManuscriptIndexManager indexManager;
+    
+    public ManuscriptSearchService(BookRepository bookRepository, ManuscriptIndexManager indexManager) {
+        this.bookRepository = bookRepository;
+        this.indexManager = indexManager;
+    }
+    
+    public List<ManuscriptMatchDTO> search(String bookId, UUID userId, String query, int slop, boolean ordered, Integer limit) {
+        Book book = bookRepository.findByIdAndDeletedAtIsNull(bookId)
+            .orElseThrow(() -> new RuntimeException("Book not found"));
+        if (!book.getUserId().equals(userId)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You don't have permission to access this book");
+        }
+        if (slop < 0 || slop > MAX_SLOP) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "slop must be between 0 and " + MAX_SLOP);
+        }
+        int max = limit == null || limit <= 0 ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT);
+        
+        return indexManager.get(bookId).search(query, slop, ordered, max).stream()
+            .map(this::toDTO)
+            .collect(Collectors.toList());
+    }
+    
+    private ManuscriptMatchDTO toDTO(ManuscriptMatch match) {
+        ManuscriptMatchDTO dto = new ManuscriptMatchDTO();
+        dto.setPageId(match.pageId());
+        dto.setChapterId(match.chapterId());
+        dto.setPageNumber(match.pageNumber());
+        dto.setHighlights(match.highlights().stream()
+            .map(highlight -> {
+                HighlightDTO highlightDTO = new HighlightDTO();
+                highlightDTO.setStart(highlight.start());
+                highlightDTO.setEnd(highlight.end());
+                return highlightDTO;
+            })
+            .collect(Collectors.toList()));
+        return dto;
+    }
+}
@@ -1,19 +1,48 @@
 package com.mharfe.coreService.service;
 
+import com.mharfe.coreService.autosave.PageAutosaveBuffer;
+import com.mharfe.coreService.autosave.PendingPageEdit;
+import com.mharfe.coreService.cache.ETags;
+import com.mharfe.coreService.delta.PageDeltaLog;
+import com.mharfe.coreService.delta.TextDeltas;
+import com.mharfe.coreService.delta.TextOp;
 import com.mharfe.coreService.dto.book.*;
+import com.mharfe.coreService.event.PageChangedEvent;
+import com.mharfe.coreService.fields.FieldSet;
+import com.mharfe.coreService.maintenance.CascadeDeleter;
 import com.mharfe.coreService.mapper.PageMapper;
-import com.mharfe.coreService.model.book.Book;
 import com.mharfe.coreService.model.book.Chapter;
 import com.mharfe.coreService.model.book.Page;
+import com.mharfe.coreService.ordering.RankAllocator;
+import com.mharfe.coreService.pagination.CursorCodec;
+import com.mharfe.coreService.pagination.CursorPage;
 import com.mharfe.coreService.repository.BookRepository;
 import com.mharfe.coreService.repository.ChapterRepository;
+import com.mharfe.coreService.repository.MongoIds;
 import com.mharfe.coreService.repository.PageRepository;
+import com.mharfe.coreService.repository.Versioning;
+import com.mongodb.DBRef;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -21,77 +50,379 @@ import java.util.stream.Collectors;
 @Transactional
 public class PageService {
     
+    // Rebase-and-retry rounds before a patch that keeps losing races gives up with 409
+    private static final int MAX_PATCH_ATTEMPTS = 3;
+    
     private final PageRepository pageRepository;
     private final ChapterRepository chapterRepository;
     private final BookRepository bookRepository;
+    private final MongoTemplate mongoTemplate;
     private final PageMapper pageMapper;
+    private final BookOwnershipService bookOwnershipService;
+    private final PageAutosaveBuffer autosaveBuffer;
+    private final PageDeltaLog pageDeltaLog;
+    private final RankAllocator rankAllocator;
+    private final CascadeDeleter cascadeDeleter;
+    private final ApplicationEventPublisher eventPublisher;
     
     public PageService(PageRepository pageRepository,
                       ChapterRepository chapterRepository,
                       BookRepository bookRepository,
-                      PageMapper pageMapper) {
+                      MongoTemplate mongoTemplate,
+                      PageMapper pageMapper,
+                      BookOwnershipService bookOwnershipService,
+                      PageAutosaveBuffer autosaveBuffer,
+                      PageDeltaLog pageDeltaLog,
+                      RankAllocator rankAllocator,
+                      CascadeDeleter cascadeDeleter,
+                      ApplicationEventPublisher eventPublisher) {
         this.pageRepository = pageRepository;
         this.chapterRepository = chapterRepository;
         this.bookRepository = bookRepository;
+        this.mongoTemplate = mongoTemplate;
         this.pageMapper = pageMapper;
-    }
-    
-    private void verifyBookOwnership(Chapter chapter, UUID userId) {
-        Book book = chapter.getBook();
-        if (book == null || !book.getUserId().equals(userId)) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You don't have permission to access this book");
-        }
+        this.bookOwnershipService = bookOwnershipService;
+        this.autosaveBuffer = autosaveBuffer;
+        this.pageDeltaLog = pageDeltaLog;
+        this.rankAllocator = rankAllocator;
+        this.cascadeDeleter = cascadeDeleter;
+        this.eventPublisher = eventPublisher;
     }
     
     public PageBasicDTO createPage(PageCreateDTO dto, UUID userId) {
-        Chapter chapter = chapterRepository.findById(dto.getChapterId())
+        Chapter chapter = chapterRepository.findByIdAndDeletedAtIsNull(dto.getChapterId())
             .orElseThrow(() -> new RuntimeException("Chapter not found"));
             
-        verifyBookOwnership(chapter, userId);
+        bookOwnershipService.verifyOwnership(chapter, userId);
             
         Page page = pageMapper.toEntity(dto);
-        page.setChapter(chapter);
+        page.moveTo(chapter);
+        if (page.getOwnerId() == null) {
+            // Chapter predates the denormalized fields
+            page.setBookId(bookOwnershipService.bookIdOf(chapter));
+            page.setOwnerId(userId);
+        }
+        page.setRank(rankAllocator.rankFor(
+            RankAllocator.Siblings.PAGES, chapter.getId(), dto.getAfterPageId(), dto.getBeforePageId()));
         
         Page savedPage = pageRepository.save(page);
+        publishSaved(savedPage);
         return pageMapper.toResponseDTO(savedPage);
     }
     
     public PageBasicDTO getPage(String id, UUID userId) {
         Page page = pageRepository.findById(id)
             .orElseThrow(() -> new RuntimeException("Page not found"));
-            
-        verifyBookOwnership(page.getChapter(), userId);
-        return pageMapper.toResponseDTO(page);
+        return toResponseDTO(readable(page, userId));
+    }
+    
+    /**
+     * The page with its text read only when {@code textContent} is selected.
+     */
+    public PageBasicDTO getPage(String id, UUID userId, FieldSet fields) {
+        if (fields.isAll()) {
+            return getPage(id, userId);
+        }
+        return toResponseDTO(readable(findPage(id, fields.includes("textContent")), userId));
+    }
+    
+    /**
+     * ETag of the page as {@link #getPage} would return it, read by _id without the
+     * page text.
+     */
+    public String getPageTag(String id, UUID userId) {
+        return ETags.of(toResponseDTO(readable(findPage(id, false), userId)));
+    }
+    
+    private Page findPage(String id, boolean withText) {
+        Query query = Query.query(Criteria.where("id").is(id));
+        query.fields().exclude("imagePrompts");
+        if (!withText) {
+            query.fields().exclude("textContent");
+        }
+        Page page = mongoTemplate.findOne(query, Page.class);
+        if (page == null) {
+            throw new RuntimeException("Page not found");
+        }
+        return page;
+    }
+    
+    private Page readable(Page page, UUID userId) {
+        bookOwnershipService.verifyOwnership(page, userId);
+        // Its chapter or book is deleted and the page just not removed yet
+        if (cascadeDeleter.isPending(MongoIds.refId(page.getChapter(), Chapter::getId))
+                || cascadeDeleter.isPending(bookOwnershipService.bookIdOf(page))) {
+            throw new RuntimeException("Page not found");
+        }
+        return page;
     }
     
     public List<PageBasicDTO> getPagesByChapter(String chapterId, UUID userId) {
-        Chapter chapter = chapterRepository.findById(chapterId)
+        Chapter chapter = chapterRepository.findByIdAndDeletedAtIsNull(chapterId)
             .orElseThrow(() -> new RuntimeException("Chapter not found"));
             
-        verifyBookOwnership(chapter, userId);
+        bookOwnershipService.verifyOwnership(chapter, userId);
+        rankAllocator.ensureRanked(RankAllocator.Siblings.PAGES, chapterId);
         
-        return pageRepository.findByChapterIdOrderByPageNumberAsc(chapterId).stream()
-            .map(pageMapper::toResponseDTO)
+        return pageRepository.findByChapterIdOrderByRankAscPageNumberAscIdAsc(chapterId).stream()
+            .map(this::toResponseDTO)
             .collect(Collectors.toList());
     }
     
+    public CursorPage<PageBasicDTO> getPagesByChapter(String chapterId, UUID userId, String cursor, Integer size) {
+        Chapter chapter = chapterRepository.findByIdAndDeletedAtIsNull(chapterId)
+            .orElseThrow(() -> new RuntimeException("Chapter not found"));
+            
+        bookOwnershipService.verifyOwnership(chapter, userId);
+        // A page without a rank would sort first and could not be encoded in the cursor
+        rankAllocator.ensureRanked(RankAllocator.Siblings.PAGES, chapterId);
+        
+        return CursorCodec.toPage(
+            pageRepository.findByChapterIdOrderByRankAscPageNumberAscIdAsc(chapterId, CursorCodec.decode(cursor), CursorCodec.limit(size)),
+            this::toResponseDTO);
+    }
+    
+    /**
+     * Applies the edit with a single conditional findAndModify: the filter carries the
+     * owner and, when the client sent one, the expected version.
+     */
     public PageBasicDTO updatePage(String id, PageUpdateDTO dto, UUID userId) {
+        // Write out any autosaved edit first, so the version the client saw is the stored one
+        autosaveBuffer.writeBeforeSave(id);
+        
+        Update update = Versioning.bump(pageMapper.toUpdate(dto));
+        Criteria owned = Criteria.where("id").is(id).and("ownerId").is(userId);
+        
+        Page updatedPage = findAndModify(Versioning.expect(owned, dto.getVersion()), update);
+        if (updatedPage == null) {
+            updatedPage = updateUnmatchedPage(id, dto.getVersion(), update, userId);
+        }
+        publishSaved(updatedPage);
+        return pageMapper.toResponseDTO(updatedPage);
+    }
+    
+    /**
+     * Works out why the conditional update matched nothing. Pages written before
+     * ownerId existed are checked the slow way and backfilled as part of the update.
+     */
+    private Page updateUnmatchedPage(String id, Long expectedVersion, Update update, UUID userId) {
+        Page page = pageRepository.findById(id)
+            .orElseThrow(() -> new RuntimeException("Page not found"));
+        
+        bookOwnershipService.verifyOwnership(page, userId);
+        Versioning.check(page.getVersion(), expectedVersion);
+        if (page.getOwnerId() != null) {
+            // Matched on re-read, so it was written in between
+            throw Versioning.conflict(page.getVersion());
+        }
+        
+        bookOwnershipService.backfill(page);
+        update.set("bookId", page.getBookId()).set("ownerId", page.getOwnerId());
+        Page updatedPage = findAndModify(
+            Versioning.expect(Criteria.where("id").is(id), page.getVersion()), update);
+        if (updatedPage == null) {
+            throw Versioning.conflict(page.getVersion());
+        }
+        return updatedPage;
+    }
+    
+    /**
+     * Buffers the edit instead of writing it; see {@link PageAutosaveBuffer}.
+     */
+    public PageBasicDTO autosavePage(String id, PageUpdateDTO dto, UUID userId) {
+        if (autosaveBuffer.takeConflict(id)) {
+            Page page = pageRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Page not found"));
+            throw Versioning.conflict(page.getVersion());
+        }
+        
+        PendingPageEdit edit = autosaveBuffer.record(id, userId, dto.getVersion(), dto.getTextContent(), dto.getPageNumber(),
+            () -> loadForAutosave(id, userId));
+        return pageMapper.toResponseDTO(edit);
+    }
+    
+    private PendingPageEdit loadForAutosave(String id, UUID userId) {
         Page page = pageRepository.findById(id)
             .orElseThrow(() -> new RuntimeException("Page not found"));
             
-        verifyBookOwnership(page.getChapter(), userId);
+        bookOwnershipService.verifyOwnership(page, userId);
+        bookOwnershipService.backfill(page);
+        return PendingPageEdit.stored(id, MongoIds.refId(page.getChapter(), Chapter::getId), page.getBookId(),
+            page.getOwnerId(), page.getTextContent(), page.getPageNumber(), page.getVersion());
+    }
+    
+    /**
+     * Applies text deltas inside MongoDB, so neither the request nor the write carries
+     * the whole page. Deltas written against an older version are rebased over the
+     * deltas stored since, when this instance still knows them; otherwise 409.
+     */
+    public PagePatchResultDTO patchPage(String id, PagePatchDTO dto, UUID userId) {
+        List<TextOp> ops = pageMapper.toOps(dto.getDeltas());
+        autosaveBuffer.writeBeforeSave(id);
         
-        pageMapper.updateEntity(page, dto);
-        Page updatedPage = pageRepository.save(page);
-        return pageMapper.toResponseDTO(updatedPage);
+        long baseVersion = dto.getVersion();
+        for (int attempt = 0; attempt < MAX_PATCH_ATTEMPTS; attempt++) {
+            Criteria criteria = Versioning.expect(Criteria.where("id").is(id).and("ownerId").is(userId), baseVersion);
+            List<TextOp> attemptOps = ops;
+            criteria.andOperator(Criteria.expr(() -> TextDeltas.minLengthExpression(attemptOps)));
+            
+            Page patchedPage = findAndModify(criteria, TextDeltas.toUpdate(ops));
+            if (patchedPage != null) {
+                pageDeltaLog.record(id, patchedPage.getVersion(), ops);
+                publishSaved(patchedPage);
+                return pageMapper.toPatchResultDTO(patchedPage, baseVersion != dto.getVersion());
+            }
+            
+            Page page = pageRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Page not found"));
+            bookOwnershipService.verifyOwnership(page, userId);
+            if (page.getOwnerId() == null) {
+                bookOwnershipService.backfill(page);
+                mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(id)),
+                    new Update().set("bookId", page.getBookId()).set("ownerId", page.getOwnerId()), Page.class);
+                continue;
+            }
+            if (page.getVersion() == baseVersion) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Deltas reach past the end of the page");
+            }
+            
+            List<TextOp> missed = page.getVersion() > baseVersion
+                ? pageDeltaLog.since(id, baseVersion, page.getVersion())
+                : null;
+            if (missed == null) {
+                throw Versioning.conflict(page.getVersion());
+            }
+            ops = TextDeltas.rebase(ops, missed);
+            baseVersion = page.getVersion();
+        }
+        throw Versioning.conflict(baseVersion);
+    }
+    
+    /**
+     * Moves pages, possibly from several chapters, into one chapter as a contiguous run.
+     * Ranks, page numbers and the chapters' page refs of every affected chapter are
+     * rewritten in one ordered bulk write per collection, so the outline is consistent
+     * as soon as the call returns.
+     */
+    public List<PageBasicDTO> movePages(PageMoveDTO dto, UUID userId) {
+        List<String> pageIds = dto.getPageIds() != null ? dto.getPageIds() : List.of();
+        if (pageIds.isEmpty() || new HashSet<>(pageIds).size() != pageIds.size()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "pageIds must name each page once");
+        }
+        Chapter target = chapterRepository.findByIdAndDeletedAtIsNull(dto.getTargetChapterId())
+            .orElseThrow(() -> new RuntimeException("Chapter not found"));
+        bookOwnershipService.verifyOwnership(target, userId);
+        
+        // Written out first, so the pages are loaded with their latest text and version
+        autosaveBuffer.flushPages(pageIds);
+        Map<String, Page> moved = new HashMap<>();
+        pageRepository.findAllById(pageIds).forEach(page -> moved.put(page.getId(), page));
+        if (moved.size() != pageIds.size()) {
+            throw new RuntimeException("Page not found");
+        }
+        moved.values().forEach(page -> bookOwnershipService.verifyOwnership(page, userId));
+        
+        List<String> ranks = rankAllocator.rankRange(RankAllocator.Siblings.PAGES, target.getId(),
+            dto.getAfterPageId(), dto.getBeforePageId(), pageIds.size(), pageIds);
+        Map<String, List<Page>> chapters = new LinkedHashMap<>();
+        chapters.put(target.getId(), new ArrayList<>());
+        Map<String, PageChangedEvent> leftBook = new HashMap<>();
+        for (Page page : moved.values()) {
+            String chapterId = MongoIds.refId(page.getChapter(), Chapter::getId);
+            chapters.put(chapterId, new ArrayList<>());
+            String bookId = bookOwnershipService.bookIdOf(page);
+            if (!Objects.equals(bookId, bookOwnershipService.bookIdOf(target))) {
+                leftBook.put(page.getId(), PageChangedEvent.deleted(page.getId(), chapterId, bookId, userId));
+            }
+        }
+        
+        // The pages that stay, in order, with the moved ones then merged into the target by rank
+        Query siblingQuery = Query.query(Criteria.where("chapter.$id").in(MongoIds.toObjectIds(chapters.keySet()))
+            .and("_id").nin(MongoIds.toObjectIds(pageIds)))
+            .with(RankAllocator.Siblings.PAGES.sort());
+        siblingQuery.fields().include(RankAllocator.FIELD, "pageNumber", "chapter");
+        mongoTemplate.find(siblingQuery, Page.class)
+            .forEach(page -> chapters.get(MongoIds.refId(page.getChapter(), Chapter::getId)).add(page));
+        for (int i = 0; i < pageIds.size(); i++) {
+            Page page = moved.get(pageIds.get(i));
+            page.moveTo(target);
+            if (page.getOwnerId() == null) {
+                // Chapter predates the denormalized fields
+                page.setBookId(bookOwnershipService.bookIdOf(target));
+                page.setOwnerId(userId);
+            }
+            page.setRank(ranks.get(i));
+            chapters.get(target.getId()).add(page);
+        }
+        chapters.get(target.getId()).sort(Comparator.comparing(Page::getRank));
+        
+        BulkOperations pageOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, Page.class);
+        BulkOperations chapterOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, Chapter.class);
+        List<String> changedIds = new ArrayList<>();
+        chapters.forEach((chapterId, pages) -> {
+            for (int i = 0; i < pages.size(); i++) {
+                Page page = pages.get(i);
+                boolean isMoved = moved.containsKey(page.getId());
+                if (!isMoved && page.getPageNumber() == i + 1) {
+                    continue;
+                }
+                Update update = new Update().set("pageNumber", i + 1);
+                if (isMoved) {
+                    update.set("chapter", new DBRef("chapters", MongoIds.toObjectId(chapterId)))
+                        .set(RankAllocator.FIELD, page.getRank())
+                        .set("bookId", page.getBookId())
+                        .set("ownerId", page.getOwnerId());
+                }
+                pageOps.updateOne(Query.query(Criteria.where("_id").is(page.getId())), Versioning.bump(update));
+                changedIds.add(page.getId());
+            }
+            chapterOps.updateOne(Query.query(Criteria.where("_id").is(chapterId)),
+                new Update().set("pages", List.of(MongoIds.dbRefs("pages", pages.stream().map(Page::getId).toList()))));
+        });
+        
+        // Renumbered pages must not have an older page number written back by the buffer
+        autosaveBuffer.flushPages(changedIds);
+        pageOps.execute();
+        chapterOps.execute();
+        changedIds.forEach(autosaveBuffer::discard);
+        
+        Map<String, Page> saved = new HashMap<>();
+        pageRepository.findAllById(changedIds).forEach(page -> saved.put(page.getId(), page));
+        // Pages moved to another book are gone from the old one
+        leftBook.values().forEach(eventPublisher::publishEvent);
+        saved.values().forEach(this::publishSaved);
+        return pageIds.stream()
+            .map(saved::get)
+            .map(pageMapper::toResponseDTO)
+            .collect(Collectors.toList());
+    }
+    
+    private Page findAndModify(Criteria criteria, UpdateDefinition update) {
+        return mongoTemplate.findAndModify(Query.query(criteria), update,
+            FindAndModifyOptions.options().returnNew(true), Page.class);
     }
     
     public void deletePage(String id, UUID userId) {
         Page page = pageRepository.findById(id)
             .orElseThrow(() -> new RuntimeException("Page not found"));
             
-        verifyBookOwnership(page.getChapter(), userId);
+        bookOwnershipService.verifyOwnership(page, userId);
         
         pageRepository.deleteById(id);
+        autosaveBuffer.discard(id);
+        pageDeltaLog.discard(id);
+        eventPublisher.publishEvent(PageChangedEvent.deleted(
+            id, MongoIds.refId(page.getChapter(), Chapter::getId), bookOwnershipService.bookIdOf(page), userId));
+    }
+    
+    private PageBasicDTO toResponseDTO(Page page) {
+        PendingPageEdit edit = autosaveBuffer.get(page.getId());
+        PageBasicDTO dto = pageMapper.toResponseDTO(page);
+        return edit != null ? pageMapper.overlay(dto, edit) : dto;
+    }
+    
+    private void publishSaved(Page page) {
+        eventPublisher.publishEvent(PageChangedEvent.saved(page.getId(), MongoIds.refId(page.getChapter(), Chapter::getId),
+            bookOwnershipService.bookIdOf(page), page.getOwnerId(), page.getPageNumber(), page.getTextContent()));
     }
 } 
\ No newline at end of file
@@ -1,11 +1,14 @@
 package com.mharfe.coreService.service;
 
-
+import com.mharfe.coreService.event.UserChangedEvent;
 import com.mharfe.coreService.model.user.PaymentTransaction;
 import com.mharfe.coreService.model.user.User;
+import com.mharfe.coreService.pagination.CursorCodec;
+import com.mharfe.coreService.pagination.CursorPage;
 import com.mharfe.coreService.repository.PaymentTransactionRepository;
 import com.mharfe.coreService.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -17,13 +20,16 @@ import java.util.UUID;
 public class PaymentTransactionService {
     private final PaymentTransactionRepository paymentTransactionRepository;
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
     public PaymentTransactionService(
             PaymentTransactionRepository paymentTransactionRepository,
-            UserRepository userRepository) {
+            UserRepository userRepository,
+            ApplicationEventPublisher eventPublisher) {
         this.paymentTransactionRepository = paymentTransactionRepository;
         this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional
@@ -37,6 +43,7 @@ public class PaymentTransactionService {
         // Update user's token balance
         user.setTokenBalance(user.getTokenBalance() + transaction.getTokenAmount());
         userRepository.save(user);
+        eventPublisher.publishEvent(UserChangedEvent.updated(user.getId(), user.getUsername(), null));
         
         return savedTransaction;
     }
@@ -53,6 +60,12 @@ public class PaymentTransactionService {
         return paymentTransactionRepository.findByUserId(userId);
     }
 
+    public CursorPage<PaymentTransaction> getTransactionsByUserId(UUID userId, String cursor, Integer size) {
+        return CursorCodec.toPage(
+                paymentTransactionRepository.findByUserIdOrderByDateDescIdDesc(userId, CursorCodec.decode(cursor), CursorCodec.limit(size)),
+                transaction -> transaction);
+    }
+
     @Transactional
     public PaymentTransaction updateTransactionStatus(UUID id, String status) {
         PaymentTransaction transaction = paymentTransactionRepository.findById(id)
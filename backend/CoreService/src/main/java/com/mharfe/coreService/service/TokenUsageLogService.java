@@ -1,11 +1,14 @@
 package com.mharfe.coreService.service;
 
-
+import com.mharfe.coreService.event.UserChangedEvent;
 import com.mharfe.coreService.model.user.TokenUsageLog;
 import com.mharfe.coreService.model.user.User;
+import com.mharfe.coreService.pagination.CursorCodec;
+import com.mharfe.coreService.pagination.CursorPage;
 import com.mharfe.coreService.repository.TokenUsageLogRepository;
 import com.mharfe.coreService.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -18,13 +21,16 @@ import java.util.UUID;
 public class TokenUsageLogService {
     private final TokenUsageLogRepository tokenUsageLogRepository;
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
     public TokenUsageLogService(
             TokenUsageLogRepository tokenUsageLogRepository,
-            UserRepository userRepository) {
+            UserRepository userRepository,
+            ApplicationEventPublisher eventPublisher) {
         this.tokenUsageLogRepository = tokenUsageLogRepository;
         this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional
@@ -43,6 +49,7 @@ public class TokenUsageLogService {
         // Update user's token balance
         user.setTokenBalance(user.getTokenBalance() - log.getTokensUsed());
         userRepository.save(user);
+        eventPublisher.publishEvent(UserChangedEvent.updated(user.getId(), user.getUsername(), null));
         
         return tokenUsageLogRepository.save(log);
     }
@@ -59,6 +66,12 @@ public class TokenUsageLogService {
         return tokenUsageLogRepository.findByUserId(userId);
     }
 
+    public CursorPage<TokenUsageLog> getLogsByUserId(UUID userId, String cursor, Integer size) {
+        return CursorCodec.toPage(
+                tokenUsageLogRepository.findByUserIdOrderByTimestampDescIdDesc(userId, CursorCodec.decode(cursor), CursorCodec.limit(size)),
+                log -> log);
+    }
+
     public List<TokenUsageLog> getLogsByUserIdAndOperationType(UUID userId, String operationType) {
         return tokenUsageLogRepository.findByUserIdAndOperationType(userId, operationType);
     }
@@ -1,8 +1,10 @@
 package com.mharfe.coreService.service;
 
+import com.mharfe.coreService.event.UserChangedEvent;
 import com.mharfe.coreService.model.user.User;
 import com.mharfe.coreService.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -13,10 +15,12 @@ import java.util.UUID;
 @Service
 public class UserService {
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository, ApplicationEventPublisher eventPublisher) {
         this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional
@@ -60,19 +64,22 @@ public class UserService {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("User not found"));
         
+        String previousUsername = user.getUsername();
         user.setUsername(userDetails.getUsername());
         user.setEmail(userDetails.getEmail());
         user.setTokenBalance(userDetails.getTokenBalance());
         
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        eventPublisher.publishEvent(UserChangedEvent.updated(id, savedUser.getUsername(), previousUsername));
+        return savedUser;
     }
 
     @Transactional
     public void deleteUser(UUID id) {
-        if (!userRepository.existsById(id)) {
-            throw new RuntimeException("User not found");
-        }
-        userRepository.deleteById(id);
+        User user = userRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        userRepository.delete(user);
+        eventPublisher.publishEvent(UserChangedEvent.deleted(id, user.getUsername()));
     }
 
     @Transactional
@@ -81,7 +88,9 @@ public class UserService {
                 .orElseThrow(() -> new RuntimeException("User not found"));
         
         user.setTokenBalance(user.getTokenBalance() + tokenAmount);
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        eventPublisher.publishEvent(UserChangedEvent.updated(userId, savedUser.getUsername(), null));
+        return savedUser;
     }
 
     @Transactional
@@ -110,16 +119,22 @@ public class UserService {
         
         if (existingUser.isPresent()) {
             User user = existingUser.get();
+            String previousUsername = user.getUsername();
             user.setUsername(username);
             user.setEmail(email);
-            return userRepository.save(user);
+            User savedUser = userRepository.save(user);
+            eventPublisher.publishEvent(UserChangedEvent.updated(savedUser.getId(), username, previousUsername));
+            return savedUser;
         } else {
             User newUser = new User();
             newUser.setMongoUserId(mongoUserId);
             newUser.setUsername(username);
             newUser.setEmail(email);
             newUser.setTokenBalance(0);
-            return userRepository.save(newUser);
+            User savedUser = userRepository.save(newUser);
+            // Evicts a stale entry left by a user that previously held this username
+            eventPublisher.publishEvent(UserChangedEvent.updated(savedUser.getId(), username, null));
+            return savedUser;
         }
     }
 } 
\ No newline at end of file
@@ -0,0 +1,159 @@
+package com.mharfe.coreService.autosave;
+
+import com.mharfe.coreService.event.PageChangedEvent;
+import com.mharfe.coreService.model.book.Page;
+import com.mongodb.bulk.BulkWriteResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class PageAutosaveBufferTest {
+
+    private MongoTemplate mongoTemplate;
+    private BulkOperations bulkOps;
+    private BulkWriteResult bulkResult;
+    private ApplicationEventPublisher eventPublisher;
+    private SimpleMeterRegistry meterRegistry;
+    private UUID ownerId;
+    private String pageId;
+
+    @BeforeEach
+    public void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        bulkOps = mock(BulkOperations.class);
+        bulkResult = mock(BulkWriteResult.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        meterRegistry = new SimpleMeterRegistry();
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Page.class)).thenReturn(bulkOps);
+        when(bulkOps.execute()).thenReturn(bulkResult);
+        ownerId = UUID.randomUUID();
+        pageId = new ObjectId().toHexString();
+    }
+
+    private PageAutosaveBuffer buffer(long idleFlushMs) {
+        return new PageAutosaveBuffer(mongoTemplate, eventPublisher, meterRegistry, idleFlushMs, 60_000, 500);
+    }
+
+    private PendingPageEdit stored(long version) {
+        return PendingPageEdit.stored(pageId, "chapter-1", "book-1", ownerId, "Once", 1, version);
+    }
+
+    @Test
+    public void testRecord_CoalescesEditsIntoOneWrite() {
+        PageAutosaveBuffer buffer = buffer(60_000);
+        for (int i = 1; i <= 10; i++) {
+            PendingPageEdit edit = buffer.record(pageId, ownerId, null, "Once upon a time " + i, 1, () -> stored(3));
+            assertEquals(3 + i, edit.version());
+        }
+        assertEquals("Once upon a time 10", buffer.get(pageId).textContent());
+
+        when(bulkResult.getMatchedCount()).thenReturn(1);
+        buffer.flushAll();
+
+        verify(bulkOps, times(1)).updateOne(any(Query.class), any(Update.class));
+        verify(eventPublisher, times(1)).publishEvent(any(PageChangedEvent.class));
+        assertNull(buffer.get(pageId));
+        assertEquals(10, meterRegistry.counter("autosave.edits").count());
+        assertEquals(1, meterRegistry.counter("autosave.writes").count());
+    }
+
+    @Test
+    public void testRecord_LoadsStoredPageOnlyOnce() {
+        PageAutosaveBuffer buffer = buffer(60_000);
+        buffer.record(pageId, ownerId, 3L, "a", 1, () -> stored(3));
+
+        buffer.record(pageId, ownerId, 4L, "b", 1, () -> fail("already buffered"));
+    }
+
+    @Test
+    public void testRecord_StaleVersionOrOtherUserIsRejected() {
+        PageAutosaveBuffer buffer = buffer(60_000);
+        buffer.record(pageId, ownerId, null, "a", 1, () -> stored(3));
+
+        ResponseStatusException conflict = assertThrows(ResponseStatusException.class,
+            () -> buffer.record(pageId, ownerId, 3L, "b", 1, () -> stored(3)));
+        assertEquals(HttpStatus.CONFLICT, conflict.getStatusCode());
+        ResponseStatusException forbidden = assertThrows(ResponseStatusException.class,
+            () -> buffer.record(pageId, UUID.randomUUID(), null, "b", 1, () -> stored(3)));
+        assertEquals(HttpStatus.FORBIDDEN, forbidden.getStatusCode());
+    }
+
+    @Test
+    public void testFlushDue_OnlyIdlePages() {
+        PageAutosaveBuffer buffer = buffer(60_000);
+        buffer.record(pageId, ownerId, null, "a", 1, () -> stored(0));
+
+        buffer.flushDue();
+
+        verifyNoInteractions(bulkOps);
+        assertNotNull(buffer.get(pageId));
+
+        PageAutosaveBuffer eager = buffer(0);
+        eager.record(pageId, ownerId, null, "a", 1, () -> stored(0));
+        when(bulkResult.getMatchedCount()).thenReturn(1);
+        eager.flushDue();
+        assertNull(eager.get(pageId));
+    }
+
+    @Test
+    public void testFlush_ChangedPageIsDroppedAndReportedOnce() {
+        PageAutosaveBuffer buffer = buffer(60_000);
+        buffer.record(pageId, ownerId, null, "a", 1, () -> stored(3));
+        when(bulkResult.getMatchedCount()).thenReturn(0);
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("pages")))
+            .thenReturn(List.of(new Document("_id", new ObjectId(pageId)).append("version", 7L)));
+
+        buffer.flushAll();
+
+        assertNull(buffer.get(pageId));
+        verifyNoInteractions(eventPublisher);
+        assertTrue(buffer.takeConflict(pageId));
+        assertFalse(buffer.takeConflict(pageId));
+    }
+
+    @Test
+    public void testWriteBeforeSave_FailureIsThrownAndEditKept() {
+        PageAutosaveBuffer buffer = buffer(60_000);
+        buffer.record(pageId, ownerId, null, "a", 1, () -> stored(3));
+        when(bulkOps.execute()).thenThrow(new DataAccessResourceFailureException("down"));
+
+        assertThrows(DataAccessResourceFailureException.class, () -> buffer.writeBeforeSave(pageId));
+        assertEquals("a", buffer.get(pageId).textContent());
+    }
+
+    @Test
+    public void testWriteBeforeSave_KeepsAutosaveRecordedDuringTheWrite() {
+        PageAutosaveBuffer buffer = buffer(60_000);
+        buffer.record(pageId, ownerId, null, "a", 1, () -> stored(3));
+        when(bulkOps.execute()).thenAnswer(invocation -> {
+            buffer.record(pageId, ownerId, 4L, "ab", 1, () -> fail("already buffered"));
+            return bulkResult;
+        });
+        when(bulkResult.getMatchedCount()).thenReturn(1);
+
+        buffer.writeBeforeSave(pageId);
+
+        PendingPageEdit newer = buffer.get(pageId);
+        assertEquals("ab", newer.textContent());
+        assertEquals(5, newer.version());
+        assertEquals(4, newer.baseVersion());
+    }
+}
@@ -0,0 +1,104 @@
+package com.mharfe.coreService.cache;
+
+import com.mharfe.coreService.dto.book.BookDTO;
+import com.mharfe.coreService.dto.book.ChapterDTO;
+import com.mharfe.coreService.dto.book.PageBasicDTO;
+import com.mharfe.coreService.event.BookChangedEvent;
+import com.mharfe.coreService.event.ChapterChangedEvent;
+import com.mharfe.coreService.event.PageChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DtoCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private DtoCache cache;
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new DtoCache(meterRegistry, 1_000_000, 600_000);
+    }
+
+    @Test
+    public void testBookLoadedOnceUntilChapterChanges() {
+        cache.book("b1", () -> book("b1"));
+        cache.book("b1", () -> book("b1"));
+        assertEquals(1, loads.get());
+
+        cache.onChapterChanged(ChapterChangedEvent.saved("c1", "b1", UUID.randomUUID(), "Renamed", 1));
+        cache.book("b1", () -> book("b1"));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testPageMovedAwayEvictsItsOldChapter() {
+        cache.chapter("c1", () -> chapter("c1", "b1", "p1", "p2"));
+        cache.chapter("c2", () -> chapter("c2", "b1", "p3"));
+
+        // The event only names the chapter the page moved to
+        cache.onPageChanged(PageChangedEvent.saved("p2", "c2", "b1", UUID.randomUUID(), 2, "text"));
+        cache.chapter("c1", () -> chapter("c1", "b1", "p1"));
+        cache.chapter("c2", () -> chapter("c2", "b1", "p3", "p2"));
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    public void testBookDeletionEvictsItsChapters() {
+        cache.chapter("c1", () -> chapter("c1", "b1", "p1"));
+        cache.chapter("c2", () -> chapter("c2", "b2", "p2"));
+
+        cache.onBookChanged(BookChangedEvent.deleted("b1", UUID.randomUUID()));
+        cache.chapter("c1", () -> chapter("c1", "b1", "p1"));
+        cache.chapter("c2", () -> chapter("c2", "b2", "p2"));
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    public void testFailedLoadIsNotCached() {
+        assertThrows(RuntimeException.class, () -> cache.book("missing", () -> {
+            throw new RuntimeException("Book not found");
+        }));
+        assertEquals("missing", cache.book("missing", () -> book("missing")).getId());
+    }
+
+    @Test
+    public void testSizeAndHitRateMetrics() {
+        cache.chapter("c1", () -> chapter("c1", "b1", "p1"));
+        cache.chapter("c1", () -> chapter("c1", "b1", "p1"));
+
+        assertEquals(1, meterRegistry.get("cache.gets").tags("cache", "chapter-dtos", "result", "hit").functionCounter().count());
+        assertEquals(1, meterRegistry.get("cache.gets").tags("cache", "chapter-dtos", "result", "miss").functionCounter().count());
+        assertTrue(meterRegistry.get("dto.cache.bytes").tags("cache", "chapter-dtos").gauge().value() > "page p1".length());
+    }
+
+    private BookDTO book(String id) {
+        loads.incrementAndGet();
+        BookDTO book = new BookDTO();
+        book.setId(id);
+        book.setTitle("Title");
+        return book;
+    }
+
+    private ChapterDTO chapter(String id, String bookId, String... pageIds) {
+        loads.incrementAndGet();
+        ChapterDTO chapter = new ChapterDTO();
+        chapter.setId(id);
+        chapter.setBookId(bookId);
+        chapter.setPages(Arrays.stream(pageIds).map(pageId -> {
+            PageBasicDTO page = new PageBasicDTO();
+            page.setId(pageId);
+            page.setTextContent("page " + pageId);
+            return page;
+        }).toList());
+        return chapter;
+    }
+}
@@ -0,0 +1,74 @@
+package com.mharfe.coreService.cache;
+
+import com.mharfe.coreService.dto.book.ChapSummaryDTO;
+import com.mharfe.coreService.dto.book.ChapterDTO;
+import com.mharfe.coreService.dto.book.PageBasicDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ETagsTest {
+
+    @Test
+    public void testChapterTagFollowsPageVersionsNotText() {
+        String tag = ETags.of(chapter(page("p1", 3, "text")));
+
+        assertEquals(tag, ETags.of(chapter(page("p1", 3, "text"))));
+        // Text alone cannot change without the version
+        assertEquals(tag, ETags.of(chapter(page("p1", 3, "other text"))));
+        assertNotEquals(tag, ETags.of(chapter(page("p1", 4, "text"))));
+    }
+
+    @Test
+    public void testSummaryTextChangesChapterTag() {
+        ChapterDTO chapter = chapter(page("p1", 1, "text"));
+        String tag = ETags.of(chapter);
+
+        ChapSummaryDTO summary = new ChapSummaryDTO();
+        summary.setId("s1");
+        summary.setText("A summary");
+        chapter.setChapSummary(summary);
+        assertNotEquals(tag, ETags.of(chapter));
+    }
+
+    @Test
+    public void testFieldBoundariesAreKept() {
+        PageBasicDTO first = page("p1", 1, null);
+        first.setRank("1");
+        PageBasicDTO second = page("p", 11, null);
+        second.setRank("1");
+        assertNotEquals(ETags.of(first), ETags.of(second));
+    }
+
+    @Test
+    public void testIfNoneMatch() {
+        String tag = ETags.of(page("p1", 1, "text"));
+
+        assertTrue(tag.startsWith("\"") && tag.endsWith("\""));
+        assertTrue(ETags.matches(tag, tag));
+        assertTrue(ETags.matches("\"other\", W/" + tag, tag));
+        assertTrue(ETags.matches("*", tag));
+        assertFalse(ETags.matches("\"other\"", tag));
+        assertFalse(ETags.matches(null, tag));
+        assertFalse(ETags.matches("*", null));
+    }
+
+    private ChapterDTO chapter(PageBasicDTO... pages) {
+        ChapterDTO chapter = new ChapterDTO();
+        chapter.setId("c1");
+        chapter.setTitle("Chapter");
+        chapter.setBookId("b1");
+        chapter.setPages(List.of(pages));
+        return chapter;
+    }
+
+    private PageBasicDTO page(String id, long version, String text) {
+        PageBasicDTO page = new PageBasicDTO();
+        page.setId(id);
+        page.setVersion(version);
+        page.setTextContent(text);
+        return page;
+    }
+}
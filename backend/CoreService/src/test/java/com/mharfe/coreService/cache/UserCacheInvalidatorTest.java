@@ -0,0 +1,98 @@
+package com.mharfe.coreService.cache;
+
+import com.mharfe.coreService.config.CacheConfig;
+import com.mharfe.coreService.event.UserChangedEvent;
+import com.mharfe.coreService.model.user.User;
+import com.mharfe.coreService.repository.UserRepository;
+import com.mharfe.coreService.security.CustomUserDetailsService;
+import com.mharfe.coreService.security.UserPrincipal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class UserCacheInvalidatorTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private AnnotationConfigApplicationContext context;
+    private UserDetailsService userDetailsService;
+    private User alice;
+
+    @BeforeEach
+    public void setUp() {
+        context = new AnnotationConfigApplicationContext();
+        context.registerBean(CacheManager.class, () -> new CaffeineCacheManager(CacheNames.USER_DETAILS));
+        context.registerBean(UserRepository.class, () -> userRepository);
+        context.register(CacheConfig.class, CustomUserDetailsService.class, UserCacheInvalidator.class);
+        context.refresh();
+        userDetailsService = context.getBean(UserDetailsService.class);
+
+        alice = user("alice");
+        when(userRepository.findByUsername("alice")).thenAnswer(invocation -> Optional.of(alice));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        context.close();
+    }
+
+    @Test
+    public void testRepeatedLoadsAreServedFromTheCache() {
+        UserDetails first = userDetailsService.loadUserByUsername("alice");
+        UserDetails second = userDetailsService.loadUserByUsername("alice");
+
+        assertSame(first, second);
+        assertEquals(alice.getId(), ((UserPrincipal) second).getId());
+        verify(userRepository, times(1)).findByUsername("alice");
+    }
+
+    @Test
+    public void testChangeEvictsTheUser() {
+        userDetailsService.loadUserByUsername("alice");
+        alice.setPassword("changed");
+
+        context.publishEvent(UserChangedEvent.updated(alice.getId(), "alice", null));
+
+        assertEquals("changed", userDetailsService.loadUserByUsername("alice").getPassword());
+        verify(userRepository, times(2)).findByUsername("alice");
+    }
+
+    @Test
+    public void testRenameEvictsTheOldName() {
+        userDetailsService.loadUserByUsername("alice");
+        when(userRepository.findByUsername("alice")).thenReturn(Optional.empty());
+
+        context.publishEvent(UserChangedEvent.updated(alice.getId(), "alicia", "alice"));
+
+        assertThrows(RuntimeException.class, () -> userDetailsService.loadUserByUsername("alice"));
+    }
+
+    @Test
+    public void testChangeOfAnotherUserKeepsTheEntry() {
+        userDetailsService.loadUserByUsername("alice");
+
+        context.publishEvent(UserChangedEvent.deleted(UUID.randomUUID(), "bob"));
+        userDetailsService.loadUserByUsername("alice");
+
+        verify(userRepository, times(1)).findByUsername("alice");
+    }
+
+    private static User user(String username) {
+        User user = new User();
+        user.setId(UUID.randomUUID());
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPassword("secret");
+        return user;
+    }
+}
@@ -0,0 +1,162 @@
+package com.mharfe.coreService.config;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.tomcat.util.threads.VirtualThreadExecutor;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServer;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput and latency of blocking request handling on Tomcat's platform-thread pool
+ * against virtual threads ({@code spring.threads.virtual.enabled}), at a concurrency
+ * well above the pool's 200 threads.
+ * <p>
+ * Each request stands in for a repository call: it takes a connection from a pool of
+ * {@code poolSize} (the Mongo driver's default maximum is 100) and blocks for
+ * {@code latencyMs}, as a slow database would. Tomcat is configured the way Spring
+ * Boot configures it in each mode.
+ * <p>
+ * Run with:
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.mharfe.coreService.config.VirtualThreadBenchmark -Dexec.args="1000 20 100 10"}
+ * (concurrency, latency ms, pool size, seconds per mode).
+ */
+public class VirtualThreadBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int latencyMs = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int poolSize = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+
+        System.out.printf("concurrency=%d latency=%dms pool=%d duration=%ds%n", concurrency, latencyMs, poolSize, seconds);
+        for (boolean virtual : new boolean[] {false, true}) {
+            WebServer server = start(virtual, latencyMs, poolSize);
+            try {
+                // Warm up the JIT and the connections before measuring
+                load(server.getPort(), concurrency, Math.max(1, seconds / 3));
+                Result result = load(server.getPort(), concurrency, seconds);
+                System.out.printf("%-9s %8.0f req/s  p50 %6.1f ms  p99 %6.1f ms  errors %d%n",
+                    virtual ? "virtual" : "platform", result.throughput(), result.percentileMs(50),
+                    result.percentileMs(99), result.errors());
+            } finally {
+                server.stop();
+                // Ends Tomcat's non-daemon await thread so the JVM can exit
+                server.destroy();
+            }
+        }
+    }
+
+    private static WebServer start(boolean virtual, int latencyMs, int poolSize) {
+        TomcatServletWebServerFactory factory = new TomcatServletWebServerFactory(0);
+        if (virtual) {
+            // As TomcatVirtualThreadsWebServerFactoryCustomizer does
+            factory.addProtocolHandlerCustomizers(handler -> handler.setExecutor(new VirtualThreadExecutor("tomcat-handler-")));
+        }
+        Semaphore connections = new Semaphore(poolSize, true);
+        HttpServlet repositoryCall = new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                try {
+                    connections.acquire();
+                    try {
+                        Thread.sleep(latencyMs);
+                    } finally {
+                        connections.release();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                response.setContentType("application/json");
+                response.getWriter().write("{\"id\":\"b1\"}");
+            }
+        };
+        WebServer server = factory.getWebServer(context -> context.addServlet("repository", repositoryCall).addMapping("/*"));
+        server.start();
+        return server;
+    }
+
+    private static Result load(int port, int concurrency, int seconds) throws InterruptedException {
+        URI uri = URI.create("http://localhost:" + port + "/api/books/b1");
+        AtomicLong errors = new AtomicLong();
+        List<long[]> latencies = new ArrayList<>();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+
+        try (var clients = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient client = HttpClient.newBuilder().executor(clients).version(HttpClient.Version.HTTP_1_1).build()) {
+            List<Thread> workers = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                LatencyLog log = new LatencyLog();
+                workers.add(Thread.ofVirtual().start(() -> {
+                    HttpRequest request = HttpRequest.newBuilder(uri).GET().build();
+                    while (System.nanoTime() < deadline) {
+                        long start = System.nanoTime();
+                        try {
+                            if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                                log.add(System.nanoTime() - start);
+                            } else {
+                                errors.incrementAndGet();
+                            }
+                        } catch (IOException e) {
+                            errors.incrementAndGet();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                    synchronized (latencies) {
+                        latencies.add(log.values());
+                    }
+                }));
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        }
+
+        long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        return new Result(all, seconds, errors.get());
+    }
+
+    private record Result(long[] sortedNanos, int seconds, long errors) {
+        double throughput() {
+            return (double) sortedNanos.length / seconds;
+        }
+
+        double percentileMs(int percentile) {
+            if (sortedNanos.length == 0) {
+                return Double.NaN;
+            }
+            int index = (int) Math.ceil(percentile / 100.0 * sortedNanos.length) - 1;
+            return sortedNanos[Math.max(0, index)] / 1_000_000.0;
+        }
+    }
+
+    private static final class LatencyLog {
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long[] values() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
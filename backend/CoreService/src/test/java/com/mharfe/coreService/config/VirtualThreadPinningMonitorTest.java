@@ -0,0 +1,80 @@
+package com.mharfe.coreService.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VirtualThreadPinningMonitorTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private VirtualThreadPinningMonitor monitor;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        monitor = new VirtualThreadPinningMonitor(meterRegistry, 10);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        monitor.destroy();
+    }
+
+    @Test
+    public void testBlockingInsideSynchronizedIsReported() throws Exception {
+        Object lock = new Object();
+        Thread.ofVirtual().start(() -> {
+            synchronized (lock) {
+                sleep(50);
+            }
+        }).join();
+
+        // The innermost frame outside the JDK
+        String site = VirtualThreadPinningMonitorTest.class.getName() + ".sleep";
+        assertTrue(awaitCount(site) >= 1, "pinned park not reported at " + site + ": " + meterRegistry.getMetersAsString());
+    }
+
+    @Test
+    public void testBlockingUnderReentrantLockIsNot() throws Exception {
+        ReentrantLock lock = new ReentrantLock();
+        Thread.ofVirtual().start(() -> {
+            lock.lock();
+            try {
+                sleep(50);
+            } finally {
+                lock.unlock();
+            }
+        }).join();
+
+        // JFR streams events about once a second
+        Thread.sleep(2_000);
+        assertNull(meterRegistry.find("virtual.threads.pinned").counter());
+    }
+
+    private double awaitCount(String site) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            Counter counter = meterRegistry.find("virtual.threads.pinned").tag("site", site).counter();
+            if (counter != null) {
+                return counter.count();
+            }
+            Thread.sleep(100);
+        }
+        return 0;
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.mharfe.coreService.delta;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PageDeltaLogTest {
+
+    private static final List<TextOp> A = List.of(new TextOp.Insert(0, "a"));
+    private static final List<TextOp> B = List.of(new TextOp.Insert(0, "b"));
+
+    @Test
+    public void testSince_ConsecutiveVersions() {
+        PageDeltaLog log = new PageDeltaLog(100, 10);
+        log.record("p1", 4, A);
+        log.record("p1", 5, B);
+
+        assertEquals(List.of(A.get(0), B.get(0)), log.since("p1", 3, 5));
+        assertEquals(B, log.since("p1", 4, 5));
+        assertNull(log.since("p1", 2, 5));
+        assertNull(log.since("p2", 3, 5));
+    }
+
+    @Test
+    public void testRecord_GapBreaksTheChain() {
+        PageDeltaLog log = new PageDeltaLog(100, 10);
+        log.record("p1", 4, A);
+        // Version 5 was a full-text save
+        log.record("p1", 6, B);
+
+        assertNull(log.since("p1", 3, 6));
+        assertEquals(B, log.since("p1", 5, 6));
+    }
+
+    @Test
+    public void testRecord_KeepsOnlyRecentVersions() {
+        PageDeltaLog log = new PageDeltaLog(100, 2);
+        for (long version = 1; version <= 5; version++) {
+            log.record("p1", version, A);
+        }
+
+        assertNull(log.since("p1", 2, 5));
+        assertNotNull(log.since("p1", 3, 5));
+    }
+}
@@ -0,0 +1,118 @@
+package com.mharfe.coreService.delta;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TextDeltasTest {
+
+    private static TextOp ins(int offset, String text) {
+        return new TextOp.Insert(offset, text);
+    }
+
+    private static TextOp del(int offset, int length) {
+        return new TextOp.Delete(offset, length);
+    }
+
+    @Test
+    public void testApply_SequentialOffsetsInCodePoints() {
+        String text = TextDeltas.apply("The 🐉 slept", List.of(del(4, 1), ins(4, "dragon"), ins(0, "> ")));
+
+        assertEquals("> The dragon slept", text);
+        assertEquals("abc", TextDeltas.apply(null, List.of(ins(0, "abc"))));
+    }
+
+    @Test
+    public void testMinLength() {
+        assertEquals(5, TextDeltas.minLength(List.of(del(2, 3))));
+        // The insert grows the text, so the later delete needs less of the original
+        assertEquals(4, TextDeltas.minLength(List.of(ins(0, "ab"), del(4, 2))));
+        assertEquals(0, TextDeltas.minLength(List.of(ins(0, "x"))));
+    }
+
+    @Test
+    public void testRebase_InsertAfterConcurrentInsert() {
+        String base = "The knight rode";
+        List<TextOp> stored = List.of(ins(4, "brave "));
+        List<TextOp> mine = List.of(ins(15, " north"));
+
+        String merged = TextDeltas.apply(TextDeltas.apply(base, stored), TextDeltas.rebase(mine, stored));
+
+        assertEquals("The brave knight rode north", merged);
+    }
+
+    @Test
+    public void testRebase_DeleteAroundConcurrentInsert() {
+        String base = "abcdef";
+        List<TextOp> stored = List.of(ins(3, "XY"));
+        List<TextOp> mine = List.of(del(1, 4));
+
+        assertEquals("aXYf", TextDeltas.apply(TextDeltas.apply(base, stored), TextDeltas.rebase(mine, stored)));
+    }
+
+    @Test
+    public void testRebase_OverlappingDeletes() {
+        String base = "abcdefgh";
+        List<TextOp> stored = List.of(del(2, 4));
+        List<TextOp> mine = List.of(del(4, 3));
+
+        assertEquals("abh", TextDeltas.apply(TextDeltas.apply(base, stored), TextDeltas.rebase(mine, stored)));
+    }
+
+    @Test
+    public void testTransform_ConvergesInEitherOrder() {
+        Random random = new Random(42);
+        for (int round = 0; round < 2000; round++) {
+            String base = randomText(random, random.nextInt(12));
+            List<TextOp> mine = randomOps(random, base);
+            List<TextOp> stored = randomOps(random, base);
+
+            List<TextOp>[] transformed = TextDeltas.transform(mine, stored);
+
+            String storedFirst = TextDeltas.apply(TextDeltas.apply(base, stored), transformed[0]);
+            String mineFirst = TextDeltas.apply(TextDeltas.apply(base, mine), transformed[1]);
+            assertEquals(storedFirst, mineFirst, () -> base + " " + mine + " " + stored);
+        }
+    }
+
+    @Test
+    public void testToUpdate_PipelineEditsTextInPlace() {
+        Document update = TextDeltas.toUpdate(List.of(ins(3, "$x"), del(0, 1))).toPipeline(Aggregation.DEFAULT_CONTEXT).get(1);
+
+        String json = update.toJson();
+        assertTrue(json.contains("$substrCP"));
+        assertTrue(json.contains("{\"$literal\": \"$x\"}"));
+    }
+
+    private static String randomText(Random random, int length) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            text.append((char) ('a' + random.nextInt(26)));
+        }
+        return text.toString();
+    }
+
+    private static List<TextOp> randomOps(Random random, String base) {
+        List<TextOp> ops = new ArrayList<>();
+        int length = base.length();
+        for (int i = random.nextInt(4); i > 0; i--) {
+            int offset = random.nextInt(length + 1);
+            if (random.nextBoolean() || offset == length) {
+                String text = randomText(random, 1 + random.nextInt(3)).toUpperCase();
+                ops.add(ins(offset, text));
+                length += text.length();
+            } else {
+                int count = 1 + random.nextInt(length - offset);
+                ops.add(del(offset, count));
+                length -= count;
+            }
+        }
+        return ops;
+    }
+}
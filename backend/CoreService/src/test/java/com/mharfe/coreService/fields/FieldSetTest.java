@@ -0,0 +1,104 @@
+package com.mharfe.coreService.fields;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.mharfe.coreService.config.JacksonConfig;
+import com.mharfe.coreService.dto.book.ChapSummaryDTO;
+import com.mharfe.coreService.dto.book.ChapterDTO;
+import com.mharfe.coreService.dto.book.PageBasicDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FieldSetTest {
+
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    public void setUp() {
+        Jackson2ObjectMapperBuilder builder = new Jackson2ObjectMapperBuilder();
+        new JacksonConfig().fieldSetFilter().customize(builder);
+        objectMapper = builder.build();
+    }
+
+    @Test
+    public void testIncludes() {
+        FieldSet fields = FieldSet.parse("title, pages.version", FieldSet.CHAPTER);
+
+        assertTrue(fields.includes("title"));
+        assertTrue(fields.includes("id"));
+        assertTrue(fields.includes("pages"));
+        assertTrue(fields.includes("pages.id"));
+        assertTrue(fields.includes("pages.version"));
+        assertFalse(fields.includes("pages.textContent"));
+        assertFalse(fields.includes("chapSummary"));
+        assertTrue(FieldSet.parse(null, FieldSet.CHAPTER).includes("pages.textContent"));
+    }
+
+    @Test
+    public void testUnknownFieldIsRejected() {
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+            () -> FieldSet.parse("title,pages.text", FieldSet.CHAPTER));
+        assertEquals(400, e.getStatusCode().value());
+    }
+
+    @Test
+    public void testOnlySelectedFieldsAreSerialized() throws Exception {
+        JsonNode json = write(FieldSet.parse("title,pages.version", FieldSet.CHAPTER).body(chapter()));
+
+        assertEquals(List.of("id", "title", "pages"), fieldNames(json));
+        assertEquals(List.of("id", "version"), fieldNames(json.get("pages").get(0)));
+        assertEquals(List.of("id", "version"), fieldNames(json.get("pages").get(1)));
+    }
+
+    @Test
+    public void testWithoutFieldsEverythingIsSerialized() throws Exception {
+        JsonNode json = write(FieldSet.ALL.body(chapter()));
+
+        assertEquals("A summary", json.get("chapSummary").get("text").asText());
+        assertEquals("Page text", json.get("pages").get(0).get("textContent").asText());
+        // DTOs written outside a MappingJacksonValue use the default filter
+        assertTrue(objectMapper.valueToTree(chapter()).has("chapSummary"));
+    }
+
+    private JsonNode write(MappingJacksonValue body) throws Exception {
+        // As MappingJackson2HttpMessageConverter writes it
+        ObjectWriter writer = body.getFilters() != null ? objectMapper.writer(body.getFilters()) : objectMapper.writer();
+        return objectMapper.readTree(writer.writeValueAsString(body.getValue()));
+    }
+
+    private static List<String> fieldNames(JsonNode node) {
+        List<String> names = new ArrayList<>();
+        node.fieldNames().forEachRemaining(names::add);
+        return names;
+    }
+
+    private static ChapterDTO chapter() {
+        ChapterDTO chapter = new ChapterDTO();
+        chapter.setId("c1");
+        chapter.setTitle("Chapter");
+        chapter.setBookId("b1");
+        chapter.setPages(List.of(page("p1"), page("p2")));
+        ChapSummaryDTO summary = new ChapSummaryDTO();
+        summary.setId("s1");
+        summary.setText("A summary");
+        chapter.setChapSummary(summary);
+        return chapter;
+    }
+
+    private static PageBasicDTO page(String id) {
+        PageBasicDTO page = new PageBasicDTO();
+        page.setId(id);
+        page.setTextContent("Page text");
+        page.setVersion(2);
+        return page;
+    }
+}
@@ -0,0 +1,212 @@
+package com.mharfe.coreService.invalidation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.mharfe.coreService.cache.DtoCache;
+import com.mharfe.coreService.dto.book.BookDTO;
+import com.mharfe.coreService.dto.book.ChapterDTO;
+import com.mharfe.coreService.event.BookChangedEvent;
+import com.mharfe.coreService.event.ChapterChangedEvent;
+import com.mharfe.coreService.event.PageChangedEvent;
+import com.mharfe.coreService.event.UserChangedEvent;
+import com.mharfe.coreService.model.book.Book;
+import com.mharfe.coreService.search.LibrarySearchHit;
+import com.mharfe.coreService.search.LibrarySearchIndex;
+import com.mharfe.coreService.search.LibrarySearchIndexer;
+import com.mharfe.coreService.security.JwtClaims;
+import com.mharfe.coreService.security.TokenRevocationService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Two instances in one JVM, connected by an in-memory transport.
+ */
+public class InvalidationBusTest {
+
+    private final InMemoryTransport transport = new InMemoryTransport();
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private AnnotationConfigApplicationContext nodeA;
+    private AnnotationConfigApplicationContext nodeB;
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    public void setUp() {
+        nodeA = node();
+        nodeB = node();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        nodeA.close();
+        nodeB.close();
+    }
+
+    @Test
+    public void testWriteOnOneNodeEvictsTheOther() {
+        nodeB.getBean(DtoCache.class).book("b1", this::book);
+
+        nodeA.publishEvent(ChapterChangedEvent.saved("c1", "b1", UUID.randomUUID(), "Renamed", 1));
+        nodeB.getBean(DtoCache.class).book("b1", this::book);
+
+        assertEquals(2, loads.get());
+        assertEquals(1, received(nodeB, "chapter"));
+    }
+
+    @Test
+    public void testOwnEventsAreNotAppliedTwiceOrSentBack() {
+        nodeA.publishEvent(ChapterChangedEvent.saved("c1", "b1", UUID.randomUUID(), "Renamed", 1));
+
+        // Node B republishes locally without sending it on
+        assertEquals(1, transport.messages.size());
+        assertEquals(0, received(nodeA, "chapter"));
+        assertEquals(1, received(nodeB, "chapter"));
+    }
+
+    @Test
+    public void testPageTextIsNotSent() {
+        nodeA.publishEvent(PageChangedEvent.saved("p1", "c1", "b1", UUID.randomUUID(), 1, "A long page"));
+        nodeA.getBean(InvalidationBus.class).sendPendingPages();
+
+        assertEquals(1, transport.messages.size());
+        assertFalse(transport.messages.get(0).contains("A long page"));
+        assertEquals(1, received(nodeB, "pages"));
+    }
+
+    @Test
+    public void testPageEventsAreSentPerBookInBatches() {
+        UUID owner = UUID.randomUUID();
+        nodeB.getBean(DtoCache.class).chapter("c1", this::chapter);
+        for (int round = 0; round < 2; round++) {
+            for (int page = 0; page < 30; page++) {
+                nodeA.publishEvent(PageChangedEvent.saved("p" + page, "c1", "b1", owner, page + 1, "Text"));
+            }
+        }
+        nodeA.publishEvent(PageChangedEvent.deleted("q1", "c9", "b2", owner));
+        assertTrue(transport.messages.isEmpty());
+
+        nodeA.getBean(InvalidationBus.class).sendPendingPages();
+
+        // 30 pages of b1 in two messages, one of b2
+        assertEquals(3, transport.messages.size());
+        assertTrue(transport.messages.stream().allMatch(message -> message.length() < 8000));
+        assertEquals(3, received(nodeB, "pages"));
+        nodeB.getBean(DtoCache.class).chapter("c1", this::chapter);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testSinglePageMessagesAreStillApplied() {
+        nodeB.getBean(DtoCache.class).chapter("c1", this::chapter);
+
+        transport.send("{\"origin\":\"elsewhere\",\"sentAt\":0,\"type\":\"page\",\"event\":"
+            + "{\"pageId\":\"p1\",\"chapterId\":\"c1\",\"bookId\":\"b1\",\"type\":\"SAVED\"}}");
+        nodeB.getBean(DtoCache.class).chapter("c1", this::chapter);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testBookFieldsAreReadBackInsteadOfSent() {
+        UUID owner = UUID.randomUUID();
+        String description = "A saga ".repeat(2_000);
+        Book stored = new Book(owner, "The Dragon's Keep", description);
+        when(mongoTemplate.findOne(any(Query.class), eq(Book.class))).thenReturn(stored);
+
+        nodeA.publishEvent(BookChangedEvent.saved("b1", owner, "The Dragon's Keep", description));
+
+        assertEquals(1, transport.messages.size());
+        assertFalse(transport.messages.get(0).contains("Dragon"));
+        assertTrue(transport.messages.get(0).length() < 8000);
+        List<LibrarySearchHit> hits = nodeB.getBean(LibrarySearchIndex.class).search(owner, "dragon", 10);
+        assertEquals(List.of("b1"), hits.stream().map(LibrarySearchHit::id).toList());
+    }
+
+    @Test
+    public void testUserChangeKeepsItsOwnTime() {
+        UUID userId = UUID.randomUUID();
+        UserChangedEvent rename = new UserChangedEvent(userId, "new", "old", UserChangedEvent.ChangeType.UPDATED,
+            Instant.now().minusSeconds(5));
+
+        nodeA.publishEvent(rename);
+
+        // Issued under the new name after the rename, before node B heard of it
+        Date issuedAt = Date.from(rename.changedAt().plusSeconds(1));
+        JwtClaims token = new JwtClaims("new", userId, List.of("ROLE_USER"), issuedAt, new Date(issuedAt.getTime() + 60_000));
+        assertFalse(nodeB.getBean(TokenRevocationService.class).isRevoked(token));
+        assertEquals(1, received(nodeB, "user"));
+    }
+
+    @Test
+    public void testUnknownTypeIsIgnored() {
+        transport.send("{\"origin\":\"elsewhere\",\"sentAt\":0,\"type\":\"shelf\",\"event\":{}}");
+
+        assertEquals(0, received(nodeB, "shelf"));
+    }
+
+    private AnnotationConfigApplicationContext node() {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        // As Spring Boot configures it, with java.time support
+        context.registerBean(ObjectMapper.class, () -> JsonMapper.builder().findAndAddModules().build());
+        context.registerBean(TokenRevocationService.class, () -> new TokenRevocationService(3_600_000));
+        context.registerBean(MeterRegistry.class, SimpleMeterRegistry::new);
+        context.registerBean(InvalidationTransport.class, () -> transport);
+        context.registerBean(MongoTemplate.class, () -> mongoTemplate);
+        context.register(InvalidationBus.class, DtoCache.class, LibrarySearchIndex.class, LibrarySearchIndexer.class);
+        context.refresh();
+        return context;
+    }
+
+    private double received(AnnotationConfigApplicationContext node, String type) {
+        var counter = node.getBean(MeterRegistry.class).find("invalidation.received").tag("type", type).counter();
+        return counter != null ? counter.count() : 0;
+    }
+
+    private ChapterDTO chapter() {
+        loads.incrementAndGet();
+        ChapterDTO chapter = new ChapterDTO();
+        chapter.setId("c1");
+        return chapter;
+    }
+
+    private BookDTO book() {
+        loads.incrementAndGet();
+        BookDTO book = new BookDTO();
+        book.setId("b1");
+        return book;
+    }
+
+    private static class InMemoryTransport implements InvalidationTransport {
+        private final List<Consumer<String>> receivers = new CopyOnWriteArrayList<>();
+        private final List<String> messages = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void send(String message) {
+            messages.add(message);
+            receivers.forEach(receiver -> receiver.accept(message));
+        }
+
+        @Override
+        public void subscribe(Consumer<String> receiver) {
+            receivers.add(receiver);
+        }
+    }
+}
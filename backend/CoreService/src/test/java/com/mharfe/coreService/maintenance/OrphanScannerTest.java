@@ -0,0 +1,160 @@
+package com.mharfe.coreService.maintenance;
+
+import com.mharfe.coreService.support.InMemoryMongoTest;
+import com.mongodb.DBRef;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OrphanScannerTest extends InMemoryMongoTest {
+
+    private static final long HOUR_MS = 3_600_000;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    public void testOnlyDocumentsWithUnresolvedParentsAreOrphans() {
+        ObjectId chapterId = insert("chapters", new Document("title", "Chapter 1"));
+        ObjectId page = insert("pages", new Document("chapter", new DBRef("chapters", chapterId)));
+        ObjectId orphan = insert("pages", new Document("chapter", new DBRef("chapters", new ObjectId())));
+        ObjectId unlinked = insert("pages", new Document("text", "No chapter reference"));
+
+        List<Document> orphans = scanner("delete", 0).findOrphans(link("pages"), batch("pages"));
+
+        assertEquals(List.of(orphan), ids(orphans));
+        assertTrue(ids(batch("pages")).containsAll(List.of(page, unlinked)));
+        assertEquals(1, meterRegistry.counter("orphans.unlinked", "collection", "pages").count());
+    }
+
+    @Test
+    public void testEitherReferenceKeepsTheParent() {
+        ObjectId chapterId = insert("chapters", new Document("title", "Chapter 1"));
+        // The DBRef is stale but the plain id still resolves
+        insert("chap_audios", new Document("chapter", new DBRef("chapters", new ObjectId()))
+            .append("chapterId", chapterId.toHexString()));
+
+        assertTrue(scanner("delete", 0).findOrphans(link("chap_audios"), batch("chap_audios")).isEmpty());
+    }
+
+    @Test
+    public void testBackRefKeepsAttachmentInUse() {
+        ObjectId used = insert("chap_summaries", new Document("chapter", new DBRef("chapters", new ObjectId())));
+        ObjectId unused = insert("chap_summaries", new Document("chapter", new DBRef("chapters", new ObjectId())));
+        // A chapter still shows the first summary, though the summary points elsewhere
+        insert("chapters", new Document("title", "Chapter 1").append("chapSummary", new DBRef("chap_summaries", used)));
+
+        List<Document> orphans = scanner("delete", 0).findOrphans(link("chap_summaries"), batch("chap_summaries"));
+
+        assertEquals(List.of(unused), ids(orphans));
+    }
+
+    @Test
+    public void testDocumentsYoungerThanMinAgeAreSkipped() {
+        ObjectId old = insertAged("pages", new Document("chapter", new DBRef("chapters", new ObjectId())), 2 * HOUR_MS);
+        ObjectId recent = insertAged("pages", new Document("chapter", new DBRef("chapters", new ObjectId())), 0);
+
+        scanner("delete", HOUR_MS).scan();
+
+        assertEquals(List.of(recent), ids(batch("pages")));
+        assertFalse(ids(batch("pages")).contains(old));
+    }
+
+    @Test
+    public void testReportModeRemovesNothing() {
+        insertAged("pages", new Document("chapter", new DBRef("chapters", new ObjectId())), 2 * HOUR_MS);
+
+        scanner("report", HOUR_MS).scan();
+
+        assertEquals(1, batch("pages").size());
+        assertEquals(1, meterRegistry.counter("orphans.found", "collection", "pages").count());
+    }
+
+    @Test
+    public void testQuarantineCopiesBeforeRemoving() {
+        ObjectId orphan = insertAged("pages", new Document("chapter", new DBRef("chapters", new ObjectId()))
+            .append("text", "Lost page"), 2 * HOUR_MS);
+
+        scanner("quarantine", HOUR_MS).scan();
+
+        assertTrue(batch("pages").isEmpty());
+        Document quarantined = mongoTemplate.findOne(new Query(), Document.class, OrphanScanner.QUARANTINE_COLLECTION);
+        assertEquals(new Document("collection", "pages").append("id", orphan), quarantined.get("_id"));
+        assertEquals("Lost page", quarantined.get("document", Document.class).getString("text"));
+    }
+
+    @Test
+    public void testScanResumesFromCheckpoint() {
+        List<ObjectId> orphans = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            orphans.add(insertAged("pages", new Document("chapter", new DBRef("chapters", new ObjectId())), 2 * HOUR_MS));
+        }
+        ScanCheckpoint checkpoint = new ScanCheckpoint(OrphanScanner.CHECKPOINT_ID);
+        checkpoint.setCollection("pages");
+        mongoTemplate.save(checkpoint);
+        // A pause longer than the run time yields after every batch of two
+        OrphanScanner scanner = new OrphanScanner(mongoTemplate, meterRegistry, "delete", 2, 5, 1, HOUR_MS, HOUR_MS);
+
+        scanner.scan();
+        assertEquals(orphans.subList(2, 5), ids(batch("pages")));
+        ScanCheckpoint stopped = mongoTemplate.findById(OrphanScanner.CHECKPOINT_ID, ScanCheckpoint.class);
+        assertEquals("pages", stopped.getCollection());
+        assertEquals(orphans.get(1), stopped.getLastId());
+        assertNull(stopped.getLeaseUntil());
+
+        scanner.scan();
+        assertEquals(orphans.subList(4, 5), ids(batch("pages")));
+
+        scanner.scan();
+        assertTrue(batch("pages").isEmpty());
+    }
+
+    @Test
+    public void testHeldCheckpointIsNotScanned() {
+        insertAged("pages", new Document("chapter", new DBRef("chapters", new ObjectId())), 2 * HOUR_MS);
+        ScanCheckpoint checkpoint = new ScanCheckpoint(OrphanScanner.CHECKPOINT_ID);
+        checkpoint.setLeaseUntil(LocalDateTime.now().plusMinutes(5));
+        mongoTemplate.save(checkpoint);
+
+        scanner("delete", HOUR_MS).scan();
+
+        assertEquals(1, batch("pages").size());
+    }
+
+    private OrphanScanner scanner(String mode, long minAgeMs) {
+        return new OrphanScanner(mongoTemplate, meterRegistry, mode, 500, 0, 5_000, minAgeMs, HOUR_MS);
+    }
+
+    private ObjectId insert(String collection, Document document) {
+        return insertAged(collection, document, 0);
+    }
+
+    private ObjectId insertAged(String collection, Document document, long ageMs) {
+        ObjectId id = new ObjectId(Date.from(Instant.now().minus(Duration.ofMillis(ageMs))));
+        mongoTemplate.insert(document.append("_id", id), collection);
+        return id;
+    }
+
+    private List<Document> batch(String collection) {
+        return mongoTemplate.find(new Query().with(Sort.by("_id")), Document.class, collection);
+    }
+
+    private static OrphanScanner.Link link(String collection) {
+        return OrphanScanner.LINKS.stream().filter(link -> link.collection().equals(collection)).findFirst().orElseThrow();
+    }
+
+    private static List<Object> ids(List<Document> documents) {
+        return documents.stream().map(document -> document.get("_id")).toList();
+    }
+}
@@ -0,0 +1,127 @@
+package com.mharfe.coreService.manuscript;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ManuscriptParserTest {
+
+    private final List<String> chapters = new ArrayList<>();
+    private final List<String> pages = new ArrayList<>();
+    private final List<String> events = new ArrayList<>();
+
+    private final ManuscriptParser.Listener listener = new ManuscriptParser.Listener() {
+        @Override
+        public void onChapter(String title) {
+            chapters.add(title);
+            events.add("chapter:" + title);
+        }
+
+        @Override
+        public void onPage(String text) {
+            pages.add(text);
+            events.add("page");
+        }
+    };
+
+    @Test
+    public void testParse_DetectsHeadings() throws IOException {
+        String text = "# The Beginning\n\nOnce upon a time.\n\nChapter 2: The Storm\r\n\r\nThunder rolled.\n\n## Epilogue ##\n\nThe end.\n";
+
+        new ManuscriptParser(100, listener).parse(new StringReader(text));
+
+        assertEquals(List.of("The Beginning", "Chapter 2: The Storm", "Epilogue"), chapters);
+        assertEquals(List.of("Once upon a time.", "Thunder rolled.", "The end."), pages);
+        assertEquals("chapter:The Beginning", events.get(0));
+    }
+
+    @Test
+    public void testParse_TextWithoutHeadingGetsDefaultChapter() throws IOException {
+        new ManuscriptParser(100, listener).parse(new StringReader("Just some text.\nMore of it."));
+
+        assertEquals(List.of(ManuscriptParser.DEFAULT_CHAPTER_TITLE), chapters);
+        assertEquals(List.of("Just some text.\nMore of it."), pages);
+    }
+
+    @Test
+    public void testParse_SplitsPagesAtParagraphs() throws IOException {
+        String paragraph = "word ".repeat(15).trim() + ".";
+        String text = String.join("\n\n", paragraph, paragraph, paragraph, paragraph);
+
+        new ManuscriptParser(200, listener).parse(new StringReader(text));
+
+        assertEquals(2, pages.size());
+        assertEquals(paragraph + "\n\n" + paragraph, pages.get(0));
+        pages.forEach(page -> assertTrue(page.length() <= 200));
+    }
+
+    @Test
+    public void testParse_SplitsLongParagraphAtSentences() throws IOException {
+        String sentence = "The dragon slept beneath the mountain for a thousand years. ";
+        String text = sentence.repeat(20);
+
+        new ManuscriptParser(150, listener).parse(new StringReader(text));
+
+        assertTrue(pages.size() > 1);
+        for (String page : pages) {
+            assertTrue(page.length() <= 150);
+            assertTrue(page.endsWith("."), page);
+        }
+        assertEquals(text.trim().replace(" ", ""), String.join("", pages).replace(" ", ""));
+    }
+
+    @Test
+    public void testParse_LargeInputWithoutNewlines() throws IOException {
+        long size = 5_000_000;
+        Reader endless = new Reader() {
+            private long remaining = size;
+
+            @Override
+            public int read(char[] buf, int off, int len) {
+                if (remaining == 0) return -1;
+                int n = (int) Math.min(len, remaining);
+                for (int i = 0; i < n; i++) {
+                    buf[off + i] = (remaining - i) % 7 == 0 ? ' ' : 'a';
+                }
+                remaining -= n;
+                return n;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        long[] characters = {0};
+        ManuscriptParser parser = new ManuscriptParser(2000, new ManuscriptParser.Listener() {
+            @Override
+            public void onChapter(String title) {
+                chapters.add(title);
+            }
+
+            @Override
+            public void onPage(String text) {
+                assertTrue(text.length() <= 2000);
+                characters[0] += text.replace(" ", "").length();
+            }
+        });
+
+        parser.parse(endless);
+
+        assertEquals(1, chapters.size());
+        assertEquals(size - size / 7, characters[0]);
+    }
+
+    @Test
+    public void testHeadingOf_IgnoresProse() {
+        assertNull(ManuscriptParser.headingOf("Chapter after chapter she read on."));
+        assertEquals("Chapter Twenty-One", ManuscriptParser.headingOf("Chapter Twenty-One"));
+        assertNull(ManuscriptParser.headingOf("#hashtag"));
+        assertEquals("Prologue", ManuscriptParser.headingOf("Prologue"));
+    }
+}
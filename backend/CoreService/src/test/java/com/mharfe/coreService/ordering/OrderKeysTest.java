@@ -0,0 +1,91 @@
+package com.mharfe.coreService.ordering;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OrderKeysTest {
+
+    @Test
+    public void testBetween_StrictlyBetween() {
+        String[][] cases = {
+                {null, null}, {null, "1"}, {"A", "B"}, {"A", "A1"}, {"z", null}, {"0V", "1"}, {"Azz", "B"}
+        };
+        for (String[] c : cases) {
+            String key = OrderKeys.between(c[0], c[1]);
+            if (c[0] != null) assertTrue(key.compareTo(c[0]) > 0, key + " after " + c[0]);
+            if (c[1] != null) assertTrue(key.compareTo(c[1]) < 0, key + " before " + c[1]);
+            assertNotEquals('0', key.charAt(key.length() - 1));
+        }
+    }
+
+    @Test
+    public void testBetween_RejectsOutOfOrder() {
+        assertThrows(IllegalArgumentException.class, () -> OrderKeys.between("B", "A"));
+        assertThrows(IllegalArgumentException.class, () -> OrderKeys.between("B", "B"));
+    }
+
+    @Test
+    public void testBetween_RepeatedInsertAtSameSpotStaysOrdered() {
+        String lower = "A";
+        String upper = "B";
+        for (int i = 0; i < 200; i++) {
+            String key = OrderKeys.between(lower, upper);
+            assertTrue(lower.compareTo(key) < 0 && key.compareTo(upper) < 0);
+            upper = key;
+        }
+    }
+
+    @Test
+    public void testBetweenCount_AscendingWithinBoundsAndShort() {
+        List<String> keys = OrderKeys.between("A", "B", 100);
+        assertEquals(100, keys.size());
+        String previous = "A";
+        for (String key : keys) {
+            assertTrue(previous.compareTo(key) < 0, previous + " before " + key);
+            assertTrue(key.length() <= 5, key);
+            previous = key;
+        }
+        assertTrue(previous.compareTo("B") < 0);
+        assertTrue(OrderKeys.between(null, null, 0).isEmpty());
+    }
+
+    @Test
+    public void testJitter_StaysWithinBounds() {
+        Random random = new Random(42);
+        for (int i = 0; i < 500; i++) {
+            String key = OrderKeys.between("A", "A1", random);
+            assertTrue(key.compareTo("A") > 0 && key.compareTo("A1") < 0, key);
+        }
+        assertTrue(OrderKeys.between("z", null, random).compareTo("z") > 0);
+    }
+
+    @Test
+    public void testAfter_GrowsSlowly() {
+        String key = null;
+        for (int i = 0; i < 300; i++) {
+            String next = OrderKeys.after(key);
+            if (key != null) assertTrue(next.compareTo(key) > 0);
+            key = next;
+        }
+        // One more digit roughly every 30 appends
+        assertTrue(key.length() <= 12, key);
+    }
+
+    @Test
+    public void testSpread_OrderedDistinctAndEqualLength() {
+        for (int count : new int[]{1, 10, 61, 62, 5000}) {
+            List<String> keys = OrderKeys.spread(count);
+            assertEquals(count, keys.size());
+            assertEquals(count, new HashSet<>(keys).size());
+            for (int i = 1; i < keys.size(); i++) {
+                assertTrue(keys.get(i - 1).compareTo(keys.get(i)) < 0);
+            }
+        }
+        assertTrue(OrderKeys.spread(100).get(99).length() <= 3);
+    }
+}
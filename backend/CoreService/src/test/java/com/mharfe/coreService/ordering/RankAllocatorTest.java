@@ -0,0 +1,136 @@
+package com.mharfe.coreService.ordering;
+
+import com.mharfe.coreService.autosave.PageAutosaveBuffer;
+import com.mharfe.coreService.dto.book.PageBasicDTO;
+import com.mharfe.coreService.event.ChapterChangedEvent;
+import com.mharfe.coreService.event.PageChangedEvent;
+import com.mharfe.coreService.mapper.ChapterMapper;
+import com.mharfe.coreService.model.book.Book;
+import com.mharfe.coreService.model.book.Chapter;
+import com.mharfe.coreService.model.book.Page;
+import com.mharfe.coreService.repository.MongoIds;
+import com.mharfe.coreService.support.InMemoryMongoTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RankAllocatorTest extends InMemoryMongoTest {
+
+    private final List<Object> events = new ArrayList<>();
+    private PageAutosaveBuffer autosaveBuffer;
+    private Book book;
+    private List<Chapter> chapters;
+
+    @BeforeEach
+    public void setUp() {
+        events.clear();
+        autosaveBuffer = new PageAutosaveBuffer(mongoTemplate, event -> {}, new SimpleMeterRegistry(), 5_000, 30_000, 500);
+        book = mongoTemplate.insert(new Book(UUID.randomUUID(), "The Dragon's Keep", "A young knight climbs the mountain"));
+        chapters = new ArrayList<>();
+        // Ranks that have grown long from repeated inserts at the same spot
+        String[] ranks = {"V", "VV0000000000000000000001", "VV0000000000000000000002"};
+        for (int i = 0; i < ranks.length; i++) {
+            Chapter chapter = new Chapter("Chapter " + (i + 1), i + 1, book);
+            chapter.setRank(ranks[i]);
+            chapter.setOwnerId(book.getUserId());
+            chapters.add(mongoTemplate.insert(chapter));
+        }
+    }
+
+    @Test
+    public void testRebalanceRespreadsBumpsVersionsAndPublishes() {
+        RankAllocator allocator = allocator(0);
+        allocator.requestRebalance(RankAllocator.Siblings.CHAPTERS, book.getId());
+
+        allocator.rebalancePending();
+
+        List<Chapter> stored = storedChapters();
+        assertEquals(chapters.stream().map(Chapter::getId).toList(), stored.stream().map(Chapter::getId).toList());
+        assertEquals(OrderKeys.spread(3), stored.stream().map(Chapter::getRank).toList());
+        assertTrue(stored.stream().allMatch(chapter -> chapter.getVersion() == 1));
+        List<String> published = events.stream()
+            .map(event -> ((ChapterChangedEvent) event).chapterId())
+            .sorted()
+            .toList();
+        assertEquals(chapters.stream().map(Chapter::getId).sorted().toList(), published);
+        assertTrue(events.stream().allMatch(event -> book.getId().equals(((ChapterChangedEvent) event).bookId())));
+    }
+
+    @Test
+    public void testRebalanceWaitsForQuietParent() {
+        RankAllocator allocator = allocator(60_000);
+        allocator.rankFor(RankAllocator.Siblings.CHAPTERS, book.getId(), null, null);
+        allocator.requestRebalance(RankAllocator.Siblings.CHAPTERS, book.getId());
+
+        allocator.rebalancePending();
+
+        assertEquals("V", storedChapters().get(0).getRank());
+        assertTrue(events.isEmpty());
+
+        // Still pending: once the parent is quiet it is re-spread
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is("chapters:" + book.getId())),
+            new Update().set("allocatedAt", LocalDateTime.now().minusMinutes(2)), RankLock.class);
+        allocator.rebalancePending();
+
+        assertEquals(OrderKeys.spread(3), storedChapters().stream().map(Chapter::getRank).toList());
+    }
+
+    @Test
+    public void testRanksRefusedDuringRespread() {
+        RankLock lock = new RankLock();
+        lock.setId("chapters:" + book.getId());
+        lock.setRespreadUntil(LocalDateTime.now().plusMinutes(1));
+        mongoTemplate.insert(lock);
+        RankAllocator allocator = allocator(0);
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+            () -> allocator.rankFor(RankAllocator.Siblings.CHAPTERS, book.getId(), null, null));
+        assertEquals(HttpStatus.CONFLICT, e.getStatusCode());
+
+        // An expired lease no longer holds the parent
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(lock.getId())),
+            new Update().set("respreadUntil", LocalDateTime.now().minusSeconds(1)), RankLock.class);
+        assertTrue(allocator.rankFor(RankAllocator.Siblings.CHAPTERS, book.getId(), null, null)
+            .compareTo("VV0000000000000000000002") > 0);
+    }
+
+    @Test
+    public void testRespreadPagesAreMappedWithTheirRanks() {
+        Chapter chapter = chapters.get(0);
+        List<String> pageIds = new ArrayList<>();
+        for (int number = 1; number <= 2; number++) {
+            // Unranked pages, as written before ranks existed
+            pageIds.add(mongoTemplate.insert(new Page("Text of page " + number, number, chapter)).getId());
+        }
+        mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(chapter.getId())),
+            new Update().push("pages").each(MongoIds.dbRefs("pages", pageIds)), Chapter.class);
+
+        allocator(0).append(RankAllocator.Siblings.PAGES, chapter.getId(), 1);
+
+        List<PageBasicDTO> pages = new ChapterMapper().toDTO(mongoTemplate.findById(chapter.getId(), Chapter.class)).getPages();
+        assertEquals(OrderKeys.spread(2), pages.stream().map(PageBasicDTO::getRank).toList());
+        assertTrue(pages.stream().allMatch(page -> page.getVersion() == 1));
+        assertEquals(pageIds, events.stream().map(event -> ((PageChangedEvent) event).pageId()).toList());
+    }
+
+    private RankAllocator allocator(long quietMs) {
+        return new RankAllocator(mongoTemplate, autosaveBuffer, events::add, 24, quietMs);
+    }
+
+    private List<Chapter> storedChapters() {
+        return mongoTemplate.find(Query.query(Criteria.where("book.$id").is(MongoIds.toObjectId(book.getId())))
+            .with(RankAllocator.Siblings.CHAPTERS.sort()), Chapter.class);
+    }
+}
@@ -0,0 +1,88 @@
+package com.mharfe.coreService.pagination;
+
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Base64;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CursorCodecTest {
+
+    @Test
+    public void testEveryKeyTypeRoundTrips() {
+        Timestamp timestamp = new Timestamp(1_700_000_000_123L);
+        timestamp.setNanos(123_456_789);
+        Map<String, Object> keys = new LinkedHashMap<>();
+        keys.put("rank", "V&x=1 é");
+        keys.put("order", 7);
+        keys.put("version", 1L << 40);
+        keys.put("_id", new ObjectId());
+        keys.put("userId", UUID.randomUUID());
+        keys.put("timestamp", timestamp);
+        keys.put("date", new Date(1_700_000_000_000L));
+
+        ScrollPosition decoded = CursorCodec.decode(CursorCodec.encode(ScrollPosition.forward(keys)));
+
+        Map<String, Object> roundTripped = ((KeysetScrollPosition) decoded).getKeys();
+        assertEquals(keys, roundTripped);
+        assertEquals(List.copyOf(keys.keySet()), List.copyOf(roundTripped.keySet()));
+        assertEquals(123_456_789, ((Timestamp) roundTripped.get("timestamp")).getNanos());
+        assertInstanceOf(ObjectId.class, roundTripped.get("_id"));
+    }
+
+    @Test
+    public void testCursorIsUrlSafe() {
+        String cursor = CursorCodec.encode(ScrollPosition.forward(Map.of("rank", "a/b+c?d")));
+
+        assertTrue(cursor.matches("[A-Za-z0-9_-]+"), cursor);
+    }
+
+    @Test
+    public void testNoCursorStartsAtTheBeginning() {
+        assertTrue(((KeysetScrollPosition) CursorCodec.decode(null)).isInitial());
+        assertTrue(((KeysetScrollPosition) CursorCodec.decode(" ")).isInitial());
+        assertNull(CursorCodec.encode(ScrollPosition.keyset()));
+    }
+
+    @Test
+    public void testInvalidCursorIsBadRequest() {
+        String unknownType = Base64.getUrlEncoder().encodeToString("k=z:1".getBytes(StandardCharsets.UTF_8));
+        String badObjectId = Base64.getUrlEncoder().encodeToString("_id=o:nope".getBytes(StandardCharsets.UTF_8));
+        for (String cursor : new String[] {"%%%", "bm9wZQ", unknownType, badObjectId}) {
+            ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> CursorCodec.decode(cursor));
+            assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+        }
+    }
+
+    @Test
+    public void testLimitIsBounded() {
+        assertEquals(CursorCodec.DEFAULT_PAGE_SIZE, CursorCodec.limit(null).max());
+        assertEquals(CursorCodec.DEFAULT_PAGE_SIZE, CursorCodec.limit(0).max());
+        assertEquals(10, CursorCodec.limit(10).max());
+        assertEquals(CursorCodec.MAX_PAGE_SIZE, CursorCodec.limit(10_000).max());
+    }
+
+    @Test
+    public void testLastSliceHasNoCursor() {
+        Window<String> last = Window.from(List.of("a", "b"), index -> ScrollPosition.forward(Map.of("k", index)));
+        Window<String> more = Window.from(List.of("a", "b"), index -> ScrollPosition.forward(Map.of("k", index)), true);
+
+        assertNull(CursorCodec.toPage(last, s -> s).getNextCursor());
+        CursorPage<String> page = CursorCodec.toPage(more, s -> s);
+        assertTrue(page.isHasNext());
+        assertEquals(Map.of("k", 1), ((KeysetScrollPosition) CursorCodec.decode(page.getNextCursor())).getKeys());
+    }
+}
@@ -0,0 +1,125 @@
+package com.mharfe.coreService.repository;
+
+import com.mharfe.coreService.dto.book.BookOutlineDTO;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class BookRepositoryImplTest {
+
+    private MongoTemplate mongoTemplate;
+    private BookRepositoryImpl repository;
+
+    @BeforeEach
+    public void setUp() {
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        mappingContext.afterPropertiesSet();
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+
+        mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.getConverter()).thenReturn(converter);
+        repository = new BookRepositoryImpl(mongoTemplate);
+    }
+
+    @Test
+    public void testFindOutlineById_SingleRoundTrip() {
+        ObjectId bookId = new ObjectId();
+        UUID userId = UUID.randomUUID();
+        Document page = new Document("_id", new ObjectId()).append("pageNumber", 1);
+        Document chapter = new Document("_id", new ObjectId())
+                .append("title", "The Beginning")
+                .append("order", 1)
+                .append("pages", List.of(page))
+                .append("chapSummary", new Document("_id", new ObjectId()).append("text", "A summary"));
+        Document book = new Document("_id", bookId)
+                .append("userId", userId)
+                .append("title", "The Great Adventure")
+                .append("createdAt", new Date())
+                .append("chapters", List.of(chapter));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("books"), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(List.of(book), new Document()));
+
+        Optional<BookOutlineDTO> outline = repository.findOutlineById(bookId.toHexString(), false);
+
+        // The whole tree must come back from exactly one aggregate call and nothing else
+        verify(mongoTemplate, times(1)).aggregate(any(Aggregation.class), eq("books"), eq(Document.class));
+        verify(mongoTemplate).getConverter();
+        verifyNoMoreInteractions(mongoTemplate);
+
+        assertTrue(outline.isPresent());
+        assertEquals(bookId.toHexString(), outline.get().getId());
+        assertEquals(userId, outline.get().getUserId());
+        assertEquals(1, outline.get().getChapters().size());
+        assertEquals("The Beginning", outline.get().getChapters().get(0).getTitle());
+        assertEquals("A summary", outline.get().getChapters().get(0).getChapSummary().getText());
+        assertEquals(1, outline.get().getChapters().get(0).getPages().get(0).getPageNumber());
+        assertNull(outline.get().getChapters().get(0).getPages().get(0).getTextContent());
+    }
+
+    @Test
+    public void testFindOutlineById_NotFound() {
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("books"), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(List.of(), new Document()));
+
+        assertTrue(repository.findOutlineById(new ObjectId().toHexString(), false).isEmpty());
+        verify(mongoTemplate, times(1)).aggregate(any(Aggregation.class), eq("books"), eq(Document.class));
+        verifyNoMoreInteractions(mongoTemplate);
+    }
+
+    @Test
+    public void testOutlineAggregation_PageTextOnlyWhenRequested() {
+        ArgumentCaptor<Aggregation> captor = ArgumentCaptor.forClass(Aggregation.class);
+        when(mongoTemplate.aggregate(captor.capture(), eq("books"), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(List.of(), new Document()));
+
+        repository.findOutlineById(new ObjectId().toHexString(), false);
+        repository.findOutlineById(new ObjectId().toHexString(), true);
+
+        String withoutText = pipelineJson(captor.getAllValues().get(0));
+        String withText = pipelineJson(captor.getAllValues().get(1));
+        assertFalse(withoutText.contains("textContent"));
+        assertTrue(withText.contains("textContent"));
+        assertTrue(withoutText.contains("\"from\": \"pages\""));
+        assertTrue(withoutText.contains("\"from\": \"chap_audios\""));
+        assertTrue(withoutText.contains("\"from\": \"chap_summaries\""));
+        // Books and chapters marked for deletion are left out
+        assertTrue(withoutText.contains("\"deletedAt\": null"));
+    }
+
+    @Test
+    public void testExportAggregation_FlatCursorKeepsEmptyChapters() {
+        Aggregation aggregation = BookRepositoryImpl.exportAggregation(new ObjectId().toHexString());
+        String pipeline = pipelineJson(aggregation);
+
+        assertTrue(pipeline.contains("\"from\": \"pages\""));
+        assertTrue(pipeline.contains("\"preserveNullAndEmptyArrays\": true"));
+        assertTrue(aggregation.getOptions().isAllowDiskUse());
+    }
+
+    private String pipelineJson(Aggregation aggregation) {
+        return new Document("pipeline", aggregation.toPipeline(Aggregation.DEFAULT_CONTEXT)).toJson();
+    }
+}
@@ -0,0 +1,214 @@
+package com.mharfe.coreService.repository;
+
+import com.mharfe.coreService.CoreServiceApplication;
+import com.mharfe.coreService.maintenance.IndexBootstrap;
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs every query method of the Mongo repositories in this package against a real
+ * MongoDB, explains each command they send and fails on any collection scan in the
+ * winning plan. Needs a MongoDB at {@code -Dmongo.test-uri} (default
+ * {@code mongodb://localhost:27017}) and is skipped without one; it uses its own
+ * database and drops it first.
+ */
+@DataMongoTest
+@ContextConfiguration(classes = CoreServiceApplication.class)
+@Import({IndexBootstrap.class, RepositoryQueryPlanTest.CommandCapture.class})
+@EnabledIf("mongoAvailable")
+public class RepositoryQueryPlanTest {
+
+    private static final String URI = System.getProperty("mongo.test-uri", "mongodb://localhost:27017");
+    private static final String DATABASE = "fantasy_query_plan_test";
+    // Commands whose plans are checked; everything else the driver sends is ignored
+    private static final Set<String> QUERY_COMMANDS = Set.of("find", "aggregate", "count", "distinct");
+
+    static final List<BsonDocument> commands = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    private ApplicationContext context;
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    @Autowired
+    private IndexBootstrap indexBootstrap;
+
+    @DynamicPropertySource
+    static void mongoProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", () -> URI + "/" + DATABASE);
+    }
+
+    static boolean mongoAvailable() {
+        MongoClientSettings settings = MongoClientSettings.builder()
+            .applyConnectionString(new ConnectionString(URI))
+            .applyToClusterSettings(cluster -> cluster.serverSelectionTimeout(1, TimeUnit.SECONDS))
+            .build();
+        try (MongoClient client = MongoClients.create(settings)) {
+            client.getDatabase("admin").runCommand(new Document("ping", 1));
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    @TestConfiguration
+    static class CommandCapture {
+        @Bean
+        MongoClientSettingsBuilderCustomizer commandCapture() {
+            return settings -> settings.addCommandListener(new CommandListener() {
+                @Override
+                public void commandStarted(CommandStartedEvent event) {
+                    if (QUERY_COMMANDS.contains(event.getCommandName())) {
+                        commands.add(event.getCommand().clone());
+                    }
+                }
+            });
+        }
+    }
+
+    @Test
+    public void testEveryRepositoryQueryUsesAnIndex() throws Exception {
+        mongoTemplate.getDb().drop();
+        assertEquals(0, indexBootstrap.createIndexes());
+
+        List<String> scans = new ArrayList<>();
+        for (Object repository : context.getBeansOfType(MongoRepository.class).values()) {
+            for (Class<?> type : repositoryInterfaces(repository)) {
+                for (Method method : type.getDeclaredMethods()) {
+                    if (method.isDefault() || method.isSynthetic()) {
+                        continue;
+                    }
+                    commands.clear();
+                    invoke(repository, method);
+                    assertFalse(commands.isEmpty(), "No query sent by " + describe(type, method));
+                    for (BsonDocument command : commands) {
+                        if (hasCollectionScan(explain(command))) {
+                            scans.add(describe(type, method) + ": " + command.toJson());
+                        }
+                    }
+                }
+            }
+        }
+        assertTrue(scans.isEmpty(), "Queries scanning whole collections:\n" + String.join("\n", scans));
+    }
+
+    private static List<Class<?>> repositoryInterfaces(Object repository) {
+        List<Class<?>> interfaces = new ArrayList<>();
+        for (Class<?> type : repository.getClass().getInterfaces()) {
+            if (type.getPackage() == RepositoryQueryPlanTest.class.getPackage()) {
+                interfaces.add(type);
+                for (Class<?> fragment : type.getInterfaces()) {
+                    if (fragment.getPackage() == RepositoryQueryPlanTest.class.getPackage()) {
+                        interfaces.add(fragment);
+                    }
+                }
+            }
+        }
+        return interfaces;
+    }
+
+    private static void invoke(Object repository, Method method) throws Exception {
+        Object[] args = new Object[method.getParameterCount()];
+        Class<?>[] types = method.getParameterTypes();
+        for (int i = 0; i < args.length; i++) {
+            args[i] = sample(types[i]);
+        }
+        Object result;
+        try {
+            result = method.invoke(repository, args);
+        } catch (InvocationTargetException e) {
+            throw new AssertionError("Calling " + method + " failed", e.getCause());
+        }
+        // Streams only send their query once consumed
+        if (result instanceof java.util.stream.Stream<?> stream) {
+            try (stream) {
+                stream.findFirst();
+            }
+        }
+    }
+
+    private static Object sample(Class<?> type) {
+        if (type == String.class) return new ObjectId().toHexString();
+        if (type == UUID.class) return UUID.randomUUID();
+        if (type == ScrollPosition.class) return ScrollPosition.keyset();
+        if (type == Limit.class) return Limit.of(10);
+        if (type == boolean.class) return false;
+        if (type == int.class) return 10;
+        if (type == long.class) return 10L;
+        if (Collection.class.isAssignableFrom(type)) return List.of(new ObjectId().toHexString());
+        return null;
+    }
+
+    private Document explain(BsonDocument command) {
+        BsonDocument query = command.clone();
+        // Session and routing fields belong to the explain command itself
+        query.keySet().removeIf(key -> key.startsWith("$") || key.equals("lsid") || key.equals("txnNumber"));
+        return mongoTemplate.getDb().runCommand(new Document("explain", query).append("verbosity", "queryPlanner"));
+    }
+
+    static boolean hasCollectionScan(Object node) {
+        return scan(node, false);
+    }
+
+    private static boolean scan(Object node, boolean inWinningPlan) {
+        if (node instanceof Document document) {
+            if (inWinningPlan && "COLLSCAN".equals(document.get("stage"))) {
+                return true;
+            }
+            for (var entry : document.entrySet()) {
+                // Rejected plans may well be collection scans; only the chosen one counts
+                if (entry.getKey().equals("rejectedPlans")) {
+                    continue;
+                }
+                if (scan(entry.getValue(), inWinningPlan || entry.getKey().equals("winningPlan"))) {
+                    return true;
+                }
+            }
+        } else if (node instanceof List<?> list) {
+            for (Object item : list) {
+                if (scan(item, inWinningPlan)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String describe(Class<?> type, Method method) {
+        return type.getSimpleName() + "." + method.getName();
+    }
+}
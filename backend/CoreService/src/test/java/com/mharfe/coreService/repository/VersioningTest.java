@@ -0,0 +1,44 @@
+package com.mharfe.coreService.repository;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VersioningTest {
+
+    @Test
+    public void testExpect_NoVersionLeavesFilterUnchanged() {
+        Document filter = Versioning.expect(Criteria.where("id").is("p1"), null).getCriteriaObject();
+
+        assertEquals(new Document("id", "p1"), filter);
+    }
+
+    @Test
+    public void testExpect_VersionZeroMatchesUnversionedDocuments() {
+        Document filter = Versioning.expect(Criteria.where("id").is("p1"), 0L).getCriteriaObject();
+
+        assertEquals(List.of(new Document("version", 0L), new Document("version", new Document("$exists", false))),
+            filter.get("$or"));
+    }
+
+    @Test
+    public void testExpect_ExactVersion() {
+        Document filter = Versioning.expect(Criteria.where("id").is("p1"), 4L).getCriteriaObject();
+
+        assertEquals(4L, filter.get("version"));
+    }
+
+    @Test
+    public void testCheck_MismatchIsConflict() {
+        Versioning.check(3, null);
+        Versioning.check(3, 3L);
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> Versioning.check(3, 2L));
+        assertEquals(HttpStatus.CONFLICT, e.getStatusCode());
+    }
+}
@@ -0,0 +1,129 @@
+package com.mharfe.coreService.search;
+
+import com.mharfe.coreService.event.BookChangedEvent;
+import com.mharfe.coreService.model.book.Book;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class LibrarySearchIndexTest {
+
+    private final UUID alice = UUID.randomUUID();
+    private final UUID bob = UUID.randomUUID();
+    private LibrarySearchIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        index = new LibrarySearchIndex();
+        index.indexBook(alice, "b1", "The Dragon's Keep", "A young knight climbs the mountain");
+        index.indexBook(alice, "b2", "Mountain Songs", "Poems about dragons");
+        index.indexChapter(alice, "c1", "b1", "Into the Dragon Lair", 1);
+        index.indexBook(bob, "b3", "Dragonfly Summer", "A gentle story");
+    }
+
+    @Test
+    public void testSearch_RanksTitleMatchesFirst() {
+        List<LibrarySearchHit> hits = index.search(alice, "dragon", 10);
+
+        assertEquals(List.of("b1", "c1", "b2"), hits.stream().map(LibrarySearchHit::id).toList());
+        assertEquals(LibrarySearchHit.Type.CHAPTER, hits.get(1).type());
+        assertEquals("b1", hits.get(1).bookId());
+    }
+
+    @Test
+    public void testSearch_PrefixOnLastTermOnly() {
+        assertEquals(List.of("b2"), ids(index.search(alice, "mountain so", 10)));
+        assertTrue(index.search(alice, "moun songs", 10).isEmpty());
+        assertEquals(List.of("b1"), ids(index.search(alice, "young kni", 10)));
+    }
+
+    @Test
+    public void testSearch_ScopedToOwner() {
+        assertEquals(List.of("b3"), ids(index.search(bob, "dragon", 10)));
+        assertTrue(index.search(UUID.randomUUID(), "dragon", 10).isEmpty());
+    }
+
+    @Test
+    public void testSearch_IgnoresCaseAndAccents() {
+        index.indexBook(alice, "b4", "Élan Vital", null);
+        assertEquals(List.of("b4"), ids(index.search(alice, "ELAN", 10)));
+    }
+
+    @Test
+    public void testIncrementalUpdates() {
+        index.indexBook(alice, "b1", "The Silent Keep", "A young knight climbs the mountain");
+        assertEquals(List.of("c1", "b2"), ids(index.search(alice, "dragon", 10)));
+        assertEquals(List.of("b1"), ids(index.search(alice, "silent", 10)));
+
+        index.removeChapter(alice, "c1");
+        assertEquals(List.of("b2"), ids(index.search(alice, "dragon", 10)));
+
+        index.indexChapter(alice, "c2", "b1", "Dragon Fire", 2);
+        index.removeBook(alice, "b1");
+        assertEquals(List.of("b2"), ids(index.search(alice, "dragon", 10)));
+        assertTrue(index.search(alice, "silent", 10).isEmpty());
+    }
+
+    @Test
+    public void testRebuild_KeepsServingAndKeepsChangesMadeMeanwhile() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        LibrarySearchIndexer indexer = new LibrarySearchIndexer(index, mongoTemplate, false);
+        Book stored = new Book(alice, "The Dragon's Keep", "A young knight climbs the mountain");
+        stored.setId("b1");
+        when(mongoTemplate.stream(any(Query.class), eq(Book.class))).thenReturn(Stream.of(stored).peek(book -> {
+            // Half way through the rebuild
+            assertEquals(List.of("b1", "c1", "b2"), ids(index.search(alice, "dragon", 10)));
+            indexer.onBookChanged(BookChangedEvent.saved("b4", alice, "Dragon Eggs", null));
+        }));
+        when(mongoTemplate.stream(any(Query.class), eq(Document.class), eq("chapters"))).thenReturn(Stream.empty());
+
+        indexer.rebuild();
+
+        assertEquals(List.of("b1", "b4"), ids(index.search(alice, "dragon", 10)).stream().sorted().toList());
+        assertTrue(index.search(bob, "dragonfly", 10).isEmpty());
+    }
+
+    @Test
+    public void testSuggest() {
+        assertEquals(List.of("dragon", "dragons"), index.suggest(alice, "dra", 10));
+        assertEquals(List.of("dragonfly"), index.suggest(bob, "dra", 10));
+    }
+
+    @Test
+    public void testSearch_StaysFastOnLargeLibrary() {
+        String[] words = {"dragon", "knight", "castle", "shadow", "river", "storm", "crown", "forest", "ember", "frost"};
+        UUID writer = UUID.randomUUID();
+        for (int i = 0; i < 20_000; i++) {
+            index.indexBook(writer, "book" + i, words[i % 10] + " " + words[(i / 10) % 10] + " " + i, "volume " + i);
+            index.indexChapter(writer, "chapter" + i, "book" + i, words[(i / 100) % 10] + " chapter " + i, 1);
+        }
+
+        for (int i = 0; i < 3000; i++) {
+            index.search(writer, "dragon kni", 20);
+        }
+        int runs = 1_000;
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            index.search(writer, "dragon kni", 20);
+        }
+        double averageMillis = (System.nanoTime() - start) / 1e6 / runs;
+
+        assertEquals(20, index.search(writer, "dragon kni", 20).size());
+        assertTrue(averageMillis < 5, "average search took " + averageMillis + " ms");
+    }
+
+    private static List<String> ids(List<LibrarySearchHit> hits) {
+        return hits.stream().map(LibrarySearchHit::id).toList();
+    }
+}
@@ -0,0 +1,117 @@
+package com.mharfe.coreService.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ManuscriptIndexTest {
+
+    private static final String PAGE_ONE = "The old dragon slept. Aria drew her sword; the OLD Dragon woke.";
+    private static final String PAGE_TWO = "Far away, a dragon that was very old watched the sea.";
+
+    private ManuscriptIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        index = new ManuscriptIndex();
+        index.setChapterOrder("c1", 1);
+        index.setChapterOrder("c2", 2);
+        index.putPage("p2", "c2", 1, PAGE_TWO);
+        index.putPage("p1", "c1", 1, PAGE_ONE);
+    }
+
+    @Test
+    public void testPhrase_ReturnsHighlightOffsets() {
+        List<ManuscriptMatch> matches = index.search("old dragon", 0, true, 10);
+
+        assertEquals(1, matches.size());
+        assertEquals("p1", matches.get(0).pageId());
+        List<String> highlighted = matches.get(0).highlights().stream()
+                .map(h -> PAGE_ONE.substring(h.start(), h.end()))
+                .toList();
+        assertEquals(List.of("old dragon", "OLD Dragon"), highlighted);
+    }
+
+    @Test
+    public void testProximity() {
+        assertTrue(index.search("dragon old", 0, true, 10).isEmpty());
+        // "dragon that was very old": three words between the terms
+        assertEquals(List.of("p2"), pageIds(index.search("dragon old", 3, true, 10)));
+        assertEquals(List.of("p1", "p2"), pageIds(index.search("dragon old", 3, false, 10)));
+        assertEquals(List.of("p1"), pageIds(index.search("aria sword", 2, true, 10)));
+        assertTrue(index.search("aria sword", 1, true, 10).isEmpty());
+    }
+
+    @Test
+    public void testResultsInReadingOrder() {
+        assertEquals(List.of("p1", "p2"), pageIds(index.search("dragon", 0, true, 10)));
+        assertEquals(List.of("p1"), pageIds(index.search("dragon", 0, true, 1)));
+    }
+
+    @Test
+    public void testAccentsMatchAndHighlightOriginalText() {
+        String text = "Le château d'Éloïse brûle.";
+        index.putPage("p3", "c2", 2, text);
+
+        ManuscriptMatch match = index.search("chateau d eloise", 0, true, 10).get(0);
+
+        ManuscriptMatch.Highlight highlight = match.highlights().get(0);
+        assertEquals("château d'Éloïse", text.substring(highlight.start(), highlight.end()));
+    }
+
+    @Test
+    public void testIncrementalPageUpdates() {
+        index.putPage("p1", "c1", 1, "Nothing to see here.");
+        assertEquals(List.of("p2"), pageIds(index.search("dragon", 0, true, 10)));
+        assertEquals(List.of("p1"), pageIds(index.search("nothing to see", 0, true, 10)));
+
+        index.removePage("p2");
+        assertTrue(index.search("dragon", 0, true, 10).isEmpty());
+        assertEquals(4, index.tokenCount());
+    }
+
+    @Test
+    public void testSearch_FastOnLargeBook() {
+        String[] vocabulary = new String[5_000];
+        for (int i = 0; i < vocabulary.length; i++) {
+            vocabulary[i] = "w" + Integer.toString(i, 36);
+        }
+        Random random = new Random(42);
+        ManuscriptIndex book = new ManuscriptIndex();
+        int words = 0;
+        for (int page = 0; words < 300_000; page++) {
+            StringBuilder text = new StringBuilder();
+            for (int w = 0; w < 300; w++, words++) {
+                // Zipf-like skew so some words are very common, like in real prose
+                int rank = (int) Math.min(vocabulary.length - 1, Math.abs(random.nextGaussian()) * 400);
+                text.append(vocabulary[rank]).append(w % 12 == 11 ? ". " : " ");
+            }
+            if (page == 500) {
+                text.append("the silver gate of Morrow");
+            }
+            book.putPage("page" + page, "c" + page / 20, page % 20, text.toString());
+        }
+
+        for (int i = 0; i < 50; i++) {
+            book.search("w0 w1", 0, true, 100);
+        }
+        long start = System.nanoTime();
+        List<ManuscriptMatch> common = book.search("w0 w1", 0, true, 100);
+        List<ManuscriptMatch> rare = book.search("silver gate of morrow", 0, true, 100);
+        List<ManuscriptMatch> near = book.search("w1 w2", 5, false, 100);
+        double millis = (System.nanoTime() - start) / 1e6;
+
+        assertFalse(common.isEmpty());
+        assertFalse(near.isEmpty());
+        assertEquals(List.of("page500"), pageIds(rare));
+        assertTrue(millis < 100, "searches took " + millis + " ms");
+    }
+
+    private static List<String> pageIds(List<ManuscriptMatch> matches) {
+        return matches.stream().map(ManuscriptMatch::pageId).toList();
+    }
+}
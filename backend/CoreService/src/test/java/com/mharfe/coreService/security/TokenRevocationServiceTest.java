@@ -0,0 +1,56 @@
+package com.mharfe.coreService.security;
+
+import com.mharfe.coreService.event.UserChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenRevocationServiceTest {
+
+    private final UUID userId = UUID.randomUUID();
+    private TokenRevocationService service;
+
+    @BeforeEach
+    public void setUp() {
+        service = new TokenRevocationService(3_600_000);
+    }
+
+    @Test
+    public void testTokenIssuedInTheSameSecondAfterARenameIsAccepted() {
+        Instant renamedAt = Instant.parse("2026-01-01T10:00:00.300Z");
+        service.onUserChanged(new UserChangedEvent(userId, "new", "old", UserChangedEvent.ChangeType.UPDATED, renamedAt));
+
+        assertTrue(service.isRevoked(token(renamedAt.minusMillis(200))));
+        assertTrue(service.isRevoked(token(renamedAt)));
+        assertFalse(service.isRevoked(token(renamedAt.plusMillis(1))));
+    }
+
+    @Test
+    public void testRelayedEventIsRevokedAsOfTheChange() {
+        Instant renamedAt = Instant.now().minusSeconds(5);
+        // Arrives late from another instance, after a token was issued there under the new name
+        service.onUserChanged(new UserChangedEvent(userId, "new", "old", UserChangedEvent.ChangeType.UPDATED, renamedAt));
+
+        assertFalse(service.isRevoked(token(renamedAt.plusSeconds(1))));
+    }
+
+    @Test
+    public void testOlderEventDoesNotMoveTheRevocationBack() {
+        Instant deletedAt = Instant.now();
+        service.onUserChanged(new UserChangedEvent(userId, "new", null, UserChangedEvent.ChangeType.DELETED, deletedAt));
+        service.onUserChanged(new UserChangedEvent(userId, "new", "old", UserChangedEvent.ChangeType.UPDATED,
+            deletedAt.minusSeconds(10)));
+
+        assertTrue(service.isRevoked(token(deletedAt.minusSeconds(1))));
+    }
+
+    private JwtClaims token(Instant issuedAt) {
+        return new JwtClaims("new", userId, List.of("ROLE_USER"), Date.from(issuedAt), Date.from(issuedAt.plusSeconds(3600)));
+    }
+}
@@ -0,0 +1,117 @@
+package com.mharfe.coreService.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mharfe.coreService.dto.book.PageExportRowDTO;
+import com.mharfe.coreService.export.BookExportFormat;
+import com.mharfe.coreService.model.book.Book;
+import com.mharfe.coreService.repository.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class BookExportServiceTest {
+
+    private final UUID userId = UUID.randomUUID();
+    private BookRepository bookRepository;
+    private BookExportService service;
+    private final AtomicBoolean cursorClosed = new AtomicBoolean();
+
+    @BeforeEach
+    public void setUp() {
+        Book book = new Book(userId, "The Great Adventure", "A tale");
+        book.setId("book1");
+        bookRepository = mock(BookRepository.class);
+        when(bookRepository.findByIdAndDeletedAtIsNull("book1")).thenReturn(Optional.of(book));
+        when(bookRepository.streamExportRows("book1")).thenAnswer(invocation -> Stream.of(
+                row("c1", "The Beginning", 1, 1, "Once upon a time."),
+                row("c1", "The Beginning", 1, 2, "Dragons & <knights>."),
+                row("c2", "Interlude", 2, null, null),
+                row("c3", "The End", 3, 1, "Fin."))
+                .onClose(() -> cursorClosed.set(true)));
+        service = new BookExportService(bookRepository, new ObjectMapper());
+    }
+
+    @Test
+    public void testExportNdjson() throws Exception {
+        String[] lines = export(BookExportFormat.NDJSON).toString(StandardCharsets.UTF_8).split("\n");
+
+        assertEquals(7, lines.length);
+        assertTrue(lines[0].contains("\"type\":\"book\""));
+        assertTrue(lines[1].contains("\"type\":\"chapter\"") && lines[1].contains("The Beginning"));
+        assertTrue(lines[3].contains("\"pageNumber\":2"));
+        assertTrue(lines[4].contains("Interlude"));
+        assertTrue(cursorClosed.get());
+    }
+
+    @Test
+    public void testExportMarkdown() throws Exception {
+        String markdown = export(BookExportFormat.MARKDOWN).toString(StandardCharsets.UTF_8);
+
+        assertEquals("# The Great Adventure\n\n_A tale_\n\n## The Beginning\n\nOnce upon a time.\n\n"
+                + "Dragons & <knights>.\n\n## Interlude\n\n## The End\n\nFin.\n\n", markdown);
+    }
+
+    @Test
+    public void testExportEpub() throws Exception {
+        byte[] epub = export(BookExportFormat.EPUB).toByteArray();
+
+        List<String> names = new ArrayList<>();
+        String chapterOne = null;
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(epub))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                names.add(entry.getName());
+                String content = new String(zip.readAllBytes(), StandardCharsets.UTF_8);
+                if (entry.getName().equals("mimetype")) {
+                    assertEquals(ZipEntry.STORED, entry.getMethod());
+                    assertEquals("application/epub+zip", content);
+                }
+                if (entry.getName().equals("OEBPS/chapter-1.xhtml")) {
+                    chapterOne = content;
+                }
+            }
+        }
+
+        assertEquals(List.of("mimetype", "META-INF/container.xml", "OEBPS/chapter-1.xhtml",
+                "OEBPS/chapter-2.xhtml", "OEBPS/chapter-3.xhtml", "OEBPS/content.opf", "OEBPS/nav.xhtml"), names);
+        assertTrue(chapterOne.contains("<p>Dragons &amp; &lt;knights&gt;.</p>"));
+    }
+
+    @Test
+    public void testExport_ChecksOwnershipBeforeStreaming() {
+        assertThrows(ResponseStatusException.class,
+                () -> service.exportBook("book1", BookExportFormat.NDJSON, UUID.randomUUID()));
+        verify(bookRepository, never()).streamExportRows(any());
+    }
+
+    private ByteArrayOutputStream export(BookExportFormat format) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.exportBook("book1", format, userId).writeTo(out);
+        return out;
+    }
+
+    private static PageExportRowDTO row(String chapterId, String title, int order, Integer pageNumber, String text) {
+        PageExportRowDTO row = new PageExportRowDTO();
+        row.setChapterId(chapterId);
+        row.setChapterTitle(title);
+        row.setChapterOrder(order);
+        row.setPageNumber(pageNumber);
+        row.setTextContent(text);
+        return row;
+    }
+}
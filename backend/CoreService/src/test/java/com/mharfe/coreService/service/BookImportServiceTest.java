@@ -0,0 +1,164 @@
+package com.mharfe.coreService.service;
+
+import com.mharfe.coreService.autosave.PageAutosaveBuffer;
+import com.mharfe.coreService.dto.book.BookImportDTO;
+import com.mharfe.coreService.dto.book.BookImportResultDTO;
+import com.mharfe.coreService.dto.book.ChapterImportDTO;
+import com.mharfe.coreService.dto.book.PageImportDTO;
+import com.mharfe.coreService.mapper.ChapterMapper;
+import com.mharfe.coreService.model.book.Book;
+import com.mharfe.coreService.model.book.Chapter;
+import com.mharfe.coreService.model.book.Page;
+import com.mharfe.coreService.ordering.OrderKeys;
+import com.mharfe.coreService.ordering.RankAllocator;
+import com.mharfe.coreService.repository.BookRepository;
+import com.mharfe.coreService.repository.MongoIds;
+import com.mharfe.coreService.support.InMemoryMongoTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BookImportServiceTest extends InMemoryMongoTest {
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    private BookImportService importService;
+    private final UUID ownerId = UUID.randomUUID();
+    private Book book;
+
+    @BeforeEach
+    public void setUp() {
+        PageAutosaveBuffer autosaveBuffer = new PageAutosaveBuffer(mongoTemplate, event -> {}, new SimpleMeterRegistry(),
+            5_000, 30_000, 500);
+        importService = new BookImportService(bookRepository, mongoTemplate, new ChapterMapper(),
+            new RankAllocator(mongoTemplate, autosaveBuffer, event -> {}, 24, 5_000), event -> {}, 2);
+
+        book = mongoTemplate.insert(new Book(ownerId, "The Dragon's Keep", "A young knight climbs the mountain"));
+    }
+
+    @Test
+    public void testUnsortedInputIsStoredInNumberOrder() {
+        BookImportResultDTO result = importService.importChapters(book.getId(), request(
+            chapter(null, "The Keep", 2, 2, 1),
+            chapter(null, "Arrival", 1, 3, 1, 2)), ownerId);
+
+        assertEquals(2, result.getChaptersCreated());
+        assertEquals(5, result.getPagesCreated());
+        List<Chapter> chapters = chaptersByRank();
+        assertEquals(List.of("Arrival", "The Keep"), chapters.stream().map(Chapter::getTitle).toList());
+        assertEquals(chapters.stream().map(Chapter::getId).toList(), refIds("books", book.getId(), "chapters"));
+        for (Chapter chapter : chapters) {
+            List<Page> pages = pagesByRank(chapter.getId());
+            List<Integer> numbers = pages.stream().map(Page::getPageNumber).toList();
+            assertEquals(numbers.stream().sorted().toList(), numbers);
+            assertEquals(pages.stream().map(Page::getId).toList(), refIds("chapters", chapter.getId(), "pages"));
+        }
+    }
+
+    @Test
+    public void testPagesAreAppendedAfterTheExistingOnes() {
+        Chapter chapter = mongoTemplate.insert(new Chapter("Arrival", 1, book));
+        List<String> ranks = OrderKeys.spread(2);
+        List<String> existing = new ArrayList<>();
+        for (int number = 1; number <= 2; number++) {
+            Page page = new Page("Text of page " + number, number, chapter);
+            page.setRank(ranks.get(number - 1));
+            existing.add(mongoTemplate.insert(page).getId());
+        }
+        pushPages(chapter.getId(), existing);
+
+        importService.importChapters(book.getId(), request(chapter(chapter.getId(), null, 0, 4, 3)), ownerId);
+
+        List<Page> pages = pagesByRank(chapter.getId());
+        assertEquals(List.of(1, 2, 3, 4), pages.stream().map(Page::getPageNumber).toList());
+        assertEquals(existing, pages.subList(0, 2).stream().map(Page::getId).toList());
+        assertEquals(pages.stream().map(Page::getId).toList(), refIds("chapters", chapter.getId(), "pages"));
+        // Appending to a chapter adds no chapter to the book
+        assertTrue(refIds("books", book.getId(), "chapters").isEmpty());
+    }
+
+    @Test
+    public void testPagesAreAppendedAfterLegacyPages() {
+        Chapter chapter = mongoTemplate.insert(new Chapter("Arrival", 1, book));
+        // Written before ranks existed
+        List<String> existing = List.of(
+            mongoTemplate.insert(new Page("Text of page 1", 1, chapter)).getId(),
+            mongoTemplate.insert(new Page("Text of page 2", 2, chapter)).getId());
+        pushPages(chapter.getId(), existing);
+
+        importService.importChapters(book.getId(), request(chapter(chapter.getId(), null, 0, 3)), ownerId);
+
+        List<Page> pages = pagesByRank(chapter.getId());
+        assertEquals(List.of(1, 2, 3), pages.stream().map(Page::getPageNumber).toList());
+        assertEquals(pages.stream().map(Page::getId).toList(), refIds("chapters", chapter.getId(), "pages"));
+    }
+
+    @Test
+    public void testChapterOfAnotherBookIsRejected() {
+        Book other = mongoTemplate.insert(new Book(ownerId, "Another book", null));
+        Chapter foreign = mongoTemplate.insert(new Chapter("Elsewhere", 1, other));
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+            () -> importService.importChapters(book.getId(), request(chapter(foreign.getId(), null, 0, 1)), ownerId));
+
+        assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+        assertEquals(0, mongoTemplate.count(new Query(), Page.class));
+    }
+
+    private List<Chapter> chaptersByRank() {
+        Query query = Query.query(Criteria.where("book.$id").is(MongoIds.toObjectId(book.getId())))
+            .with(RankAllocator.Siblings.CHAPTERS.sort());
+        return mongoTemplate.find(query, Chapter.class);
+    }
+
+    private List<Page> pagesByRank(String chapterId) {
+        Query query = Query.query(Criteria.where("chapter.$id").is(MongoIds.toObjectId(chapterId)))
+            .with(RankAllocator.Siblings.PAGES.sort());
+        return mongoTemplate.find(query, Page.class);
+    }
+
+    private List<String> refIds(String collection, String id, String field) {
+        return MongoIds.refIds(mongoTemplate.findById(id, Document.class, collection), field);
+    }
+
+    private void pushPages(String chapterId, List<String> pageIds) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(chapterId)),
+            new Update().push("pages").each(MongoIds.dbRefs("pages", pageIds)), Chapter.class);
+    }
+
+    private static BookImportDTO request(ChapterImportDTO... chapters) {
+        BookImportDTO dto = new BookImportDTO();
+        dto.setChapters(List.of(chapters));
+        return dto;
+    }
+
+    private static ChapterImportDTO chapter(String id, String title, int order, int... pageNumbers) {
+        ChapterImportDTO dto = new ChapterImportDTO();
+        dto.setId(id);
+        dto.setTitle(title);
+        dto.setOrder(order);
+        List<PageImportDTO> pages = new ArrayList<>();
+        for (int number : pageNumbers) {
+            PageImportDTO page = new PageImportDTO();
+            page.setTextContent("Text of page " + number);
+            page.setPageNumber(number);
+            pages.add(page);
+        }
+        dto.setPages(pages);
+        return dto;
+    }
+}
@@ -0,0 +1,75 @@
+package com.mharfe.coreService.service;
+
+import com.mharfe.coreService.cache.BookOwnerCache;
+import com.mharfe.coreService.model.book.Book;
+import com.mharfe.coreService.model.book.Chapter;
+import com.mharfe.coreService.model.book.Page;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class BookOwnershipServiceTest {
+
+    private BookOwnerCache bookOwnerCache;
+    private BookOwnershipService service;
+    private UUID ownerId;
+    private Book book;
+
+    @BeforeEach
+    public void setUp() {
+        bookOwnerCache = mock(BookOwnerCache.class);
+        service = new BookOwnershipService(bookOwnerCache);
+        ownerId = UUID.randomUUID();
+        book = new Book(ownerId, "The Great Adventure", null);
+        book.setId("64b000000000000000000001");
+    }
+
+    @Test
+    public void testVerifyOwnership_UsesDenormalizedOwner() {
+        Page page = new Page("Once upon a time", 1, new Chapter("The Beginning", 1, book));
+
+        service.verifyOwnership(page, ownerId);
+
+        assertEquals(book.getId(), page.getBookId());
+        assertThrows(ResponseStatusException.class, () -> service.verifyOwnership(page, UUID.randomUUID()));
+        verifyNoInteractions(bookOwnerCache);
+    }
+
+    @Test
+    public void testVerifyOwnership_LegacyPageFallsBackToBookOwner() {
+        Chapter chapter = new Chapter();
+        chapter.setBook(book);
+        Page page = new Page();
+        page.setChapter(chapter);
+        when(bookOwnerCache.findOwnerId(book.getId())).thenReturn(ownerId);
+
+        service.verifyOwnership(page, ownerId);
+        assertThrows(ResponseStatusException.class, () -> service.verifyOwnership(page, UUID.randomUUID()));
+
+        service.backfill(page);
+        assertEquals(book.getId(), page.getBookId());
+        assertEquals(ownerId, page.getOwnerId());
+    }
+
+    @Test
+    public void testVerifyOwnership_UnknownBookIsForbidden() {
+        Chapter chapter = new Chapter();
+        chapter.setBook(book);
+
+        assertThrows(ResponseStatusException.class, () -> service.verifyOwnership(chapter, ownerId));
+    }
+
+    @Test
+    public void testVerifyBookOwnership() {
+        when(bookOwnerCache.findOwnerId(book.getId())).thenReturn(ownerId);
+
+        service.verifyBookOwnership(book.getId(), ownerId);
+        assertThrows(ResponseStatusException.class, () -> service.verifyBookOwnership(book.getId(), UUID.randomUUID()));
+        assertThrows(ResponseStatusException.class, () -> service.verifyBookOwnership("64b000000000000000000002", ownerId));
+    }
+}
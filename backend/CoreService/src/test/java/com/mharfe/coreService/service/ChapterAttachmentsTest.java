@@ -0,0 +1,98 @@
+package com.mharfe.coreService.service;
+
+import com.mharfe.coreService.autosave.PageAutosaveBuffer;
+import com.mharfe.coreService.cache.BookOwnerCache;
+import com.mharfe.coreService.cache.DtoCache;
+import com.mharfe.coreService.dto.book.ChapterDTO;
+import com.mharfe.coreService.maintenance.CascadeDeleter;
+import com.mharfe.coreService.mapper.ChapterMapper;
+import com.mharfe.coreService.model.book.Book;
+import com.mharfe.coreService.model.book.ChapAudio;
+import com.mharfe.coreService.model.book.ChapSummary;
+import com.mharfe.coreService.model.book.Chapter;
+import com.mharfe.coreService.model.book.Page;
+import com.mharfe.coreService.ordering.RankAllocator;
+import com.mharfe.coreService.repository.BookRepository;
+import com.mharfe.coreService.repository.ChapterRepository;
+import com.mharfe.coreService.repository.MongoIds;
+import com.mharfe.coreService.support.InMemoryMongoTest;
+import com.mongodb.DBRef;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Chapter audio and summaries are attached by other services without a change event,
+ * so cached chapter reads must still show the current ones.
+ */
+public class ChapterAttachmentsTest extends InMemoryMongoTest {
+
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private ChapterRepository chapterRepository;
+
+    private ChapterService chapterService;
+    private DtoCache dtoCache;
+    private Chapter chapter;
+
+    @BeforeEach
+    public void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        dtoCache = new DtoCache(meterRegistry, 1 << 20, 60_000);
+        PageAutosaveBuffer autosaveBuffer = new PageAutosaveBuffer(mongoTemplate, event -> {}, meterRegistry, 5_000, 30_000, 500);
+        chapterService = new ChapterService(chapterRepository, bookRepository, mongoTemplate, new ChapterMapper(), null,
+            new BookOwnershipService(new BookOwnerCache(mongoTemplate)),
+            new RankAllocator(mongoTemplate, autosaveBuffer, event -> {}, 24, 5_000),
+            new CascadeDeleter(mongoTemplate, meterRegistry, 500, 50, 10_000), dtoCache, autosaveBuffer, event -> {});
+
+        Book book = mongoTemplate.insert(new Book(UUID.randomUUID(), "The Dragon's Keep", "A young knight climbs the mountain"));
+        chapter = mongoTemplate.insert(new Chapter("Chapter 1", 1, book));
+        Page page = mongoTemplate.insert(new Page("Text of page 1", 1, chapter));
+        mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(chapter.getId())),
+            new Update().push("pages").each(MongoIds.dbRefs("pages", List.of(page.getId()))), Chapter.class);
+    }
+
+    @Test
+    public void testSummaryAttachedLaterIsShownOnCachedChapter() {
+        ChapterDTO before = chapterService.getChapter(chapter.getId());
+        String tagBefore = chapterService.getChapterTag(chapter.getId());
+        assertNull(before.getChapSummary());
+
+        ChapSummary summary = mongoTemplate.insert(new ChapSummary("The beginning of an epic journey.", chapter));
+        attach("chapSummary", "chap_summaries", summary.getId());
+        commands.clear();
+
+        ChapterDTO after = chapterService.getChapter(chapter.getId());
+        assertEquals("The beginning of an epic journey.", after.getChapSummary().getText());
+        assertEquals(1, after.getPages().size());
+        assertNotEquals(tagBefore, chapterService.getChapterTag(chapter.getId()));
+        // The pages still come from the cache
+        assertTrue(commands("find", "pages").isEmpty());
+    }
+
+    @Test
+    public void testCachedChapterLeavesAttachmentsOut() {
+        ChapAudio audio = mongoTemplate.insert(new ChapAudio("/audio/chapter1.mp3", "voice1", chapter.getId(), chapter));
+        attach("chapAudio", "chap_audios", audio.getId());
+
+        ChapterDTO read = chapterService.getChapter(chapter.getId());
+
+        assertEquals("/audio/chapter1.mp3", read.getChapAudio().getAudioFilePath());
+        assertNull(dtoCache.cachedChapter(chapter.getId()).getChapAudio());
+    }
+
+    private void attach(String field, String collection, String id) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(chapter.getId())),
+            new Update().set(field, new DBRef(collection, MongoIds.toObjectId(id))), Chapter.class);
+    }
+}
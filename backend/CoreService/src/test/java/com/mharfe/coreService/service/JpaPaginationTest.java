@@ -0,0 +1,134 @@
+package com.mharfe.coreService.service;
+
+import com.mharfe.coreService.model.user.PaymentTransaction;
+import com.mharfe.coreService.model.user.TokenUsageLog;
+import com.mharfe.coreService.model.user.User;
+import com.mharfe.coreService.repository.PaymentTransactionRepository;
+import com.mharfe.coreService.repository.TokenUsageLogRepository;
+import com.mharfe.coreService.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+
+import static com.mharfe.coreService.service.MongoPaginationTest.collect;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Following {@code nextCursor} through the Postgres listings serves every item once,
+ * newest first, also when several share a date. Runs on an in-memory H2.
+ */
+@DataJpaTest(properties = {
+    "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.show-sql=false"
+})
+@ContextConfiguration(classes = JpaPaginationTest.UserEntities.class)
+public class JpaPaginationTest {
+
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PaymentTransactionRepository paymentTransactionRepository;
+    @Autowired
+    private TokenUsageLogRepository tokenUsageLogRepository;
+
+    private PaymentTransactionService paymentTransactionService;
+    private TokenUsageLogService tokenUsageLogService;
+    private User user;
+    private User otherUser;
+
+    @BeforeEach
+    public void setUp() {
+        paymentTransactionService = new PaymentTransactionService(paymentTransactionRepository, userRepository, event -> {});
+        tokenUsageLogService = new TokenUsageLogService(tokenUsageLogRepository, userRepository, event -> {});
+        user = userRepository.save(user("alice"));
+        otherUser = userRepository.save(user("bob"));
+    }
+
+    @Test
+    public void testTransactionsByUser() {
+        List<PaymentTransaction> saved = new ArrayList<>();
+        // Three payments in the same second, the way a retried checkout lands
+        for (long millis : new long[] {3_000, 1_000, 2_000, 2_000, 2_000, 4_000}) {
+            saved.add(paymentTransactionRepository.save(transaction(user, new Date(millis))));
+        }
+        paymentTransactionRepository.save(transaction(otherUser, new Date(5_000)));
+
+        // The database orders UUIDs by their bytes, as their text does, not as UUID.compareTo
+        List<String> expected = saved.stream()
+            .sorted(Comparator.comparing(PaymentTransaction::getDate)
+                .thenComparing(transaction -> transaction.getId().toString()).reversed())
+            .map(transaction -> transaction.getId().toString())
+            .toList();
+        assertEquals(expected, collect(cursor -> paymentTransactionService.getTransactionsByUserId(user.getId(), cursor, 2),
+            transaction -> transaction.getId().toString()));
+    }
+
+    @Test
+    public void testLogsByUser() {
+        List<TokenUsageLog> saved = new ArrayList<>();
+        for (long millis : new long[] {1_000, 1_000, 1_000, 2_000, 1_000}) {
+            saved.add(tokenUsageLogRepository.save(log(user, new Date(millis))));
+        }
+        tokenUsageLogRepository.save(log(otherUser, new Date(1_000)));
+
+        List<String> expected = saved.stream()
+            .sorted(Comparator.comparing(TokenUsageLog::getTimestamp)
+                .thenComparing(log -> log.getId().toString()).reversed())
+            .map(log -> log.getId().toString())
+            .toList();
+        assertEquals(expected, collect(cursor -> tokenUsageLogService.getLogsByUserId(user.getId(), cursor, 2),
+            log -> log.getId().toString()));
+    }
+
+    private static User user(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPassword("secret");
+        return user;
+    }
+
+    private static PaymentTransaction transaction(User user, Date date) {
+        PaymentTransaction transaction = new PaymentTransaction();
+        transaction.setAmount(4.99f);
+        transaction.setTokenAmount(1000);
+        transaction.setDate(date);
+        transaction.setPaymentStatus("COMPLETED");
+        transaction.setUser(user);
+        return transaction;
+    }
+
+    private static TokenUsageLog log(User user, Date timestamp) {
+        TokenUsageLog log = new TokenUsageLog();
+        log.setTokensUsed(150);
+        log.setOperationType("chapter_summary");
+        log.setTimestamp(timestamp);
+        log.setUser(user);
+        return log;
+    }
+
+    /**
+     * Only the user entities and their repositories; the application class would pull
+     * in the Mongo repositories.
+     */
+    @Configuration
+    @EntityScan(basePackageClasses = User.class)
+    @EnableJpaRepositories(basePackageClasses = UserRepository.class, includeFilters = @ComponentScan.Filter(
+        type = FilterType.ASSIGNABLE_TYPE,
+        classes = {UserRepository.class, PaymentTransactionRepository.class, TokenUsageLogRepository.class}))
+    static class UserEntities {
+    }
+}
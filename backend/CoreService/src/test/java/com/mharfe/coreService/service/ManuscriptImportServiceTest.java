@@ -0,0 +1,151 @@
+package com.mharfe.coreService.service;
+
+import com.mharfe.coreService.autosave.PageAutosaveBuffer;
+import com.mharfe.coreService.manuscript.ManuscriptImportRegistry;
+import com.mharfe.coreService.model.book.Book;
+import com.mharfe.coreService.model.book.Chapter;
+import com.mharfe.coreService.model.book.Page;
+import com.mharfe.coreService.ordering.RankAllocator;
+import com.mharfe.coreService.repository.BookRepository;
+import com.mharfe.coreService.repository.MongoIds;
+import com.mharfe.coreService.support.InMemoryMongoTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ManuscriptImportServiceTest extends InMemoryMongoTest {
+
+    private static final String MANUSCRIPT = """
+        # Arrival
+
+        %s
+
+        %s
+
+        %s
+
+        # The Keep
+
+        %s
+
+        %s
+
+        """.formatted(paragraph('a'), paragraph('b'), paragraph('c'), paragraph('d'), paragraph('e'));
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    private ManuscriptImportService importService;
+    private final UUID ownerId = UUID.randomUUID();
+    private Book book;
+
+    @BeforeEach
+    public void setUp() {
+        PageAutosaveBuffer autosaveBuffer = new PageAutosaveBuffer(mongoTemplate, event -> {}, new SimpleMeterRegistry(),
+            5_000, 30_000, 500);
+        importService = new ManuscriptImportService(bookRepository, mongoTemplate, new ManuscriptImportRegistry(),
+            new RankAllocator(mongoTemplate, autosaveBuffer, event -> {}, 24, 5_000), event -> {}, 2, 100, 20_000);
+
+        book = mongoTemplate.insert(new Book(ownerId, "The Dragon's Keep", "A young knight climbs the mountain"));
+        Chapter deleted = new Chapter("Discarded draft", 1, book);
+        deleted.setDeletedAt(LocalDateTime.now());
+        mongoTemplate.insert(deleted);
+    }
+
+    @Test
+    public void testImportAddsChaptersToTheBookInOrder() {
+        importService.importManuscript(book.getId(), stream(MANUSCRIPT), MANUSCRIPT.length(), null, 100, ownerId);
+
+        List<Chapter> imported = importedChapters();
+        assertEquals(List.of("Arrival", "The Keep"), imported.stream().map(Chapter::getTitle).toList());
+        // The deleted chapter does not take a number
+        assertEquals(List.of(1, 2), imported.stream().map(Chapter::getOrder).toList());
+        assertEquals(imported.stream().map(Chapter::getId).toList(), bookChapterIds());
+        assertEquals(5, pagesOf(imported).size());
+    }
+
+    @Test
+    public void testFailedStreamWritesTheOpenChapter() {
+        InputStream failing = new SequenceInputStream(stream(MANUSCRIPT), new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Connection reset");
+            }
+        });
+
+        assertThrows(RuntimeException.class,
+            () -> importService.importManuscript(book.getId(), failing, -1, null, 100, ownerId));
+
+        List<Chapter> imported = importedChapters();
+        assertEquals(List.of("Arrival", "The Keep"), imported.stream().map(Chapter::getTitle).toList());
+        assertEquals(imported.stream().map(Chapter::getId).toList(), bookChapterIds());
+        // Every written page belongs to a written chapter and is referenced by it
+        List<Page> pages = pagesOf(imported);
+        assertEquals(mongoTemplate.count(new Query(), Page.class), pages.size());
+        for (Chapter chapter : imported) {
+            Document stored = mongoTemplate.findById(chapter.getId(), Document.class, "chapters");
+            List<String> pageIds = pages.stream()
+                .filter(page -> MongoIds.refId(page.getChapter(), Chapter::getId).equals(chapter.getId()))
+                .map(Page::getId)
+                .toList();
+            assertEquals(pageIds, MongoIds.refIds(stored, "pages"));
+        }
+    }
+
+    @Test
+    public void testPagesOfUnwrittenChaptersAreRemoved() {
+        // Makes the chapter "The Keep" impossible to write
+        mongoTemplate.indexOps(Chapter.class).ensureIndex(new Index("title", Sort.Direction.ASC).unique().named("title_once"));
+        mongoTemplate.insert(new Chapter("The Keep", 1, mongoTemplate.insert(new Book(ownerId, "Another book", null))));
+
+        assertThrows(RuntimeException.class,
+            () -> importService.importManuscript(book.getId(), stream(MANUSCRIPT), MANUSCRIPT.length(), null, 100, ownerId));
+
+        assertTrue(bookChapterIds().isEmpty());
+        assertTrue(importedChapters().isEmpty());
+        List<String> chapterIds = mongoTemplate.findAll(Chapter.class).stream().map(Chapter::getId).toList();
+        assertTrue(mongoTemplate.findAll(Page.class).stream()
+            .allMatch(page -> chapterIds.contains(MongoIds.refId(page.getChapter(), Chapter::getId))));
+    }
+
+    private List<Chapter> importedChapters() {
+        Query query = Query.query(Criteria.where("book.$id").is(MongoIds.toObjectId(book.getId())).and("deletedAt").is(null))
+            .with(RankAllocator.Siblings.CHAPTERS.sort());
+        return mongoTemplate.find(query, Chapter.class);
+    }
+
+    private List<Page> pagesOf(List<Chapter> chapters) {
+        Query query = Query.query(Criteria.where("chapter.$id").in(MongoIds.toObjectIds(chapters.stream().map(Chapter::getId).toList())))
+            .with(Sort.by("chapter.$id").and(RankAllocator.Siblings.PAGES.sort()));
+        return mongoTemplate.find(query, Page.class);
+    }
+
+    private List<String> bookChapterIds() {
+        return MongoIds.refIds(mongoTemplate.findById(book.getId(), Document.class, "books"), "chapters");
+    }
+
+    private static InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String paragraph(char letter) {
+        return (letter + " ").repeat(45).strip();
+    }
+}
@@ -0,0 +1,164 @@
+package com.mharfe.coreService.service;
+
+import com.mharfe.coreService.autosave.PageAutosaveBuffer;
+import com.mharfe.coreService.cache.BookOwnerCache;
+import com.mharfe.coreService.cache.DtoCache;
+import com.mharfe.coreService.delta.PageDeltaLog;
+import com.mharfe.coreService.dto.book.BookBasicDTO;
+import com.mharfe.coreService.dto.book.ChapterBasicDTO;
+import com.mharfe.coreService.dto.book.ImagePromptDTO;
+import com.mharfe.coreService.dto.book.PageBasicDTO;
+import com.mharfe.coreService.maintenance.CascadeDeleter;
+import com.mharfe.coreService.mapper.BookMapper;
+import com.mharfe.coreService.mapper.ChapterMapper;
+import com.mharfe.coreService.mapper.ImagePromptMapper;
+import com.mharfe.coreService.mapper.PageMapper;
+import com.mharfe.coreService.model.book.Book;
+import com.mharfe.coreService.model.book.Chapter;
+import com.mharfe.coreService.model.book.ImagePrompt;
+import com.mharfe.coreService.model.book.Page;
+import com.mharfe.coreService.ordering.OrderKeys;
+import com.mharfe.coreService.ordering.RankAllocator;
+import com.mharfe.coreService.pagination.CursorPage;
+import com.mharfe.coreService.repository.BookRepository;
+import com.mharfe.coreService.repository.ChapterRepository;
+import com.mharfe.coreService.repository.ImagePromptRepository;
+import com.mharfe.coreService.repository.PageRepository;
+import com.mharfe.coreService.support.InMemoryMongoTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Following {@code nextCursor} through the Mongo listings serves every item once, in
+ * order, including chapters and pages written before ranks existed.
+ */
+public class MongoPaginationTest extends InMemoryMongoTest {
+
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private ChapterRepository chapterRepository;
+    @Autowired
+    private PageRepository pageRepository;
+    @Autowired
+    private ImagePromptRepository imagePromptRepository;
+
+    private BookService bookService;
+    private ChapterService chapterService;
+    private PageService pageService;
+    private ImagePromptService imagePromptService;
+    private final UUID ownerId = UUID.randomUUID();
+    private Book book;
+
+    @BeforeEach
+    public void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        CascadeDeleter cascadeDeleter = new CascadeDeleter(mongoTemplate, meterRegistry, 500, 50, 10_000);
+        DtoCache dtoCache = new DtoCache(meterRegistry, 1 << 20, 60_000);
+        PageAutosaveBuffer autosaveBuffer = new PageAutosaveBuffer(mongoTemplate, event -> {}, meterRegistry, 5_000, 30_000, 500);
+        RankAllocator rankAllocator = new RankAllocator(mongoTemplate, autosaveBuffer, event -> {}, 24, 5_000);
+        BookOwnershipService bookOwnershipService = new BookOwnershipService(new BookOwnerCache(mongoTemplate));
+        bookService = new BookService(bookRepository, mongoTemplate, new BookMapper(), null, cascadeDeleter, dtoCache,
+            event -> {});
+        chapterService = new ChapterService(chapterRepository, bookRepository, mongoTemplate, new ChapterMapper(), null,
+            bookOwnershipService, rankAllocator, cascadeDeleter, dtoCache, autosaveBuffer, event -> {});
+        pageService = new PageService(pageRepository, chapterRepository, bookRepository, mongoTemplate, new PageMapper(),
+            bookOwnershipService, autosaveBuffer, new PageDeltaLog(100, 10), rankAllocator, cascadeDeleter, event -> {});
+        imagePromptService = new ImagePromptService(imagePromptRepository, pageRepository, new ImagePromptMapper());
+
+        book = mongoTemplate.insert(new Book(ownerId, "The Dragon's Keep", "A young knight climbs the mountain"));
+    }
+
+    @Test
+    public void testBooksByUser() {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            ids.add(mongoTemplate.insert(new Book(ownerId, "Book " + i, null)).getId());
+        }
+        ids.add(0, book.getId());
+        mongoTemplate.insert(new Book(UUID.randomUUID(), "Someone else's", null));
+
+        assertEquals(ids, collect(cursor -> bookService.getBooksByUser(ownerId, cursor, 2), BookBasicDTO::getId));
+    }
+
+    @Test
+    public void testChaptersByBookWithLegacyChapters() {
+        // Written before ranks: no rank, and two share an order
+        List<String> ids = new ArrayList<>();
+        for (int order : new int[] {1, 2, 2, 3, 4}) {
+            ids.add(mongoTemplate.insert(new Chapter("Chapter " + order, order, book)).getId());
+        }
+
+        assertEquals(ids, collect(cursor -> chapterService.getChaptersByBook(book.getId(), cursor, 2), ChapterBasicDTO::getId));
+        assertEquals(ids, chapterService.getChaptersByBook(book.getId()).stream().map(ChapterBasicDTO::getId).toList());
+    }
+
+    @Test
+    public void testChaptersByBookWithMixedRanks() {
+        List<String> ids = new ArrayList<>();
+        List<String> ranks = OrderKeys.spread(3);
+        for (int i = 0; i < 3; i++) {
+            Chapter chapter = new Chapter("Chapter " + (i + 1), i + 1, book);
+            chapter.setRank(ranks.get(i));
+            ids.add(mongoTemplate.insert(chapter).getId());
+        }
+        // A legacy chapter added last must not jump to the front
+        ids.add(mongoTemplate.insert(new Chapter("Chapter 4", 4, book)).getId());
+
+        assertEquals(ids, collect(cursor -> chapterService.getChaptersByBook(book.getId(), cursor, 3), ChapterBasicDTO::getId));
+    }
+
+    @Test
+    public void testPagesByChapter() {
+        Chapter chapter = mongoTemplate.insert(new Chapter("Chapter 1", 1, book));
+        chapter.setOwnerId(ownerId);
+        List<String> ids = new ArrayList<>();
+        for (int number = 1; number <= 5; number++) {
+            Page page = new Page("Text of page " + number, number, chapter);
+            page.setOwnerId(ownerId);
+            page.setBookId(book.getId());
+            ids.add(mongoTemplate.insert(page).getId());
+        }
+
+        assertEquals(ids, collect(cursor -> pageService.getPagesByChapter(chapter.getId(), ownerId, cursor, 2), PageBasicDTO::getId));
+        assertEquals(ids, pageService.getPagesByChapter(chapter.getId(), ownerId).stream().map(PageBasicDTO::getId).toList());
+    }
+
+    @Test
+    public void testImagePromptsByPage() {
+        Chapter chapter = mongoTemplate.insert(new Chapter("Chapter 1", 1, book));
+        Page page = mongoTemplate.insert(new Page("Text of page 1", 1, chapter));
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(mongoTemplate.insert(new ImagePrompt("Scene " + i, "/images/" + i + ".jpg", page)).getId());
+        }
+
+        assertEquals(ids, collect(cursor -> imagePromptService.getImagePromptsByPage(page.getId(), cursor, 2), ImagePromptDTO::getId));
+    }
+
+    /**
+     * Every item, following the cursors from the first slice to the last.
+     */
+    static <T> List<String> collect(Function<String, CursorPage<T>> slice, Function<T, String> id) {
+        List<String> ids = new ArrayList<>();
+        String cursor = null;
+        for (int slices = 0; slices < 100; slices++) {
+            CursorPage<T> page = slice.apply(cursor);
+            page.getItems().forEach(item -> ids.add(id.apply(item)));
+            if (!page.isHasNext()) {
+                return ids;
+            }
+            cursor = page.getNextCursor();
+        }
+        throw new AssertionError("The cursors never reached the last slice");
+    }
+}
@@ -0,0 +1,124 @@
+package com.mharfe.coreService.service;
+
+import com.mharfe.coreService.autosave.PageAutosaveBuffer;
+import com.mharfe.coreService.cache.BookOwnerCache;
+import com.mharfe.coreService.cache.DtoCache;
+import com.mharfe.coreService.dto.book.BookDTO;
+import com.mharfe.coreService.dto.book.ChapterBasicDTO;
+import com.mharfe.coreService.dto.book.ChapterDTO;
+import com.mharfe.coreService.dto.book.PageBasicDTO;
+import com.mharfe.coreService.fields.FieldSet;
+import com.mharfe.coreService.maintenance.CascadeDeleter;
+import com.mharfe.coreService.mapper.BookMapper;
+import com.mharfe.coreService.mapper.ChapterMapper;
+import com.mharfe.coreService.model.book.Book;
+import com.mharfe.coreService.model.book.Chapter;
+import com.mharfe.coreService.model.book.Page;
+import com.mharfe.coreService.ordering.RankAllocator;
+import com.mharfe.coreService.repository.BookRepository;
+import com.mharfe.coreService.repository.ChapterRepository;
+import com.mharfe.coreService.repository.MongoIds;
+import com.mharfe.coreService.support.InMemoryMongoTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Sparse reads must read less than full ones: the child documents are read once,
+ * with a projection, and never through the lazy reference lists first.
+ */
+public class SparseReadTest extends InMemoryMongoTest {
+
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private ChapterRepository chapterRepository;
+
+    private BookService bookService;
+    private ChapterService chapterService;
+    private final UUID ownerId = UUID.randomUUID();
+    private Book book;
+    private List<Chapter> chapters;
+    private List<Page> pages;
+
+    @BeforeEach
+    public void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        CascadeDeleter cascadeDeleter = new CascadeDeleter(mongoTemplate, meterRegistry, 500, 50, 10_000);
+        DtoCache dtoCache = new DtoCache(meterRegistry, 1 << 20, 60_000);
+        PageAutosaveBuffer autosaveBuffer = new PageAutosaveBuffer(mongoTemplate, event -> {}, meterRegistry, 5_000, 30_000, 500);
+        bookService = new BookService(bookRepository, mongoTemplate, new BookMapper(), null, cascadeDeleter, dtoCache,
+            event -> {});
+        chapterService = new ChapterService(chapterRepository, bookRepository, mongoTemplate, new ChapterMapper(), null,
+            new BookOwnershipService(new BookOwnerCache(mongoTemplate)),
+            new RankAllocator(mongoTemplate, autosaveBuffer, event -> {}, 24, 5_000), cascadeDeleter, dtoCache,
+            autosaveBuffer, event -> {});
+
+        book = mongoTemplate.insert(new Book(ownerId, "The Dragon's Keep", "A young knight climbs the mountain"));
+        chapters = new ArrayList<>();
+        for (int i = 1; i <= 2; i++) {
+            chapters.add(mongoTemplate.insert(new Chapter("Chapter " + i, i, book)));
+        }
+        pages = new ArrayList<>();
+        // Stored out of page order, so the reference order is what the read must follow
+        for (int number : new int[] {3, 1, 2}) {
+            pages.add(mongoTemplate.insert(new Page("Text of page " + number, number, chapters.get(0))));
+        }
+        push(Book.class, book.getId(), "chapters", "chapters", chapters.stream().map(Chapter::getId).toList());
+        push(Chapter.class, chapters.get(0).getId(), "pages", "pages", pages.stream().map(Page::getId).toList());
+        commands.clear();
+    }
+
+    @Test
+    public void testSparseChapterReadsPagesOnceWithProjection() {
+        ChapterDTO chapter = chapterService.getChapter(chapters.get(0).getId(),
+            FieldSet.parse("title,pages.version", FieldSet.CHAPTER));
+
+        assertEquals(pages.stream().map(Page::getId).toList(), chapter.getPages().stream().map(PageBasicDTO::getId).toList());
+        assertTrue(chapter.getPages().stream().allMatch(page -> page.getTextContent() == null));
+        List<BsonDocument> pageReads = commands("find", "pages");
+        assertEquals(1, pageReads.size(), "pages read: " + pageReads);
+        assertEquals(0, pageReads.get(0).getDocument("projection").getInt32("textContent").getValue());
+    }
+
+    @Test
+    public void testSparseChapterWithoutPagesReadsNoPages() {
+        ChapterDTO chapter = chapterService.getChapter(chapters.get(0).getId(), FieldSet.parse("title", FieldSet.CHAPTER));
+
+        assertEquals("Chapter 1", chapter.getTitle());
+        assertTrue(commands("find", "pages").isEmpty());
+    }
+
+    @Test
+    public void testSparseBookReadsChaptersOnceWithProjection() {
+        BookDTO sparse = bookService.getBook(book.getId(), ownerId, FieldSet.parse("chapters.title", FieldSet.BOOK));
+
+        assertEquals(List.of("Chapter 1", "Chapter 2"), sparse.getChapters().stream().map(ChapterBasicDTO::getTitle).toList());
+        List<BsonDocument> chapterReads = commands("find", "chapters");
+        assertEquals(1, chapterReads.size(), "chapters read: " + chapterReads);
+        assertTrue(chapterReads.get(0).containsKey("projection"));
+        assertTrue(commands("find", "pages").isEmpty());
+    }
+
+    @Test
+    public void testSparseBookStillChecksOwnership() {
+        assertThrows(RuntimeException.class,
+            () -> bookService.getBook(book.getId(), UUID.randomUUID(), FieldSet.parse("title", FieldSet.BOOK)));
+    }
+
+    private void push(Class<?> type, String id, String field, String collection, List<String> ids) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(id)),
+            new Update().push(field).each(MongoIds.dbRefs(collection, ids)), type);
+    }
+}
@@ -0,0 +1,80 @@
+package com.mharfe.coreService.support;
+
+import com.mharfe.coreService.CoreServiceApplication;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Base for tests that need a MongoDB but not a real one: the Mongo slice of the
+ * application runs against an in-process mongo-java-server, started once per JVM.
+ * Every test starts from an empty database, and the commands the driver sends are
+ * recorded in {@link #commands}. Services are built by the tests themselves.
+ * <p>
+ * Query plans and operators the in-memory server lacks are covered by
+ * {@code RepositoryQueryPlanTest} against a real MongoDB.
+ */
+@DataMongoTest
+@ContextConfiguration(classes = CoreServiceApplication.class)
+@Import(InMemoryMongoTest.CommandCapture.class)
+public abstract class InMemoryMongoTest {
+
+    private static final MongoServer server = new MongoServer(new MemoryBackend());
+    private static final String URI = server.bindAndGetConnectionString();
+
+    protected static final List<BsonDocument> commands = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    protected MongoTemplate mongoTemplate;
+
+    @DynamicPropertySource
+    static void mongoProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", () -> URI + "/fantasy_test");
+    }
+
+    @BeforeEach
+    public void resetDatabase() {
+        mongoTemplate.getDb().drop();
+        commands.clear();
+    }
+
+    /**
+     * Recorded commands named {@code commandName} (find, insert, update...) sent to
+     * {@code collection}.
+     */
+    protected static List<BsonDocument> commands(String commandName, String collection) {
+        return commands.stream()
+            .filter(command -> command.containsKey(commandName)
+                && collection.equals(command.get(commandName).asString().getValue()))
+            .toList();
+    }
+
+    @TestConfiguration
+    static class CommandCapture {
+        @Bean
+        MongoClientSettingsBuilderCustomizer commandCapture() {
+            return settings -> settings.addCommandListener(new CommandListener() {
+                @Override
+                public void commandStarted(CommandStartedEvent event) {
+                    commands.add(event.getCommand().clone());
+                }
+            });
+        }
+    }
+}